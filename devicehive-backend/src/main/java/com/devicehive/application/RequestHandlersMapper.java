@@ -29,6 +29,7 @@ import com.devicehive.messages.handler.dao.count.*;
 import com.devicehive.messages.handler.dao.list.*;
 import com.devicehive.messages.handler.notification.NotificationSubscribeRequestHandler;
 import com.devicehive.messages.handler.command.CommandUnsubscribeRequestHandler;
+import com.devicehive.messages.handler.notification.NotificationBatchInsertHandler;
 import com.devicehive.messages.handler.notification.NotificationInsertHandler;
 import com.devicehive.messages.handler.notification.NotificationSearchHandler;
 import com.devicehive.messages.handler.notification.NotificationUnsubscribeRequestHandler;
@@ -46,6 +47,7 @@ public class RequestHandlersMapper implements HandlersMapper {
 
     private final NotificationSearchHandler notificationSearchHandler;
     private final NotificationInsertHandler notificationInsertHandler;
+    private final NotificationBatchInsertHandler notificationBatchInsertHandler;
     private final NotificationSubscribeRequestHandler notificationSubscribeRequestHandler;
     private final NotificationUnsubscribeRequestHandler notificationUnsubscribeRequestHandler;
     private final CommandInsertHandler commandInsertHandler;
@@ -75,6 +77,7 @@ public class RequestHandlersMapper implements HandlersMapper {
     public RequestHandlersMapper(CommandUpdateHandler commandUpdateHandler,
                                  NotificationSearchHandler notificationSearchHandler,
                                  NotificationInsertHandler notificationInsertHandler,
+                                 NotificationBatchInsertHandler notificationBatchInsertHandler,
                                  ListUserHandler listUserHandler,
                                  ListDeviceHandler listDeviceHandler,
                                  NotificationSubscribeRequestHandler notificationSubscribeRequestHandler,
@@ -98,6 +101,7 @@ public class RequestHandlersMapper implements HandlersMapper {
         this.commandUpdateHandler = commandUpdateHandler;
         this.notificationSearchHandler = notificationSearchHandler;
         this.notificationInsertHandler = notificationInsertHandler;
+        this.notificationBatchInsertHandler = notificationBatchInsertHandler;
         this.listUserHandler = listUserHandler;
         this.listDeviceHandler = listDeviceHandler;
         this.notificationSubscribeRequestHandler = notificationSubscribeRequestHandler;
@@ -126,6 +130,7 @@ public class RequestHandlersMapper implements HandlersMapper {
         requestHandlerMap = ImmutableMap.<Action, RequestHandler>builder()
                 .put(Action.NOTIFICATION_SEARCH_REQUEST, notificationSearchHandler)
                 .put(Action.NOTIFICATION_INSERT_REQUEST, notificationInsertHandler)
+                .put(Action.NOTIFICATION_BATCH_INSERT_REQUEST, notificationBatchInsertHandler)
                 .put(Action.NOTIFICATION_SUBSCRIBE_REQUEST, notificationSubscribeRequestHandler)
                 .put(Action.NOTIFICATION_UNSUBSCRIBE_REQUEST, notificationUnsubscribeRequestHandler)
                 .put(Action.COMMAND_INSERT_REQUEST, commandInsertHandler)
@@ -56,6 +56,10 @@ public class NotificationInsertHandler implements RequestHandler {
         eventBus.publish(notificationEvent);
         hazelcastService.store(notification);
 
+        if (request.isNoReply()) {
+            // the reply would be dropped anyway, do not build it
+            return Response.newBuilder().buildSuccess();
+        }
         NotificationInsertResponse payload = new NotificationInsertResponse(notification);
         return Response.newBuilder()
                 .withBody(payload)
@@ -111,6 +111,19 @@ public class HazelcastService {
         mapsHolder.get(hzEntity.getClass()).set(hzEntity.getHazelcastKey(), hzEntity);
     }
 
+    /**
+     * Stores entities of one class with a single bulk operation
+     */
+    public <T extends HazelcastEntity> void storeAll(final Collection<T> hzEntities) {
+        if (hzEntities.isEmpty()) {
+            return;
+        }
+        logger.debug("Saving {} entities into hazelcast", hzEntities.size());
+        Map<String, HazelcastEntity> entities = new HashMap<>(hzEntities.size() * 2);
+        hzEntities.forEach(entity -> entities.put(entity.getHazelcastKey(), entity));
+        mapsHolder.get(hzEntities.iterator().next().getClass()).putAll(entities);
+    }
+
     @SuppressWarnings("unchecked")
     private <T extends HazelcastEntity> Collection<T> find(Predicate predicate, int pageSize, Class<T> tClass) {
         final Predicate pagingPredicate = (pageSize > 0)
@@ -0,0 +1,97 @@
+package com.devicehive.messages.handler.notification;
+
+
+/*
+ * #%L
+ * DeviceHive Backend Logic
+ * %%
+ * Copyright (C) 2016 - 2017 DataArt
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.devicehive.eventbus.EventBus;
+import com.devicehive.model.DeviceNotification;
+import com.devicehive.model.eventbus.events.NotificationEvent;
+import com.devicehive.model.rpc.NotificationBatchInsertRequest;
+import com.devicehive.model.rpc.NotificationBatchInsertResponse;
+import com.devicehive.service.HazelcastService;
+import com.devicehive.shim.api.Request;
+import com.devicehive.shim.api.Response;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class NotificationBatchInsertHandlerTest {
+
+    private final EventBus eventBus = mock(EventBus.class);
+    private final HazelcastService hazelcastService = mock(HazelcastService.class);
+    private final NotificationBatchInsertHandler handler = new NotificationBatchInsertHandler();
+    private final List<DeviceNotification> notifications = Arrays.asList(
+            notification(1L, "device"), notification(2L, "device"), notification(3L, "device"));
+
+    {
+        handler.setEventBus(eventBus);
+        handler.setHazelcastService(hazelcastService);
+    }
+
+    @Test
+    public void shouldStoreBatchOnceAndPublishInOrder() {
+        Response response = handler.handle(request(false));
+
+        assertFalse(response.isFailed());
+        assertSame(notifications, ((NotificationBatchInsertResponse) response.getBody()).getDeviceNotifications());
+
+        ArgumentCaptor<NotificationEvent> events = ArgumentCaptor.forClass(NotificationEvent.class);
+        verify(eventBus, times(3)).publish(events.capture());
+        for (int i = 0; i < notifications.size(); i++) {
+            assertSame(notifications.get(i), events.getAllValues().get(i).getNotification());
+        }
+        verify(hazelcastService).storeAll(notifications);
+    }
+
+    @Test
+    public void shouldStoreWithoutBuildingReplyForNoReplyRequest() {
+        Response response = handler.handle(request(true));
+
+        assertFalse(response.isFailed());
+        assertNull(response.getBody());
+        verify(eventBus, times(3)).publish(any(NotificationEvent.class));
+        verify(hazelcastService).storeAll(notifications);
+    }
+
+    private Request request(boolean noReply) {
+        return Request.newBuilder()
+                .withBody(new NotificationBatchInsertRequest(notifications))
+                .withPartitionKey("device")
+                .withNoReply(noReply)
+                .build();
+    }
+
+    private static DeviceNotification notification(Long id, String deviceId) {
+        DeviceNotification notification = new DeviceNotification();
+        notification.setId(id);
+        notification.setDeviceId(deviceId);
+        return notification;
+    }
+}
@@ -0,0 +1,84 @@
+package com.devicehive.messages.handler.notification;
+
+
+/*
+ * #%L
+ * DeviceHive Backend Logic
+ * %%
+ * Copyright (C) 2016 - 2017 DataArt
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.devicehive.eventbus.EventBus;
+import com.devicehive.model.DeviceNotification;
+import com.devicehive.model.eventbus.events.NotificationEvent;
+import com.devicehive.model.rpc.NotificationInsertRequest;
+import com.devicehive.model.rpc.NotificationInsertResponse;
+import com.devicehive.service.HazelcastService;
+import com.devicehive.shim.api.Request;
+import com.devicehive.shim.api.Response;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+public class NotificationInsertHandlerTest {
+
+    private final EventBus eventBus = mock(EventBus.class);
+    private final HazelcastService hazelcastService = mock(HazelcastService.class);
+    private final NotificationInsertHandler handler = new NotificationInsertHandler();
+    private final DeviceNotification notification = new DeviceNotification();
+
+    @Before
+    public void setUp() {
+        handler.setEventBus(eventBus);
+        handler.setHazelcastService(hazelcastService);
+        notification.setId(1L);
+        notification.setDeviceId("device");
+    }
+
+    @Test
+    public void shouldReplyWithStoredNotification() {
+        Response response = handler.handle(request(false));
+
+        assertFalse(response.isFailed());
+        assertSame(notification, ((NotificationInsertResponse) response.getBody()).getDeviceNotification());
+        verify(eventBus).publish(any(NotificationEvent.class));
+        verify(hazelcastService).store(notification);
+    }
+
+    @Test
+    public void shouldStoreWithoutBuildingReplyForNoReplyRequest() {
+        Response response = handler.handle(request(true));
+
+        assertFalse(response.isFailed());
+        assertNull(response.getBody());
+        verify(eventBus).publish(any(NotificationEvent.class));
+        verify(hazelcastService).store(notification);
+    }
+
+    private Request request(boolean noReply) {
+        return Request.newBuilder()
+                .withBody(new NotificationInsertRequest(notification))
+                .withPartitionKey(notification.getDeviceId())
+                .withNoReply(noReply)
+                .build();
+    }
+}
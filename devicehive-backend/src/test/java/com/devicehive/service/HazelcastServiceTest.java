@@ -0,0 +1,108 @@
+package com.devicehive.service;
+
+
+/*
+ * #%L
+ * DeviceHive Backend Logic
+ * %%
+ * Copyright (C) 2016 - 2017 DataArt
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.devicehive.model.DeviceCommand;
+import com.devicehive.model.DeviceNotification;
+import com.devicehive.model.HazelcastEntity;
+import com.devicehive.service.helpers.HazelcastHelper;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IMap;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class HazelcastServiceTest {
+
+    @SuppressWarnings("unchecked")
+    private final IMap<String, HazelcastEntity> notificationsMap = mock(IMap.class);
+    @SuppressWarnings("unchecked")
+    private final IMap<String, HazelcastEntity> commandsMap = mock(IMap.class);
+    private final HazelcastInstance hazelcastInstance = mock(HazelcastInstance.class);
+
+    private HazelcastService hazelcastService;
+
+    @Before
+    public void setUp() {
+        when(hazelcastInstance.<String, HazelcastEntity>getMap("NOTIFICATIONS-MAP")).thenReturn(notificationsMap);
+        when(hazelcastInstance.<String, HazelcastEntity>getMap("COMMANDS-MAP")).thenReturn(commandsMap);
+        hazelcastService = new HazelcastService(hazelcastInstance, mock(HazelcastHelper.class));
+        hazelcastService.init();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldStoreBatchWithSingleBulkWrite() {
+        DeviceNotification first = notification(1L, "device-1");
+        DeviceNotification second = notification(2L, "device-2");
+
+        hazelcastService.storeAll(Arrays.asList(first, second));
+
+        ArgumentCaptor<Map<String, HazelcastEntity>> entries = ArgumentCaptor.forClass(Map.class);
+        verify(notificationsMap).putAll(entries.capture());
+        assertEquals(2, entries.getValue().size());
+        assertSame(first, entries.getValue().get(first.getHazelcastKey()));
+        assertSame(second, entries.getValue().get(second.getHazelcastKey()));
+        verify(commandsMap, never()).putAll(anyMap());
+    }
+
+    @Test
+    public void shouldStoreCommandsInCommandsMap() {
+        DeviceCommand command = new DeviceCommand();
+        command.setId(1L);
+        command.setDeviceId("device-1");
+        command.setTimestamp(new Date(1000L));
+
+        hazelcastService.storeAll(Collections.singletonList(command));
+
+        verify(commandsMap).putAll(Collections.singletonMap(command.getHazelcastKey(), command));
+        verify(notificationsMap, never()).putAll(anyMap());
+    }
+
+    @Test
+    public void shouldSkipEmptyBatch() {
+        hazelcastService.storeAll(Collections.<DeviceNotification>emptyList());
+
+        verify(notificationsMap, never()).putAll(anyMap());
+        verify(commandsMap, never()).putAll(anyMap());
+    }
+
+    private static DeviceNotification notification(Long id, String deviceId) {
+        DeviceNotification notification = new DeviceNotification();
+        notification.setId(id);
+        notification.setDeviceId(deviceId);
+        notification.setTimestamp(new Date(1000L));
+        return notification;
+    }
+}
@@ -32,6 +32,7 @@ import org.springframework.stereotype.Component;
 
 import javax.transaction.Transactional;
 import javax.validation.constraints.NotNull;
+import java.util.List;
 import java.util.Optional;
 
 @Component
@@ -75,6 +76,10 @@ public class ConfigurationService {
         return configurationDao.getByName(name);
     }
 
+    public List<ConfigurationVO> findByNamePrefix(@NotNull String prefix) {
+        return configurationDao.findByNamePrefix(prefix);
+    }
+
     public String get(@NotNull String name) {
         return findByName(name)
                 .map(ConfigurationVO::getValue)
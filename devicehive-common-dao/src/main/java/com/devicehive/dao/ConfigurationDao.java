@@ -22,12 +22,15 @@ package com.devicehive.dao;
 
 import com.devicehive.vo.ConfigurationVO;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface ConfigurationDao {
 
     Optional<ConfigurationVO> getByName(String name);
 
+    List<ConfigurationVO> findByNamePrefix(String prefix);
+
     int delete(String name);
 
     void persist(ConfigurationVO configuration);
@@ -27,8 +27,12 @@ import com.google.common.collect.SetMultimap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 
 public class RequestResponseMatcher {
@@ -44,13 +48,28 @@ public class RequestResponseMatcher {
         correlationMap.put(correlationId, callback);
     }
 
+    /**
+     * Registers a callback for a multi-reply request. Unlike {@link #addRequestCallback(String, Consumer)},
+     * responses are handed to the callback one at a time in the order they were offered.
+     */
+    public void addStreamCallback(String correlationId, Consumer<Response> callback) {
+        correlationMap.put(correlationId, new OrderedCallback(callback, executionPool));
+    }
+
     public void removeRequestCallback(String correlationId) {
         correlationMap.remove(correlationId);
     }
 
     public void offerResponse(Response response) {
         Consumer<Response> callback = correlationMap.get(response.getCorrelationId());
-        if (callback != null) {
+        if (callback instanceof OrderedCallback) {
+            // a failure ends the stream even if the server did not mark it as the last response
+            if (response.isLast() || response.isFailed()) {
+                correlationMap.remove(response.getCorrelationId());
+            }
+            // enqueued on the offering thread to keep the order
+            callback.accept(response);
+        } else if (callback != null) {
             executionPool.execute(() -> {
                 try {
                     callback.accept(response);
@@ -61,7 +80,8 @@ public class RequestResponseMatcher {
                 }
             });
         } else {
-            logger.warn("Callback was not found for {}. Map size: {}, response: {}", response.getCorrelationId(), correlationMap.size(), response.getBody());
+            // body is intentionally not logged here to avoid decoding it for responses nobody waits for
+            logger.warn("Callback was not found for {}. Map size: {}", response.getCorrelationId(), correlationMap.size());
         }
     }
 
@@ -72,4 +92,46 @@ public class RequestResponseMatcher {
     public void removeSubscription(Long subscriptionId) {
         subscriptionMap.removeAll(subscriptionId);
     }
+
+    private static class OrderedCallback implements Consumer<Response> {
+        private final Consumer<Response> delegate;
+        private final Executor executor;
+        private final Queue<Response> responses = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        OrderedCallback(Consumer<Response> delegate, Executor executor) {
+            this.delegate = delegate;
+            this.executor = executor;
+        }
+
+        @Override
+        public void accept(Response response) {
+            responses.add(response);
+            schedule();
+        }
+
+        private void schedule() {
+            if (draining.compareAndSet(false, true)) {
+                executor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                Response response;
+                while ((response = responses.poll()) != null) {
+                    try {
+                        delegate.accept(response);
+                    } catch (Exception e) {
+                        logger.error("Stream callback failed for {}", response.getCorrelationId(), e);
+                    }
+                }
+            } finally {
+                draining.set(false);
+                if (!responses.isEmpty()) {
+                    schedule();
+                }
+            }
+        }
+    }
 }
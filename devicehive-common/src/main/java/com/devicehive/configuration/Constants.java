@@ -58,6 +58,7 @@ public class Constants {
     public static final String ENV_SECRET_VAR_NAME = "JWT_SECRET";
     public static final String DB_SECRET_VAR_NAME = "jwt.secret";
     public static final String REQUEST_TOPIC = "request_topic";
+    public static final String CONTROL_REQUEST_TOPIC = "control_request_topic";
     public static final String SUBSCRIPTION_TOPIC = "subscription_update";
     public final static String USER_ID = "userId";
     public final static String X_FORWARDED_PROTO_HEADER_NAME = "X-Forwarded-Proto";
@@ -82,6 +83,7 @@ public class Constants {
     public static final String NOTIFICATION = "notification";
     public static final String NOTIFICATIONS = "notifications";
     public static final String NOTIFICATION_ID = "notificationId";
+    public static final String NO_REPLY = "noReply";
     public static final String USER = "user";
     public static final String USERS = "users";
     public static final String COMMAND = "command";
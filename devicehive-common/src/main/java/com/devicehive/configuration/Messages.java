@@ -77,6 +77,7 @@ public class Messages {
     public static final String EMPTY_COMMAND = BidBundle.get("EMPTY_COMMAND");
     public static final String NOTIFICATION_REQUIRED = BidBundle.get("NOTIFICATION_REQUIRED");
     public static final String NOTIFICATION_ID_REQUIRED = BidBundle.get("NOTIFICATION_ID_REQUIRED");
+    public static final String NOTIFICATION_BATCH_SIZE_INVALID = BidBundle.get("NOTIFICATION_BATCH_SIZE_INVALID");
     public static final String CLIENT_IS_NULL = BidBundle.get("CLIENT_IS_NULL");
     public static final String INVALID_AUTH_CODE = BidBundle.get("INVALID_AUTH_CODE");
     public static final String INVALID_AUTH_REQUEST_PARAMETERS = BidBundle.get("INVALID_AUTH_REQUEST_PARAMETERS");
@@ -84,6 +84,8 @@ public class GsonFactory {
                 .registerSubtype(NotificationSearchResponse.class, Action.NOTIFICATION_SEARCH_RESPONSE.ordinal())
                 .registerSubtype(NotificationInsertRequest.class, Action.NOTIFICATION_INSERT_REQUEST.ordinal())
                 .registerSubtype(NotificationInsertResponse.class, Action.NOTIFICATION_INSERT_RESPONSE.ordinal())
+                .registerSubtype(NotificationBatchInsertRequest.class, Action.NOTIFICATION_BATCH_INSERT_REQUEST.ordinal())
+                .registerSubtype(NotificationBatchInsertResponse.class, Action.NOTIFICATION_BATCH_INSERT_RESPONSE.ordinal())
                 .registerSubtype(NotificationSubscribeRequest.class, Action.NOTIFICATION_SUBSCRIBE_REQUEST.ordinal())
                 .registerSubtype(NotificationSubscribeResponse.class, Action.NOTIFICATION_SUBSCRIBE_RESPONSE.ordinal())
                 .registerSubtype(NotificationUnsubscribeRequest.class, Action.NOTIFICATION_UNSUBSCRIBE_REQUEST.ordinal())
@@ -25,12 +25,21 @@ import com.devicehive.shim.api.Request;
 public class ServerEvent {
 
     private Request request;
+    private long publishedAt;
 
     public void set(Request request) {
         this.request = request;
+        this.publishedAt = System.nanoTime();
     }
 
     public Request get() {
         return request;
     }
+
+    /**
+     * @return {@link System#nanoTime()} at the moment the request was put into the event
+     */
+    public long getPublishedAt() {
+        return publishedAt;
+    }
 }
@@ -23,11 +23,13 @@ package com.devicehive.model.rpc;
 import com.devicehive.model.DeviceCommand;
 import com.devicehive.shim.api.Action;
 import com.devicehive.shim.api.Body;
+import com.devicehive.shim.api.ChunkableBody;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
-public class CommandSearchResponse extends Body {
+public class CommandSearchResponse extends Body implements ChunkableBody {
 
     private List<DeviceCommand> commands;
 
@@ -43,4 +45,16 @@ public class CommandSearchResponse extends Body {
     public void setCommands(List<DeviceCommand> commands) {
         this.commands = commands;
     }
+
+    @Override
+    public int size() {
+        return commands == null ? 0 : commands.size();
+    }
+
+    @Override
+    public Body slice(int fromIndex, int toIndex) {
+        CommandSearchResponse chunk = new CommandSearchResponse();
+        chunk.setCommands(new ArrayList<>(commands.subList(fromIndex, toIndex)));
+        return chunk;
+    }
 }
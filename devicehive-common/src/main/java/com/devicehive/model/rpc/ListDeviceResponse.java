@@ -22,11 +22,13 @@ package com.devicehive.model.rpc;
 
 import com.devicehive.shim.api.Action;
 import com.devicehive.shim.api.Body;
+import com.devicehive.shim.api.ChunkableBody;
 import com.devicehive.vo.DeviceVO;
 
+import java.util.ArrayList;
 import java.util.List;
 
-public class ListDeviceResponse extends Body {
+public class ListDeviceResponse extends Body implements ChunkableBody {
 
     private List<DeviceVO> devices;
 
@@ -38,4 +40,14 @@ public class ListDeviceResponse extends Body {
     public List<DeviceVO> getDevices() {
         return devices;
     }
+
+    @Override
+    public int size() {
+        return devices == null ? 0 : devices.size();
+    }
+
+    @Override
+    public Body slice(int fromIndex, int toIndex) {
+        return new ListDeviceResponse(new ArrayList<>(devices.subList(fromIndex, toIndex)));
+    }
 }
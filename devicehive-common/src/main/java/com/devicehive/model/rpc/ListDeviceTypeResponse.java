@@ -22,11 +22,13 @@ package com.devicehive.model.rpc;
 
 import com.devicehive.shim.api.Action;
 import com.devicehive.shim.api.Body;
+import com.devicehive.shim.api.ChunkableBody;
 import com.devicehive.vo.DeviceTypeVO;
 
+import java.util.ArrayList;
 import java.util.List;
 
-public class ListDeviceTypeResponse extends Body {
+public class ListDeviceTypeResponse extends Body implements ChunkableBody {
 
     private List<DeviceTypeVO> deviceTypes;
 
@@ -38,4 +40,14 @@ public class ListDeviceTypeResponse extends Body {
     public List<DeviceTypeVO> getDeviceTypes() {
         return deviceTypes;
     }
+
+    @Override
+    public int size() {
+        return deviceTypes == null ? 0 : deviceTypes.size();
+    }
+
+    @Override
+    public Body slice(int fromIndex, int toIndex) {
+        return new ListDeviceTypeResponse(new ArrayList<>(deviceTypes.subList(fromIndex, toIndex)));
+    }
 }
@@ -22,11 +22,13 @@ package com.devicehive.model.rpc;
 
 import com.devicehive.shim.api.Action;
 import com.devicehive.shim.api.Body;
+import com.devicehive.shim.api.ChunkableBody;
 import com.devicehive.vo.NetworkVO;
 
+import java.util.ArrayList;
 import java.util.List;
 
-public class ListNetworkResponse extends Body {
+public class ListNetworkResponse extends Body implements ChunkableBody {
 
     private List<NetworkVO> networks;
 
@@ -38,4 +40,14 @@ public class ListNetworkResponse extends Body {
     public List<NetworkVO> getNetworks() {
         return networks;
     }
+
+    @Override
+    public int size() {
+        return networks == null ? 0 : networks.size();
+    }
+
+    @Override
+    public Body slice(int fromIndex, int toIndex) {
+        return new ListNetworkResponse(new ArrayList<>(networks.subList(fromIndex, toIndex)));
+    }
 }
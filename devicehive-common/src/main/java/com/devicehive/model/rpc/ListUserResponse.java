@@ -22,10 +22,12 @@ package com.devicehive.model.rpc;
 
 import com.devicehive.shim.api.Action;
 import com.devicehive.shim.api.Body;
+import com.devicehive.shim.api.ChunkableBody;
 import com.devicehive.vo.UserVO;
+import java.util.ArrayList;
 import java.util.List;
 
-public class ListUserResponse extends Body {
+public class ListUserResponse extends Body implements ChunkableBody {
 
     private List<UserVO> users;
 
@@ -37,4 +39,14 @@ public class ListUserResponse extends Body {
     public List<UserVO> getUsers() {
         return users;
     }
+
+    @Override
+    public int size() {
+        return users == null ? 0 : users.size();
+    }
+
+    @Override
+    public Body slice(int fromIndex, int toIndex) {
+        return new ListUserResponse(new ArrayList<>(users.subList(fromIndex, toIndex)));
+    }
 }
@@ -23,10 +23,12 @@ package com.devicehive.model.rpc;
 import com.devicehive.model.DeviceNotification;
 import com.devicehive.shim.api.Action;
 import com.devicehive.shim.api.Body;
+import com.devicehive.shim.api.ChunkableBody;
 
+import java.util.ArrayList;
 import java.util.List;
 
-public class NotificationSearchResponse extends Body {
+public class NotificationSearchResponse extends Body implements ChunkableBody {
 
     private List<DeviceNotification> notifications;
 
@@ -38,4 +40,14 @@ public class NotificationSearchResponse extends Body {
     public List<DeviceNotification> getNotifications() {
         return notifications;
     }
+
+    @Override
+    public int size() {
+        return notifications == null ? 0 : notifications.size();
+    }
+
+    @Override
+    public Body slice(int fromIndex, int toIndex) {
+        return new NotificationSearchResponse(new ArrayList<>(notifications.subList(fromIndex, toIndex)));
+    }
 }
@@ -0,0 +1,70 @@
+package com.devicehive.application;
+
+/*
+ * #%L
+ * DeviceHive Java Server Common business logic
+ * %%
+ * Copyright (C) 2016 DataArt
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import io.undertow.servlet.api.DeploymentInfo;
+import io.undertow.websockets.extensions.PerMessageDeflateHandshake;
+import io.undertow.websockets.jsr.WebSocketDeploymentInfo;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.embedded.EmbeddedServletContainerCustomizer;
+import org.springframework.boot.context.embedded.undertow.UndertowEmbeddedServletContainerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Offers the permessage-deflate extension to WebSocket clients. The extension is only used by clients that ask for
+ * it during the handshake.
+ */
+@Configuration
+@ConditionalOnProperty(value = "websocket.compression.enabled", havingValue = "true", matchIfMissing = true)
+public class WebSocketCompressionConfig {
+
+    @Value("${websocket.compression.level:6}")
+    private int compressionLevel;
+
+    @Value("${websocket.compression.server-context-takeover:true}")
+    private boolean serverContextTakeover;
+
+    @Value("${websocket.compression.client-context-takeover:true}")
+    private boolean clientContextTakeover;
+
+    // runs after Spring Boot's own WebSocket customizer, which registers the deployment info
+    @Bean
+    public EmbeddedServletContainerCustomizer webSocketCompressionCustomizer() {
+        return container -> {
+            if (container instanceof UndertowEmbeddedServletContainerFactory) {
+                ((UndertowEmbeddedServletContainerFactory) container).addDeploymentInfoCustomizers(this::addDeflateExtension);
+            }
+        };
+    }
+
+    private void addDeflateExtension(DeploymentInfo deploymentInfo) {
+        WebSocketDeploymentInfo info = (WebSocketDeploymentInfo) deploymentInfo.getServletContextAttributes()
+                .get(WebSocketDeploymentInfo.ATTRIBUTE_NAME);
+        if (info == null) {
+            info = new WebSocketDeploymentInfo();
+            deploymentInfo.addServletContextAttribute(WebSocketDeploymentInfo.ATTRIBUTE_NAME, info);
+        }
+        info.addExtension(new PerMessageDeflateHandshake(false, compressionLevel,
+                serverContextTakeover, clientContextTakeover));
+    }
+}
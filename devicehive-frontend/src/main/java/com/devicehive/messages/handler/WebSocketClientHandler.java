@@ -22,9 +22,12 @@ package com.devicehive.messages.handler;
 
 import com.devicehive.websockets.converters.JsonMessageBuilder;
 import com.devicehive.websockets.converters.WebSocketResponse;
+import com.devicehive.websockets.util.QueuedWebSocketSession;
+import com.devicehive.websockets.util.WebSocketCompressionMetrics;
 import com.google.gson.JsonObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
@@ -38,12 +41,46 @@ import static com.devicehive.websockets.converters.JsonMessageBuilder.REQUEST_ID
 public class WebSocketClientHandler {
     private static final Logger logger = LoggerFactory.getLogger(WebSocketClientHandler.class);
 
+    private final WebSocketCompressionMetrics compressionMetrics;
+
+    @Autowired
+    public WebSocketClientHandler(WebSocketCompressionMetrics compressionMetrics) {
+        this.compressionMetrics = compressionMetrics;
+    }
+
     public void sendMessage(JsonObject json, WebSocketSession session) {
+        sendMessage(json.toString(), session);
+    }
+
+    /**
+     * Sends an already serialized frame
+     */
+    public void sendMessage(String frame, WebSocketSession session) {
         if (!session.isOpen()) {
             return;
         }
+        recordCompression(frame, session);
         try {
-            session.sendMessage(new TextMessage(json.toString()));
+            session.sendMessage(new TextMessage(frame));
+        } catch (IOException e) {
+            logger.error("Exception while sending message", e);
+        }
+    }
+
+    /**
+     * Sends a subscription event, which the session may drop or conflate when the client falls behind
+     */
+    public void sendEvent(String frame, String conflationKey, WebSocketSession session) {
+        if (!(session instanceof QueuedWebSocketSession)) {
+            sendMessage(frame, session);
+            return;
+        }
+        if (!session.isOpen()) {
+            return;
+        }
+        recordCompression(frame, session);
+        try {
+            ((QueuedWebSocketSession) session).sendEvent(frame, conflationKey);
         } catch (IOException e) {
             logger.error("Exception while sending message", e);
         }
@@ -66,6 +103,12 @@ public class WebSocketClientHandler {
         sendMessage(request, jsonObject, session);
     }
 
+    private void recordCompression(String frame, WebSocketSession session) {
+        if (WebSocketCompressionMetrics.isCompressed(session)) {
+            compressionMetrics.record(frame);
+        }
+    }
+
     public JsonObject buildErrorResponse(int errorCode, String message) {
         return JsonMessageBuilder
                 .createErrorResponseBuilder(errorCode, message).build();
@@ -0,0 +1,54 @@
+package com.devicehive.model.wrappers;
+
+/*
+ * #%L
+ * DeviceHive Java Server Common business logic
+ * %%
+ * Copyright (C) 2016 DataArt
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.devicehive.json.strategies.JsonPolicyDef;
+import com.google.gson.annotations.SerializedName;
+
+import static com.devicehive.json.strategies.JsonPolicyDef.Policy.NOTIFICATION_FROM_DEVICE;
+
+/**
+ * Element of a bulk notification insert: notification submit addressed to a device.
+ */
+public class DeviceNotificationBatchItem extends DeviceNotificationWrapper {
+    private static final long serialVersionUID = -1838529462530468516L;
+
+    @SerializedName("deviceId")
+    @JsonPolicyDef(NOTIFICATION_FROM_DEVICE)
+    private String deviceId;
+
+    public String getDeviceId() {
+        return deviceId;
+    }
+
+    public void setDeviceId(String deviceId) {
+        this.deviceId = deviceId;
+    }
+
+    @Override
+    public String toString() {
+        return "DeviceNotificationBatchItem{" +
+                "deviceId='" + deviceId + '\'' +
+                ", notification='" + getNotification() + '\'' +
+                ", parameters=" + getParameters() +
+                '}';
+    }
+}
@@ -24,6 +24,7 @@ import com.devicehive.configuration.Constants;
 import com.devicehive.json.strategies.JsonPolicyDef;
 import com.devicehive.model.DeviceNotification;
 import com.devicehive.model.websockets.InsertNotification;
+import com.devicehive.model.wrappers.DeviceNotificationBatchItem;
 import com.devicehive.model.wrappers.DeviceNotificationWrapper;
 import io.swagger.annotations.*;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -34,6 +35,7 @@ import javax.ws.rs.*;
 import javax.ws.rs.container.AsyncResponse;
 import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.MediaType;
+import java.util.List;
 
 import static com.devicehive.json.strategies.JsonPolicyDef.Policy.NOTIFICATION_FROM_DEVICE;
 
@@ -246,6 +248,8 @@ public interface DeviceNotificationResource {
      * resource in the response body. <table> <tr> <tr>Property Name</tr> <tr>Type</tr> <tr>Description</tr>
      * </tr> <tr> <td>id</td> <td>integer</td> <td>Notification identifier.</td> </tr> <tr> <td>timestamp</td>
      * <td>datetime</td> <td>Notification timestamp (UTC).</td> </tr> </table>
+     * If noReply is set, or the device is listed in notification.insert.no-reply.devices, the notification is
+     * accepted without waiting for the backend and 202 is returned.
      */
     @POST
     @Path("/{deviceId}/notification")
@@ -257,6 +261,7 @@ public interface DeviceNotificationResource {
     })
     @ApiResponses(value = {
             @ApiResponse(code = 201, message = "notification sent", response = InsertNotification.class),
+            @ApiResponse(code = 202, message = "notification accepted, if noReply is set", response = InsertNotification.class),
             @ApiResponse(code = 404, message = "If device not found"),
             @ApiResponse(code = 400, message = "If request is malformed"),
             @ApiResponse(code = 403, message = "If device is not connected to network")
@@ -268,5 +273,43 @@ public interface DeviceNotificationResource {
             @ApiParam(value = "Notification body", required = true, defaultValue = "{}")
             @JsonPolicyDef(NOTIFICATION_FROM_DEVICE)
             DeviceNotificationWrapper notificationSubmit,
+            @ApiParam(name = "noReply", value = "Do not wait for the notification to be stored")
+            @QueryParam("noReply")
+            @DefaultValue("false")
+            boolean noReply,
+            @Suspended final AsyncResponse asyncResponse);
+
+    /**
+     * Creates notifications for one or more devices in a single request. Devices are resolved once for the
+     * whole batch and notifications of each device are stored with one backend call.
+     *
+     * @param notifications Array of notifications, each with the same properties as in single insert plus
+     *                      <i>deviceId</i>.
+     * @return If successful, an array with <i>id</i> and <i>timestamp</i> of every notification, in the submitted
+     * order. If noReply is set, the notifications are accepted without waiting for the backend and 202 is returned.
+     */
+    @POST
+    @Path("/notification/batch")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @PreAuthorize("isAuthenticated() and hasPermission(null, 'CREATE_DEVICE_NOTIFICATION')")
+    @ApiOperation(value = "Create notifications in bulk", notes = "Creates notifications for one or more devices")
+    @ApiImplicitParams({
+            @ApiImplicitParam(name = "Authorization", value = "Authorization token", required = true, dataType = "string", paramType = "header")
+    })
+    @ApiResponses(value = {
+            @ApiResponse(code = 201, message = "notifications sent", response = InsertNotification.class, responseContainer = "List"),
+            @ApiResponse(code = 202, message = "notifications accepted, if noReply is set", response = InsertNotification.class, responseContainer = "List"),
+            @ApiResponse(code = 404, message = "If any device is not found"),
+            @ApiResponse(code = 400, message = "If request is malformed or the batch is empty or too large"),
+            @ApiResponse(code = 403, message = "If any device is not accessible or not connected to network")
+    })
+    void insertBatch(
+            @ApiParam(value = "Notifications", required = true)
+            @JsonPolicyDef(NOTIFICATION_FROM_DEVICE)
+            List<DeviceNotificationBatchItem> notifications,
+            @ApiParam(name = "noReply", value = "Do not wait for the notifications to be stored")
+            @QueryParam("noReply")
+            @DefaultValue("false")
+            boolean noReply,
             @Suspended final AsyncResponse asyncResponse);
 }
@@ -21,6 +21,7 @@ package com.devicehive.resource.impl;
  */
 
 import com.devicehive.auth.HiveAuthentication;
+import com.devicehive.auth.HivePrincipal;
 import com.devicehive.configuration.Messages;
 import com.devicehive.json.strategies.JsonPolicyDef;
 import com.devicehive.model.DeviceNotification;
@@ -28,6 +29,7 @@ import com.devicehive.model.ErrorResponse;
 import com.devicehive.model.SpecialNotifications;
 import com.devicehive.model.eventbus.Filter;
 import com.devicehive.model.websockets.InsertNotification;
+import com.devicehive.model.wrappers.DeviceNotificationBatchItem;
 import com.devicehive.model.wrappers.DeviceNotificationWrapper;
 import com.devicehive.resource.DeviceNotificationResource;
 import com.devicehive.model.converters.TimestampQueryParamParser;
@@ -246,7 +248,8 @@ public class DeviceNotificationResourceImpl implements DeviceNotificationResourc
      * {@inheritDoc}
      */
     @Override
-    public void insert(String deviceId, DeviceNotificationWrapper notificationSubmit, @Suspended final AsyncResponse asyncResponse) {
+    public void insert(String deviceId, DeviceNotificationWrapper notificationSubmit, boolean noReply,
+                       @Suspended final AsyncResponse asyncResponse) {
         hiveValidator.validate(notificationSubmit);
         logger.debug("DeviceNotification insert requested: {}", notificationSubmit);
         final String notificationName = notificationSubmit.getNotification();
@@ -277,6 +280,14 @@ public class DeviceNotificationResourceImpl implements DeviceNotificationResourc
                     asyncResponse.resume(response);
                 } else {
                     DeviceNotification toInsert = notificationService.convertWrapperToNotification(notificationSubmit, device);
+                    if (noReply || notificationService.isNoReplyDevice(deviceId)) {
+                        notificationService.push(toInsert, device);
+                        asyncResponse.resume(ResponseFactory.response(
+                                Response.Status.ACCEPTED,
+                                new InsertNotification(toInsert.getId(), toInsert.getTimestamp()),
+                                JsonPolicyDef.Policy.NOTIFICATION_TO_CLIENT));
+                        return;
+                    }
                     notificationService.insert(toInsert, device)
                             .thenAccept(notification -> {
                                 logger.debug("Device notification insert proceed successfully. deviceId = {} notification = {}",
@@ -298,4 +309,45 @@ public class DeviceNotificationResourceImpl implements DeviceNotificationResourc
             }
         }
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void insertBatch(List<DeviceNotificationBatchItem> notifications, boolean noReply,
+                            @Suspended final AsyncResponse asyncResponse) {
+        logger.debug("DeviceNotification batch insert requested: {} notifications", notifications == null ? 0 : notifications.size());
+        final Set<String> deviceIds = notificationService.getBatchDeviceIds(notifications);
+        final HivePrincipal principal = (HivePrincipal) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        final List<DeviceVO> devices = deviceService.getAllowedExistingDevices(deviceIds, principal);
+        final List<DeviceNotification> toInsert = notificationService.convertBatch(notifications, devices);
+
+        if (noReply) {
+            notificationService.pushBatch(toInsert);
+            asyncResponse.resume(ResponseFactory.response(Response.Status.ACCEPTED, toInsertNotifications(toInsert),
+                    JsonPolicyDef.Policy.NOTIFICATION_TO_CLIENT));
+            return;
+        }
+
+        notificationService.insertBatch(toInsert)
+                .thenAccept(inserted -> {
+                    logger.debug("Device notification batch insert proceed successfully. {} notifications for {} devices",
+                            inserted.size(), deviceIds.size());
+                    asyncResponse.resume(ResponseFactory.response(Response.Status.CREATED, toInsertNotifications(inserted),
+                            JsonPolicyDef.Policy.NOTIFICATION_TO_CLIENT));
+                })
+                .exceptionally(e -> {
+                    logger.warn("Device notification batch insert failed for devices {}.", deviceIds);
+                    ErrorResponse errorCode = new ErrorResponse(INTERNAL_SERVER_ERROR.getStatusCode(),
+                            String.format(Messages.NOTIFICATION_INSERT_FAILED, deviceIds));
+                    asyncResponse.resume(ResponseFactory.response(INTERNAL_SERVER_ERROR, errorCode));
+                    return null;
+                });
+    }
+
+    private static List<InsertNotification> toInsertNotifications(List<DeviceNotification> notifications) {
+        return notifications.stream()
+                .map(notification -> new InsertNotification(notification.getId(), notification.getTimestamp()))
+                .collect(Collectors.toList());
+    }
 }
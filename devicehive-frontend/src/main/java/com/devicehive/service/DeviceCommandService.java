@@ -30,6 +30,8 @@ import com.devicehive.model.rpc.*;
 import com.devicehive.model.wrappers.DeviceCommandWrapper;
 import com.devicehive.service.helpers.LongIdGenerator;
 import com.devicehive.service.helpers.ResponseConsumer;
+import com.devicehive.service.helpers.StreamResponseConsumer;
+import com.devicehive.service.helpers.SubscriptionHub;
 import com.devicehive.service.time.TimestampService;
 import com.devicehive.shim.api.Action;
 import com.devicehive.shim.api.Request;
@@ -43,6 +45,7 @@ import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
@@ -63,6 +66,10 @@ public class DeviceCommandService {
     private final RpcClient rpcClient;
     private final LongIdGenerator idGenerator;
     private final RequestResponseMatcher requestResponseMatcher;
+    private final SubscriptionHub<DeviceCommand> subscriptionHub = new SubscriptionHub<>(this::unsubscribeFromBackend);
+
+    @Value("${subscription.shared:true}")
+    private boolean sharedSubscriptions;
 
     @Autowired
     public DeviceCommandService(TimestampService timestampService,
@@ -113,15 +120,18 @@ public class DeviceCommandService {
         searchRequest.setTake(take);
         searchRequest.setSkip(skip);
 
-        CompletableFuture<Response> future = new CompletableFuture<>();
-        rpcClient.call(Request.newBuilder()
+        // large results arrive in several chunks, which are delivered in order and assembled into one reply,
+        // because REST and WebSocket clients expect the whole list in a single response
+        List<DeviceCommand> commands = new ArrayList<>();
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        rpcClient.callStream(Request.newBuilder()
                 .withBody(searchRequest)
                 .withPartitionKey(searchRequest.getDeviceId())
-                .build(), new ResponseConsumer(future));
-                    
-        
-        // CompletableFuture<Response> => CompletableFuture<List<DeviceCommand>>
-        return future.thenApply(v -> v.getBody().cast(CommandSearchResponse.class).getCommands());
+                .withSingleReply(false)
+                .build(), new StreamResponseConsumer(
+                        r -> commands.addAll(r.getBody().cast(CommandSearchResponse.class).getCommands()), future));
+
+        return future.thenApply(v -> commands);
     }
 
     public CompletableFuture<DeviceCommand> insert(DeviceCommandWrapper commandWrapper, DeviceVO device, UserVO user) {
@@ -136,6 +146,10 @@ public class DeviceCommandService {
         return future.thenApply(r -> ((CommandInsertResponse) r.getBody()).getDeviceCommand());
     }
 
+    /**
+     * Live subscriptions (without timestamp) with the same filters, names and returnUpdated share one backend
+     * subscription
+     */
     public Pair<Long, CompletableFuture<List<DeviceCommand>>> sendSubscribeRequest(
             final Set<Filter> filters,
             final Set<String> names,
@@ -143,6 +157,23 @@ public class DeviceCommandService {
             final boolean returnUpdated,
             final Integer limit,
             final BiConsumer<DeviceCommand, Long> callback) throws InterruptedException {
+        if (!sharedSubscriptions || timestamp != null) {
+            return subscribeToBackend(filters, names, timestamp, returnUpdated, limit, callback);
+        }
+        final Long subscriptionId = idGenerator.generate();
+        CompletableFuture<List<DeviceCommand>> future = subscriptionHub.subscribe(
+                new SubscriptionHub.Key(filters, names, returnUpdated), subscriptionId, callback,
+                fanOut -> subscribeToBackend(filters, names, null, returnUpdated, limit, fanOut));
+        return Pair.of(subscriptionId, future);
+    }
+
+    private Pair<Long, CompletableFuture<List<DeviceCommand>>> subscribeToBackend(
+            final Set<Filter> filters,
+            final Set<String> names,
+            final Date timestamp,
+            final boolean returnUpdated,
+            final Integer limit,
+            final BiConsumer<DeviceCommand, Long> callback) {
 
         final Long subscriptionId = idGenerator.generate();
         Collection<CompletableFuture<Collection<DeviceCommand>>> futures = filters.stream()
@@ -181,6 +212,15 @@ public class DeviceCommandService {
     }
 
     public CompletableFuture<Set<Long>> sendUnsubscribeRequest(Set<Long> subIds) {
+        Set<Long> requested = new HashSet<>(subIds);
+        Set<Long> backendIds = subscriptionHub.unsubscribe(requested);
+        if (backendIds.isEmpty()) {
+            return CompletableFuture.completedFuture(requested);
+        }
+        return unsubscribeFromBackend(backendIds).thenApply(ids -> requested);
+    }
+
+    private CompletableFuture<Set<Long>> unsubscribeFromBackend(Set<Long> subIds) {
         CommandUnsubscribeRequest unsubscribeRequest = new CommandUnsubscribeRequest(subIds);
         Request request = Request.newBuilder()
                 .withBody(unsubscribeRequest)
@@ -21,14 +21,19 @@ package com.devicehive.service;
  */
 
 import com.devicehive.api.RequestResponseMatcher;
+import com.devicehive.configuration.Messages;
+import com.devicehive.exceptions.HiveException;
 import com.devicehive.model.DeviceNotification;
 import com.devicehive.model.SpecialNotifications;
 import com.devicehive.model.eventbus.Filter;
 import com.devicehive.model.eventbus.events.NotificationEvent;
 import com.devicehive.model.rpc.*;
+import com.devicehive.model.wrappers.DeviceNotificationBatchItem;
 import com.devicehive.model.wrappers.DeviceNotificationWrapper;
 import com.devicehive.service.helpers.LongIdGenerator;
 import com.devicehive.service.helpers.ResponseConsumer;
+import com.devicehive.service.helpers.StreamResponseConsumer;
+import com.devicehive.service.helpers.SubscriptionHub;
 import com.devicehive.service.time.TimestampService;
 import com.devicehive.shim.api.Action;
 import com.devicehive.shim.api.Request;
@@ -40,6 +45,7 @@ import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
@@ -48,6 +54,9 @@ import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
+import static javax.servlet.http.HttpServletResponse.SC_BAD_REQUEST;
+import static javax.servlet.http.HttpServletResponse.SC_FORBIDDEN;
+
 @Service
 public class DeviceNotificationService {
 
@@ -58,6 +67,15 @@ public class DeviceNotificationService {
     private final HiveValidator hiveValidator;
     private final LongIdGenerator idGenerator;
     private final RequestResponseMatcher requestResponseMatcher;
+    private final SubscriptionHub<DeviceNotification> subscriptionHub = new SubscriptionHub<>(this::unsubscribeFromBackend);
+
+    @Value("${subscription.shared:true}")
+    private boolean sharedSubscriptions;
+
+    @Value("${notification.batch.max-size:1000}")
+    private int maxBatchSize;
+
+    private Set<String> noReplyDevices = Collections.emptySet();
 
     @Autowired
     public DeviceNotificationService(TimestampService timestampService,
@@ -104,14 +122,18 @@ public class DeviceNotificationService {
         searchRequest.setTake(take);
         searchRequest.setSkip(skip);
         
-        CompletableFuture<Response> future = new CompletableFuture<>();
-        rpcClient.call(Request.newBuilder()
+        // large results arrive in several chunks, which are delivered in order and assembled into one reply,
+        // because REST and WebSocket clients expect the whole list in a single response
+        List<DeviceNotification> notifications = new ArrayList<>();
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        rpcClient.callStream(Request.newBuilder()
                 .withBody(searchRequest)
                 .withPartitionKey(searchRequest.getDeviceId())
-                .build(), new ResponseConsumer(future));
+                .withSingleReply(false)
+                .build(), new StreamResponseConsumer(
+                        r -> notifications.addAll(r.getBody().cast(NotificationSearchResponse.class).getNotifications()), future));
 
-        // CompletableFuture<Response> => CompletableFuture<List<DeviceNotification>>
-        return future.thenApply(v -> v.getBody().cast(NotificationSearchResponse.class).getNotifications());
+        return future.thenApply(v -> notifications);
     }
 
     public CompletableFuture<DeviceNotification> insert(final DeviceNotification notification,
@@ -126,11 +148,139 @@ public class DeviceNotificationService {
         return future.thenApply(r -> r.getBody().cast(NotificationInsertResponse.class).getDeviceNotification());
     }
 
+    /**
+     * @return true if notifications of the device are always inserted with {@link #push}, even when the client
+     * did not ask for noReply (see notification.insert.no-reply.devices)
+     */
+    public boolean isNoReplyDevice(String deviceId) {
+        return noReplyDevices.contains(deviceId);
+    }
+
+    /**
+     * @param devices comma separated device ids, blanks around ids and empty entries are ignored
+     */
+    @Value("${notification.insert.no-reply.devices:}")
+    public void setNoReplyDevices(String devices) {
+        this.noReplyDevices = Arrays.stream(devices.split(","))
+                .map(String::trim)
+                .filter(deviceId -> !deviceId.isEmpty())
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Inserts notification without waiting for the backend: no callback is registered and no reply is produced.
+     */
+    public void push(final DeviceNotification notification, final DeviceVO device) {
+        hiveValidator.validate(notification);
+        rpcClient.push(Request.newBuilder()
+                .withBody(new NotificationInsertRequest(notification))
+                .withPartitionKey(device.getDeviceId())
+                .withNoReply(true)
+                .build());
+    }
+
+    /**
+     * Validates a bulk insert before any device is looked up and returns the ids of the devices it addresses.
+     */
+    public Set<String> getBatchDeviceIds(List<DeviceNotificationBatchItem> items) {
+        if (items == null || items.isEmpty() || items.size() > maxBatchSize) {
+            throw new HiveException(String.format(Messages.NOTIFICATION_BATCH_SIZE_INVALID, maxBatchSize), SC_BAD_REQUEST);
+        }
+        Set<String> deviceIds = new HashSet<>();
+        for (DeviceNotificationBatchItem item : items) {
+            if (item == null || item.getNotification() == null) {
+                throw new HiveException(Messages.NOTIFICATION_REQUIRED, SC_BAD_REQUEST);
+            }
+            if (item.getDeviceId() == null) {
+                throw new HiveException(Messages.DEVICE_ID_REQUIRED, SC_BAD_REQUEST);
+            }
+            if (SpecialNotifications.DEVICE_UPDATE.equals(item.getNotification())
+                    || SpecialNotifications.DEVICE_ADD.equals(item.getNotification())) {
+                throw new HiveException(Messages.FORBIDDEN_INSERT_SPECIAL_NOTIFICATION, SC_FORBIDDEN);
+            }
+            deviceIds.add(item.getDeviceId());
+        }
+        return deviceIds;
+    }
+
+    /**
+     * Converts a bulk insert against devices resolved once for the whole batch, keeping the submitted order.
+     */
+    public List<DeviceNotification> convertBatch(List<DeviceNotificationBatchItem> items, Collection<DeviceVO> devices) {
+        Map<String, DeviceVO> devicesById = new HashMap<>();
+        for (DeviceVO device : devices) {
+            if (device.getNetworkId() == null) {
+                throw new HiveException(String.format(Messages.DEVICE_IS_NOT_CONNECTED_TO_NETWORK, device.getDeviceId()), SC_FORBIDDEN);
+            }
+            devicesById.put(device.getDeviceId(), device);
+        }
+        List<DeviceNotification> notifications = new ArrayList<>(items.size());
+        for (DeviceNotificationBatchItem item : items) {
+            DeviceNotification notification = convertWrapperToNotification(item, devicesById.get(item.getDeviceId()));
+            hiveValidator.validate(notification);
+            notifications.add(notification);
+        }
+        return notifications;
+    }
+
+    /**
+     * Sends one batch request per device, so notifications keep the partition and order of single inserts.
+     */
+    public CompletableFuture<List<DeviceNotification>> insertBatch(final List<DeviceNotification> notifications) {
+        List<CompletableFuture<Response>> futures = new ArrayList<>();
+        groupByDevice(notifications).forEach((deviceId, deviceNotifications) -> {
+            CompletableFuture<Response> future = new CompletableFuture<>();
+            rpcClient.call(Request.newBuilder()
+                    .withBody(new NotificationBatchInsertRequest(deviceNotifications))
+                    .withPartitionKey(deviceId)
+                    .build(), new ResponseConsumer(future));
+            futures.add(future);
+        });
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[futures.size()]))
+                .thenApply(v -> notifications);
+    }
+
+    /**
+     * Bulk counterpart of {@link #push(DeviceNotification, DeviceVO)}.
+     */
+    public void pushBatch(final List<DeviceNotification> notifications) {
+        groupByDevice(notifications).forEach((deviceId, deviceNotifications) ->
+                rpcClient.push(Request.newBuilder()
+                        .withBody(new NotificationBatchInsertRequest(deviceNotifications))
+                        .withPartitionKey(deviceId)
+                        .withNoReply(true)
+                        .build()));
+    }
+
+    private static Map<String, List<DeviceNotification>> groupByDevice(List<DeviceNotification> notifications) {
+        return notifications.stream()
+                .collect(Collectors.groupingBy(DeviceNotification::getDeviceId, LinkedHashMap::new, Collectors.toList()));
+    }
+
+    /**
+     * Live subscriptions (without timestamp) with the same filters and names share one backend subscription
+     */
     public Pair<Long, CompletableFuture<List<DeviceNotification>>> subscribe(
             final Set<Filter> filters,
             final Set<String> names,
             final Date timestamp,
             final BiConsumer<DeviceNotification, Long> callback) {
+        if (!sharedSubscriptions || timestamp != null) {
+            return subscribeToBackend(filters, names, timestamp, callback);
+        }
+        final Long subscriptionId = idGenerator.generate();
+        CompletableFuture<List<DeviceNotification>> future = subscriptionHub.subscribe(
+                new SubscriptionHub.Key(filters, names, null), subscriptionId, callback,
+                fanOut -> subscribeToBackend(filters, names, null, fanOut));
+        return Pair.of(subscriptionId, future);
+    }
+
+    private Pair<Long, CompletableFuture<List<DeviceNotification>>> subscribeToBackend(
+            final Set<Filter> filters,
+            final Set<String> names,
+            final Date timestamp,
+            final BiConsumer<DeviceNotification, Long> callback) {
 
         final Long subscriptionId = idGenerator.generate();
         Set<NotificationSubscribeRequest> subscribeRequests = filters.stream()
@@ -171,6 +321,15 @@ public class DeviceNotificationService {
     }
 
     public CompletableFuture<Set<Long>> unsubscribe(Set<Long> subIds) {
+        Set<Long> requested = new HashSet<>(subIds);
+        Set<Long> backendIds = subscriptionHub.unsubscribe(requested);
+        if (backendIds.isEmpty()) {
+            return CompletableFuture.completedFuture(requested);
+        }
+        return unsubscribeFromBackend(backendIds).thenApply(ids -> requested);
+    }
+
+    private CompletableFuture<Set<Long>> unsubscribeFromBackend(Set<Long> subIds) {
         NotificationUnsubscribeRequest unsubscribeRequest = new NotificationUnsubscribeRequest(subIds);
         Request request = Request.newBuilder()
                 .withBody(unsubscribeRequest)
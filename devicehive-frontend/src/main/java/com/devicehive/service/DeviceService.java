@@ -32,6 +32,7 @@ import com.devicehive.model.response.EntityCountResponse;
 import com.devicehive.model.rpc.*;
 import com.devicehive.model.updates.DeviceUpdate;
 import com.devicehive.service.helpers.ResponseConsumer;
+import com.devicehive.service.helpers.StreamResponseConsumer;
 import com.devicehive.service.time.TimestampService;
 import com.devicehive.shim.api.Action;
 import com.devicehive.shim.api.Request;
@@ -197,14 +198,15 @@ public class DeviceService extends BaseDeviceService {
     }
 
     public CompletableFuture<List<DeviceVO>> list(ListDeviceRequest listDeviceRequest) {
-        CompletableFuture<Response> future = new CompletableFuture<>();
-
-        rpcClient.call(Request
-                .newBuilder()
+        // chunks of a large list are collected here, clients still get the whole list in one response
+        List<DeviceVO> devices = new ArrayList<>();
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        rpcClient.callStream(Request.newBuilder()
                 .withBody(listDeviceRequest)
-                .build(), new ResponseConsumer(future));
+                .withSingleReply(false)
+                .build(), new StreamResponseConsumer(r -> devices.addAll(r.getBody().cast(ListDeviceResponse.class).getDevices()), future));
 
-        return future.thenApply(response -> ((ListDeviceResponse) response.getBody()).getDevices());
+        return future.thenApply(v -> devices);
     }
 
     public CompletableFuture<EntityCountResponse> count(String name, String namePattern, Long networkId, String networkName, HivePrincipal principal) {
@@ -30,6 +30,7 @@ import com.devicehive.model.response.EntityCountResponse;
 import com.devicehive.model.rpc.*;
 import com.devicehive.model.updates.DeviceTypeUpdate;
 import com.devicehive.service.helpers.ResponseConsumer;
+import com.devicehive.service.helpers.StreamResponseConsumer;
 import com.devicehive.shim.api.Request;
 import com.devicehive.shim.api.Response;
 import com.devicehive.shim.api.client.RpcClient;
@@ -180,11 +181,15 @@ public class DeviceTypeService {
     }
 
     public CompletableFuture<List<DeviceTypeVO>> list(ListDeviceTypeRequest request) {
-        CompletableFuture<Response> future = new CompletableFuture<>();
-
-        rpcClient.call(Request.newBuilder().withBody(request).build(), new ResponseConsumer(future));
-
-        return future.thenApply(r -> ((ListDeviceTypeResponse) r.getBody()).getDeviceTypes());
+        // chunks of a large list are collected here, clients still get the whole list in one response
+        List<DeviceTypeVO> deviceTypes = new ArrayList<>();
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        rpcClient.callStream(Request.newBuilder()
+                .withBody(request)
+                .withSingleReply(false)
+                .build(), new StreamResponseConsumer(r -> deviceTypes.addAll(r.getBody().cast(ListDeviceTypeResponse.class).getDeviceTypes()), future));
+
+        return future.thenApply(v -> deviceTypes);
     }
 
     public CompletableFuture<EntityCountResponse> count(String name, String namePattern, HivePrincipal principal) {
@@ -33,6 +33,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -64,6 +65,18 @@ public class FilterBuilderService {
                                             String eventName,
                                             Set<String> names,
                                             HiveAuthentication authentication) {
+        return getFilterListAsync(deviceId, networks, deviceTypes, eventName, names, authentication).join();
+    }
+
+    /**
+     * Same as {@link #getFilterList}, but doesn't wait for the network and device type lists of the principal
+     */
+    public CompletableFuture<Set<Filter>> getFilterListAsync(String deviceId,
+                                                             Set<Long> networks,
+                                                             Set<Long> deviceTypes,
+                                                             String eventName,
+                                                             Set<String> names,
+                                                             HiveAuthentication authentication) {
         final HivePrincipal principal = (HivePrincipal) authentication.getPrincipal();
 
         if (networks != null && !networks.isEmpty()) {
@@ -108,21 +121,26 @@ public class FilterBuilderService {
                         filters = Collections.singleton(new Filter(null, null, null, eventName, null));
                     }
                 } else {
+                    CompletableFuture<Set<Long>> networkIds;
                     if (networks == null) {
                         ListNetworkRequest listNetworkRequest = new ListNetworkRequest();
                         listNetworkRequest.setPrincipal(Optional.of(principal));
-                        networks = networkService.list(listNetworkRequest).join()
-                                .stream().map(NetworkVO::getId).collect(Collectors.toSet());
+                        networkIds = networkService.list(listNetworkRequest)
+                                .thenApply(list -> list.stream().map(NetworkVO::getId).collect(Collectors.toSet()));
+                    } else {
+                        networkIds = CompletableFuture.completedFuture(networks);
                     }
+                    CompletableFuture<Set<Long>> deviceTypeIds;
                     if (deviceTypes == null) {
                         ListDeviceTypeRequest listDeviceTypeRequest = new ListDeviceTypeRequest();
                         listDeviceTypeRequest.setPrincipal(Optional.of(principal));
-                        deviceTypes = deviceTypeService.list(listDeviceTypeRequest).join()
-                                .stream().map(DeviceTypeVO::getId).collect(Collectors.toSet());
+                        deviceTypeIds = deviceTypeService.list(listDeviceTypeRequest)
+                                .thenApply(list -> list.stream().map(DeviceTypeVO::getId).collect(Collectors.toSet()));
+                    } else {
+                        deviceTypeIds = CompletableFuture.completedFuture(deviceTypes);
                     }
-                    final Set<Long> finalDeviceTypes = deviceTypes;
-                    filters = networks.stream()
-                            .flatMap(network -> finalDeviceTypes.stream().flatMap(deviceType -> {
+                    return networkIds.thenCombine(deviceTypeIds, (networkSet, deviceTypeSet) -> networkSet.stream()
+                            .flatMap(network -> deviceTypeSet.stream().flatMap(deviceType -> {
                                 if (names != null) {
                                     return names.stream().map(name ->
                                             new Filter(network, deviceType, null, eventName, name)
@@ -131,13 +149,13 @@ public class FilterBuilderService {
                                     return Stream.of(new Filter(network, deviceType, null, eventName, null));
                                 }
                             }))
-                            .collect(Collectors.toSet());
+                            .collect(Collectors.toSet()));
                 }
             }
 
-            return filters;
+            return CompletableFuture.completedFuture(filters);
         } else {
-            return Collections.emptySet();
+            return CompletableFuture.completedFuture(Collections.emptySet());
         }
     }
 }
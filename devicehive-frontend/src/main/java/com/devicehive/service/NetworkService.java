@@ -30,6 +30,7 @@ import com.devicehive.model.response.EntityCountResponse;
 import com.devicehive.model.rpc.*;
 import com.devicehive.model.updates.NetworkUpdate;
 import com.devicehive.service.helpers.ResponseConsumer;
+import com.devicehive.service.helpers.StreamResponseConsumer;
 import com.devicehive.shim.api.Request;
 import com.devicehive.shim.api.Response;
 import com.devicehive.shim.api.client.RpcClient;
@@ -200,11 +201,15 @@ public class NetworkService {
     }
 
     public CompletableFuture<List<NetworkVO>> list(ListNetworkRequest request) {
-        CompletableFuture<Response> future = new CompletableFuture<>();
-
-        rpcClient.call(Request.newBuilder().withBody(request).build(), new ResponseConsumer(future));
-
-        return future.thenApply(r -> ((ListNetworkResponse) r.getBody()).getNetworks());
+        // chunks of a large list are collected here, clients still get the whole list in one response
+        List<NetworkVO> networks = new ArrayList<>();
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        rpcClient.callStream(Request.newBuilder()
+                .withBody(request)
+                .withSingleReply(false)
+                .build(), new StreamResponseConsumer(r -> networks.addAll(r.getBody().cast(ListNetworkResponse.class).getNetworks()), future));
+
+        return future.thenApply(v -> networks);
     }
 
     public CompletableFuture<EntityCountResponse> count(String name, String namePattern, HivePrincipal principal) {
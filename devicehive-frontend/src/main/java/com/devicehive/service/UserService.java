@@ -35,6 +35,7 @@ import com.devicehive.model.updates.UserUpdate;
 import com.devicehive.service.configuration.ConfigurationService;
 import com.devicehive.service.helpers.PasswordProcessor;
 import com.devicehive.service.helpers.ResponseConsumer;
+import com.devicehive.service.helpers.StreamResponseConsumer;
 import com.devicehive.service.time.TimestampService;
 import com.devicehive.shim.api.Request;
 import com.devicehive.shim.api.Response;
@@ -50,6 +51,7 @@ import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.validation.constraints.NotNull;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Objects;
@@ -301,14 +303,15 @@ public class UserService extends BaseUserService {
         request.setTake(take);
         request.setSkip(skip);
 
-        CompletableFuture<Response> future = new CompletableFuture<>();
-
-        rpcClient.call(Request
-                .newBuilder()
+        // chunks of a large list are collected here, clients still get the whole list in one response
+        List<UserVO> users = new ArrayList<>();
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        rpcClient.callStream(Request.newBuilder()
                 .withBody(request)
-                .build(), new ResponseConsumer(future));
+                .withSingleReply(false)
+                .build(), new StreamResponseConsumer(r -> users.addAll(r.getBody().cast(ListUserResponse.class).getUsers()), future));
 
-        return future.thenApply(r -> ((ListUserResponse) r.getBody()).getUsers());
+        return future.thenApply(v -> users);
     }
 
     public CompletableFuture<EntityCountResponse> count(String login, String loginPattern, Integer role, Integer status) {
@@ -0,0 +1,174 @@
+package com.devicehive.service.helpers;
+
+/*
+ * #%L
+ * DeviceHive Frontend Logic
+ * %%
+ * Copyright (C) 2016 DataArt
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.devicehive.model.eventbus.Filter;
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Shares backend subscriptions between local subscribers with identical filters. The first subscriber of a filter
+ * set creates the backend subscription, later ones attach to it, and events are fanned out locally to every
+ * attached subscriber under its own subscription id. The backend subscription is removed with the last subscriber.
+ * Only live subscriptions can be shared, as the initial history depends on each subscriber's timestamp.
+ */
+public class SubscriptionHub<T> {
+
+    private final Map<Key, Shared<T>> byKey = new HashMap<>();
+    private final Map<Long, Shared<T>> bySubscriber = new HashMap<>();
+    private final Consumer<Set<Long>> backendUnsubscribe;
+
+    /**
+     * @param backendUnsubscribe removes backend subscriptions whose subscribers left before they were established
+     */
+    public SubscriptionHub(Consumer<Set<Long>> backendUnsubscribe) {
+        this.backendUnsubscribe = backendUnsubscribe;
+    }
+
+    /**
+     * @param backend subscribes to the backend with the given fan-out callback, returning the backend subscription
+     * @return future of the initial events, which are only delivered to the subscriber that created the subscription
+     */
+    public CompletableFuture<List<T>> subscribe(Key key, Long subscriptionId, BiConsumer<T, Long> callback,
+                                               Function<BiConsumer<T, Long>, Pair<Long, CompletableFuture<List<T>>>> backend) {
+        Shared<T> shared;
+        synchronized (this) {
+            shared = byKey.get(key);
+            if (shared != null) {
+                shared.subscribers.put(subscriptionId, callback);
+                bySubscriber.put(subscriptionId, shared);
+                return shared.initial.thenApply(events -> Collections.emptyList());
+            }
+            shared = new Shared<>(key);
+            shared.subscribers.put(subscriptionId, callback);
+            byKey.put(key, shared);
+            bySubscriber.put(subscriptionId, shared);
+        }
+        final Shared<T> created = shared;
+        Pair<Long, CompletableFuture<List<T>>> subscription = backend.apply(created::fanOut);
+        boolean abandoned;
+        synchronized (this) {
+            created.backendId = subscription.getLeft();
+            abandoned = created.subscribers.isEmpty();
+        }
+        if (abandoned) {
+            backendUnsubscribe.accept(Collections.singleton(subscription.getLeft()));
+        }
+        subscription.getRight().whenComplete((events, ex) -> {
+            if (ex != null) {
+                remove(created);
+                created.initial.completeExceptionally(ex);
+            } else {
+                created.initial.complete(events);
+            }
+        });
+        return subscription.getRight();
+    }
+
+    /**
+     * Detaches subscribers from shared subscriptions
+     *
+     * @return subscription ids to unsubscribe from the backend: the ids that were never shared and the backend ids of
+     * shared subscriptions left without subscribers
+     */
+    public synchronized Set<Long> unsubscribe(Collection<Long> subscriptionIds) {
+        Set<Long> backendIds = new HashSet<>();
+        for (Long subscriptionId : subscriptionIds) {
+            Shared<T> shared = bySubscriber.remove(subscriptionId);
+            if (shared == null) {
+                backendIds.add(subscriptionId);
+                continue;
+            }
+            shared.subscribers.remove(subscriptionId);
+            if (shared.subscribers.isEmpty()) {
+                byKey.remove(shared.key);
+                if (shared.backendId != null) {
+                    backendIds.add(shared.backendId);
+                }
+            }
+        }
+        return backendIds;
+    }
+
+    public synchronized int getSharedCount() {
+        return byKey.size();
+    }
+
+    public synchronized int getSubscriberCount() {
+        return bySubscriber.size();
+    }
+
+    private synchronized void remove(Shared<T> shared) {
+        byKey.remove(shared.key, shared);
+        shared.subscribers.keySet().forEach(subscriptionId -> bySubscriber.remove(subscriptionId, shared));
+    }
+
+    private static class Shared<T> {
+        private final Key key;
+        private final Map<Long, BiConsumer<T, Long>> subscribers = new ConcurrentHashMap<>();
+        private final CompletableFuture<List<T>> initial = new CompletableFuture<>();
+        private Long backendId;
+
+        private Shared(Key key) {
+            this.key = key;
+        }
+
+        private void fanOut(T event, Long backendId) {
+            subscribers.forEach((subscriptionId, callback) -> callback.accept(event, subscriptionId));
+        }
+    }
+
+    public static class Key {
+        private final Set<Filter> filters;
+        private final Set<String> names;
+        private final Object options;
+
+        /**
+         * @param options subscription parameters besides filters and names that change the events delivered
+         */
+        public Key(Set<Filter> filters, Set<String> names, Object options) {
+            this.filters = new HashSet<>(filters);
+            this.names = names != null ? new HashSet<>(names) : Collections.emptySet();
+            this.options = options;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return Objects.equals(filters, key.filters) &&
+                    Objects.equals(names, key.names) &&
+                    Objects.equals(options, key.options);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(filters, names, options);
+        }
+    }
+}
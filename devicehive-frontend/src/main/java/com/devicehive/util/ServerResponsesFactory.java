@@ -83,6 +83,31 @@ public class ServerResponsesFactory {
         return resultJsonObject;
     }
 
+    /*
+        Frame variants of the messages above that take an already serialized body, so one body can be shared
+        between subscribers. Field order matches the JsonObject variants.
+    */
+    public static String createNotificationInsertFrame(String notificationJson, Long subId) {
+        return createEventFrame("notification/insert", Constants.NOTIFICATION, notificationJson, subId);
+    }
+
+    public static String createCommandInsertFrame(String commandJson, Long subscriptionId) {
+        return createEventFrame("command/insert", Constants.COMMAND, commandJson, subscriptionId);
+    }
+
+    public static String createCommandUpdateFrame(String commandJson, Long subscriptionId) {
+        return createEventFrame("command/update", Constants.COMMAND, commandJson, subscriptionId);
+    }
+
+    private static String createEventFrame(String action, String field, String body, Long subscriptionId) {
+        return new StringBuilder(body.length() + action.length() + 64)
+                .append("{\"action\":\"").append(action)
+                .append("\",\"").append(field).append("\":").append(body)
+                .append(",\"").append(Constants.SUBSCRIPTION_ID).append("\":").append(subscriptionId)
+                .append('}')
+                .toString();
+    }
+
     public static DeviceNotification createNotificationForDevice(DeviceVO device, String notificationName) {
         DeviceNotification notification = new DeviceNotification();
         notification.setId(Math.abs(new Random().nextInt())); // TODO: remove this when id generation will be moved to backend
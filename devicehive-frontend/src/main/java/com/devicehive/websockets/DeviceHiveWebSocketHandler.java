@@ -30,14 +30,16 @@ import com.devicehive.service.DeviceNotificationService;
 import com.devicehive.websockets.converters.JsonMessageBuilder;
 import com.devicehive.websockets.handlers.CommandHandlers;
 import com.devicehive.websockets.handlers.NotificationHandlers;
+import com.devicehive.websockets.util.QueuedWebSocketSession;
 import com.devicehive.websockets.util.SessionMonitor;
+import com.devicehive.websockets.util.SessionRequestExecutor;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParseException;
-import com.google.gson.JsonParser;
 import com.google.gson.JsonSyntaxException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.authentication.AuthenticationCredentialsNotFoundException;
 import org.springframework.security.authentication.BadCredentialsException;
@@ -46,8 +48,8 @@ import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.PongMessage;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
-import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.util.UriComponentsBuilder;
 
 import javax.persistence.OptimisticLockException;
 import javax.persistence.PersistenceException;
@@ -57,27 +59,45 @@ import javax.validation.ConstraintViolationException;
 import java.io.IOException;
 import java.nio.channels.ClosedChannelException;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.CopyOnWriteArraySet;
 
 @Component
 public class DeviceHiveWebSocketHandler extends TextWebSocketHandler {
 
     private static final Logger logger = LoggerFactory.getLogger(DeviceHiveWebSocketHandler.class);
+    private static final String BATCH_EVENTS_PARAM = "batchEvents";
 
     private SessionMonitor sessionMonitor;
+    private WebSocketRequestReader requestReader;
     private WebSocketRequestProcessor requestProcessor;
+    private SessionRequestExecutor requestExecutor;
     private DeviceCommandService commandService;
     private DeviceNotificationService notificationService;
     private WebSocketClientHandler webSocketClientHandler;
 
-    private int sendTimeLimit = 10 * 1000;
-    private int sendBufferSizeLimit = 512 * 1024;
+    @Value("${websocket.session.send-time-limit:10000}")
+    private int sendTimeLimit;
+
+    @Value("${websocket.session.send-buffer-size:524288}")
+    private int sendBufferSizeLimit;
+
+    @Value("${websocket.session.overflow-policy:disconnect}")
+    private String overflowPolicy;
+
+    @Value("${websocket.session.max-batch-events:100}")
+    private int maxBatchEvents;
 
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
         logger.debug("Opening session id {} ", session.getId());
 
-        session = new ConcurrentWebSocketSessionDecorator(session, sendTimeLimit, sendBufferSizeLimit);
+        // clients opt in to array frames with ?batchEvents=true on the handshake URL
+        boolean batchEvents = session.getUri() != null && Boolean.parseBoolean(UriComponentsBuilder.fromUri(session.getUri())
+                .build().getQueryParams().getFirst(BATCH_EVENTS_PARAM));
+        session = new QueuedWebSocketSession(session, sendTimeLimit, sendBufferSizeLimit,
+                QueuedWebSocketSession.OverflowPolicy.fromName(overflowPolicy), batchEvents ? maxBatchEvents : 1);
         HiveWebsocketSessionState state = new HiveWebsocketSessionState();
         session.getAttributes().put(HiveWebsocketSessionState.KEY, state);
 
@@ -91,75 +111,103 @@ public class DeviceHiveWebSocketHandler extends TextWebSocketHandler {
     @Override
     protected void handleTextMessage(WebSocketSession session, TextMessage message) throws IOException, InterruptedException {
         logger.debug("Session id {} ", session.getId());
-        session = sessionMonitor.getSession(session.getId());
-        JsonObject request = null;
-        JsonObject response = null;
+        sessionMonitor.touch(session.getId());
+        final WebSocketSession current = sessionMonitor.getSession(session.getId());
+        final WebSocketRequest frame;
         try {
-            request = new JsonParser().parse(message.getPayload()).getAsJsonObject();
-            requestProcessor.process(request, session);
+            frame = requestReader.read(message.getPayload());
         } catch (JsonSyntaxException | IllegalStateException ex) {
+            webSocketClientHandler.sendMessage(buildErrorResponse(ex), current);
+            return;
+        }
+
+        // requests run off the container I/O thread, in order per session
+        if (!requestExecutor.submit(session.getId(), () -> execute(frame, current))) {
+            logger.warn("Too many pending requests in session {}", session.getId());
+            webSocketClientHandler.sendMessage(frame.getRequest(), webSocketClientHandler.buildErrorResponse(
+                    HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Too many pending requests"), current);
+        }
+    }
+
+    private CompletableFuture<Void> execute(WebSocketRequest frame, WebSocketSession session) {
+        final JsonObject request = frame.getRequest();
+        CompletableFuture<Void> completion;
+        try {
+            completion = requestProcessor.process(frame, session);
+            requestExecutor.expire(completion);
+        } catch (Exception ex) {
+            completion = new CompletableFuture<>();
+            completion.completeExceptionally(ex);
+        }
+        return completion.handle((result, ex) -> {
+            if (ex != null) {
+                Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                JsonObject response = buildErrorResponse(cause);
+                if (response != null) {
+                    webSocketClientHandler.sendMessage(request, response, session);
+                }
+            }
+            return null;
+        });
+    }
+
+    private JsonObject buildErrorResponse(Throwable ex) {
+        if (ex instanceof JsonSyntaxException || ex instanceof IllegalStateException) {
             String errorMessage = "Malformed Json received.";
             logger.error("Error executing the request: {}", errorMessage);
-            response = webSocketClientHandler.buildErrorResponse(HttpServletResponse.SC_BAD_REQUEST, errorMessage);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        } catch (BadCredentialsException ex) {
+            return webSocketClientHandler.buildErrorResponse(HttpServletResponse.SC_BAD_REQUEST, errorMessage);
+        } else if (ex instanceof InterruptedException) {
+            logger.error("Request interrupted", ex);
+            return null;
+        } else if (ex instanceof BadCredentialsException) {
             logger.error("Unauthorized access: {}", ex.getMessage());
-            response = webSocketClientHandler.buildErrorResponse(HttpServletResponse.SC_UNAUTHORIZED, "Invalid credentials");
-        } catch (ExpiredTokenException ex) {
+            return webSocketClientHandler.buildErrorResponse(HttpServletResponse.SC_UNAUTHORIZED, "Invalid credentials");
+        } else if (ex instanceof ExpiredTokenException) {
             logger.info("Access token expired: {}", ex.getMessage());
-            response = webSocketClientHandler.buildErrorResponse(HttpServletResponse.SC_UNAUTHORIZED, "Token expired");
-        } catch (AccessDeniedException | AuthenticationCredentialsNotFoundException ex) {
+            return webSocketClientHandler.buildErrorResponse(HttpServletResponse.SC_UNAUTHORIZED, "Token expired");
+        } else if (ex instanceof AccessDeniedException || ex instanceof AuthenticationCredentialsNotFoundException) {
             logger.error("Access to action is denied", ex.getMessage());
-            response = webSocketClientHandler.buildErrorResponse(HttpServletResponse.SC_FORBIDDEN, ex.getMessage());
-        } catch (InvalidPrincipalException ex) {
+            return webSocketClientHandler.buildErrorResponse(HttpServletResponse.SC_FORBIDDEN, ex.getMessage());
+        } else if (ex instanceof InvalidPrincipalException) {
             logger.error("Unauthorized access", ex.getMessage());
-            response = webSocketClientHandler.buildErrorResponse(HttpServletResponse.SC_UNAUTHORIZED, ex.getMessage());
-        } catch (HiveException ex) {
+            return webSocketClientHandler.buildErrorResponse(HttpServletResponse.SC_UNAUTHORIZED, ex.getMessage());
+        } else if (ex instanceof HiveException) {
             logger.error("Error executing the request: {}", ex.getMessage());
-            response = webSocketClientHandler.buildErrorResponse(ex.getCode(), ex.getMessage());
-        } catch (IllegalParametersException ex) {
+            return webSocketClientHandler.buildErrorResponse(((HiveException) ex).getCode(), ex.getMessage());
+        } else if (ex instanceof IllegalParametersException) {
             logger.error("Error executing the request: {}", ex.getMessage());
-            response = webSocketClientHandler.buildErrorResponse(HttpServletResponse.SC_BAD_REQUEST, ex.getMessage());
-        } catch (ActionNotAllowedException ex) {
+            return webSocketClientHandler.buildErrorResponse(HttpServletResponse.SC_BAD_REQUEST, ex.getMessage());
+        } else if (ex instanceof ActionNotAllowedException) {
             logger.error("Error executing the request: {}", ex.getMessage());
-            response = webSocketClientHandler.buildErrorResponse(HttpServletResponse.SC_FORBIDDEN, ex.getMessage());
-        } catch (ConstraintViolationException ex) {
-            Set<ConstraintViolation<?>> constraintViolations = ex.getConstraintViolations();
+            return webSocketClientHandler.buildErrorResponse(HttpServletResponse.SC_FORBIDDEN, ex.getMessage());
+        } else if (ex instanceof ConstraintViolationException) {
+            Set<ConstraintViolation<?>> constraintViolations = ((ConstraintViolationException) ex).getConstraintViolations();
             StringBuilder errors = new StringBuilder();
             constraintViolations.forEach(exc -> errors.append(exc.getMessage()));
             logger.error("Error executing the request: {}", errors.toString());
-            response = webSocketClientHandler.buildErrorResponse(HttpServletResponse.SC_BAD_REQUEST, errors.toString());
-        } catch (org.hibernate.exception.ConstraintViolationException ex) {
+            return webSocketClientHandler.buildErrorResponse(HttpServletResponse.SC_BAD_REQUEST, errors.toString());
+        } else if (ex instanceof org.hibernate.exception.ConstraintViolationException) {
             logger.error("Error executing the request: {}", ex.getMessage());
-            response = webSocketClientHandler.buildErrorResponse(HttpServletResponse.SC_CONFLICT, ex.getMessage());
-        } catch (OptimisticLockException ex) {
+            return webSocketClientHandler.buildErrorResponse(HttpServletResponse.SC_CONFLICT, ex.getMessage());
+        } else if (ex instanceof OptimisticLockException) {
             logger.error("Error executing the request. Data conflict: {}", ex.getMessage());
-            response = webSocketClientHandler.buildErrorResponse(HttpServletResponse.SC_CONFLICT, Messages.CONFLICT_MESSAGE);
-        } catch (PersistenceException ex) {
+            return webSocketClientHandler.buildErrorResponse(HttpServletResponse.SC_CONFLICT, Messages.CONFLICT_MESSAGE);
+        } else if (ex instanceof PersistenceException) {
             if (ex.getCause() instanceof org.hibernate.exception.ConstraintViolationException) {
-                response = webSocketClientHandler.buildErrorResponse(HttpServletResponse.SC_CONFLICT, ex.getMessage());
+                return webSocketClientHandler.buildErrorResponse(HttpServletResponse.SC_CONFLICT, ex.getMessage());
             } else {
-                response = webSocketClientHandler.buildErrorResponse(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, ex.getMessage());
+                return webSocketClientHandler.buildErrorResponse(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, ex.getMessage());
             }
-        } catch (Exception ex) {
+        } else {
             logger.error("Error executing the request: {}", ex.getMessage());
-            response = webSocketClientHandler.buildErrorResponse(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, ex.getMessage());
-        }
-
-        if (request == null && response != null) {
-            webSocketClientHandler.sendMessage(response, session);
-        }
-
-        if (request != null && response != null) {
-            webSocketClientHandler.sendMessage(request, response, session);
+            return webSocketClientHandler.buildErrorResponse(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, ex.getMessage());
         }
-
     }
 
     @Override
     protected void handlePongMessage(WebSocketSession session, PongMessage message) throws Exception {
         logger.debug("Pong received for session {}", session.getId());
+        sessionMonitor.touch(session.getId());
     }
 
     @Override
@@ -174,6 +222,7 @@ public class DeviceHiveWebSocketHandler extends TextWebSocketHandler {
         notificationService.unsubscribe(notificationSubscriptions);
 
         sessionMonitor.removeSession(session.getId());
+        requestExecutor.remove(session.getId());
 
         if(session.isOpen()) {
             session.close();
@@ -211,11 +260,21 @@ public class DeviceHiveWebSocketHandler extends TextWebSocketHandler {
         this.sessionMonitor = sessionMonitor;
     }
 
+    @Autowired
+    public void setRequestReader(WebSocketRequestReader requestReader) {
+        this.requestReader = requestReader;
+    }
+
     @Autowired
     public void setRequestProcessor(WebSocketRequestProcessor requestProcessor) {
         this.requestProcessor = requestProcessor;
     }
 
+    @Autowired
+    public void setRequestExecutor(SessionRequestExecutor requestExecutor) {
+        this.requestExecutor = requestExecutor;
+    }
+
     @Autowired
     public void setCommandService(DeviceCommandService commandService) {
         this.commandService = commandService;
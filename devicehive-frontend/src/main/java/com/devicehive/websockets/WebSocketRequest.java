@@ -0,0 +1,53 @@
+package com.devicehive.websockets;
+
+/*
+ * #%L
+ * DeviceHive Frontend Logic
+ * %%
+ * Copyright (C) 2016 DataArt
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import com.google.gson.JsonObject;
+
+/**
+ * Inbound frame as read by {@link WebSocketRequestReader}: the top level fields as a tree, and for actions with
+ * a typed payload that payload, already bound into its wrapper type.
+ */
+public class WebSocketRequest {
+
+    private final JsonObject request;
+    private final Object payload;
+
+    public WebSocketRequest(JsonObject request, Object payload) {
+        this.request = request;
+        this.payload = payload;
+    }
+
+    /**
+     * @return top level fields of the frame, without the bound payload
+     */
+    public JsonObject getRequest() {
+        return request;
+    }
+
+    /**
+     * @return the bound payload, null if the frame carries none of the given type
+     */
+    public <T> T getPayload(Class<T> type) {
+        return type.isInstance(payload) ? type.cast(payload) : null;
+    }
+}
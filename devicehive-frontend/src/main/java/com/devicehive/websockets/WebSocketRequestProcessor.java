@@ -21,18 +21,24 @@ package com.devicehive.websockets;
  */
 
 import com.devicehive.exceptions.HiveException;
+import com.devicehive.model.wrappers.DeviceCommandWrapper;
+import com.devicehive.model.wrappers.DeviceNotificationWrapper;
 import com.devicehive.websockets.converters.JsonMessageBuilder;
 import com.devicehive.websockets.handlers.*;
-import com.google.gson.Gson;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParseException;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSyntaxException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.WebSocketSession;
 
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import static com.devicehive.configuration.Constants.DEVICE_ID;
 import static com.devicehive.configuration.Constants.DEVICE_TYPE_ID;
@@ -51,7 +57,6 @@ public class WebSocketRequestProcessor {
     private final NetworkHandlers networkHandlers;
     private final DeviceTypeHandlers deviceTypeHandlers;
     private final UserHandlers userHandlers;
-    private final Gson gson;
 
     @Autowired
     public WebSocketRequestProcessor(CommonHandlers commonHandlers,
@@ -63,8 +68,7 @@ public class WebSocketRequestProcessor {
                                      DeviceHandlers deviceHandlers,
                                      NetworkHandlers networkHandlers,
                                      DeviceTypeHandlers deviceTypeHandlers,
-                                     UserHandlers userHandlers,
-                                     Gson gson) {
+                                     UserHandlers userHandlers) {
         this.commonHandlers = commonHandlers;
         this.apiInfoHandlers = apiInfoHandlers;
         this.configurationHandlers = configurationHandlers;
@@ -75,15 +79,19 @@ public class WebSocketRequestProcessor {
         this.networkHandlers = networkHandlers;
         this.deviceTypeHandlers = deviceTypeHandlers;
         this.userHandlers = userHandlers;
-        this.gson = gson;
     }
 
-    public void process(JsonObject request, WebSocketSession session) throws InterruptedException, IOException, HiveException {
+    /**
+     * Runs the handler of the request action. Handlers that wait for the backend send their response when
+     * the returned future completes; the others have already responded when this method returns.
+     */
+    public CompletableFuture<Void> process(WebSocketRequest frame, WebSocketSession session) throws InterruptedException, IOException, HiveException {
+        final JsonObject request = frame.getRequest();
         WebsocketAction action = getAction(request);
-        final String deviceId = gson.fromJson(request.get(DEVICE_ID), String.class);
-        final Long networkId = gson.fromJson(request.get(NETWORK_ID), Long.class);
-        final Long deviceTypeId = gson.fromJson(request.get(DEVICE_TYPE_ID), Long.class);
-        
+        final String deviceId = getString(request, DEVICE_ID);
+        final Long networkId = getLong(request, NETWORK_ID);
+        final Long deviceTypeId = getLong(request, DEVICE_TYPE_ID);
+
         switch (action) {
             case SERVER_INFO:
                 apiInfoHandlers.processServerInfo(request, session);
@@ -116,11 +124,13 @@ public class WebSocketRequestProcessor {
                 configurationHandlers.processConfigurationDelete(request, session);
                 break;    
             case NOTIFICATION_INSERT:
-                notificationHandlers.processNotificationInsert(deviceId, request, session);
+                notificationHandlers.processNotificationInsert(deviceId, frame.getPayload(DeviceNotificationWrapper.class),
+                        request, session);
                 break;
+            case NOTIFICATION_INSERT_BATCH:
+                return notificationHandlers.processNotificationInsertBatch(request, session);
             case NOTIFICATION_SUBSCRIBE:
-                notificationHandlers.processNotificationSubscribe(deviceId, request, session);
-                break;
+                return notificationHandlers.processNotificationSubscribe(deviceId, request, session);
             case NOTIFICATION_UNSUBSCRIBE:
                 notificationHandlers.processNotificationUnsubscribe(request, session);
                 break;
@@ -131,20 +141,18 @@ public class WebSocketRequestProcessor {
                 notificationHandlers.processNotificationList(request, session);
                 break;
             case COMMAND_INSERT:
-                commandHandlers.processCommandInsert(request, session);
+                commandHandlers.processCommandInsert(frame.getPayload(DeviceCommandWrapper.class), request, session);
                 break;
             case COMMAND_UPDATE:
                 commandHandlers.processCommandUpdate(request, session);
                 break;
             case COMMAND_SUBSCRIBE:
-                commandHandlers.processCommandSubscribe(deviceId, request, session);
-                break;
+                return commandHandlers.processCommandSubscribe(deviceId, request, session);
             case COMMAND_UNSUBSCRIBE:
                 commandHandlers.processCommandUnsubscribe(request, session);
                 break;
             case COMMAND_GET:
-                commandHandlers.processCommandGet(deviceId, request, session);
-                break;
+                return commandHandlers.processCommandGet(deviceId, request, session);
             case COMMAND_LIST:
                 commandHandlers.processCommandList(deviceId, request, session);
                 break;
@@ -256,9 +264,10 @@ public class WebSocketRequestProcessor {
             case EMPTY: default:
                 throw new JsonParseException("'action' field could not be parsed to known endpoint");
         }
+        return CompletableFuture.completedFuture(null);
     }
 
-    private WebsocketAction getAction(JsonObject request) {
+    static WebsocketAction getAction(JsonObject request) {
         JsonElement action = request.get(JsonMessageBuilder.ACTION);
         if (action == null || !action.isJsonPrimitive()) {
             return WebsocketAction.EMPTY;
@@ -266,6 +275,37 @@ public class WebSocketRequestProcessor {
         return WebsocketAction.forName(action.getAsString());
     }
 
+    /**
+     * Reads a string field straight from the tree, without going through Gson's tree reader
+     */
+    static String getString(JsonObject request, String name) {
+        JsonPrimitive value = getPrimitive(request, name);
+        return value != null ? value.getAsString() : null;
+    }
+
+    static Long getLong(JsonObject request, String name) {
+        JsonPrimitive value = getPrimitive(request, name);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return value.getAsLong();
+        } catch (NumberFormatException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    private static JsonPrimitive getPrimitive(JsonObject request, String name) {
+        JsonElement value = request.get(name);
+        if (value == null || value.isJsonNull()) {
+            return null;
+        }
+        if (!value.isJsonPrimitive()) {
+            throw new JsonSyntaxException("Expected a primitive value for '" + name + "'");
+        }
+        return value.getAsJsonPrimitive();
+    }
+
     public enum WebsocketAction {
         SERVER_INFO("server/info"),
         SERVER_CACHE_INFO("server/cacheInfo"),
@@ -278,6 +318,7 @@ public class WebSocketRequestProcessor {
         CONFIGURATION_PUT("configuration/put"),
         CONFIGURATION_DELETE("configuration/delete"),
         NOTIFICATION_INSERT("notification/insert"),
+        NOTIFICATION_INSERT_BATCH("notification/insertBatch"),
         NOTIFICATION_SUBSCRIBE("notification/subscribe"),
         NOTIFICATION_UNSUBSCRIBE("notification/unsubscribe"),
         NOTIFICATION_GET("notification/get"),
@@ -325,20 +366,30 @@ public class WebSocketRequestProcessor {
         USER_DISALLOW_ALL_DEVICE_TYPES("user/disallowAllDeviceTypes"),
         EMPTY("");
 
+        private static final Map<String, WebsocketAction> BY_NAME = new HashMap<>();
+
+        static {
+            for (WebsocketAction type : values()) {
+                BY_NAME.put(type.value, type);
+            }
+        }
+
         private String value;
 
         WebsocketAction(String method) {
             this.value = method;
         }
 
+        public String getValue() {
+            return value;
+        }
+
         public static WebsocketAction forName(String value) {
-            for (WebsocketAction type : values()) {
-                if (type.value.equals(value)) {
-                    return type;
-                }
+            WebsocketAction type = BY_NAME.get(value);
+            if (type == null) {
+                throw new HiveException("Illegal argument: " + value, HttpServletResponse.SC_BAD_REQUEST);
             }
-            throw new HiveException("Illegal argument: " + value, HttpServletResponse.SC_BAD_REQUEST);
-
+            return type;
         }
     }
 }
@@ -0,0 +1,119 @@
+package com.devicehive.websockets;
+
+/*
+ * #%L
+ * DeviceHive Frontend Logic
+ * %%
+ * Copyright (C) 2016 DataArt
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import com.devicehive.model.wrappers.DeviceCommandWrapper;
+import com.devicehive.model.wrappers.DeviceNotificationWrapper;
+import com.devicehive.websockets.converters.JsonMessageBuilder;
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.devicehive.configuration.Constants.COMMAND;
+import static com.devicehive.configuration.Constants.NOTIFICATION;
+
+/**
+ * Streaming front stage for inbound frames. Top level fields are read with a {@link JsonReader} into the request
+ * tree, except the payload of notification/insert and command/insert: when the action comes first in the frame,
+ * as clients send it, the payload is bound straight from the reader into its wrapper type, otherwise it is bound
+ * from the tree once the whole frame is read.
+ */
+@Component
+public class WebSocketRequestReader {
+
+    private final TypeAdapter<JsonElement> elementAdapter;
+    private final Map<String, Payload<?>> payloads = new HashMap<>();
+
+    @Autowired
+    public WebSocketRequestReader(Gson gson) {
+        this.elementAdapter = gson.getAdapter(JsonElement.class);
+        payloads.put(WebSocketRequestProcessor.WebsocketAction.NOTIFICATION_INSERT.getValue(),
+                new Payload<>(NOTIFICATION, gson.getAdapter(DeviceNotificationWrapper.class)));
+        payloads.put(WebSocketRequestProcessor.WebsocketAction.COMMAND_INSERT.getValue(),
+                new Payload<>(COMMAND, gson.getAdapter(DeviceCommandWrapper.class)));
+    }
+
+    /**
+     * @throws JsonSyntaxException if the frame is not valid JSON
+     * @throws IllegalStateException if the frame is not a JSON object
+     */
+    public WebSocketRequest read(String frame) {
+        try {
+            JsonReader reader = new JsonReader(new StringReader(frame));
+            // the tree parser used before was lenient as well
+            reader.setLenient(true);
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                throw new IllegalStateException("Not a JSON Object: " + frame);
+            }
+            JsonObject request = new JsonObject();
+            Payload<?> payload = null;
+            Object value = null;
+            boolean bound = false;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (payload != null && !bound && payload.name.equals(name)) {
+                    value = payload.adapter.read(reader);
+                    bound = true;
+                    continue;
+                }
+                JsonElement element = elementAdapter.read(reader);
+                request.add(name, element);
+                if (JsonMessageBuilder.ACTION.equals(name) && element.isJsonPrimitive()) {
+                    payload = payloads.get(element.getAsString());
+                }
+            }
+            reader.endObject();
+            if (reader.peek() != JsonToken.END_DOCUMENT) {
+                throw new JsonSyntaxException("Did not consume the entire document.");
+            }
+            if (payload != null && !bound) {
+                JsonElement element = request.remove(payload.name);
+                value = element != null ? payload.adapter.fromJsonTree(element) : null;
+            }
+            return new WebSocketRequest(request, value);
+        } catch (IOException | NumberFormatException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    private static class Payload<T> {
+        private final String name;
+        private final TypeAdapter<T> adapter;
+
+        private Payload(String name, TypeAdapter<T> adapter) {
+            this.name = name;
+            this.adapter = adapter;
+        }
+    }
+}
@@ -36,6 +36,7 @@ import com.devicehive.service.DeviceService;
 import com.devicehive.service.FilterBuilderService;
 import com.devicehive.vo.*;
 import com.devicehive.websockets.converters.WebSocketResponse;
+import com.devicehive.websockets.util.EventFrameCache;
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import org.apache.commons.lang3.tuple.Pair;
@@ -57,7 +58,6 @@ import static com.devicehive.configuration.Messages.*;
 import static com.devicehive.json.strategies.JsonPolicyDef.Policy.*;
 import static com.devicehive.model.rpc.CommandSearchRequest.createCommandSearchRequest;
 import static com.devicehive.shim.api.Action.COMMAND_EVENT;
-import static com.devicehive.util.ServerResponsesFactory.createCommandMessage;
 import static javax.servlet.http.HttpServletResponse.SC_BAD_REQUEST;
 import static javax.servlet.http.HttpServletResponse.SC_FORBIDDEN;
 import static javax.servlet.http.HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
@@ -75,24 +75,27 @@ public class CommandHandlers {
     private final DeviceCommandService commandService;
     private final FilterBuilderService filterBuilderService;
     private final WebSocketClientHandler clientHandler;
+    private final EventFrameCache eventFrameCache;
 
     @Autowired
     public CommandHandlers(Gson gson,
                            DeviceService deviceService,
                            DeviceCommandService commandService,
                            FilterBuilderService filterBuilderService,
-                           WebSocketClientHandler clientHandler) {
+                           WebSocketClientHandler clientHandler,
+                           EventFrameCache eventFrameCache) {
         this.gson = gson;
         this.deviceService = deviceService;
         this.commandService = commandService;
         this.filterBuilderService = filterBuilderService;
         this.clientHandler = clientHandler;
+        this.eventFrameCache = eventFrameCache;
     }
 
     @HiveWebsocketAuth
     @PreAuthorize("isAuthenticated() and hasPermission(#deviceId, 'GET_DEVICE_COMMAND')")
     @SuppressWarnings("unchecked")
-    public void processCommandSubscribe(String deviceId, JsonObject request, WebSocketSession session)
+    public CompletableFuture<Void> processCommandSubscribe(String deviceId, JsonObject request, WebSocketSession session)
             throws InterruptedException {
         final HiveAuthentication authentication = (HiveAuthentication) SecurityContextHolder.getContext().getAuthentication();
         final Date timestamp = gson.fromJson(request.get(TIMESTAMP), Date.class);
@@ -106,35 +109,34 @@ public class CommandHandlers {
         logger.debug("command/subscribe requested for device: {}. Networks: {}. Device types: {}. Timestamp: {}. Names {} Session: {}",
                 deviceId, networks, deviceTypes, timestamp, names, session);
 
-        Set<Filter> filters = filterBuilderService.getFilterList(deviceId, networks, deviceTypes, COMMAND_EVENT.name(), names, authentication);
-
-        if (!filters.isEmpty()) {
-            BiConsumer<DeviceCommand, Long> callback = (command, subscriptionId) -> {
-                JsonObject json = createCommandMessage(command, subscriptionId, returnUpdated);
-                clientHandler.sendMessage(json, session);
-            };
-
-            Pair<Long, CompletableFuture<List<DeviceCommand>>> pair = commandService
-                    .sendSubscribeRequest(filters, names, timestamp, returnUpdated, limit, callback);
-
-            logger.debug("command/subscribe done for devices: {}. Networks: {}. Device types: {}. Timestamp: {}. Names {} Session: {}",
-                    deviceId, networks, deviceTypes, timestamp, names, session.getId());
-
-            ((CopyOnWriteArraySet) session
-                    .getAttributes()
-                    .get(SUBSCRIPTION_SET_NAME))
-                    .add(pair.getLeft());
-
-            pair.getRight()
-                    .thenAccept(collection -> {
-                        WebSocketResponse response = new WebSocketResponse();
-                        response.addValue(SUBSCRIPTION_ID, pair.getLeft(), null);
-                        clientHandler.sendMessage(request, response, session);
-                        collection.forEach(cmd -> clientHandler.sendMessage(createCommandMessage(cmd, pair.getLeft(), returnUpdated), session));
-                    });
-        } else {
-            throw new HiveException(NO_ACCESS_TO_DEVICE_TYPES_OR_NETWORKS, SC_FORBIDDEN);
-        }
+        return filterBuilderService.getFilterListAsync(deviceId, networks, deviceTypes, COMMAND_EVENT.name(), names, authentication)
+                .thenCompose(filters -> {
+                    if (filters.isEmpty()) {
+                        throw new HiveException(NO_ACCESS_TO_DEVICE_TYPES_OR_NETWORKS, SC_FORBIDDEN);
+                    }
+                    BiConsumer<DeviceCommand, Long> callback = (command, subscriptionId) -> {
+                        clientHandler.sendEvent(eventFrameCache.commandFrame(command, subscriptionId, returnUpdated), null, session);
+                    };
+
+                    Pair<Long, CompletableFuture<List<DeviceCommand>>> pair = commandService
+                            .sendSubscribeRequest(filters, names, timestamp, returnUpdated, limit, callback);
+
+                    logger.debug("command/subscribe done for devices: {}. Networks: {}. Device types: {}. Timestamp: {}. Names {} Session: {}",
+                            deviceId, networks, deviceTypes, timestamp, names, session.getId());
+
+                    ((CopyOnWriteArraySet) session
+                            .getAttributes()
+                            .get(SUBSCRIPTION_SET_NAME))
+                            .add(pair.getLeft());
+
+                    return pair.getRight()
+                            .thenAccept(collection -> {
+                                WebSocketResponse response = new WebSocketResponse();
+                                response.addValue(SUBSCRIPTION_ID, pair.getLeft(), null);
+                                clientHandler.sendMessage(request, response, session);
+                                collection.forEach(cmd -> clientHandler.sendEvent(eventFrameCache.commandFrame(cmd, pair.getLeft(), returnUpdated), null, session));
+                            });
+                });
     }
 
     @HiveWebsocketAuth
@@ -169,12 +171,9 @@ public class CommandHandlers {
 
     @HiveWebsocketAuth
     @PreAuthorize("isAuthenticated() and hasPermission(null, 'CREATE_DEVICE_COMMAND')")
-    public void processCommandInsert(JsonObject request, WebSocketSession session) {
+    public void processCommandInsert(DeviceCommandWrapper deviceCommand, JsonObject request, WebSocketSession session) {
         HivePrincipal principal = (HivePrincipal) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
         final String deviceId = gson.fromJson(request.get(DEVICE_ID), String.class);
-                
-        final DeviceCommandWrapper deviceCommand = gson
-                .fromJson(request.getAsJsonObject(COMMAND), DeviceCommandWrapper.class);
 
         logger.debug("command/insert action for {}, Session ", deviceId, session.getId());
 
@@ -241,7 +240,7 @@ public class CommandHandlers {
 
     @HiveWebsocketAuth
     @PreAuthorize("isAuthenticated() and hasPermission(#deviceId, 'GET_DEVICE_COMMAND')")
-    public void processCommandGet(String deviceId, JsonObject request, WebSocketSession session)  {
+    public CompletableFuture<Void> processCommandGet(String deviceId, JsonObject request, WebSocketSession session)  {
         if (deviceId == null) {
             logger.error("command/get proceed with error. Device ID should be provided.");
             throw new HiveException(DEVICE_ID_REQUIRED, SC_BAD_REQUEST);
@@ -260,7 +259,7 @@ public class CommandHandlers {
             throw new HiveException(String.format(DEVICE_NOT_FOUND, deviceId), SC_NOT_FOUND);
         }
         
-        WebSocketResponse webSocketResponse = commandService.findOne(commandId, deviceId)
+        return commandService.findOne(commandId, deviceId)
                 .thenApply(command -> command
                         .map(c -> {
                             logger.debug("Device command get proceed successfully deviceId = {} commandId = {}", deviceId, commandId);
@@ -271,14 +270,14 @@ public class CommandHandlers {
                 ).exceptionally(ex -> {
                     logger.error("Unable to get command.", ex);
                     throw new HiveException(Messages.INTERNAL_SERVER_ERROR, SC_INTERNAL_SERVER_ERROR);
-                }).join();
-        
-        if (webSocketResponse == null) {
-            logger.error(String.format(COMMAND_NOT_FOUND, commandId));
-            throw new HiveException(String.format(COMMAND_NOT_FOUND, commandId), SC_NOT_FOUND);
-        }
+                }).thenAccept(webSocketResponse -> {
+                    if (webSocketResponse == null) {
+                        logger.error(String.format(COMMAND_NOT_FOUND, commandId));
+                        throw new HiveException(String.format(COMMAND_NOT_FOUND, commandId), SC_NOT_FOUND);
+                    }
 
-        clientHandler.sendMessage(request, webSocketResponse, session);
+                    clientHandler.sendMessage(request, webSocketResponse, session);
+                });
     }
 
     @HiveWebsocketAuth
@@ -32,14 +32,16 @@ import com.devicehive.model.DeviceNotification;
 import com.devicehive.model.eventbus.Filter;
 import com.devicehive.model.rpc.NotificationSearchRequest;
 import com.devicehive.model.websockets.InsertNotification;
+import com.devicehive.model.wrappers.DeviceNotificationBatchItem;
 import com.devicehive.model.wrappers.DeviceNotificationWrapper;
 import com.devicehive.resource.util.JsonTypes;
 import com.devicehive.service.DeviceNotificationService;
 import com.devicehive.service.DeviceService;
 import com.devicehive.service.FilterBuilderService;
-import com.devicehive.util.ServerResponsesFactory;
 import com.devicehive.vo.*;
 import com.devicehive.websockets.converters.WebSocketResponse;
+import com.devicehive.websockets.util.EventFrameCache;
+import com.devicehive.websockets.util.QueuedWebSocketSession;
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParseException;
@@ -57,6 +59,7 @@ import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
 
 import static com.devicehive.configuration.Constants.*;
 import static com.devicehive.configuration.Messages.NO_ACCESS_TO_DEVICE_TYPES_OR_NETWORKS;
@@ -77,24 +80,27 @@ public class NotificationHandlers {
     private final DeviceNotificationService notificationService;
     private final FilterBuilderService filterBuilderService;
     private final WebSocketClientHandler clientHandler;
+    private final EventFrameCache eventFrameCache;
 
     @Autowired
     public NotificationHandlers(Gson gson,
                                 DeviceService deviceService,
                                 DeviceNotificationService notificationService,
                                 FilterBuilderService filterBuilderService,
-                                WebSocketClientHandler clientHandler) {
+                                WebSocketClientHandler clientHandler,
+                                EventFrameCache eventFrameCache) {
         this.gson = gson;
         this.deviceService = deviceService;
         this.notificationService = notificationService;
         this.filterBuilderService = filterBuilderService;
         this.clientHandler = clientHandler;
+        this.eventFrameCache = eventFrameCache;
     }
 
     @HiveWebsocketAuth
     @PreAuthorize("isAuthenticated() and hasPermission(#deviceId, 'GET_DEVICE_NOTIFICATION')")
     @SuppressWarnings("unchecked")
-    public void processNotificationSubscribe(String deviceId, JsonObject request,
+    public CompletableFuture<Void> processNotificationSubscribe(String deviceId, JsonObject request,
                                                           WebSocketSession session) throws InterruptedException, IOException {
         final HiveAuthentication authentication = (HiveAuthentication) SecurityContextHolder.getContext().getAuthentication();
         final Date timestamp = gson.fromJson(request.get(Constants.TIMESTAMP), Date.class);
@@ -105,37 +111,37 @@ public class NotificationHandlers {
         logger.debug("notification/subscribe requested for device: {}. Networks: {}. Device types: {}. Timestamp: {}. Names {} Session: {}",
                 deviceId, networks, deviceTypes, timestamp, names, session);
 
-        Set<Filter> filters = filterBuilderService.getFilterList(deviceId, networks, deviceTypes, NOTIFICATION_EVENT.name(), names, authentication);
-
-        if (!filters.isEmpty()) {
-            BiConsumer<DeviceNotification, Long> callback = (notification, subscriptionId) -> {
-                JsonObject json = ServerResponsesFactory.createNotificationInsertMessage(notification, subscriptionId);
-                clientHandler.sendMessage(json, session);
-            };
-
-            Pair<Long, CompletableFuture<List<DeviceNotification>>> pair = notificationService
-                    .subscribe(filters, names, timestamp, callback);
-
-            logger.debug("notification/subscribe done for devices: {}. Networks: {}. Device types: {}. Timestamp: {}. Names {} Session: {}",
-                    deviceId, networks, deviceTypes, timestamp, names, session.getId());
-
-            ((CopyOnWriteArraySet) session
-                    .getAttributes()
-                    .get(SUBSCSRIPTION_SET_NAME))
-                    .add(pair.getLeft());
-
-            pair.getRight().thenAccept(collection -> {
-                WebSocketResponse response = new WebSocketResponse();
-                response.addValue(SUBSCRIPTION_ID, pair.getLeft(), null);
-                clientHandler.sendMessage(request, response, session);
-                collection.forEach(notification -> {
-                    JsonObject json = ServerResponsesFactory.createNotificationInsertMessage(notification, pair.getLeft());
-                    clientHandler.sendMessage(json, session);
+        return filterBuilderService.getFilterListAsync(deviceId, networks, deviceTypes, NOTIFICATION_EVENT.name(), names, authentication)
+                .thenCompose(filters -> {
+                    if (filters.isEmpty()) {
+                        throw new HiveException(NO_ACCESS_TO_DEVICE_TYPES_OR_NETWORKS, SC_FORBIDDEN);
+                    }
+                    BiConsumer<DeviceNotification, Long> callback = (notification, subscriptionId) -> {
+                        clientHandler.sendEvent(eventFrameCache.notificationInsertFrame(notification, subscriptionId),
+                                conflationKey(subscriptionId, notification), session);
+                    };
+
+                    Pair<Long, CompletableFuture<List<DeviceNotification>>> pair = notificationService
+                            .subscribe(filters, names, timestamp, callback);
+
+                    logger.debug("notification/subscribe done for devices: {}. Networks: {}. Device types: {}. Timestamp: {}. Names {} Session: {}",
+                            deviceId, networks, deviceTypes, timestamp, names, session.getId());
+
+                    ((CopyOnWriteArraySet) session
+                            .getAttributes()
+                            .get(SUBSCSRIPTION_SET_NAME))
+                            .add(pair.getLeft());
+
+                    return pair.getRight().thenAccept(collection -> {
+                        WebSocketResponse response = new WebSocketResponse();
+                        response.addValue(SUBSCRIPTION_ID, pair.getLeft(), null);
+                        clientHandler.sendMessage(request, response, session);
+                        collection.forEach(notification -> {
+                            clientHandler.sendEvent(eventFrameCache.notificationInsertFrame(notification, pair.getLeft()),
+                                    conflationKey(pair.getLeft(), notification), session);
+                        });
+                    });
                 });
-            });
-        } else {
-            throw new HiveException(NO_ACCESS_TO_DEVICE_TYPES_OR_NETWORKS, SC_FORBIDDEN);
-        }
     }
 
     /**
@@ -178,10 +184,9 @@ public class NotificationHandlers {
 
     @HiveWebsocketAuth
     @PreAuthorize("isAuthenticated() and hasPermission(#deviceId, 'CREATE_DEVICE_NOTIFICATION')")
-    public void processNotificationInsert(String deviceId, JsonObject request,
+    public void processNotificationInsert(String deviceId, DeviceNotificationWrapper notificationSubmit, JsonObject request,
                                                        WebSocketSession session) {
         HivePrincipal principal = (HivePrincipal) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
-        DeviceNotificationWrapper notificationSubmit = gson.fromJson(request.get(Constants.NOTIFICATION), DeviceNotificationWrapper.class);
 
         logger.debug("notification/insert requested. Session {}. Device ID {}", session, deviceId);
         if (notificationSubmit == null || notificationSubmit.getNotification() == null) {
@@ -209,6 +214,13 @@ public class NotificationHandlers {
         }
         DeviceNotification message = notificationService.convertWrapperToNotification(notificationSubmit, device);
 
+        if ((request.has(NO_REPLY) && request.get(NO_REPLY).getAsBoolean()) || notificationService.isNoReplyDevice(deviceId)) {
+            notificationService.push(message, device);
+            response.addValue(NOTIFICATION, new InsertNotification(message.getId(), message.getTimestamp()), NOTIFICATION_TO_DEVICE);
+            clientHandler.sendMessage(request, response, session);
+            return;
+        }
+
         notificationService.insert(message, device)
                 .thenAccept(notification -> {
                     logger.debug("notification/insert proceed successfully. Session {}. Device ID {}", session, deviceId);
@@ -217,6 +229,43 @@ public class NotificationHandlers {
                 });
     }
 
+    @HiveWebsocketAuth
+    @PreAuthorize("isAuthenticated() and hasPermission(null, 'CREATE_DEVICE_NOTIFICATION')")
+    public CompletableFuture<Void> processNotificationInsertBatch(JsonObject request, WebSocketSession session) {
+        HivePrincipal principal = (HivePrincipal) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        List<DeviceNotificationBatchItem> items = gson.fromJson(request.get(NOTIFICATIONS), JsonTypes.NOTIFICATION_BATCH_TYPE);
+
+        logger.debug("notification/insertBatch requested. Session {}. {} notifications", session, items == null ? 0 : items.size());
+        Set<String> deviceIds = notificationService.getBatchDeviceIds(items);
+        List<DeviceVO> devices = deviceService.getAllowedExistingDevices(deviceIds, principal);
+        List<DeviceNotification> messages = notificationService.convertBatch(items, devices);
+
+        WebSocketResponse response = new WebSocketResponse();
+
+        if (request.has(NO_REPLY) && request.get(NO_REPLY).getAsBoolean()) {
+            notificationService.pushBatch(messages);
+            response.addValue(NOTIFICATIONS, toInsertNotifications(messages), NOTIFICATION_TO_DEVICE);
+            clientHandler.sendMessage(request, response, session);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return notificationService.insertBatch(messages)
+                .exceptionally(ex -> {
+                    logger.error("Unable to insert notification batch.", ex);
+                    throw new HiveException(Messages.INTERNAL_SERVER_ERROR, SC_INTERNAL_SERVER_ERROR);
+                }).thenAccept(notifications -> {
+                    logger.debug("notification/insertBatch proceed successfully. Session {}. Devices {}", session, deviceIds);
+                    response.addValue(NOTIFICATIONS, toInsertNotifications(notifications), NOTIFICATION_TO_DEVICE);
+                    clientHandler.sendMessage(request, response, session);
+                });
+    }
+
+    private static List<InsertNotification> toInsertNotifications(List<DeviceNotification> notifications) {
+        return notifications.stream()
+                .map(notification -> new InsertNotification(notification.getId(), notification.getTimestamp()))
+                .collect(Collectors.toList());
+    }
+
     @HiveWebsocketAuth
     @PreAuthorize("isAuthenticated() and hasPermission(null, 'GET_DEVICE_NOTIFICATION')")
     public void processNotificationGet(JsonObject request, WebSocketSession session) {
@@ -310,4 +359,8 @@ public class NotificationHandlers {
         }
         throw new HiveException(Messages.INVALID_REQUEST_PARAMETERS, SC_BAD_REQUEST);
     }
+
+    private static String conflationKey(Long subscriptionId, DeviceNotification notification) {
+        return QueuedWebSocketSession.conflationKey(subscriptionId, notification.getDeviceId(), notification.getNotification());
+    }
 }
@@ -0,0 +1,102 @@
+package com.devicehive.websockets.util;
+
+/*
+ * #%L
+ * DeviceHive Frontend Logic
+ * %%
+ * Copyright (C) 2016 DataArt
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.devicehive.json.GsonFactory;
+import com.devicehive.json.strategies.JsonPolicyDef.Policy;
+import com.devicehive.model.DeviceCommand;
+import com.devicehive.model.DeviceNotification;
+import com.devicehive.util.ServerResponsesFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static com.devicehive.json.strategies.JsonPolicyDef.Policy.COMMAND_TO_DEVICE;
+import static com.devicehive.json.strategies.JsonPolicyDef.Policy.COMMAND_UPDATE_TO_CLIENT;
+import static com.devicehive.json.strategies.JsonPolicyDef.Policy.NOTIFICATION_TO_CLIENT;
+
+/**
+ * Serializes each event body once for all local subscribers. Every subscription receives its own copy of an event,
+ * so bodies are cached by event key and only the subscription id is spliced in per session. Event ids are random
+ * and not unique on their own, the key also holds the device id and the event time.
+ */
+@Component
+public class EventFrameCache {
+
+    private final Map<String, String> bodies;
+
+    public EventFrameCache(@Value("${websocket.event-frame.cache-size:1024}") int cacheSize) {
+        this.bodies = new LinkedHashMap<String, String>(cacheSize, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    public String notificationInsertFrame(DeviceNotification notification, Long subscriptionId) {
+        String key = notification.getId() != null && notification.getDeviceId() != null && notification.getTimestamp() != null
+                ? "n:" + notification.getDeviceId() + ":" + notification.getId() + ":" + notification.getTimestamp().getTime()
+                : null;
+        String body = body(key, () -> serialize(notification, NOTIFICATION_TO_CLIENT));
+        return ServerResponsesFactory.createNotificationInsertFrame(body, subscriptionId);
+    }
+
+    /*
+        Commands are updated in place, so the key includes the last update time next to the id
+    */
+    public String commandFrame(DeviceCommand command, Long subscriptionId, Boolean returnUpdated) {
+        Policy policy = returnUpdated ? COMMAND_UPDATE_TO_CLIENT : COMMAND_TO_DEVICE;
+        String key = command.getId() != null && command.getDeviceId() != null && command.getLastUpdated() != null
+                ? "c" + policy.ordinal() + ":" + command.getDeviceId() + ":" + command.getId() + ":"
+                + command.getLastUpdated().getTime()
+                : null;
+        String body = body(key, () -> serialize(command, policy));
+        return returnUpdated
+                ? ServerResponsesFactory.createCommandUpdateFrame(body, subscriptionId)
+                : ServerResponsesFactory.createCommandInsertFrame(body, subscriptionId);
+    }
+
+    private String body(String key, Supplier<String> serializer) {
+        if (key == null) {
+            return serializer.get();
+        }
+        synchronized (bodies) {
+            String body = bodies.get(key);
+            if (body != null) {
+                return body;
+            }
+        }
+        String body = serializer.get();
+        synchronized (bodies) {
+            bodies.putIfAbsent(key, body);
+        }
+        return body;
+    }
+
+    // goes through the tree to keep the output of JsonElement.toString() that clients received before
+    private static String serialize(Object event, Policy policy) {
+        return GsonFactory.createGson(policy).toJsonTree(event).toString();
+    }
+}
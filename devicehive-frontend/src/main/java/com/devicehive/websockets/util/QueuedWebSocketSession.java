@@ -0,0 +1,277 @@
+package com.devicehive.websockets.util;
+
+/*
+ * #%L
+ * DeviceHive Frontend Logic
+ * %%
+ * Copyright (C) 2016 DataArt
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Session decorator that queues outgoing messages and sends them from one thread at a time, replacing
+ * {@link org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator}. The queue is bounded in bytes;
+ * when a slow client lets it fill up, the {@link OverflowPolicy} decides whether queued events are dropped,
+ * conflated or the session is closed. Responses to requests are never dropped. With batching enabled, events
+ * queued one after another are sent as a single JSON array frame.
+ */
+public class QueuedWebSocketSession extends WebSocketSessionDecorator {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueuedWebSocketSession.class);
+
+    public enum OverflowPolicy {
+        /**
+         * Close the session, the behaviour of the plain concurrent decorator
+         */
+        DISCONNECT,
+        /**
+         * Drop the oldest queued events until the new message fits
+         */
+        DROP_OLDEST,
+        /**
+         * Keep only the latest queued event per subscription, device and name, dropping the oldest otherwise
+         */
+        CONFLATE;
+
+        /**
+         * Accepts both property style ({@code drop-oldest}) and constant style ({@code DROP_OLDEST}) names
+         */
+        public static OverflowPolicy fromName(String name) {
+            return valueOf(name.trim().toUpperCase().replace('-', '_'));
+        }
+    }
+
+    private final int sendTimeLimit;
+    private final int bufferSizeLimit;
+    private final OverflowPolicy overflowPolicy;
+    private final int maxBatchSize;
+
+    private final Deque<Outbound> queue = new ArrayDeque<>();
+    private final Map<String, Outbound> latest = new HashMap<>();
+    private int bufferSize;
+    private long dropped;
+
+    private final Lock flushLock = new ReentrantLock();
+    private volatile long sendStartTime;
+    private volatile boolean closing;
+
+    /**
+     * @param maxBatchSize events packed into one array frame, 1 disables batching
+     */
+    public QueuedWebSocketSession(WebSocketSession delegate, int sendTimeLimit, int bufferSizeLimit,
+                                  OverflowPolicy overflowPolicy, int maxBatchSize) {
+        super(delegate);
+        this.sendTimeLimit = sendTimeLimit;
+        this.bufferSizeLimit = bufferSizeLimit;
+        this.overflowPolicy = overflowPolicy;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+    }
+
+    public static String conflationKey(Long subscriptionId, String deviceId, String name) {
+        return subscriptionId + "/" + deviceId + "/" + name;
+    }
+
+    @Override
+    public void sendMessage(WebSocketMessage<?> message) throws IOException {
+        enqueue(new Outbound(message, null, false));
+    }
+
+    /**
+     * Queues an event frame that may be dropped on overflow
+     *
+     * @param conflationKey events with the same key replace each other while queued, null if never conflated
+     */
+    public void sendEvent(String frame, String conflationKey) throws IOException {
+        enqueue(new Outbound(new TextMessage(frame), conflationKey, true));
+    }
+
+    public int getBufferSize() {
+        synchronized (queue) {
+            return bufferSize;
+        }
+    }
+
+    public long getDroppedCount() {
+        synchronized (queue) {
+            return dropped;
+        }
+    }
+
+    private void enqueue(Outbound outbound) throws IOException {
+        if (closing) {
+            return;
+        }
+        boolean overflow;
+        synchronized (queue) {
+            Outbound queued = outbound.key != null && overflowPolicy == OverflowPolicy.CONFLATE
+                    ? latest.get(outbound.key) : null;
+            if (queued != null) {
+                bufferSize += outbound.size - queued.size;
+                queued.message = outbound.message;
+                queued.size = outbound.size;
+                dropped++;
+            } else {
+                queue.add(outbound);
+                bufferSize += outbound.size;
+                if (outbound.key != null && overflowPolicy == OverflowPolicy.CONFLATE) {
+                    latest.put(outbound.key, outbound);
+                }
+            }
+            overflow = bufferSize > bufferSizeLimit && !dropOldestEvents();
+        }
+        if (overflow) {
+            limitExceeded(String.format("Buffer size %d bytes exceeds the limit of %d", getBufferSize(), bufferSizeLimit));
+            return;
+        }
+        flush();
+        checkSendTime();
+    }
+
+    // called with the queue lock held
+    private boolean dropOldestEvents() {
+        if (overflowPolicy == OverflowPolicy.DISCONNECT) {
+            return false;
+        }
+        Iterator<Outbound> it = queue.iterator();
+        while (bufferSize > bufferSizeLimit && it.hasNext()) {
+            Outbound queued = it.next();
+            if (queued.event) {
+                it.remove();
+                forget(queued);
+                dropped++;
+            }
+        }
+        if (dropped > 0 && logger.isDebugEnabled()) {
+            logger.debug("Session {} dropped {} events so far", getId(), dropped);
+        }
+        return bufferSize <= bufferSizeLimit;
+    }
+
+    private void flush() throws IOException {
+        do {
+            if (!flushLock.tryLock()) {
+                return;
+            }
+            try {
+                WebSocketMessage<?> message;
+                while (!closing && (message = next()) != null) {
+                    sendStartTime = System.currentTimeMillis();
+                    try {
+                        getDelegate().sendMessage(message);
+                    } finally {
+                        sendStartTime = 0;
+                    }
+                }
+            } finally {
+                flushLock.unlock();
+            }
+            // a message queued while the lock was being released would otherwise wait for the next send
+        } while (!closing && hasQueued());
+    }
+
+    private WebSocketMessage<?> next() {
+        synchronized (queue) {
+            Outbound head = queue.poll();
+            if (head == null) {
+                return null;
+            }
+            forget(head);
+            if (!head.event || maxBatchSize == 1 || queue.isEmpty() || !queue.peek().event) {
+                return head.message;
+            }
+            StringBuilder batch = new StringBuilder(head.size * 2).append('[').append(head.text());
+            for (int count = 1; count < maxBatchSize && !queue.isEmpty() && queue.peek().event; count++) {
+                Outbound next = queue.poll();
+                forget(next);
+                batch.append(',').append(next.text());
+            }
+            return new TextMessage(batch.append(']').toString());
+        }
+    }
+
+    private void forget(Outbound outbound) {
+        bufferSize -= outbound.size;
+        if (outbound.key != null) {
+            latest.remove(outbound.key, outbound);
+        }
+    }
+
+    private boolean hasQueued() {
+        synchronized (queue) {
+            return !queue.isEmpty();
+        }
+    }
+
+    private void checkSendTime() {
+        long start = sendStartTime;
+        if (start > 0 && System.currentTimeMillis() - start > sendTimeLimit) {
+            limitExceeded(String.format("Message send time %d ms exceeds the limit of %d ms",
+                    System.currentTimeMillis() - start, sendTimeLimit));
+        }
+    }
+
+    private void limitExceeded(String reason) {
+        if (closing) {
+            return;
+        }
+        closing = true;
+        logger.warn("Closing session {}: {}", getId(), reason);
+        synchronized (queue) {
+            queue.clear();
+            latest.clear();
+            bufferSize = 0;
+        }
+        try {
+            getDelegate().close(CloseStatus.SESSION_NOT_RELIABLE);
+        } catch (IOException ex) {
+            logger.error("Error closing session", ex);
+        }
+    }
+
+    private static final class Outbound {
+        private final String key;
+        private final boolean event;
+        private WebSocketMessage<?> message;
+        private int size;
+
+        private Outbound(WebSocketMessage<?> message, String key, boolean event) {
+            this.message = message;
+            this.key = key;
+            this.event = event;
+            this.size = message.getPayloadLength();
+        }
+
+        private String text() {
+            return ((TextMessage) message).getPayload();
+        }
+    }
+}
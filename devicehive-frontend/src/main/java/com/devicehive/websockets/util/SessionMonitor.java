@@ -22,6 +22,8 @@ package com.devicehive.websockets.util;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.CloseStatus;
@@ -30,61 +32,159 @@ import org.springframework.web.socket.WebSocketSession;
 
 import javax.annotation.PreDestroy;
 import java.io.IOException;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Keeps track of open sessions and their liveness. Sessions are spread over the slots of a hashed timing wheel and
+ * each tick handles one slot, so every session is looked at once per ping interval without sweeping all of them at
+ * once. Sessions without inbound messages or pongs for longer than the idle timeout are closed, the others are
+ * pinged from a small pool so a slow socket does not hold up the rest of the slot.
+ */
 @Component
 public class SessionMonitor {
 
     private static final Logger logger = LoggerFactory.getLogger(SessionMonitor.class);
 
-    private ConcurrentMap<String, WebSocketSession> sessionMap = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, MonitoredSession> sessionMap = new ConcurrentHashMap<>();
+    private final Set<String>[] wheel;
+    private final AtomicInteger cursor = new AtomicInteger();
+    private final long idleTimeout;
+    private final ExecutorService pingExecutor;
+    private final SessionMonitorMetrics metrics;
+
+    @Autowired
+    @SuppressWarnings("unchecked")
+    public SessionMonitor(SessionMonitorMetrics metrics,
+                          @Value("${websocket.ping.interval-ms:30000}") long pingInterval,
+                          @Value("${websocket.ping.tick-ms:1000}") long tick,
+                          @Value("${websocket.session.idle-timeout-ms:90000}") long idleTimeout,
+                          @Value("${websocket.ping.threads:4}") int pingThreads) {
+        this.metrics = metrics;
+        this.idleTimeout = idleTimeout;
+        this.wheel = new Set[(int) Math.max(1, pingInterval / tick)];
+        for (int i = 0; i < wheel.length; i++) {
+            wheel[i] = ConcurrentHashMap.newKeySet();
+        }
+        AtomicInteger counter = new AtomicInteger();
+        this.pingExecutor = Executors.newFixedThreadPool(pingThreads, r -> {
+            Thread thread = new Thread(r, "websocket-ping-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
 
     public void registerSession(final WebSocketSession session) {
-        sessionMap.put(session.getId(), session);
+        sessionMap.put(session.getId(), new MonitoredSession(session));
+        wheel[slot(session.getId())].add(session.getId());
     }
 
     public WebSocketSession getSession(String sessionId) {
-        WebSocketSession session = sessionMap.get(sessionId);
-        return session != null && session.isOpen() ? session : null;
+        MonitoredSession monitored = sessionMap.get(sessionId);
+        return monitored != null && monitored.session.isOpen() ? monitored.session : null;
+    }
+
+    /**
+     * Records inbound activity of the session
+     */
+    public void touch(String sessionId) {
+        MonitoredSession monitored = sessionMap.get(sessionId);
+        if (monitored != null) {
+            monitored.lastActivity = System.currentTimeMillis();
+        }
     }
 
     public void removeSession(String sessionId) throws IOException {
-        sessionMap.remove(sessionId);
-        WebSocketSession session = sessionMap.get(sessionId);
+        MonitoredSession monitored = forget(sessionId);
         try {
-            if (session != null) session.close();
+            if (monitored != null && monitored.session.isOpen()) monitored.session.close();
         } catch (IOException ex) {
             logger.error("Error closing session", ex);
         }
     }
 
-    @Scheduled(cron = "0/30 * * * * *")
-    public synchronized void ping() {
-        try {
-            for (WebSocketSession session : sessionMap.values()) {
-                if (session.isOpen()) {
-                    logger.debug("Pinging session {}", session.getId());
-                    session.sendMessage(new PingMessage());
-                } else {
-                    logger.debug("Session {} is closed.", session.getId());
-                    sessionMap.remove(session.getId());
-                }
+    public int getSessionCount() {
+        return sessionMap.size();
+    }
+
+    @Scheduled(fixedRateString = "${websocket.ping.tick-ms:1000}")
+    public void tick() {
+        long start = System.nanoTime();
+        long now = System.currentTimeMillis();
+        Set<String> slot = wheel[Math.floorMod(cursor.getAndIncrement(), wheel.length)];
+        for (String sessionId : slot) {
+            MonitoredSession monitored = sessionMap.get(sessionId);
+            if (monitored == null) {
+                slot.remove(sessionId);
+            } else if (!monitored.session.isOpen()) {
+                logger.debug("Session {} is closed.", sessionId);
+                forget(sessionId);
+                metrics.onClosedRemoved();
+            } else if (now - monitored.lastActivity > idleTimeout) {
+                logger.info("Session {} has been idle for {} ms, closing", sessionId, now - monitored.lastActivity);
+                forget(sessionId);
+                metrics.onStaleEvicted();
+                pingExecutor.execute(() -> close(monitored.session, CloseStatus.SESSION_NOT_RELIABLE));
+            } else {
+                pingExecutor.execute(() -> ping(monitored.session));
             }
-        } catch (IOException e) {
-            logger.error("Exception while ping session");
         }
+        metrics.onSweep(System.nanoTime() - start);
     }
 
     @PreDestroy
     public void closeAllSessions() {
-        for (WebSocketSession session : sessionMap.values()) {
-            try {
-                session.close(CloseStatus.SERVICE_RESTARTED);
-            } catch (IOException ex) {
-                logger.error("Error closing session", ex);
-            }
+        pingExecutor.shutdownNow();
+        for (MonitoredSession monitored : sessionMap.values()) {
+            close(monitored.session, CloseStatus.SERVICE_RESTARTED);
         }
         sessionMap.clear();
+        for (Set<String> slot : wheel) {
+            slot.clear();
+        }
+    }
+
+    private void ping(WebSocketSession session) {
+        if (!session.isOpen()) {
+            return;
+        }
+        try {
+            logger.debug("Pinging session {}", session.getId());
+            session.sendMessage(new PingMessage());
+            metrics.onPing();
+        } catch (IOException | IllegalStateException e) {
+            logger.error("Exception while ping session {}", session.getId());
+            metrics.onPingFailed();
+        }
+    }
+
+    private void close(WebSocketSession session, CloseStatus status) {
+        try {
+            session.close(status);
+        } catch (IOException ex) {
+            logger.error("Error closing session", ex);
+        }
+    }
+
+    private MonitoredSession forget(String sessionId) {
+        wheel[slot(sessionId)].remove(sessionId);
+        return sessionMap.remove(sessionId);
+    }
+
+    private int slot(String sessionId) {
+        return Math.floorMod(sessionId.hashCode(), wheel.length);
+    }
+
+    private static class MonitoredSession {
+        private final WebSocketSession session;
+        private volatile long lastActivity = System.currentTimeMillis();
+
+        private MonitoredSession(WebSocketSession session) {
+            this.session = session;
+        }
     }
 }
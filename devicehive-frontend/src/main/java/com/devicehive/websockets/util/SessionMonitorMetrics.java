@@ -0,0 +1,112 @@
+package com.devicehive.websockets.util;
+
+/*
+ * #%L
+ * DeviceHive Frontend Logic
+ * %%
+ * Copyright (C) 2016 DataArt
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Liveness sweeps of the {@link SessionMonitor} and the sessions it evicted.
+ */
+@Component
+public class SessionMonitorMetrics implements PublicMetrics {
+
+    private final LongAdder sweeps = new LongAdder();
+    private final AtomicLong lastSweepTimeNs = new AtomicLong();
+    private final AtomicLong maxSweepTimeNs = new AtomicLong();
+    private final LongAdder pings = new LongAdder();
+    private final LongAdder failedPings = new LongAdder();
+    private final LongAdder staleEvictions = new LongAdder();
+    private final LongAdder closedRemovals = new LongAdder();
+
+    void onSweep(long durationNs) {
+        sweeps.increment();
+        lastSweepTimeNs.set(durationNs);
+        maxSweepTimeNs.accumulateAndGet(durationNs, Math::max);
+    }
+
+    void onPing() {
+        pings.increment();
+    }
+
+    void onPingFailed() {
+        failedPings.increment();
+    }
+
+    void onStaleEvicted() {
+        staleEvictions.increment();
+    }
+
+    void onClosedRemoved() {
+        closedRemovals.increment();
+    }
+
+    public long getSweepCount() {
+        return sweeps.sum();
+    }
+
+    public double getLastSweepTimeMs() {
+        return toMillis(lastSweepTimeNs.get());
+    }
+
+    public double getMaxSweepTimeMs() {
+        return toMillis(maxSweepTimeNs.get());
+    }
+
+    public long getPingCount() {
+        return pings.sum();
+    }
+
+    public long getFailedPingCount() {
+        return failedPings.sum();
+    }
+
+    public long getStaleEvictionCount() {
+        return staleEvictions.sum();
+    }
+
+    public long getClosedRemovalCount() {
+        return closedRemovals.sum();
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        return Arrays.asList(
+                new Metric<>("websocket.sessions.sweeps", getSweepCount()),
+                new Metric<>("websocket.sessions.sweep.last-time-ms", getLastSweepTimeMs()),
+                new Metric<>("websocket.sessions.sweep.max-time-ms", getMaxSweepTimeMs()),
+                new Metric<>("websocket.sessions.pings", getPingCount()),
+                new Metric<>("websocket.sessions.failed-pings", getFailedPingCount()),
+                new Metric<>("websocket.sessions.stale-evictions", getStaleEvictionCount()),
+                new Metric<>("websocket.sessions.closed-removals", getClosedRemovalCount()));
+    }
+
+    private static double toMillis(long nanos) {
+        return (double) nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,231 @@
+package com.devicehive.websockets.util;
+
+/*
+ * #%L
+ * DeviceHive Frontend Logic
+ * %%
+ * Copyright (C) 2016 DataArt
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.devicehive.exceptions.HiveException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.servlet.http.HttpServletResponse;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs WebSocket requests on a fixed pool instead of the container I/O threads. Requests of one session run
+ * one after another: the next request starts when the future returned by the previous one completes, so waiting
+ * for the backend does not occupy a pool thread. Each session may have a bounded number of requests queued, and
+ * {@link #expire} bounds how long a request may wait for the backend before the session moves on.
+ * A session queue is dropped as soon as it runs empty, so frames that arrive after {@link #remove} do not leave
+ * a queue behind.
+ */
+@Component
+public class SessionRequestExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionRequestExecutor.class);
+
+    private final int threads;
+    private final int maxPendingRequests;
+    private final long requestTimeoutMs;
+    private final ConcurrentMap<String, SessionQueue> queues = new ConcurrentHashMap<>();
+    private ExecutorService executor;
+    private ScheduledExecutorService timer;
+
+    @Autowired
+    public SessionRequestExecutor(@Value("${websocket.request.threads:16}") int threads,
+                                  @Value("${websocket.session.max-pending-requests:256}") int maxPendingRequests,
+                                  @Value("${websocket.request.timeout-ms:30000}") long requestTimeoutMs) {
+        this.threads = threads;
+        this.maxPendingRequests = maxPendingRequests;
+        this.requestTimeoutMs = requestTimeoutMs;
+    }
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger counter = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "websocket-request-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "websocket-request-timeout");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        timer.shutdownNow();
+    }
+
+    /**
+     * Fails the completion of a request with 504 if it is still pending after the request timeout. Backend replies
+     * are not expired by every transport, and a lost one would otherwise hold back the session for good.
+     */
+    public void expire(CompletableFuture<?> completion) {
+        if (completion.isDone()) {
+            return;
+        }
+        ScheduledFuture<?> deadline;
+        try {
+            deadline = timer.schedule(() -> completion.completeExceptionally(new HiveException(
+                    "Request timed out after " + requestTimeoutMs + " ms", HttpServletResponse.SC_GATEWAY_TIMEOUT)),
+                    requestTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            return;
+        }
+        completion.whenComplete((result, ex) -> deadline.cancel(false));
+    }
+
+    /**
+     * @param request runs the request and returns a future completed once its response is sent
+     * @return false if too many requests of the session are waiting
+     */
+    public boolean submit(String sessionId, Supplier<CompletableFuture<?>> request) {
+        while (true) {
+            Boolean accepted = queues.computeIfAbsent(sessionId, SessionQueue::new).offer(request);
+            if (accepted != null) {
+                return accepted;
+            }
+            // the queue ran empty and was dropped meanwhile, the next one takes the request
+        }
+    }
+
+    /**
+     * Drops requests of the session that have not started yet
+     */
+    public void remove(String sessionId) {
+        SessionQueue queue = queues.get(sessionId);
+        if (queue != null) {
+            queue.clear();
+        }
+    }
+
+    /**
+     * @return number of sessions with queued or running requests
+     */
+    int size() {
+        return queues.size();
+    }
+
+    private class SessionQueue {
+        private final String sessionId;
+        private final Queue<Supplier<CompletableFuture<?>>> requests = new ArrayDeque<>();
+        private boolean running;
+        private boolean retired;
+
+        private SessionQueue(String sessionId) {
+            this.sessionId = sessionId;
+        }
+
+        /**
+         * @return null if the queue was retired and the request has to go to a new one
+         */
+        synchronized Boolean offer(Supplier<CompletableFuture<?>> request) {
+            if (retired) {
+                return null;
+            }
+            if (requests.size() >= maxPendingRequests) {
+                return false;
+            }
+            requests.add(request);
+            if (!running) {
+                running = true;
+                if (!schedule()) {
+                    requests.clear();
+                    retire();
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        synchronized void clear() {
+            requests.clear();
+            if (!running) {
+                retire();
+            }
+        }
+
+        private void runNext() {
+            Supplier<CompletableFuture<?>> request;
+            synchronized (this) {
+                request = requests.poll();
+                if (request == null) {
+                    retire();
+                    return;
+                }
+            }
+            CompletableFuture<?> completion;
+            try {
+                completion = request.get();
+            } catch (RuntimeException e) {
+                logger.error("WebSocket request failed", e);
+                completion = CompletableFuture.completedFuture(null);
+            } finally {
+                SecurityContextHolder.clearContext();
+            }
+            completion.whenComplete((result, ex) -> {
+                if (!schedule()) {
+                    synchronized (this) {
+                        requests.clear();
+                        retire();
+                    }
+                }
+            });
+        }
+
+        private boolean schedule() {
+            try {
+                executor.execute(this::runNext);
+                return true;
+            } catch (RejectedExecutionException e) {
+                logger.debug("Requests of session {} were dropped, executor is shut down", sessionId);
+                return false;
+            }
+        }
+
+        private void retire() {
+            running = false;
+            retired = true;
+            queues.remove(sessionId, this);
+        }
+    }
+}
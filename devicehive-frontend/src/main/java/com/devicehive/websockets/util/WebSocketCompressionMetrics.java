@@ -0,0 +1,134 @@
+package com.devicehive.websockets.util;
+
+/*
+ * #%L
+ * DeviceHive Frontend Logic
+ * %%
+ * Copyright (C) 2016 DataArt
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Deflater;
+
+/**
+ * Compression of text frames sent to clients that negotiated permessage-deflate. The container does not expose its
+ * deflater, so a sample of frames is compressed again here at the configured level and ratio and CPU cost are
+ * estimated from that sample. Frames below the size threshold are not sampled.
+ */
+@Component
+public class WebSocketCompressionMetrics implements PublicMetrics {
+
+    private static final String PERMESSAGE_DEFLATE = "permessage-deflate";
+
+    private final LongAdder frames = new LongAdder();
+    private final LongAdder sampledFrames = new LongAdder();
+    private final LongAdder sampledBytes = new LongAdder();
+    private final LongAdder sampledCompressedBytes = new LongAdder();
+    private final LongAdder sampledTimeNs = new LongAdder();
+
+    private final int compressionLevel;
+    private final int sampleRate;
+    private final int minFrameSize;
+    private final ThreadLocal<Deflater> deflater;
+    private final ThreadLocal<byte[]> output = ThreadLocal.withInitial(() -> new byte[8192]);
+
+    public WebSocketCompressionMetrics(@Value("${websocket.compression.level:6}") int compressionLevel,
+                                       @Value("${websocket.compression.metrics.sample-rate:100}") int sampleRate,
+                                       @Value("${websocket.compression.metrics.min-frame-size:256}") int minFrameSize) {
+        this.compressionLevel = compressionLevel;
+        this.sampleRate = Math.max(1, sampleRate);
+        this.minFrameSize = minFrameSize;
+        this.deflater = ThreadLocal.withInitial(() -> new Deflater(this.compressionLevel, true));
+    }
+
+    public static boolean isCompressed(WebSocketSession session) {
+        for (WebSocketExtension extension : session.getExtensions()) {
+            if (PERMESSAGE_DEFLATE.equals(extension.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Counts a frame sent to a compressing session and compresses one in every sample-rate frames
+     */
+    public void record(String frame) {
+        frames.increment();
+        if (frame.length() < minFrameSize || ThreadLocalRandom.current().nextInt(sampleRate) != 0) {
+            return;
+        }
+        byte[] input = frame.getBytes(StandardCharsets.UTF_8);
+        long start = System.nanoTime();
+        Deflater deflater = this.deflater.get();
+        byte[] buffer = output.get();
+        deflater.reset();
+        deflater.setInput(input);
+        long compressed = 0;
+        int written;
+        // sync flush, like the extension does at the end of each message
+        do {
+            written = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+            compressed += written;
+        } while (written == buffer.length);
+        sampledTimeNs.add(System.nanoTime() - start);
+        sampledFrames.increment();
+        sampledBytes.add(input.length);
+        sampledCompressedBytes.add(compressed);
+    }
+
+    public long getCompressedFrameCount() {
+        return frames.sum();
+    }
+
+    public long getSampledFrameCount() {
+        return sampledFrames.sum();
+    }
+
+    /**
+     * @return compressed size relative to the original size of sampled frames, 1 if nothing was sampled
+     */
+    public double getCompressionRatio() {
+        long bytes = sampledBytes.sum();
+        return bytes == 0 ? 1 : (double) sampledCompressedBytes.sum() / bytes;
+    }
+
+    public double getCompressionTimeMsPerMegabyte() {
+        long bytes = sampledBytes.sum();
+        return bytes == 0 ? 0 : (double) sampledTimeNs.sum() / TimeUnit.MILLISECONDS.toNanos(1) * (1 << 20) / bytes;
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        return Arrays.asList(
+                new Metric<>("websocket.compression.frames", getCompressedFrameCount()),
+                new Metric<>("websocket.compression.sampled-frames", getSampledFrameCount()),
+                new Metric<>("websocket.compression.ratio", getCompressionRatio()),
+                new Metric<>("websocket.compression.time-ms-per-megabyte", getCompressionTimeMsPerMegabyte()));
+    }
+}
@@ -0,0 +1,87 @@
+package com.devicehive.application;
+
+/*
+ * #%L
+ * DeviceHive Frontend Logic
+ * %%
+ * Copyright (C) 2016 - 2017 DataArt
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import io.undertow.servlet.api.DeploymentInfo;
+import io.undertow.websockets.extensions.PerMessageDeflateHandshake;
+import io.undertow.websockets.jsr.WebSocketDeploymentInfo;
+import org.junit.Test;
+import org.springframework.boot.context.embedded.ConfigurableEmbeddedServletContainer;
+import org.springframework.boot.context.embedded.undertow.UndertowEmbeddedServletContainerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+public class WebSocketCompressionConfigTest {
+
+    private final WebSocketCompressionConfig config = new WebSocketCompressionConfig();
+
+    {
+        ReflectionTestUtils.setField(config, "compressionLevel", 6);
+        ReflectionTestUtils.setField(config, "serverContextTakeover", true);
+        ReflectionTestUtils.setField(config, "clientContextTakeover", true);
+    }
+
+    @Test
+    public void shouldAddDeflateExtensionToExistingDeploymentInfo() throws Exception {
+        WebSocketDeploymentInfo existing = new WebSocketDeploymentInfo();
+        DeploymentInfo deploymentInfo = new DeploymentInfo();
+        deploymentInfo.addServletContextAttribute(WebSocketDeploymentInfo.ATTRIBUTE_NAME, existing);
+
+        customize(deploymentInfo);
+
+        assertSame(existing, deploymentInfo.getServletContextAttributes().get(WebSocketDeploymentInfo.ATTRIBUTE_NAME));
+        assertEquals(1, existing.getExtensions().size());
+        assertTrue(existing.getExtensions().get(0) instanceof PerMessageDeflateHandshake);
+    }
+
+    @Test
+    public void shouldRegisterDeploymentInfoWhenMissing() throws Exception {
+        DeploymentInfo deploymentInfo = new DeploymentInfo();
+
+        customize(deploymentInfo);
+
+        WebSocketDeploymentInfo info = (WebSocketDeploymentInfo) deploymentInfo.getServletContextAttributes()
+                .get(WebSocketDeploymentInfo.ATTRIBUTE_NAME);
+        assertEquals(1, info.getExtensions().size());
+        assertTrue(info.getExtensions().get(0) instanceof PerMessageDeflateHandshake);
+    }
+
+    @Test
+    public void shouldIgnoreOtherContainers() throws Exception {
+        ConfigurableEmbeddedServletContainer container = mock(ConfigurableEmbeddedServletContainer.class);
+
+        config.webSocketCompressionCustomizer().customize(container);
+
+        verifyZeroInteractions(container);
+    }
+
+    private void customize(DeploymentInfo deploymentInfo) {
+        UndertowEmbeddedServletContainerFactory factory = new UndertowEmbeddedServletContainerFactory();
+        config.webSocketCompressionCustomizer().customize(factory);
+        assertEquals(1, factory.getDeploymentInfoCustomizers().size());
+        factory.getDeploymentInfoCustomizers().forEach(customizer -> customizer.customize(deploymentInfo));
+    }
+}
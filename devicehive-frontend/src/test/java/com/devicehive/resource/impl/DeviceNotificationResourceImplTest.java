@@ -0,0 +1,111 @@
+package com.devicehive.resource.impl;
+
+
+/*
+ * #%L
+ * DeviceHive Frontend Logic
+ * %%
+ * Copyright (C) 2016 - 2017 DataArt
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.devicehive.model.DeviceNotification;
+import com.devicehive.model.wrappers.DeviceNotificationWrapper;
+import com.devicehive.service.DeviceNotificationService;
+import com.devicehive.service.DeviceService;
+import com.devicehive.service.FilterBuilderService;
+import com.devicehive.service.time.TimestampService;
+import com.devicehive.util.HiveValidator;
+import com.devicehive.vo.DeviceVO;
+import com.google.gson.Gson;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.Response;
+import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.*;
+
+public class DeviceNotificationResourceImplTest {
+    private static final String DEVICE_ID = "device";
+
+    private final DeviceNotificationService notificationService = mock(DeviceNotificationService.class);
+    private final DeviceService deviceService = mock(DeviceService.class);
+    private final AsyncResponse asyncResponse = mock(AsyncResponse.class);
+    private final DeviceNotification notification = new DeviceNotification();
+    private DeviceNotificationResourceImpl resource;
+
+    @Before
+    public void setUp() {
+        resource = new DeviceNotificationResourceImpl(new Gson(), notificationService, deviceService,
+                mock(FilterBuilderService.class), mock(TimestampService.class), mock(HiveValidator.class));
+
+        DeviceVO device = new DeviceVO();
+        device.setDeviceId(DEVICE_ID);
+        device.setNetworkId(1L);
+        when(deviceService.findById(DEVICE_ID)).thenReturn(device);
+
+        notification.setId(42L);
+        notification.setNotification("temperature");
+        notification.setTimestamp(new Date());
+        when(notificationService.convertWrapperToNotification(any(), any())).thenReturn(notification);
+        when(notificationService.insert(any(), any())).thenReturn(CompletableFuture.completedFuture(notification));
+    }
+
+    @Test
+    public void shouldAcceptWithoutWaitingWhenNoReplyIsRequested() {
+        resource.insert(DEVICE_ID, wrapper(), true, asyncResponse);
+
+        assertEquals(Response.Status.ACCEPTED.getStatusCode(), resumedStatus());
+        verify(notificationService).push(notification, deviceService.findById(DEVICE_ID));
+        verify(notificationService, never()).insert(any(), any());
+    }
+
+    @Test
+    public void shouldAcceptWithoutWaitingForNoReplyDevice() {
+        when(notificationService.isNoReplyDevice(DEVICE_ID)).thenReturn(true);
+
+        resource.insert(DEVICE_ID, wrapper(), false, asyncResponse);
+
+        assertEquals(Response.Status.ACCEPTED.getStatusCode(), resumedStatus());
+        verify(notificationService).push(any(), any());
+        verify(notificationService, never()).insert(any(), any());
+    }
+
+    @Test
+    public void shouldWaitForBackendByDefault() {
+        resource.insert(DEVICE_ID, wrapper(), false, asyncResponse);
+
+        assertEquals(Response.Status.CREATED.getStatusCode(), resumedStatus());
+        verify(notificationService).insert(any(), any());
+        verify(notificationService, never()).push(any(), any());
+    }
+
+    private int resumedStatus() {
+        ArgumentCaptor<Response> captor = ArgumentCaptor.forClass(Response.class);
+        verify(asyncResponse).resume(captor.capture());
+        return captor.getValue().getStatus();
+    }
+
+    private static DeviceNotificationWrapper wrapper() {
+        DeviceNotificationWrapper wrapper = new DeviceNotificationWrapper();
+        wrapper.setNotification("temperature");
+        return wrapper;
+    }
+}
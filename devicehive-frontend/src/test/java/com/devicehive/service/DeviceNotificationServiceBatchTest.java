@@ -0,0 +1,121 @@
+package com.devicehive.service;
+
+/*
+ * #%L
+ * DeviceHive Frontend Logic
+ * %%
+ * Copyright (C) 2016 - 2017 DataArt
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.devicehive.api.RequestResponseMatcher;
+import com.devicehive.exceptions.HiveException;
+import com.devicehive.model.DeviceNotification;
+import com.devicehive.model.rpc.NotificationBatchInsertRequest;
+import com.devicehive.model.wrappers.DeviceNotificationBatchItem;
+import com.devicehive.service.helpers.LongIdGenerator;
+import com.devicehive.service.time.TimestampService;
+import com.devicehive.shim.api.Request;
+import com.devicehive.shim.api.client.RpcClient;
+import com.devicehive.util.HiveValidator;
+import com.devicehive.vo.DeviceVO;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.*;
+
+public class DeviceNotificationServiceBatchTest {
+
+    private final RpcClient rpcClient = mock(RpcClient.class);
+    private DeviceNotificationService service;
+
+    @Before
+    public void setUp() {
+        service = new DeviceNotificationService(mock(TimestampService.class), rpcClient, mock(HiveValidator.class),
+                mock(LongIdGenerator.class), mock(RequestResponseMatcher.class));
+        ReflectionTestUtils.setField(service, "maxBatchSize", 3);
+    }
+
+    @Test
+    public void shouldSendOneRequestPerDeviceKeepingOrder() {
+        List<DeviceNotificationBatchItem> items = Arrays.asList(item("a", "n1"), item("b", "n2"), item("a", "n3"));
+        assertEquals(2, service.getBatchDeviceIds(items).size());
+
+        List<DeviceNotification> notifications = service.convertBatch(items, Arrays.asList(device("a"), device("b")));
+        service.pushBatch(notifications);
+
+        ArgumentCaptor<Request> captor = ArgumentCaptor.forClass(Request.class);
+        verify(rpcClient, times(2)).push(captor.capture());
+        Request first = captor.getAllValues().get(0);
+        assertEquals("a", first.getPartitionKey());
+        assertEquals(Arrays.asList("n1", "n3"), ((NotificationBatchInsertRequest) first.getBody()).getDeviceNotifications()
+                .stream().map(DeviceNotification::getNotification).collect(Collectors.toList()));
+        assertEquals("b", captor.getAllValues().get(1).getPartitionKey());
+    }
+
+    @Test
+    public void shouldTrimNoReplyDevices() {
+        assertFalse(service.isNoReplyDevice(""));
+
+        service.setNoReplyDevices(" a, b ,,c ,");
+
+        assertTrue(service.isNoReplyDevice("a"));
+        assertTrue(service.isNoReplyDevice("b"));
+        assertTrue(service.isNoReplyDevice("c"));
+        assertFalse(service.isNoReplyDevice(""));
+        assertFalse(service.isNoReplyDevice(" a"));
+    }
+
+    @Test(expected = HiveException.class)
+    public void shouldRejectOversizedBatch() {
+        service.getBatchDeviceIds(Arrays.asList(item("a", "n"), item("a", "n"), item("a", "n"), item("a", "n")));
+    }
+
+    @Test(expected = HiveException.class)
+    public void shouldRejectItemWithoutDevice() {
+        service.getBatchDeviceIds(Collections.singletonList(item(null, "n")));
+    }
+
+    @Test(expected = HiveException.class)
+    public void shouldRejectDeviceWithoutNetwork() {
+        DeviceVO device = device("a");
+        device.setNetworkId(null);
+        service.convertBatch(Collections.singletonList(item("a", "n")), Collections.singletonList(device));
+    }
+
+    private static DeviceNotificationBatchItem item(String deviceId, String name) {
+        DeviceNotificationBatchItem item = new DeviceNotificationBatchItem();
+        item.setDeviceId(deviceId);
+        item.setNotification(name);
+        return item;
+    }
+
+    private static DeviceVO device(String deviceId) {
+        DeviceVO device = new DeviceVO();
+        device.setDeviceId(deviceId);
+        device.setNetworkId(1L);
+        return device;
+    }
+}
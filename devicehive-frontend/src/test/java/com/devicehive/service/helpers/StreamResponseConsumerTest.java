@@ -0,0 +1,112 @@
+package com.devicehive.service.helpers;
+
+
+/*
+ * #%L
+ * DeviceHive Frontend Logic
+ * %%
+ * Copyright (C) 2016 - 2017 DataArt
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.devicehive.api.RequestResponseMatcher;
+import com.devicehive.model.DeviceNotification;
+import com.devicehive.model.rpc.ErrorResponse;
+import com.devicehive.model.rpc.NotificationSearchResponse;
+import com.devicehive.service.exception.BackendException;
+import com.devicehive.shim.api.Response;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class StreamResponseConsumerTest {
+    private static final String CORRELATION_ID = "correlation";
+
+    private final RequestResponseMatcher matcher = new RequestResponseMatcher();
+    private final List<Long> received = new CopyOnWriteArrayList<>();
+    private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+    @Test
+    public void shouldDeliverChunksInOrderAndCompleteOnLast() throws Exception {
+        matcher.addStreamCallback(CORRELATION_ID, new StreamResponseConsumer(this::receive, future));
+
+        for (int i = 0; i < 100; i++) {
+            matcher.offerResponse(chunk(i, i == 99));
+        }
+
+        future.get(5, TimeUnit.SECONDS);
+        assertEquals(LongStream.range(0, 100).boxed().collect(Collectors.toList()), received);
+    }
+
+    @Test
+    public void shouldWaitForLastChunk() throws Exception {
+        matcher.addStreamCallback(CORRELATION_ID, new StreamResponseConsumer(this::receive, future));
+
+        matcher.offerResponse(chunk(0, false));
+
+        Thread.sleep(100);
+        assertFalse(future.isDone());
+        assertEquals(1, received.size());
+    }
+
+    @Test
+    public void shouldFailOnErrorResponseAndStopListening() throws Exception {
+        matcher.addStreamCallback(CORRELATION_ID, new StreamResponseConsumer(this::receive, future));
+
+        matcher.offerResponse(chunk(0, false));
+        matcher.offerResponse(Response.newBuilder()
+                .withBody(new ErrorResponse("search failed"))
+                .withCorrelationId(CORRELATION_ID)
+                .withLast(false)
+                .buildFailed(500));
+        matcher.offerResponse(chunk(1, true));
+
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("Stream should have failed");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof BackendException);
+            assertEquals("search failed", e.getCause().getMessage());
+        }
+        Thread.sleep(100);
+        assertEquals(1, received.size());
+    }
+
+    private void receive(Response response) {
+        received.add(response.getBody().cast(NotificationSearchResponse.class).getNotifications().get(0).getId());
+    }
+
+    private static Response chunk(long number, boolean last) {
+        DeviceNotification notification = new DeviceNotification();
+        notification.setId(number);
+        return Response.newBuilder()
+                .withBody(new NotificationSearchResponse(Collections.singletonList(notification)))
+                .withCorrelationId(CORRELATION_ID)
+                .withLast(last)
+                .buildSuccess();
+    }
+}
@@ -0,0 +1,84 @@
+package com.devicehive.service.helpers;
+
+/*
+ * #%L
+ * DeviceHive Frontend Logic
+ * %%
+ * Copyright (C) 2016 - 2017 DataArt
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.devicehive.model.eventbus.Filter;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SubscriptionHubTest {
+
+    private final Set<Long> backendUnsubscribed = new HashSet<>();
+    private final SubscriptionHub<String> hub = new SubscriptionHub<>(backendUnsubscribed::addAll);
+    private final AtomicLong backendIds = new AtomicLong(100);
+    private final List<BiConsumer<String, Long>> backendCallbacks = new ArrayList<>();
+
+    private final SubscriptionHub.Key key = new SubscriptionHub.Key(
+            Collections.singleton(new Filter(1L, 2L, "device", "NOTIFICATION_EVENT", "temperature")),
+            Collections.singleton("temperature"), null);
+
+    @Test
+    public void shouldShareBackendSubscription() throws Exception {
+        Map<Long, List<String>> received = new HashMap<>();
+        for (long id = 1; id <= 3; id++) {
+            received.put(id, new ArrayList<>());
+            hub.subscribe(key, id, (event, subscriptionId) -> received.get(subscriptionId).add(event), this::backend);
+        }
+        assertEquals(1, backendCallbacks.size());
+        assertEquals(1, hub.getSharedCount());
+
+        backendCallbacks.get(0).accept("event", 100L);
+        received.values().forEach(events -> assertEquals(Collections.singletonList("event"), events));
+
+        assertTrue(hub.unsubscribe(Arrays.asList(1L, 2L)).isEmpty());
+        assertEquals(Collections.singleton(100L), hub.unsubscribe(Collections.singleton(3L)));
+        assertEquals(0, hub.getSharedCount());
+        assertEquals(0, hub.getSubscriberCount());
+    }
+
+    @Test
+    public void shouldPassThroughUnknownSubscriptions() throws Exception {
+        assertEquals(Collections.singleton(42L), hub.unsubscribe(Collections.singleton(42L)));
+    }
+
+    @Test
+    public void shouldKeepDifferentOptionsApart() throws Exception {
+        SubscriptionHub.Key updated = new SubscriptionHub.Key(
+                Collections.singleton(new Filter(1L, 2L, "device", "NOTIFICATION_EVENT", "temperature")),
+                Collections.singleton("temperature"), true);
+        hub.subscribe(key, 1L, (event, subscriptionId) -> {}, this::backend);
+        hub.subscribe(updated, 2L, (event, subscriptionId) -> {}, this::backend);
+        assertEquals(2, backendCallbacks.size());
+    }
+
+    private Pair<Long, CompletableFuture<List<String>>> backend(BiConsumer<String, Long> callback) {
+        backendCallbacks.add(callback);
+        return Pair.of(backendIds.getAndIncrement(), CompletableFuture.completedFuture(Collections.emptyList()));
+    }
+}
@@ -0,0 +1,109 @@
+package com.devicehive.websockets;
+
+/*
+ * #%L
+ * DeviceHive Frontend Logic
+ * %%
+ * Copyright (C) 2016 - 2017 DataArt
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.devicehive.json.GsonFactory;
+import com.devicehive.messages.handler.WebSocketClientHandler;
+import com.devicehive.websockets.util.SessionMonitor;
+import com.devicehive.websockets.util.SessionRequestExecutor;
+import com.google.gson.JsonObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class DeviceHiveWebSocketHandlerTest {
+
+    private static final String FRAME = "{\"action\":\"server/info\",\"requestId\":\"%d\"}";
+
+    private final DeviceHiveWebSocketHandler handler = new DeviceHiveWebSocketHandler();
+    private final SessionMonitor sessionMonitor = mock(SessionMonitor.class);
+    private final WebSocketRequestProcessor requestProcessor = mock(WebSocketRequestProcessor.class);
+    private final WebSocketClientHandler clientHandler = mock(WebSocketClientHandler.class);
+    private final WebSocketSession session = mock(WebSocketSession.class);
+    // a single request may wait while another one runs
+    private final SessionRequestExecutor requestExecutor = new SessionRequestExecutor(1, 1, 10000);
+
+    @Before
+    public void setUp() throws Exception {
+        requestExecutor.start();
+        handler.setSessionMonitor(sessionMonitor);
+        handler.setRequestReader(new WebSocketRequestReader(GsonFactory.createGson()));
+        handler.setRequestProcessor(requestProcessor);
+        handler.setRequestExecutor(requestExecutor);
+        handler.setWebSocketClientHandler(clientHandler);
+        when(session.getId()).thenReturn("session");
+        when(sessionMonitor.getSession("session")).thenReturn(session);
+        when(requestProcessor.process(any(WebSocketRequest.class), eq(session))).thenReturn(new CompletableFuture<>());
+    }
+
+    @After
+    public void tearDown() {
+        requestExecutor.shutdown();
+    }
+
+    @Test
+    public void shouldAnswerServiceUnavailableOverPendingBound() throws Exception {
+        handler.handleTextMessage(session, new TextMessage(String.format(FRAME, 1)));
+        verify(requestProcessor, timeout(1000)).process(any(WebSocketRequest.class), eq(session));
+        handler.handleTextMessage(session, new TextMessage(String.format(FRAME, 2)));
+        verify(clientHandler, never()).buildErrorResponse(eq(HttpServletResponse.SC_SERVICE_UNAVAILABLE), anyString());
+
+        JsonObject error = new JsonObject();
+        when(clientHandler.buildErrorResponse(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Too many pending requests"))
+                .thenReturn(error);
+        handler.handleTextMessage(session, new TextMessage(String.format(FRAME, 3)));
+
+        verify(clientHandler).sendMessage(any(JsonObject.class), eq(error), eq(session));
+        verify(requestProcessor, times(1)).process(any(WebSocketRequest.class), eq(session));
+    }
+
+    @Test
+    public void shouldAnswerGatewayTimeoutWhenBackendDoesNotReply() throws Exception {
+        SessionRequestExecutor timed = new SessionRequestExecutor(1, 1, 50);
+        timed.start();
+        handler.setRequestExecutor(timed);
+        try {
+            handler.handleTextMessage(session, new TextMessage(String.format(FRAME, 1)));
+            handler.handleTextMessage(session, new TextMessage(String.format(FRAME, 2)));
+
+            verify(clientHandler, timeout(1000)).buildErrorResponse(eq(HttpServletResponse.SC_GATEWAY_TIMEOUT), anyString());
+            // the lost reply no longer holds back the session
+            verify(requestProcessor, timeout(1000).times(2)).process(any(WebSocketRequest.class), eq(session));
+        } finally {
+            timed.shutdown();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.devicehive.websockets;
+
+/*
+ * #%L
+ * DeviceHive Frontend Logic
+ * %%
+ * Copyright (C) 2016 - 2017 DataArt
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.devicehive.json.GsonFactory;
+import com.devicehive.model.wrappers.DeviceNotificationWrapper;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.Assume;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.ToLongFunction;
+
+import static com.devicehive.configuration.Constants.DEVICE_ID;
+import static com.devicehive.configuration.Constants.NETWORK_ID;
+import static com.devicehive.configuration.Constants.NOTIFICATION;
+
+/**
+ * Reports allocation and time per frame of the inbound request front stage, parsing the whole frame into a tree
+ * and binding the payload from it against {@link WebSocketRequestReader}. Runs only with the benchmark profile.
+ */
+public class WebSocketRequestProcessorBenchmark {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebSocketRequestProcessorBenchmark.class);
+
+    private static final String FRAME = "{\"action\":\"notification/insert\",\"requestId\":\"%d\",\"deviceId\":\"device-%d\"," +
+            "\"networkId\":\"%d\",\"notification\":{\"notification\":\"temperature\",\"parameters\":{\"value\":21.5}}}";
+
+    private final Gson gson = GsonFactory.createGson();
+
+    @Test
+    public void shouldReportAllocationPerFrame() throws Exception {
+        Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        int frames = 200000;
+        String[] input = new String[frames];
+        for (int i = 0; i < frames; i++) {
+            input[i] = String.format(FRAME, i, i, i);
+        }
+
+        JsonParser parser = new JsonParser();
+        report("tree", input, frame -> {
+            JsonObject request = parser.parse(frame).getAsJsonObject();
+            DeviceNotificationWrapper notification = gson.fromJson(request.get(NOTIFICATION), DeviceNotificationWrapper.class);
+            return checksum(request) + notification.getNotification().length();
+        });
+
+        WebSocketRequestReader reader = new WebSocketRequestReader(gson);
+        report("reader", input, frame -> {
+            WebSocketRequest request = reader.read(frame);
+            return checksum(request.getRequest()) + request.getPayload(DeviceNotificationWrapper.class).getNotification().length();
+        });
+    }
+
+    private static long checksum(JsonObject request) {
+        return WebSocketRequestProcessor.getAction(request).ordinal()
+                + WebSocketRequestProcessor.getString(request, DEVICE_ID).length()
+                + WebSocketRequestProcessor.getLong(request, NETWORK_ID);
+    }
+
+    private static void report(String stage, String[] input, ToLongFunction<String> front) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        for (int round = 0; round < 3; round++) {
+            long allocated = threads.getThreadAllocatedBytes(threadId);
+            long start = System.nanoTime();
+            long checksum = 0;
+            for (String frame : input) {
+                checksum += front.applyAsLong(frame);
+            }
+            long elapsed = System.nanoTime() - start;
+            allocated = threads.getThreadAllocatedBytes(threadId) - allocated;
+            logger.info("{} round {}: {} ns/frame, {} bytes/frame (checksum {})", stage, round,
+                    elapsed / input.length, allocated / input.length, checksum);
+        }
+    }
+}
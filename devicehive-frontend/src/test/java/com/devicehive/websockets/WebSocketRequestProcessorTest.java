@@ -0,0 +1,79 @@
+package com.devicehive.websockets;
+
+/*
+ * #%L
+ * DeviceHive Frontend Logic
+ * %%
+ * Copyright (C) 2016 - 2017 DataArt
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.devicehive.exceptions.HiveException;
+import com.devicehive.websockets.WebSocketRequestProcessor.WebsocketAction;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonSyntaxException;
+import org.junit.Test;
+
+import static com.devicehive.configuration.Constants.DEVICE_ID;
+import static com.devicehive.configuration.Constants.DEVICE_TYPE_ID;
+import static com.devicehive.configuration.Constants.NETWORK_ID;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Checks the inbound request front stage.
+ */
+public class WebSocketRequestProcessorTest {
+
+    private static final String FRAME = "{\"action\":\"notification/insert\",\"requestId\":\"%d\",\"deviceId\":\"device-%d\"," +
+            "\"networkId\":\"%d\",\"notification\":{\"notification\":\"temperature\",\"parameters\":{\"value\":21.5}}}";
+
+    @Test
+    public void shouldResolveEveryAction() throws Exception {
+        for (WebsocketAction action : WebsocketAction.values()) {
+            JsonObject request = new JsonObject();
+            request.addProperty("action", action.getValue());
+            assertEquals(action, WebSocketRequestProcessor.getAction(request));
+        }
+        assertEquals(WebsocketAction.EMPTY, WebSocketRequestProcessor.getAction(new JsonObject()));
+    }
+
+    @Test(expected = HiveException.class)
+    public void shouldRejectUnknownAction() throws Exception {
+        WebsocketAction.forName("device/unknown");
+    }
+
+    @Test
+    public void shouldReadIdentifiers() throws Exception {
+        JsonObject request = new JsonParser().parse(String.format(FRAME, 1, 2, 3)).getAsJsonObject();
+        request.addProperty(DEVICE_TYPE_ID, 4);
+        assertEquals("device-2", WebSocketRequestProcessor.getString(request, DEVICE_ID));
+        assertEquals(Long.valueOf(3), WebSocketRequestProcessor.getLong(request, NETWORK_ID));
+        assertEquals(Long.valueOf(4), WebSocketRequestProcessor.getLong(request, DEVICE_TYPE_ID));
+
+        request.add(NETWORK_ID, null);
+        assertNull(WebSocketRequestProcessor.getLong(request, NETWORK_ID));
+        request.remove(DEVICE_ID);
+        assertNull(WebSocketRequestProcessor.getString(request, DEVICE_ID));
+    }
+
+    @Test(expected = JsonSyntaxException.class)
+    public void shouldRejectMalformedIdentifier() throws Exception {
+        JsonObject request = new JsonObject();
+        request.addProperty(NETWORK_ID, "network");
+        WebSocketRequestProcessor.getLong(request, NETWORK_ID);
+    }
+}
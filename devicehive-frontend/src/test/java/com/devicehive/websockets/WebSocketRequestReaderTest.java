@@ -0,0 +1,96 @@
+package com.devicehive.websockets;
+
+/*
+ * #%L
+ * DeviceHive Frontend Logic
+ * %%
+ * Copyright (C) 2016 - 2017 DataArt
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import com.devicehive.json.GsonFactory;
+import com.devicehive.model.wrappers.DeviceCommandWrapper;
+import com.devicehive.model.wrappers.DeviceNotificationWrapper;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonSyntaxException;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class WebSocketRequestReaderTest {
+
+    private final WebSocketRequestReader reader = new WebSocketRequestReader(GsonFactory.createGson());
+
+    @Test
+    public void shouldBindNotificationFollowingAction() throws Exception {
+        WebSocketRequest frame = reader.read("{\"action\":\"notification/insert\",\"requestId\":\"1\",\"deviceId\":\"device-1\"," +
+                "\"notification\":{\"notification\":\"temperature\",\"parameters\":{\"value\":21.5}},\"noReply\":true}");
+
+        DeviceNotificationWrapper notification = frame.getPayload(DeviceNotificationWrapper.class);
+        assertEquals("temperature", notification.getNotification());
+        assertEquals("{\"value\":21.5}", notification.getParameters().getJsonString());
+        JsonObject request = frame.getRequest();
+        assertEquals("notification/insert", request.get("action").getAsString());
+        assertEquals("1", request.get("requestId").getAsString());
+        assertEquals("device-1", request.get("deviceId").getAsString());
+        assertTrue(request.get("noReply").getAsBoolean());
+        assertFalse(request.has("notification"));
+    }
+
+    @Test
+    public void shouldBindCommandPrecedingAction() throws Exception {
+        WebSocketRequest frame = reader.read("{\"command\":{\"command\":\"reboot\",\"lifetime\":10}," +
+                "\"deviceId\":\"device-1\",\"action\":\"command/insert\"}");
+
+        DeviceCommandWrapper command = frame.getPayload(DeviceCommandWrapper.class);
+        assertEquals("reboot", command.getCommand().get());
+        assertEquals(Integer.valueOf(10), command.getLifetime().get());
+        assertFalse(frame.getRequest().has("command"));
+        assertNull(frame.getPayload(DeviceNotificationWrapper.class));
+    }
+
+    @Test
+    public void shouldKeepPayloadOfOtherActionsInTree() throws Exception {
+        WebSocketRequest frame = reader.read("{\"action\":\"command/update\",\"commandId\":1,\"command\":{\"status\":\"done\"}}");
+
+        assertNull(frame.getPayload(DeviceCommandWrapper.class));
+        assertEquals("done", frame.getRequest().getAsJsonObject("command").get("status").getAsString());
+    }
+
+    @Test
+    public void shouldLeaveMissingPayloadUnbound() throws Exception {
+        assertNull(reader.read("{\"action\":\"notification/insert\",\"notification\":null}").getPayload(DeviceNotificationWrapper.class));
+        assertNull(reader.read("{\"action\":\"notification/insert\"}").getPayload(DeviceNotificationWrapper.class));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldRejectFrameThatIsNotObject() throws Exception {
+        reader.read("[{\"action\":\"notification/insert\"}]");
+    }
+
+    @Test(expected = JsonSyntaxException.class)
+    public void shouldRejectMalformedFrame() throws Exception {
+        reader.read("{\"action\":\"notification/insert\",\"notification\":{\"notification\":}");
+    }
+
+    @Test(expected = JsonSyntaxException.class)
+    public void shouldRejectTrailingContent() throws Exception {
+        reader.read("{\"action\":\"server/info\"} {}");
+    }
+}
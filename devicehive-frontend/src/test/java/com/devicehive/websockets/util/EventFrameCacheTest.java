@@ -0,0 +1,109 @@
+package com.devicehive.websockets.util;
+
+/*
+ * #%L
+ * DeviceHive Frontend Logic
+ * %%
+ * Copyright (C) 2016 - 2017 DataArt
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.devicehive.model.DeviceCommand;
+import com.devicehive.model.DeviceNotification;
+import com.devicehive.model.JsonStringWrapper;
+import com.devicehive.util.ServerResponsesFactory;
+import org.junit.Test;
+
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+
+public class EventFrameCacheTest {
+
+    private final EventFrameCache cache = new EventFrameCache(16);
+
+    @Test
+    public void shouldMatchNotificationMessage() throws Exception {
+        DeviceNotification notification = new DeviceNotification();
+        notification.setId(1L);
+        notification.setNotification("temperature");
+        notification.setDeviceId("device-1");
+        notification.setTimestamp(new Date());
+        notification.setParameters(new JsonStringWrapper("{\"value\":\"<21.5>\"}"));
+
+        for (long subscriptionId = 1; subscriptionId <= 3; subscriptionId++) {
+            assertEquals(ServerResponsesFactory.createNotificationInsertMessage(notification, subscriptionId).toString(),
+                    cache.notificationInsertFrame(notification, subscriptionId));
+        }
+    }
+
+    @Test
+    public void shouldNotMixNotificationsSharingId() throws Exception {
+        DeviceNotification first = notification(7L, "device-1", 1000L, "{\"value\":1}");
+        DeviceNotification otherDevice = notification(7L, "device-2", 1000L, "{\"value\":2}");
+        DeviceNotification later = notification(7L, "device-1", 2000L, "{\"value\":3}");
+
+        for (DeviceNotification notification : new DeviceNotification[]{first, otherDevice, later}) {
+            assertEquals(ServerResponsesFactory.createNotificationInsertMessage(notification, 1L).toString(),
+                    cache.notificationInsertFrame(notification, 1L));
+        }
+    }
+
+    @Test
+    public void shouldNotMixCommandAndNotificationSharingId() throws Exception {
+        DeviceNotification notification = notification(8L, "device-1", 1000L, "{\"value\":1}");
+        DeviceCommand command = new DeviceCommand();
+        command.setId(8L);
+        command.setCommand("reboot");
+        command.setDeviceId("device-1");
+        command.setTimestamp(new Date(1000L));
+        command.setLastUpdated(new Date(1000L));
+
+        assertEquals(ServerResponsesFactory.createNotificationInsertMessage(notification, 1L).toString(),
+                cache.notificationInsertFrame(notification, 1L));
+        assertEquals(ServerResponsesFactory.createCommandInsertMessage(command, 1L).toString(),
+                cache.commandFrame(command, 1L, false));
+    }
+
+    @Test
+    public void shouldSerializeUpdatedCommandAgain() throws Exception {
+        DeviceCommand command = new DeviceCommand();
+        command.setId(2L);
+        command.setCommand("reboot");
+        command.setDeviceId("device-1");
+        command.setTimestamp(new Date(1000L));
+        command.setLastUpdated(new Date(1000L));
+
+        assertEquals(ServerResponsesFactory.createCommandInsertMessage(command, 5L).toString(),
+                cache.commandFrame(command, 5L, false));
+        assertEquals(ServerResponsesFactory.createCommandUpdateMessage(command, 5L).toString(),
+                cache.commandFrame(command, 5L, true));
+
+        command.setStatus("done");
+        command.setLastUpdated(new Date(2000L));
+        assertEquals(ServerResponsesFactory.createCommandUpdateMessage(command, 5L).toString(),
+                cache.commandFrame(command, 5L, true));
+    }
+
+    private static DeviceNotification notification(Long id, String deviceId, long timestamp, String parameters) {
+        DeviceNotification notification = new DeviceNotification();
+        notification.setId(id);
+        notification.setNotification("temperature");
+        notification.setDeviceId(deviceId);
+        notification.setTimestamp(new Date(timestamp));
+        notification.setParameters(new JsonStringWrapper(parameters));
+        return notification;
+    }
+}
@@ -0,0 +1,147 @@
+package com.devicehive.websockets.util;
+
+/*
+ * #%L
+ * DeviceHive Frontend Logic
+ * %%
+ * Copyright (C) 2016 - 2017 DataArt
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.devicehive.websockets.util.QueuedWebSocketSession.OverflowPolicy;
+import org.junit.Test;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class QueuedWebSocketSessionTest {
+
+    private final List<String> sent = new CopyOnWriteArrayList<>();
+    private final CountDownLatch firstSendStarted = new CountDownLatch(1);
+    private final CountDownLatch releaseFirstSend = new CountDownLatch(1);
+
+    @Test
+    public void shouldResolvePolicyNames() throws Exception {
+        assertEquals(OverflowPolicy.DROP_OLDEST, OverflowPolicy.fromName("drop-oldest"));
+        assertEquals(OverflowPolicy.DROP_OLDEST, OverflowPolicy.fromName("DROP_OLDEST"));
+        assertEquals(OverflowPolicy.CONFLATE, OverflowPolicy.fromName(" conflate "));
+        assertEquals(OverflowPolicy.DISCONNECT, OverflowPolicy.fromName("disconnect"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectUnknownPolicyName() throws Exception {
+        OverflowPolicy.fromName("drop-newest");
+    }
+
+    @Test
+    public void shouldConflateAndBatchQueuedEvents() throws Exception {
+        WebSocketSession delegate = blockingDelegate();
+        QueuedWebSocketSession session = new QueuedWebSocketSession(delegate, 10000, 1024, OverflowPolicy.CONFLATE, 10);
+
+        Thread sender = blockFirstSend(session);
+        session.sendEvent("{\"n\":1}", "1/device/temperature");
+        session.sendEvent("{\"n\":2}", "1/device/humidity");
+        session.sendEvent("{\"n\":3}", "1/device/temperature");
+        session.sendMessage(new TextMessage("{\"response\":1}"));
+        session.sendEvent("{\"n\":4}", null);
+        releaseFirstSend.countDown();
+        sender.join(TimeUnit.SECONDS.toMillis(5));
+
+        assertEquals("{\"n\":0}", sent.get(0));
+        assertEquals("[{\"n\":3},{\"n\":2}]", sent.get(1));
+        assertEquals("{\"response\":1}", sent.get(2));
+        assertEquals("{\"n\":4}", sent.get(3));
+        assertEquals(1, session.getDroppedCount());
+        assertEquals(0, session.getBufferSize());
+    }
+
+    @Test
+    public void shouldDropOldestEventsButKeepResponses() throws Exception {
+        WebSocketSession delegate = blockingDelegate();
+        QueuedWebSocketSession session = new QueuedWebSocketSession(delegate, 10000, 30, OverflowPolicy.DROP_OLDEST, 1);
+
+        Thread sender = blockFirstSend(session);
+        session.sendMessage(new TextMessage("{\"response\":1}"));
+        session.sendEvent("{\"n\":1}", null);
+        session.sendEvent("{\"n\":2}", null);
+        session.sendEvent("{\"n\":3}", null);
+        releaseFirstSend.countDown();
+        sender.join(TimeUnit.SECONDS.toMillis(5));
+
+        assertEquals(4, sent.size());
+        assertEquals("{\"response\":1}", sent.get(1));
+        assertEquals("{\"n\":2}", sent.get(2));
+        assertEquals("{\"n\":3}", sent.get(3));
+        assertEquals(1, session.getDroppedCount());
+    }
+
+    @Test
+    public void shouldDisconnectOnOverflow() throws Exception {
+        WebSocketSession delegate = blockingDelegate();
+        QueuedWebSocketSession session = new QueuedWebSocketSession(delegate, 10000, 10, OverflowPolicy.DISCONNECT, 1);
+
+        Thread sender = blockFirstSend(session);
+        session.sendEvent("{\"n\":1}", null);
+        session.sendEvent("{\"n\":2}", null);
+        releaseFirstSend.countDown();
+        sender.join(TimeUnit.SECONDS.toMillis(5));
+
+        verify(delegate).close(CloseStatus.SESSION_NOT_RELIABLE);
+        assertEquals(1, sent.size());
+    }
+
+    private WebSocketSession blockingDelegate() throws Exception {
+        WebSocketSession delegate = mock(WebSocketSession.class);
+        when(delegate.getId()).thenReturn("session");
+        when(delegate.isOpen()).thenReturn(true);
+        doAnswer(invocation -> {
+            sent.add(((WebSocketMessage<?>) invocation.getArguments()[0]).getPayload().toString());
+            if (sent.size() == 1) {
+                firstSendStarted.countDown();
+                releaseFirstSend.await(5, TimeUnit.SECONDS);
+            }
+            return null;
+        }).when(delegate).sendMessage(any(WebSocketMessage.class));
+        return delegate;
+    }
+
+    // keeps the first send in flight so that the following messages stay queued
+    private Thread blockFirstSend(QueuedWebSocketSession session) throws Exception {
+        Thread sender = new Thread(() -> {
+            try {
+                session.sendEvent("{\"n\":0}", null);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        sender.start();
+        assertTrue(firstSendStarted.await(5, TimeUnit.SECONDS));
+        return sender;
+    }
+}
@@ -0,0 +1,56 @@
+package com.devicehive.websockets.util;
+
+/*
+ * #%L
+ * DeviceHive Frontend Logic
+ * %%
+ * Copyright (C) 2016 - 2017 DataArt
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import org.junit.Test;
+import org.springframework.boot.actuate.metrics.Metric;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+
+public class SessionMonitorMetricsTest {
+
+    @Test
+    public void shouldPublishMetrics() throws Exception {
+        SessionMonitorMetrics metrics = new SessionMonitorMetrics();
+
+        metrics.onSweep(TimeUnit.MILLISECONDS.toNanos(4));
+        metrics.onSweep(TimeUnit.MILLISECONDS.toNanos(2));
+        metrics.onPing();
+        metrics.onPingFailed();
+        metrics.onStaleEvicted();
+
+        Map<String, Number> published = metrics.metrics().stream()
+                .collect(Collectors.toMap(Metric::getName, Metric::getValue));
+        assertEquals(7, published.size());
+        assertEquals(2L, published.get("websocket.sessions.sweeps"));
+        assertEquals(2.0, published.get("websocket.sessions.sweep.last-time-ms"));
+        assertEquals(4.0, published.get("websocket.sessions.sweep.max-time-ms"));
+        assertEquals(1L, published.get("websocket.sessions.pings"));
+        assertEquals(1L, published.get("websocket.sessions.failed-pings"));
+        assertEquals(1L, published.get("websocket.sessions.stale-evictions"));
+        assertEquals(0L, published.get("websocket.sessions.closed-removals"));
+    }
+}
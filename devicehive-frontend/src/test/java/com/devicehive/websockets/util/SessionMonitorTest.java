@@ -0,0 +1,95 @@
+package com.devicehive.websockets.util;
+
+/*
+ * #%L
+ * DeviceHive Frontend Logic
+ * %%
+ * Copyright (C) 2016 - 2017 DataArt
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.PingMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class SessionMonitorTest {
+
+    private final SessionMonitorMetrics metrics = new SessionMonitorMetrics();
+    // a single slot so that every tick visits every session
+    private final SessionMonitor monitor = new SessionMonitor(metrics, 1000, 1000, 50, 2);
+
+    @After
+    public void tearDown() {
+        monitor.closeAllSessions();
+    }
+
+    @Test
+    public void shouldPingActiveSessions() throws Exception {
+        WebSocketSession session = session("active");
+        monitor.registerSession(session);
+        assertSame(session, monitor.getSession("active"));
+
+        monitor.tick();
+        verify(session, timeout(1000)).sendMessage(any(PingMessage.class));
+        assertEquals(1, metrics.getSweepCount());
+    }
+
+    @Test
+    public void shouldEvictIdleSessions() throws Exception {
+        WebSocketSession idle = session("idle");
+        WebSocketSession active = session("active");
+        monitor.registerSession(idle);
+        monitor.registerSession(active);
+
+        Thread.sleep(100);
+        monitor.touch("active");
+        monitor.tick();
+
+        verify(idle, timeout(1000)).close(CloseStatus.SESSION_NOT_RELIABLE);
+        verify(active, timeout(1000)).sendMessage(any(PingMessage.class));
+        assertNull(monitor.getSession("idle"));
+        assertEquals(1, monitor.getSessionCount());
+        assertEquals(1, metrics.getStaleEvictionCount());
+    }
+
+    @Test
+    public void shouldForgetClosedSessions() throws Exception {
+        WebSocketSession session = session("closed");
+        monitor.registerSession(session);
+        when(session.isOpen()).thenReturn(false);
+
+        monitor.tick();
+        assertEquals(0, monitor.getSessionCount());
+        assertEquals(1, metrics.getClosedRemovalCount());
+    }
+
+    private static WebSocketSession session(String id) {
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn(id);
+        when(session.isOpen()).thenReturn(true);
+        return session;
+    }
+}
@@ -0,0 +1,200 @@
+package com.devicehive.websockets.util;
+
+/*
+ * #%L
+ * DeviceHive Frontend Logic
+ * %%
+ * Copyright (C) 2016 - 2017 DataArt
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SessionRequestExecutorTest {
+
+    private final SessionRequestExecutor executor = new SessionRequestExecutor(4, 2, 10000);
+
+    {
+        executor.start();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void shouldRunRequestsOfSessionInOrder() throws Exception {
+        SessionRequestExecutor ordered = new SessionRequestExecutor(4, 100, 10000);
+        ordered.start();
+        try {
+            List<Integer> order = new CopyOnWriteArrayList<>();
+            AtomicInteger active = new AtomicInteger();
+            AtomicBoolean overlapped = new AtomicBoolean();
+            CountDownLatch done = new CountDownLatch(50);
+            for (int i = 0; i < 50; i++) {
+                int index = i;
+                assertTrue(ordered.submit("session", () -> {
+                    if (active.incrementAndGet() != 1) {
+                        overlapped.set(true);
+                    }
+                    // completes on another thread, the next request must wait for it
+                    return CompletableFuture.runAsync(() -> {
+                        order.add(index);
+                        active.decrementAndGet();
+                        done.countDown();
+                    });
+                }));
+            }
+
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            assertFalse(overlapped.get());
+            assertEquals(IntStream.range(0, 50).boxed().collect(Collectors.toList()), order);
+        } finally {
+            ordered.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldNotHoldBackOtherSessions() throws Exception {
+        CountDownLatch other = new CountDownLatch(1);
+        executor.submit("blocked", CompletableFuture::new);
+        executor.submit("other", () -> {
+            other.countDown();
+            return CompletableFuture.completedFuture(null);
+        });
+
+        assertTrue(other.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void shouldRejectRequestsOverPendingBound() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CompletableFuture<Void> running = new CompletableFuture<>();
+        assertTrue(executor.submit("session", () -> {
+            started.countDown();
+            return running;
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        assertTrue(executor.submit("session", () -> CompletableFuture.completedFuture(null)));
+        assertTrue(executor.submit("session", () -> CompletableFuture.completedFuture(null)));
+        assertFalse(executor.submit("session", () -> CompletableFuture.completedFuture(null)));
+
+        running.complete(null);
+        await(() -> executor.size() == 0);
+        assertTrue(executor.submit("session", () -> CompletableFuture.completedFuture(null)));
+    }
+
+    @Test
+    public void shouldDropSessionQueueOnceIdle() throws Exception {
+        CountDownLatch ran = new CountDownLatch(1);
+        executor.submit("session", () -> {
+            ran.countDown();
+            return CompletableFuture.completedFuture(null);
+        });
+
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        await(() -> executor.size() == 0);
+    }
+
+    @Test
+    public void shouldNotKeepQueueForFramesAfterRemove() throws Exception {
+        CompletableFuture<Void> running = new CompletableFuture<>();
+        AtomicBoolean dropped = new AtomicBoolean(true);
+        executor.submit("session", () -> running);
+        executor.submit("session", () -> {
+            dropped.set(false);
+            return CompletableFuture.completedFuture(null);
+        });
+        executor.remove("session");
+        running.complete(null);
+        await(() -> executor.size() == 0);
+        assertTrue(dropped.get());
+
+        // a frame that was still in flight when the session closed
+        CountDownLatch late = new CountDownLatch(1);
+        executor.submit("session", () -> {
+            late.countDown();
+            return CompletableFuture.completedFuture(null);
+        });
+        assertTrue(late.await(5, TimeUnit.SECONDS));
+        await(() -> executor.size() == 0);
+    }
+
+    @Test
+    public void shouldReleaseSessionWhenRequestTimesOut() throws Exception {
+        SessionRequestExecutor timed = new SessionRequestExecutor(1, 10, 50);
+        timed.start();
+        try {
+            CompletableFuture<Void> lost = new CompletableFuture<>();
+            CountDownLatch next = new CountDownLatch(1);
+            timed.submit("session", () -> {
+                timed.expire(lost);
+                return lost;
+            });
+            timed.submit("session", () -> {
+                next.countDown();
+                return CompletableFuture.completedFuture(null);
+            });
+
+            assertTrue(next.await(5, TimeUnit.SECONDS));
+            assertTrue(lost.isCompletedExceptionally());
+        } finally {
+            timed.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldRejectRequestsAfterShutdown() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CompletableFuture<Void> running = new CompletableFuture<>();
+        executor.submit("session", () -> {
+            started.countDown();
+            return running;
+        });
+        executor.submit("session", () -> CompletableFuture.completedFuture(null));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        executor.shutdown();
+
+        running.complete(null);
+        assertFalse(executor.submit("other", () -> CompletableFuture.completedFuture(null)));
+        await(() -> executor.size() == 0);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue("Condition was not met in 5 seconds", System.nanoTime() - deadline < 0);
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.devicehive.websockets.util;
+
+/*
+ * #%L
+ * DeviceHive Frontend Logic
+ * %%
+ * Copyright (C) 2016 - 2017 DataArt
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.Test;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class WebSocketCompressionMetricsTest {
+
+    private static final String FRAME = "{\"action\":\"notification/insert\",\"notification\":{\"notification\":" +
+            "\"temperature\",\"deviceId\":\"device-1\",\"parameters\":{\"value\":21.5,\"unit\":\"celsius\"}}}";
+
+    @Test
+    public void shouldDetectNegotiatedDeflate() throws Exception {
+        WebSocketSession compressed = mock(WebSocketSession.class);
+        when(compressed.getExtensions()).thenReturn(Collections.singletonList(new WebSocketExtension("permessage-deflate")));
+        WebSocketSession plain = mock(WebSocketSession.class);
+        when(plain.getExtensions()).thenReturn(Collections.emptyList());
+
+        assertTrue(WebSocketCompressionMetrics.isCompressed(compressed));
+        assertFalse(WebSocketCompressionMetrics.isCompressed(plain));
+    }
+
+    @Test
+    public void shouldSampleEveryFrameAtRateOne() throws Exception {
+        WebSocketCompressionMetrics metrics = new WebSocketCompressionMetrics(6, 1, 16);
+        StringBuilder frame = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            frame.append(FRAME);
+        }
+
+        for (int i = 0; i < 5; i++) {
+            metrics.record(frame.toString());
+        }
+
+        assertEquals(5, metrics.getCompressedFrameCount());
+        assertEquals(5, metrics.getSampledFrameCount());
+        // repeated JSON compresses well
+        assertTrue(metrics.getCompressionRatio() < 0.2);
+        assertTrue(metrics.getCompressionTimeMsPerMegabyte() > 0);
+    }
+
+    @Test
+    public void shouldCompressFramesLargerThanOutputBuffer() throws Exception {
+        WebSocketCompressionMetrics metrics = new WebSocketCompressionMetrics(0, 1, 16);
+        StringBuilder frame = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            frame.append(FRAME);
+        }
+
+        metrics.record(frame.toString());
+
+        // level 0 stores the input, the output spans several 8 KB buffers
+        assertEquals(1, metrics.getSampledFrameCount());
+        assertTrue(metrics.getCompressionRatio() >= 1);
+    }
+
+    @Test
+    public void shouldCountButNotSampleSmallFrames() throws Exception {
+        WebSocketCompressionMetrics metrics = new WebSocketCompressionMetrics(6, 1, FRAME.length() + 1);
+
+        metrics.record(FRAME);
+
+        assertEquals(1, metrics.getCompressedFrameCount());
+        assertEquals(0, metrics.getSampledFrameCount());
+        assertEquals(1, metrics.getCompressionRatio(), 0);
+        assertEquals(0, metrics.getCompressionTimeMsPerMegabyte(), 0);
+    }
+
+    @Test
+    public void shouldPublishMetrics() throws Exception {
+        WebSocketCompressionMetrics metrics = new WebSocketCompressionMetrics(6, 1, FRAME.length() + 1);
+
+        metrics.record(FRAME);
+        metrics.record(FRAME);
+
+        Map<String, Number> published = metrics.metrics().stream()
+                .collect(Collectors.toMap(Metric::getName, Metric::getValue));
+        assertEquals(2L, published.get("websocket.compression.frames"));
+        assertEquals(0L, published.get("websocket.compression.sampled-frames"));
+        assertEquals(1.0, published.get("websocket.compression.ratio"));
+        assertTrue(published.containsKey("websocket.compression.time-ms-per-megabyte"));
+    }
+}
@@ -26,7 +26,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 
 @Component
 @Profile("ws-kafka-proxy")
@@ -43,4 +45,9 @@ public class KafkaWsTopicService implements KafkaTopicService {
     public void createTopic(String topic) {
         pluginProxyClient.createTopic(Arrays.asList(topic));
     }
+
+    @Override
+    public void createTopics(Collection<String> topics) {
+        pluginProxyClient.createTopic(new ArrayList<>(topics));
+    }
 }
@@ -41,7 +41,6 @@ import com.devicehive.service.helpers.ResponseConsumer;
 import com.devicehive.shim.api.Body;
 import com.devicehive.shim.api.Request;
 import com.devicehive.shim.api.client.RpcClient;
-import com.devicehive.shim.kafka.topic.KafkaTopicService;
 import com.devicehive.util.HiveValidator;
 import com.devicehive.vo.JwtTokenVO;
 import com.devicehive.vo.PluginVO;
@@ -59,7 +58,6 @@ import javax.ws.rs.NotFoundException;
 import javax.ws.rs.ServiceUnavailableException;
 import javax.ws.rs.core.Response;
 import java.util.Collections;
-import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 
 import static com.devicehive.auth.HiveAction.MANAGE_PLUGIN;
@@ -79,7 +77,7 @@ public class PluginRegisterService {
     private final BaseDeviceService deviceService;
     private final FilterService filterService;
     private final RpcClient rpcClient;
-    private final KafkaTopicService kafkaTopicService;
+    private final PluginTopicPool pluginTopicPool;
     private final LongIdGenerator idGenerator;
     private final HttpRestHelper httpRestHelper;
     private final WebSocketKafkaProxyConfig webSocketKafkaProxyConfig;
@@ -90,7 +88,7 @@ public class PluginRegisterService {
             HiveValidator hiveValidator,
             PluginService pluginService,
             BaseDeviceService deviceService, FilterService filterService, RpcClient rpcClient,
-            KafkaTopicService kafkaTopicService,
+            PluginTopicPool pluginTopicPool,
             LongIdGenerator idGenerator,
             HttpRestHelper httpRestHelper,
             WebSocketKafkaProxyConfig webSocketKafkaProxyConfig,
@@ -100,7 +98,7 @@ public class PluginRegisterService {
         this.deviceService = deviceService;
         this.filterService = filterService;
         this.rpcClient = rpcClient;
-        this.kafkaTopicService = kafkaTopicService;
+        this.pluginTopicPool = pluginTopicPool;
         this.idGenerator = idGenerator;
         this.httpRestHelper = httpRestHelper;
         this.webSocketKafkaProxyConfig = webSocketKafkaProxyConfig;
@@ -153,8 +151,7 @@ public class PluginRegisterService {
         pluginVO.setStatus(PluginStatus.CREATED);
 
         //Creation of topic for plugin
-        String pluginTopic = "plugin_topic_" + UUID.randomUUID().toString();
-        kafkaTopicService.createTopic(pluginTopic);
+        String pluginTopic = pluginTopicPool.acquire();
         pluginVO.setTopicName(pluginTopic);
 
         //Creation of subscription for plugin
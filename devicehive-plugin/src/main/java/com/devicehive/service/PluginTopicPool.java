@@ -0,0 +1,152 @@
+package com.devicehive.service;
+
+/*
+ * #%L
+ * DeviceHive Plugin Logic
+ * %%
+ * Copyright (C) 2016 - 2017 DataArt
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import com.devicehive.service.configuration.ConfigurationService;
+import com.devicehive.shim.kafka.topic.KafkaTopicService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps a number of plugin topics created ahead of time so that plugin registration
+ * does not wait for topic creation. The pool is refilled in the background in one batch.
+ * Every pooled topic is recorded as a configuration entry, so topics that were never handed
+ * out are picked up again after a restart instead of being left behind in Kafka. A topic is
+ * handed out only by the instance that removes its entry, and a topic that was once handed
+ * out is never pooled again, because plugin tokens are bound to the topic name.
+ */
+@Component
+public class PluginTopicPool {
+    private static final Logger logger = LoggerFactory.getLogger(PluginTopicPool.class);
+
+    private static final String PLUGIN_TOPIC_PREFIX = "plugin_topic_";
+    private static final String POOL_ENTRY_PREFIX = "plugin.pool.";
+    private static final int POOL_ENTRY_ID_LENGTH = 20;
+
+    @Value("${plugin.topic-pool.size:5}")
+    private int poolSize;
+
+    private final KafkaTopicService kafkaTopicService;
+    private final ConfigurationService configurationService;
+    private final Queue<String> topics = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean refilling = new AtomicBoolean();
+    private final ExecutorService refillExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "plugin-topic-pool");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    public PluginTopicPool(KafkaTopicService kafkaTopicService, ConfigurationService configurationService) {
+        this.kafkaTopicService = kafkaTopicService;
+        this.configurationService = configurationService;
+    }
+
+    @PostConstruct
+    public void init() {
+        try {
+            configurationService.findByNamePrefix(POOL_ENTRY_PREFIX)
+                    .forEach(entry -> topics.add(entry.getValue()));
+            logger.info("Reusing {} pooled plugin topics", topics.size());
+        } catch (Exception e) {
+            logger.warn("Unable to load pooled plugin topics", e);
+        }
+        refill();
+    }
+
+    public String acquire() {
+        String topic;
+        do {
+            topic = topics.poll();
+        } while (topic != null && !claim(topic));
+
+        if (topic == null) {
+            topic = newTopicName();
+            kafkaTopicService.createTopic(topic);
+        }
+        refill();
+        return topic;
+    }
+
+    int size() {
+        return topics.size();
+    }
+
+    private boolean claim(String topic) {
+        if (configurationService.delete(poolEntryName(topic)) == 1) {
+            return true;
+        }
+        logger.debug("Pooled plugin topic {} has already been taken", topic);
+        return false;
+    }
+
+    private void refill() {
+        if (poolSize <= 0 || topics.size() >= poolSize || !refilling.compareAndSet(false, true)) {
+            return;
+        }
+        refillExecutor.execute(() -> {
+            try {
+                List<String> created = new ArrayList<>();
+                for (int i = topics.size(); i < poolSize; i++) {
+                    created.add(newTopicName());
+                }
+                kafkaTopicService.createTopics(created);
+                for (String topic : created) {
+                    configurationService.save(poolEntryName(topic), topic);
+                    topics.add(topic);
+                }
+            } catch (Exception e) {
+                logger.warn("Unable to pre-create plugin topics", e);
+            } finally {
+                refilling.set(false);
+            }
+        });
+    }
+
+    private static String newTopicName() {
+        return PLUGIN_TOPIC_PREFIX + UUID.randomUUID().toString();
+    }
+
+    static String poolEntryName(String topic) {
+        String id = topic.substring(PLUGIN_TOPIC_PREFIX.length()).replace("-", "");
+        return POOL_ENTRY_PREFIX + id.substring(0, Math.min(POOL_ENTRY_ID_LENGTH, id.length()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refillExecutor.shutdownNow();
+    }
+}
@@ -32,7 +32,6 @@ import com.devicehive.service.helpers.ResponseConsumer;
 import com.devicehive.shim.api.Request;
 import com.devicehive.shim.api.Response;
 import com.devicehive.shim.api.client.RpcClient;
-import com.devicehive.shim.kafka.topic.KafkaTopicService;
 import com.devicehive.util.HiveValidator;
 import com.devicehive.vo.JwtTokenVO;
 import com.devicehive.vo.UserVO;
@@ -61,6 +60,7 @@ public class PluginRegisterServiceTest {
     private static final String REFRESH_TOKEN = "refreshToken";
     private static final String PROXY_ENDPOINT = "proxyEndpoint";
     private static final String AUTHORIZATION = "auth";
+    private static final String PLUGIN_TOPIC = "plugin_topic_test";
 
     @Rule
     public MockitoRule mockitoRule = MockitoJUnit.rule();
@@ -74,7 +74,7 @@ public class PluginRegisterServiceTest {
     @Mock
     private RpcClient rpcClient;
     @Mock
-    private KafkaTopicService kafkaTopicService;
+    private PluginTopicPool pluginTopicPool;
     @Mock
     private LongIdGenerator idGenerator;
     @Mock
@@ -100,6 +100,7 @@ public class PluginRegisterServiceTest {
         PluginUpdate pluginUpdate = new PluginUpdate();
 
         given(idGenerator.generate()).willReturn(SUBSCRIPTION_ID);
+        given(pluginTopicPool.acquire()).willReturn(PLUGIN_TOPIC);
         given(webSocketKafkaProxyConfig.getProxyConnect()).willReturn(PROXY_ENDPOINT);
         given(httpRestHelper.post(any(), any(), any(), any())).willReturn(createJwtTokenVO(ACCESS_TOKEN, REFRESH_TOKEN));
 
@@ -0,0 +1,144 @@
+package com.devicehive.service;
+
+
+/*
+ * #%L
+ * DeviceHive Plugin Logic
+ * %%
+ * Copyright (C) 2016 - 2017 DataArt
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.devicehive.service.configuration.ConfigurationService;
+import com.devicehive.shim.kafka.topic.KafkaTopicService;
+import com.devicehive.vo.ConfigurationVO;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+public class PluginTopicPoolTest {
+    private static final String FIRST_TOPIC = "plugin_topic_11111111-1111-1111-1111-111111111111";
+    private static final String SECOND_TOPIC = "plugin_topic_22222222-2222-2222-2222-222222222222";
+
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    private KafkaTopicService kafkaTopicService;
+    @Mock
+    private ConfigurationService configurationService;
+
+    private PluginTopicPool pool;
+
+    @After
+    public void tearDown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldReusePooledTopicsAfterRestart() throws Exception {
+        given(configurationService.findByNamePrefix(anyString())).willReturn(Arrays.asList(
+                new ConfigurationVO(PluginTopicPool.poolEntryName(FIRST_TOPIC), FIRST_TOPIC),
+                new ConfigurationVO(PluginTopicPool.poolEntryName(SECOND_TOPIC), SECOND_TOPIC)));
+        given(configurationService.delete(anyString())).willReturn(1);
+
+        pool = createPool(2);
+
+        assertEquals(2, pool.size());
+        assertEquals(FIRST_TOPIC, pool.acquire());
+        verify(configurationService).delete(PluginTopicPool.poolEntryName(FIRST_TOPIC));
+        verify(kafkaTopicService, never()).createTopic(anyString());
+    }
+
+    @Test
+    public void shouldSkipTopicsTakenByAnotherInstance() throws Exception {
+        given(configurationService.findByNamePrefix(anyString())).willReturn(Arrays.asList(
+                new ConfigurationVO(PluginTopicPool.poolEntryName(FIRST_TOPIC), FIRST_TOPIC),
+                new ConfigurationVO(PluginTopicPool.poolEntryName(SECOND_TOPIC), SECOND_TOPIC)));
+        given(configurationService.delete(PluginTopicPool.poolEntryName(FIRST_TOPIC))).willReturn(0);
+        given(configurationService.delete(PluginTopicPool.poolEntryName(SECOND_TOPIC))).willReturn(1);
+
+        pool = createPool(2);
+
+        assertEquals(SECOND_TOPIC, pool.acquire());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldRecordEveryPreCreatedTopic() throws Exception {
+        given(configurationService.findByNamePrefix(anyString())).willReturn(Collections.emptyList());
+
+        pool = createPool(2);
+
+        ArgumentCaptor<Collection<String>> created = ArgumentCaptor.forClass(Collection.class);
+        verify(kafkaTopicService, timeout(1000)).createTopics(created.capture());
+        assertEquals(2, created.getValue().size());
+        for (String topic : created.getValue()) {
+            verify(configurationService, timeout(1000)).save(PluginTopicPool.poolEntryName(topic), topic);
+        }
+    }
+
+    @Test
+    public void shouldCreateTopicInlineWhenPoolIsEmpty() throws Exception {
+        given(configurationService.findByNamePrefix(anyString())).willReturn(Collections.emptyList());
+
+        pool = createPool(0);
+        String topic = pool.acquire();
+
+        assertTrue(topic.startsWith("plugin_topic_"));
+        verify(kafkaTopicService).createTopic(topic);
+        verify(kafkaTopicService, never()).createTopics(anyCollection());
+        verify(configurationService, never()).save(anyString(), any());
+        verify(configurationService, never()).delete(eq(PluginTopicPool.poolEntryName(topic)));
+    }
+
+    @Test
+    public void shouldFitPoolEntryNameIntoConfigurationName() throws Exception {
+        String name = PluginTopicPool.poolEntryName(FIRST_TOPIC);
+
+        assertTrue(name.length() <= 32);
+        assertNotEquals(name, PluginTopicPool.poolEntryName(SECOND_TOPIC));
+    }
+
+    private PluginTopicPool createPool(int size) {
+        PluginTopicPool topicPool = new PluginTopicPool(kafkaTopicService, configurationService);
+        ReflectionTestUtils.setField(topicPool, "poolSize", size);
+        topicPool.init();
+        return topicPool;
+    }
+}
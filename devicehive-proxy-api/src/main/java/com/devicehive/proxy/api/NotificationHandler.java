@@ -20,7 +20,16 @@ package com.devicehive.proxy.api;
  * #L%
  */
 
+import com.google.gson.JsonElement;
+
 public interface NotificationHandler {
 
     void handle(String message, ProxyClient client);
+
+    /**
+     * Handles a message that was embedded into the proxy frame as JSON
+     */
+    default void handle(JsonElement message, ProxyClient client) {
+        handle(message.toString(), client);
+    }
 }
@@ -35,4 +35,11 @@ public abstract class ProxyClient {
     public abstract void shutdown();
 
     public abstract CompletableFuture<ProxyMessage> push(ProxyMessage message);
+
+    /**
+     * Sends a message whose response is of no interest to the caller, so nothing is tracked for it
+     */
+    public void pushNoReply(ProxyMessage message) {
+        push(message);
+    }
 }
@@ -56,6 +56,14 @@ public class ProxyMessageBuilder {
                 .build();
     }
 
+    public static ProxyMessage unsubscribe(TopicsPayload payload) {
+        return ProxyMessage.newBuilder()
+                .withType("topic")
+                .withAction("unsubscribe")
+                .withPayload(payload)
+                .build();
+    }
+
     public static ProxyMessage notification(NotificationCreatePayload payload) {
         return ProxyMessage.newBuilder()
                 .withType("notif")
@@ -20,6 +20,7 @@ package com.devicehive.proxy.api.payload;
  * #L%
  */
 
+import com.google.gson.JsonElement;
 import com.google.gson.annotations.SerializedName;
 
 public class MessagePayload implements Payload {
@@ -27,14 +28,30 @@ public class MessagePayload implements Payload {
     @SerializedName("m")
     protected String message;
 
+    /**
+     * Message received as embedded JSON rather than as a string
+     */
+    protected transient JsonElement body;
+
     public MessagePayload(String message) {
         this.message = message;
     }
 
+    public MessagePayload(JsonElement body) {
+        this.body = body;
+    }
+
     public String getMessage() {
+        if (message == null && body != null) {
+            message = body.toString();
+        }
         return message;
     }
 
+    public JsonElement getBody() {
+        return body;
+    }
+
     public void setMessage(String message) {
         this.message = message;
     }
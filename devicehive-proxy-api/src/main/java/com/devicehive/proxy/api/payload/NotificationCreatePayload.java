@@ -33,6 +33,11 @@ public class NotificationCreatePayload implements Payload {
     @SerializedName("part")
     private String partition;
 
+    /**
+     * Message is JSON and is written into the frame as is instead of as an escaped string
+     */
+    private transient boolean raw;
+
     public NotificationCreatePayload(String topic, String message) {
         this.topic = topic;
         this.message = message;
@@ -45,6 +50,11 @@ public class NotificationCreatePayload implements Payload {
         this.partition = partition;
     }
 
+    public NotificationCreatePayload(String topic, String message, String partition, boolean raw) {
+        this(topic, message, partition);
+        this.raw = raw;
+    }
+
     public String getTopic() {
         return topic;
     }
@@ -61,6 +71,10 @@ public class NotificationCreatePayload implements Payload {
         this.message = message;
     }
 
+    public boolean isRaw() {
+        return raw;
+    }
+
     public String getPartition() {
         return partition;
     }
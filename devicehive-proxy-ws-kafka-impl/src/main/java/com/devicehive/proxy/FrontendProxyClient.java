@@ -47,13 +47,25 @@ public class FrontendProxyClient implements RpcClient {
     private final String requestTopic;
     private final String replyToTopic;
     private final ProxyClient client;
+    private final ProxyClient publisher;
     private final RequestResponseMatcher requestResponseMatcher;
     private final Gson gson;
+    private boolean rawJsonPayload;
 
     public FrontendProxyClient(String requestTopic, String replyToTopic, ProxyClient client, RequestResponseMatcher requestResponseMatcher, Gson gson) {
+        this(requestTopic, replyToTopic, client, client, requestResponseMatcher, gson);
+    }
+
+    /**
+     * @param client    connection which subscribes to the reply topic
+     * @param publisher connection used to send requests, e.g. a shared {@link com.devicehive.proxy.client.ProxyConnectionPool}
+     */
+    public FrontendProxyClient(String requestTopic, String replyToTopic, ProxyClient client, ProxyClient publisher,
+                               RequestResponseMatcher requestResponseMatcher, Gson gson) {
         this.requestTopic = requestTopic;
         this.replyToTopic = replyToTopic;
         this.client = client;
+        this.publisher = publisher;
         this.requestResponseMatcher = requestResponseMatcher;
         this.gson = gson;
     }
@@ -66,6 +78,14 @@ public class FrontendProxyClient implements RpcClient {
         push(request);
     }
 
+    @Override
+    public void callStream(Request request, Consumer<Response> callback) {
+        requestResponseMatcher.addStreamCallback(request.getCorrelationId(), callback);
+        logger.debug("Stream callback added for request: {}, correlationId: {}", request.getBody(), request.getCorrelationId());
+
+        push(request);
+    }
+
     @Override
     public void push(Request request) {
         if (request.getBody() == null) {
@@ -73,8 +93,15 @@ public class FrontendProxyClient implements RpcClient {
         }
         request.setReplyTo(replyToTopic);
 
-        client.push(ProxyMessageBuilder.notification(
-                new NotificationCreatePayload(requestTopic, gson.toJson(request), request.getPartitionKey())));
+        publisher.pushNoReply(ProxyMessageBuilder.notification(
+                new NotificationCreatePayload(requestTopic, gson.toJson(request), request.getPartitionKey(), rawJsonPayload)));
+    }
+
+    /**
+     * Embeds requests into proxy frames as JSON instead of as escaped strings
+     */
+    public void setRawJsonPayload(boolean rawJsonPayload) {
+        this.rawJsonPayload = rawJsonPayload;
     }
 
     @Override
@@ -105,7 +132,7 @@ public class FrontendProxyClient implements RpcClient {
             requestResponseMatcher.addRequestCallback(request.getCorrelationId(), pingFuture::complete);
             logger.debug("Request callback added for request: {}, correlationId: {}", request.getBody(), request.getCorrelationId());
 
-            client.push(ProxyMessageBuilder.notification(
+            client.pushNoReply(ProxyMessageBuilder.notification(
                     new NotificationCreatePayload(requestTopic, gson.toJson(request), request.getPartitionKey())));
 
             Response response = null;
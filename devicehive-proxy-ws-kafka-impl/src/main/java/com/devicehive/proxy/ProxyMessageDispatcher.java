@@ -24,7 +24,7 @@ import com.devicehive.proxy.api.ProxyClient;
 import com.devicehive.proxy.api.ProxyMessage;
 import com.devicehive.proxy.api.ProxyMessageBuilder;
 import com.devicehive.proxy.api.payload.NotificationCreatePayload;
-import com.devicehive.proxy.client.WebSocketKafkaProxyClient;
+import com.devicehive.proxy.client.ProxyConnectionPool;
 import com.devicehive.proxy.config.WebSocketKafkaProxyConfig;
 import com.devicehive.shim.api.Response;
 import com.devicehive.shim.api.server.MessageDispatcher;
@@ -35,19 +35,18 @@ public class ProxyMessageDispatcher implements MessageDispatcher {
 
     private final Gson gson;
     private final ProxyClient proxyClient;
+    private final boolean rawJsonPayload;
 
     @Autowired
-    public ProxyMessageDispatcher(Gson gson, WebSocketKafkaProxyConfig proxyConfig) {
+    public ProxyMessageDispatcher(Gson gson, ProxyConnectionPool connectionPool, WebSocketKafkaProxyConfig proxyConfig) {
         this.gson = gson;
-        WebSocketKafkaProxyClient webSocketKafkaProxyClient = new WebSocketKafkaProxyClient((message, client) -> {});
-        webSocketKafkaProxyClient.setWebSocketKafkaProxyConfig(proxyConfig);
-        this.proxyClient = webSocketKafkaProxyClient;
-        this.proxyClient.start();
+        this.proxyClient = connectionPool;
+        this.rawJsonPayload = proxyConfig.getRawJsonPayload();
     }
 
     @Override
     public void send(String to, Response response) {
-        ProxyMessage responseMessage = ProxyMessageBuilder.notification(new NotificationCreatePayload(to, gson.toJson(response)));
-        proxyClient.push(responseMessage);
+        ProxyMessage responseMessage = ProxyMessageBuilder.notification(new NotificationCreatePayload(to, gson.toJson(response), "0", rawJsonPayload));
+        proxyClient.pushNoReply(responseMessage);
     }
 }
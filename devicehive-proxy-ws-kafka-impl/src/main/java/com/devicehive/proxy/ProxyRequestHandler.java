@@ -25,6 +25,7 @@ import com.devicehive.proxy.api.NotificationHandler;
 import com.devicehive.proxy.api.ProxyClient;
 import com.devicehive.shim.api.Request;
 import com.google.gson.Gson;
+import com.google.gson.JsonElement;
 import com.lmax.disruptor.RingBuffer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -50,4 +51,12 @@ public class ProxyRequestHandler implements NotificationHandler {
 
         ringBuffer.publishEvent((serverEvent, sequence, response) -> serverEvent.set(response), request);
     }
+
+    @Override
+    public void handle(JsonElement message, ProxyClient client) {
+        logger.debug("Received message from proxy client: " + message);
+        final Request request = gson.fromJson(message, Request.class);
+
+        ringBuffer.publishEvent((serverEvent, sequence, response) -> serverEvent.set(response), request);
+    }
 }
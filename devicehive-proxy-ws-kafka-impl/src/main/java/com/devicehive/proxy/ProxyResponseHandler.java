@@ -25,6 +25,7 @@ import com.devicehive.proxy.api.NotificationHandler;
 import com.devicehive.proxy.api.ProxyClient;
 import com.devicehive.shim.api.Response;
 import com.google.gson.Gson;
+import com.google.gson.JsonElement;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -49,4 +50,12 @@ public class ProxyResponseHandler implements NotificationHandler {
 
         requestResponseMatcher.offerResponse(response);
     }
+
+    @Override
+    public void handle(JsonElement message, ProxyClient client) {
+        logger.debug("Received message from proxy client: " + message);
+        final Response response = gson.fromJson(message, Response.class);
+
+        requestResponseMatcher.offerResponse(response);
+    }
 }
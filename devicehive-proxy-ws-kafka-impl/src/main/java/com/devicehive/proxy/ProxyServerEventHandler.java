@@ -26,11 +26,12 @@ import com.devicehive.proxy.api.ProxyClient;
 import com.devicehive.proxy.api.ProxyMessage;
 import com.devicehive.proxy.api.ProxyMessageBuilder;
 import com.devicehive.proxy.api.payload.NotificationCreatePayload;
-import com.devicehive.proxy.client.WebSocketKafkaProxyClient;
+import com.devicehive.proxy.client.ProxyConnectionPool;
 import com.devicehive.proxy.config.WebSocketKafkaProxyConfig;
 import com.devicehive.shim.api.Action;
 import com.devicehive.shim.api.Request;
 import com.devicehive.shim.api.Response;
+import com.devicehive.shim.api.ResponseChunks;
 import com.devicehive.shim.api.server.RequestHandler;
 import com.google.gson.Gson;
 import com.lmax.disruptor.WorkHandler;
@@ -51,15 +52,17 @@ public class ProxyServerEventHandler implements WorkHandler<ServerEvent> {
     private final Gson gson;
     private final ProxyClient proxyClient;
     private final HandlersMapper requestHandlersMapper;
+    private final boolean rawJsonPayload;
+    private final int responseChunkSize;
 
     @Autowired
-    public ProxyServerEventHandler(Gson gson, WebSocketKafkaProxyConfig proxyConfig, HandlersMapper requestHandlersMapper) {
+    public ProxyServerEventHandler(Gson gson, ProxyConnectionPool connectionPool, HandlersMapper requestHandlersMapper,
+                                   WebSocketKafkaProxyConfig proxyConfig) {
         this.gson = gson;
         this.requestHandlersMapper = requestHandlersMapper;
-        WebSocketKafkaProxyClient webSocketKafkaProxyClient = new WebSocketKafkaProxyClient((message, client) -> {});
-        webSocketKafkaProxyClient.setWebSocketKafkaProxyConfig(proxyConfig);
-        this.proxyClient = webSocketKafkaProxyClient;
-        this.proxyClient.start();
+        this.proxyClient = connectionPool;
+        this.rawJsonPayload = proxyConfig.getRawJsonPayload();
+        this.responseChunkSize = proxyConfig.getResponseChunkSize();
     }
 
     @Override
@@ -85,10 +88,17 @@ public class ProxyServerEventHandler implements WorkHandler<ServerEvent> {
                         .buildFailed(404);
         }
 
+        if (request.isNoReply()) {
+            return;
+        }
         // set correlationId explicitly to prevent missing it in request
         response.setCorrelationId(request.getCorrelationId());
-        ProxyMessage responseMessage = ProxyMessageBuilder.notification(new NotificationCreatePayload(replyTo, gson.toJson(response)));
-        proxyClient.push(responseMessage);
+        ResponseChunks.split(request, response, responseChunkSize, chunk -> send(replyTo, chunk));
+    }
+
+    private void send(String replyTo, Response response) {
+        ProxyMessage responseMessage = ProxyMessageBuilder.notification(new NotificationCreatePayload(replyTo, gson.toJson(response), "0", rawJsonPayload));
+        proxyClient.pushNoReply(responseMessage);
     }
 
     private Response handleClientRequest(Request request) {
@@ -107,7 +117,7 @@ public class ProxyServerEventHandler implements WorkHandler<ServerEvent> {
                     request.getBody().getAction().name(), requestHandler.getClass().getCanonicalName(), e);
 
             response = Response.newBuilder()
-                    .withLast(request.isSingleReplyExpected())
+                    .withLast(true)
                     .buildFailed(500);
         }
         return response;
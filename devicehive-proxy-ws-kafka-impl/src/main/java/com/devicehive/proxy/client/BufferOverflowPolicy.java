@@ -0,0 +1,43 @@
+package com.devicehive.proxy.client;
+
+/*
+ * #%L
+ * DeviceHive Proxy WebSocket Kafka Implementation
+ * %%
+ * Copyright (C) 2016 - 2017 DataArt
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * What a disconnected proxy client does with a message when its outbound buffer is full.
+ */
+public enum BufferOverflowPolicy {
+    /**
+     * Wait for the connection to be restored, at most for the response timeout
+     */
+    BLOCK,
+    /**
+     * Discard the oldest buffered message to make room
+     */
+    DROP_OLDEST,
+    /**
+     * Refuse the new message immediately
+     */
+    FAIL_FAST;
+
+    public static BufferOverflowPolicy fromName(String name) {
+        return valueOf(name.trim().toUpperCase().replace('-', '_'));
+    }
+}
@@ -21,35 +21,22 @@ package com.devicehive.proxy.client;
  */
 
 import com.devicehive.proxy.api.ProxyMessage;
-import com.devicehive.proxy.api.payload.*;
-import com.google.gson.*;
-import com.google.gson.reflect.TypeToken;
 
 import javax.websocket.DecodeException;
 import javax.websocket.Decoder;
 import javax.websocket.EndpointConfig;
-import java.lang.reflect.Type;
-import java.util.ArrayList;
-import java.util.Collections;
+import java.io.IOException;
 import java.util.List;
 
 class GsonProxyMessageDecoder implements Decoder.Text<List<ProxyMessage>> {
 
-    private static final JsonParser parser = new JsonParser();
-    private static final Gson gson = new Gson();
-
     @Override
     public List<ProxyMessage> decode(String s) throws DecodeException {
-        JsonElement object = parser.parse(s);
-        if (object instanceof JsonArray) {
-            List<ProxyMessage> list = new ArrayList<>();
-            object.getAsJsonArray().forEach(elem -> list.add(buildMessage(elem.getAsJsonObject())));
-            return list;
-        }
-        if (object instanceof JsonObject) {
-            return Collections.singletonList(buildMessage(object.getAsJsonObject()));
+        try {
+            return ProxyMessageCodec.decode(s);
+        } catch (IOException e) {
+            throw new DecodeException(s, "Cannot deserialize ProxyMessage", e);
         }
-        throw new JsonParseException(String.format("Cannot deserialize ProxyMessage from '%s'", s));
     }
 
     @Override
@@ -66,48 +53,4 @@ class GsonProxyMessageDecoder implements Decoder.Text<List<ProxyMessage>> {
     public void destroy() {
 
     }
-
-    @SuppressWarnings("unchecked")
-    private ProxyMessage buildMessage(JsonObject object) {
-        JsonElement t = object.get("t");
-        JsonElement a = object.get("a");
-        if (t == null) {
-            throw new JsonParseException("Cannot deserialize ProxyMessage because it does not define a field named 't'");
-        }
-        String type = object.get("t").getAsString();
-        if (a != null) {
-            type += "/" + a.getAsString();
-        }
-
-        Integer status = object.get("s") != null ? object.get("s").getAsInt() : null;
-        ProxyMessage.Builder decoded = ProxyMessage.newBuilder()
-                .withId(object.get("id") != null ? object.get("id").getAsString() : null)
-                .withType(t.getAsString())
-                .withAction(a != null ? a.getAsString() : null)
-                .withStatus(status);
-        if (object.get("p") != null) {
-            if (status != null && status == 0) {
-                switch (type) {
-                    case "topic/create":
-                        decoded.withPayload(gson.fromJson(object.get("p"), TopicsPayload.class));
-                        break;
-                    case "topic/list":
-                        decoded.withPayload(gson.fromJson(object.get("p"), TopicsPayload.class));
-                        break;
-                    case "topic/subscribe":
-                        decoded.withPayload(gson.fromJson(object.get("p"), SubscribePayload.class));
-                        break;
-                    case "notif":
-                        decoded.withPayload(gson.fromJson(object.get("p"), MessagePayload.class));
-                        break;
-                    case "health":
-                        decoded.withPayload(gson.fromJson(object.get("p"), HealthPayload.class));
-                        break;
-                }
-            } else {
-                decoded.withPayload(gson.fromJson(object.get("p"), MessagePayload.class));
-            }
-        }
-        return decoded.build();
-    }
 }
@@ -21,25 +21,21 @@ package com.devicehive.proxy.client;
  */
 
 import com.devicehive.proxy.api.ProxyMessage;
-import com.devicehive.proxy.api.payload.Payload;
-import com.devicehive.proxy.api.payload.TopicsPayload;
-import com.google.gson.Gson;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.reflect.TypeToken;
 
 import javax.websocket.EncodeException;
 import javax.websocket.Encoder;
 import javax.websocket.EndpointConfig;
-import java.util.List;
+import java.io.IOException;
 
 class GsonProxyMessageEncoder implements Encoder.Text<ProxyMessage> {
 
-    private static Gson gson = new Gson();
-
     @Override
     public String encode(ProxyMessage message) throws EncodeException {
-        return gson.toJson(message);
+        try {
+            return ProxyMessageCodec.encode(message);
+        } catch (IOException e) {
+            throw new EncodeException(message, "Cannot serialize ProxyMessage", e);
+        }
     }
 
     @Override
@@ -0,0 +1,103 @@
+package com.devicehive.proxy.client;
+
+/*
+ * #%L
+ * DeviceHive Proxy WebSocket Kafka Implementation
+ * %%
+ * Copyright (C) 2016 - 2017 DataArt
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of outbound frames sent by proxy clients: how many messages were coalesced into a frame
+ * and how long the first message of a frame waited before the frame was written.
+ */
+@ManagedResource(description = "Outbound frames coalesced by proxy clients")
+public class ProxyBatchMetrics {
+
+    private final LongAdder frames = new LongAdder();
+    private final LongAdder messages = new LongAdder();
+    private final AtomicLong lastBatchSize = new AtomicLong();
+    private final AtomicLong maxBatchSize = new AtomicLong();
+    private final LongAdder flushLatencyNs = new LongAdder();
+    private final AtomicLong maxFlushLatencyNs = new AtomicLong();
+    private final LongAdder failedFrames = new LongAdder();
+
+    void onFrame(int size, long latencyNs) {
+        frames.increment();
+        messages.add(size);
+        lastBatchSize.set(size);
+        maxBatchSize.accumulateAndGet(size, Math::max);
+        flushLatencyNs.add(latencyNs);
+        maxFlushLatencyNs.accumulateAndGet(latencyNs, Math::max);
+    }
+
+    void onFailure() {
+        failedFrames.increment();
+    }
+
+    @ManagedAttribute
+    public long getFrameCount() {
+        return frames.sum();
+    }
+
+    @ManagedAttribute
+    public long getMessageCount() {
+        return messages.sum();
+    }
+
+    @ManagedAttribute
+    public long getFailedFrameCount() {
+        return failedFrames.sum();
+    }
+
+    @ManagedAttribute
+    public long getLastBatchSize() {
+        return lastBatchSize.get();
+    }
+
+    @ManagedAttribute
+    public long getMaxBatchSize() {
+        return maxBatchSize.get();
+    }
+
+    @ManagedAttribute
+    public double getAvgBatchSize() {
+        final long count = frames.sum();
+        return count == 0 ? 0 : (double) messages.sum() / count;
+    }
+
+    @ManagedAttribute
+    public double getAvgFlushLatencyMs() {
+        final long count = frames.sum();
+        return count == 0 ? 0 : toMillis(flushLatencyNs.sum()) / count;
+    }
+
+    @ManagedAttribute
+    public double getMaxFlushLatencyMs() {
+        return toMillis(maxFlushLatencyNs.get());
+    }
+
+    private static double toMillis(long nanos) {
+        return (double) nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,150 @@
+package com.devicehive.proxy.client;
+
+/*
+ * #%L
+ * DeviceHive Proxy WebSocket Kafka Implementation
+ * %%
+ * Copyright (C) 2016 - 2017 DataArt
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.devicehive.exceptions.HiveException;
+import com.devicehive.proxy.api.ProxyClient;
+import com.devicehive.proxy.api.ProxyMessage;
+import com.devicehive.proxy.config.WebSocketKafkaProxyConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed number of proxy connections shared by all publishers of the process. Every message goes to the healthy
+ * connection with the lowest load, i.e. queued, buffered and unanswered messages, see
+ * {@link WebSocketKafkaProxyClient#getLoad()}. Equally loaded connections take turns, so fire-and-forget traffic,
+ * which is never waiting for a response, is still spread. Closed connections reconnect by themselves; while none
+ * is healthy, messages are buffered by the least loaded one. Connections of the pool do not subscribe to topics,
+ * so incoming notifications are ignored.
+ */
+public class ProxyConnectionPool extends ProxyClient {
+    private static final Logger logger = LoggerFactory.getLogger(ProxyConnectionPool.class);
+
+    private final WebSocketKafkaProxyConfig proxyConfig;
+    private final int size;
+    private final AtomicReferenceArray<WebSocketKafkaProxyClient> connections;
+    private final AtomicInteger next = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+
+    public ProxyConnectionPool(WebSocketKafkaProxyConfig proxyConfig) {
+        super((message, client) -> {});
+        this.proxyConfig = proxyConfig;
+        this.size = Math.max(1, proxyConfig.getConnectionPoolSize());
+        this.connections = new AtomicReferenceArray<>(size);
+    }
+
+    @Override
+    public void start() {
+        for (int i = 0; i < size; i++) {
+            connections.set(i, connect());
+        }
+        logger.info("Proxy connection pool started with {} connection(s)", size);
+    }
+
+    @Override
+    public void shutdown() {
+        for (int i = 0; i < size; i++) {
+            WebSocketKafkaProxyClient connection = connections.getAndSet(i, null);
+            if (connection != null) {
+                connection.shutdown();
+            }
+        }
+    }
+
+    @Override
+    public CompletableFuture<ProxyMessage> push(ProxyMessage message) {
+        WebSocketKafkaProxyClient connection = select();
+        if (connection == null) {
+            rejected.increment();
+            CompletableFuture<ProxyMessage> future = new CompletableFuture<>();
+            future.completeExceptionally(new HiveException("No proxy connection is available"));
+            return future;
+        }
+        return connection.push(message);
+    }
+
+    @Override
+    public void pushNoReply(ProxyMessage message) {
+        WebSocketKafkaProxyClient connection = select();
+        if (connection == null) {
+            rejected.increment();
+            throw new HiveException("No proxy connection is available");
+        }
+        connection.pushNoReply(message);
+    }
+
+    private WebSocketKafkaProxyClient select() {
+        WebSocketKafkaProxyClient selected = null;
+        WebSocketKafkaProxyClient reconnecting = null;
+        int selectedLoad = Integer.MAX_VALUE;
+        int reconnectingLoad = Integer.MAX_VALUE;
+        // start at a different connection every time, so ties are broken round-robin
+        int start = Math.floorMod(next.getAndIncrement(), size);
+        for (int i = 0; i < size; i++) {
+            WebSocketKafkaProxyClient connection = connections.get((start + i) % size);
+            if (connection == null) {
+                continue;
+            }
+            int load = connection.getLoad();
+            if (connection.isConnected()) {
+                if (load < selectedLoad) {
+                    selected = connection;
+                    selectedLoad = load;
+                }
+            } else if (load < reconnectingLoad) {
+                reconnecting = connection;
+                reconnectingLoad = load;
+            }
+        }
+        return selected != null ? selected : reconnecting;
+    }
+
+    WebSocketKafkaProxyClient connect() {
+        WebSocketKafkaProxyClient client = new WebSocketKafkaProxyClient(notificationHandler);
+        client.setWebSocketKafkaProxyConfig(proxyConfig);
+        client.start();
+        return client;
+    }
+
+    public int getConnectionCount() {
+        return size;
+    }
+
+    public int getHealthyConnectionCount() {
+        int healthy = 0;
+        for (int i = 0; i < size; i++) {
+            WebSocketKafkaProxyClient connection = connections.get(i);
+            if (connection != null && connection.isConnected()) {
+                healthy++;
+            }
+        }
+        return healthy;
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+}
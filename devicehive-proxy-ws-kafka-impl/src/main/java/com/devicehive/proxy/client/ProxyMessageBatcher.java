@@ -0,0 +1,166 @@
+package com.devicehive.proxy.client;
+
+/*
+ * #%L
+ * DeviceHive Proxy WebSocket Kafka Implementation
+ * %%
+ * Copyright (C) 2016 - 2017 DataArt
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.devicehive.proxy.api.ProxyMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.websocket.Session;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces outbound proxy messages into JSON array frames. A frame is written when {@code maxBatchSize} messages
+ * are pending or {@code windowMs} after the first pending message, whichever comes first. All frames of a session
+ * are written sequentially by one thread, so the session never sees concurrent writes. With a zero window every
+ * message is written as its own frame on the caller's thread, one caller at a time.
+ */
+class ProxyMessageBatcher {
+    private static final Logger logger = LoggerFactory.getLogger(ProxyMessageBatcher.class);
+
+    private final Supplier<Session> sessionSupplier;
+    private final int maxBatchSize;
+    private final long windowMs;
+    private final ProxyBatchMetrics metrics;
+    private final Consumer<List<ProxyMessage>> undelivered;
+    private final ScheduledExecutorService flushExecutor;
+
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Object lock = new Object();
+    private List<ProxyMessage> pending = new ArrayList<>();
+    private long firstPendingAt;
+    private boolean flushScheduled;
+
+    /**
+     * @param undelivered receives messages of frames that could not be written, e.g. to buffer them until reconnect
+     */
+    ProxyMessageBatcher(Supplier<Session> sessionSupplier, int maxBatchSize, long windowMs, ProxyBatchMetrics metrics,
+                        Consumer<List<ProxyMessage>> undelivered) {
+        this.sessionSupplier = sessionSupplier;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.windowMs = windowMs;
+        this.metrics = metrics;
+        this.undelivered = undelivered;
+        this.flushExecutor = windowMs <= 0 ? null : Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "proxy-frame-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    void add(ProxyMessage message) {
+        queued.incrementAndGet();
+        if (flushExecutor == null) {
+            final long queuedAt = System.nanoTime();
+            synchronized (lock) {
+                write(Collections.singletonList(message), queuedAt);
+            }
+            return;
+        }
+        synchronized (lock) {
+            if (pending.isEmpty()) {
+                firstPendingAt = System.nanoTime();
+            }
+            pending.add(message);
+            if (pending.size() >= maxBatchSize) {
+                flushScheduled = true;
+                flushExecutor.execute(this::flush);
+            } else if (!flushScheduled) {
+                flushScheduled = true;
+                flushExecutor.schedule(this::flush, windowMs, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private void flush() {
+        List<ProxyMessage> batch;
+        long queuedAt;
+        synchronized (lock) {
+            if (pending.isEmpty()) {
+                flushScheduled = false;
+                return;
+            }
+            batch = pending;
+            queuedAt = firstPendingAt;
+            pending = new ArrayList<>();
+            flushScheduled = false;
+        }
+        // a full batch may have been flushed already by a previous task, so frames are capped again here
+        for (int from = 0; from < batch.size(); from += maxBatchSize) {
+            write(batch.subList(from, Math.min(from + maxBatchSize, batch.size())), queuedAt);
+        }
+    }
+
+    private void write(List<ProxyMessage> batch, long queuedAt) {
+        try {
+            writeFrame(batch, queuedAt);
+        } finally {
+            queued.addAndGet(-batch.size());
+        }
+    }
+
+    private void writeFrame(List<ProxyMessage> batch, long queuedAt) {
+        final Session session = sessionSupplier.get();
+        if (session == null || !session.isOpen()) {
+            logger.warn("Unable to send {} proxy message(s), session is not open", batch.size());
+            metrics.onFailure();
+            undelivered.accept(new ArrayList<>(batch));
+            return;
+        }
+        try {
+            final String frame = batch.size() == 1 ? ProxyMessageCodec.encode(batch.get(0)) : ProxyMessageCodec.encode(batch);
+            session.getBasicRemote().sendText(frame);
+            metrics.onFrame(batch.size(), System.nanoTime() - queuedAt);
+        } catch (Exception e) {
+            logger.error("Unable to send {} proxy message(s)", batch.size(), e);
+            metrics.onFailure();
+            undelivered.accept(new ArrayList<>(batch));
+        }
+    }
+
+    /**
+     * @return number of added messages which have not been written or handed over as undelivered yet
+     */
+    int getQueuedCount() {
+        return queued.get();
+    }
+
+    void shutdown() {
+        if (flushExecutor == null) {
+            return;
+        }
+        flushExecutor.execute(this::flush);
+        flushExecutor.shutdown();
+        try {
+            flushExecutor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,350 @@
+package com.devicehive.proxy.client;
+
+/*
+ * #%L
+ * DeviceHive Proxy WebSocket Kafka Implementation
+ * %%
+ * Copyright (C) 2016 - 2017 DataArt
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.devicehive.proxy.api.ProxyMessage;
+import com.devicehive.proxy.api.payload.*;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Single-pass reader and writer of proxy protocol frames ({@code id/t/a/s/p}). The payload type is chosen
+ * from the type, action and status fields read before it, so payloads are bound while reading without
+ * building a JSON tree. A payload that precedes those fields is buffered and bound once the object is read.
+ */
+final class ProxyMessageCodec {
+
+    private static final JsonParser parser = new JsonParser();
+
+    private ProxyMessageCodec() {
+    }
+
+    static List<ProxyMessage> decode(String frame) throws IOException {
+        JsonReader reader = new JsonReader(new StringReader(frame));
+        JsonToken token = reader.peek();
+        if (token == JsonToken.BEGIN_ARRAY) {
+            List<ProxyMessage> messages = new ArrayList<>();
+            reader.beginArray();
+            while (reader.hasNext()) {
+                messages.add(readMessage(reader));
+            }
+            reader.endArray();
+            return messages;
+        }
+        if (token == JsonToken.BEGIN_OBJECT) {
+            return Collections.singletonList(readMessage(reader));
+        }
+        throw new JsonParseException(String.format("Cannot deserialize ProxyMessage from '%s'", frame));
+    }
+
+    static String encode(ProxyMessage message) throws IOException {
+        StringWriter out = new StringWriter();
+        writeMessage(new JsonWriter(out), message);
+        return out.toString();
+    }
+
+    static String encode(List<ProxyMessage> messages) throws IOException {
+        StringWriter out = new StringWriter();
+        JsonWriter writer = new JsonWriter(out);
+        writer.beginArray();
+        for (ProxyMessage message : messages) {
+            writeMessage(writer, message);
+        }
+        writer.endArray();
+        return out.toString();
+    }
+
+    private static ProxyMessage readMessage(JsonReader reader) throws IOException {
+        String id = null;
+        String type = null;
+        String action = null;
+        Integer status = null;
+        Payload payload = null;
+        JsonElement deferred = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "id":
+                    id = nextString(reader);
+                    break;
+                case "t":
+                    type = nextString(reader);
+                    break;
+                case "a":
+                    action = nextString(reader);
+                    break;
+                case "s":
+                    status = nextInt(reader);
+                    break;
+                case "p":
+                    if (type != null && status != null) {
+                        payload = readPayload(reader, payloadType(type, action, status));
+                    } else {
+                        deferred = parser.parse(reader);
+                    }
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (type == null) {
+            throw new JsonParseException("Cannot deserialize ProxyMessage because it does not define a field named 't'");
+        }
+        if (deferred != null) {
+            payload = readPayload(new JsonReader(new StringReader(deferred.toString())), payloadType(type, action, status));
+        }
+        return ProxyMessage.newBuilder()
+                .withId(id)
+                .withType(type)
+                .withAction(action)
+                .withStatus(status)
+                .withPayload(payload)
+                .build();
+    }
+
+    private static Class<? extends Payload> payloadType(String type, String action, Integer status) {
+        if (status == null || status != 0) {
+            return MessagePayload.class;
+        }
+        switch (action != null ? type + "/" + action : type) {
+            case "topic/create":
+            case "topic/list":
+                return TopicsPayload.class;
+            case "topic/subscribe":
+                return SubscribePayload.class;
+            case "notif":
+                return MessagePayload.class;
+            case "health":
+                return HealthPayload.class;
+            default:
+                return null;
+        }
+    }
+
+    private static Payload readPayload(JsonReader reader, Class<? extends Payload> payloadType) throws IOException {
+        if (payloadType == null || reader.peek() == JsonToken.NULL) {
+            reader.skipValue();
+            return null;
+        }
+        if (payloadType == MessagePayload.class) {
+            return readMessagePayload(reader);
+        }
+        if (payloadType == TopicsPayload.class) {
+            return readTopicsPayload(reader);
+        }
+        if (payloadType == SubscribePayload.class) {
+            return readSubscribePayload(reader);
+        }
+        return readHealthPayload(reader);
+    }
+
+    private static MessagePayload readMessagePayload(JsonReader reader) throws IOException {
+        MessagePayload payload = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if ("m".equals(reader.nextName())) {
+                JsonToken token = reader.peek();
+                if (token == JsonToken.BEGIN_OBJECT || token == JsonToken.BEGIN_ARRAY) {
+                    payload = new MessagePayload(parser.parse(reader));
+                } else {
+                    payload = new MessagePayload(nextString(reader));
+                }
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return payload != null ? payload : new MessagePayload((String) null);
+    }
+
+    private static TopicsPayload readTopicsPayload(JsonReader reader) throws IOException {
+        List<String> topics = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if ("t".equals(reader.nextName())) {
+                topics = nextStringList(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new TopicsPayload(topics);
+    }
+
+    private static SubscribePayload readSubscribePayload(JsonReader reader) throws IOException {
+        List<String> topics = null;
+        String subscriptionGroup = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "t":
+                    topics = nextStringList(reader);
+                    break;
+                case "sg":
+                    subscriptionGroup = nextString(reader);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new SubscribePayload(topics, subscriptionGroup);
+    }
+
+    private static HealthPayload readHealthPayload(JsonReader reader) throws IOException {
+        String proxyStatus = null;
+        String messageBufferStatus = null;
+        Double messageBufferFillPercentage = null;
+        String messageBrokerStatus = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "prx":
+                    proxyStatus = nextString(reader);
+                    break;
+                case "mb":
+                    messageBufferStatus = nextString(reader);
+                    break;
+                case "mbfp":
+                    if (reader.peek() == JsonToken.NULL) {
+                        reader.nextNull();
+                    } else {
+                        messageBufferFillPercentage = reader.nextDouble();
+                    }
+                    break;
+                case "comm":
+                    messageBrokerStatus = nextString(reader);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new HealthPayload(proxyStatus, messageBufferStatus, messageBufferFillPercentage, messageBrokerStatus);
+    }
+
+    private static String nextString(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextString();
+    }
+
+    private static Integer nextInt(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextInt();
+    }
+
+    private static List<String> nextStringList(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        List<String> values = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            values.add(nextString(reader));
+        }
+        reader.endArray();
+        return values;
+    }
+
+    private static void writeMessage(JsonWriter writer, ProxyMessage message) throws IOException {
+        writer.beginObject();
+        writeString(writer, "id", message.getId());
+        writeString(writer, "t", message.getType());
+        writeString(writer, "a", message.getAction());
+        if (message.getStatus() != null) {
+            writer.name("s").value(message.getStatus());
+        }
+        Payload payload = message.getPayload();
+        if (payload != null) {
+            writer.name("p");
+            writePayload(writer, payload);
+        }
+        writer.endObject();
+    }
+
+    private static void writePayload(JsonWriter writer, Payload payload) throws IOException {
+        if (payload instanceof NotificationCreatePayload) {
+            NotificationCreatePayload notification = (NotificationCreatePayload) payload;
+            writer.beginObject();
+            writeString(writer, "t", notification.getTopic());
+            if (notification.isRaw() && notification.getMessage() != null) {
+                writer.name("m").jsonValue(notification.getMessage());
+            } else {
+                writeString(writer, "m", notification.getMessage());
+            }
+            writeString(writer, "part", notification.getPartition());
+            writer.endObject();
+        } else if (payload instanceof SubscribePayload) {
+            SubscribePayload subscribe = (SubscribePayload) payload;
+            writer.beginObject();
+            writeStringList(writer, "t", subscribe.getTopics());
+            writeString(writer, "sg", subscribe.getSubscriptionGroup());
+            writer.endObject();
+        } else if (payload instanceof TopicsPayload) {
+            writer.beginObject();
+            writeStringList(writer, "t", ((TopicsPayload) payload).getTopics());
+            writer.endObject();
+        } else if (payload instanceof MessagePayload) {
+            writer.beginObject();
+            writeString(writer, "m", ((MessagePayload) payload).getMessage());
+            writer.endObject();
+        } else {
+            throw new IOException("Unsupported proxy payload " + payload.getClass().getName());
+        }
+    }
+
+    private static void writeString(JsonWriter writer, String name, String value) throws IOException {
+        if (value != null) {
+            writer.name(name).value(value);
+        }
+    }
+
+    private static void writeStringList(JsonWriter writer, String name, List<String> values) throws IOException {
+        if (values != null) {
+            writer.name(name).beginArray();
+            for (String value : values) {
+                writer.value(value);
+            }
+            writer.endArray();
+        }
+    }
+}
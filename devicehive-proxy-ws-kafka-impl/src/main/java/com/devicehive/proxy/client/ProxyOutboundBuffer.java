@@ -0,0 +1,165 @@
+package com.devicehive.proxy.client;
+
+/*
+ * #%L
+ * DeviceHive Proxy WebSocket Kafka Implementation
+ * %%
+ * Copyright (C) 2016 - 2017 DataArt
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.devicehive.proxy.api.ProxyMessage;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Messages pushed while a proxy client is disconnected, kept in order until the session is restored.
+ * The buffer is bounded by the encoded size of its messages; {@link BufferOverflowPolicy} decides what
+ * happens to a message that does not fit. Callers synchronize on the buffer to make the connection state
+ * check and {@link #offer} atomic.
+ */
+class ProxyOutboundBuffer {
+
+    private final long maxBytes;
+    private final BufferOverflowPolicy policy;
+    private final long blockTimeoutMs;
+    private final ProxyReconnectMetrics metrics;
+    private final Consumer<ProxyMessage> dropped;
+
+    private final Deque<Entry> entries = new ArrayDeque<>();
+    private final Set<String> ids = new HashSet<>();
+    private long bytes;
+    private int waiters;
+
+    ProxyOutboundBuffer(long maxBytes, BufferOverflowPolicy policy, long blockTimeoutMs, ProxyReconnectMetrics metrics,
+                        Consumer<ProxyMessage> dropped) {
+        this.maxBytes = maxBytes;
+        this.policy = policy;
+        this.blockTimeoutMs = blockTimeoutMs;
+        this.metrics = metrics;
+        this.dropped = dropped;
+    }
+
+    /**
+     * @return false if the message was refused because the buffer is full
+     */
+    synchronized boolean offer(ProxyMessage message) {
+        long size = sizeOf(message);
+        if (bytes + size > maxBytes && !entries.isEmpty()) {
+            switch (policy) {
+                case DROP_OLDEST:
+                    while (bytes + size > maxBytes && !entries.isEmpty()) {
+                        ProxyMessage oldest = remove();
+                        metrics.onDropped();
+                        dropped.accept(oldest);
+                    }
+                    break;
+                case BLOCK:
+                    if (!awaitSpace(size)) {
+                        metrics.onRejected();
+                        return false;
+                    }
+                    break;
+                default:
+                    metrics.onRejected();
+                    return false;
+            }
+        }
+        entries.addLast(new Entry(message, size));
+        ids.add(message.getId());
+        bytes += size;
+        metrics.onBuffered(size);
+        return true;
+    }
+
+    synchronized ProxyMessage poll() {
+        return entries.isEmpty() ? null : remove();
+    }
+
+    /**
+     * @return true if nothing is buffered and no caller is waiting to buffer a message
+     */
+    synchronized boolean isDrained() {
+        return entries.isEmpty() && waiters == 0;
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    synchronized boolean contains(String id) {
+        return ids.contains(id);
+    }
+
+    synchronized void clear(Consumer<ProxyMessage> consumer) {
+        ProxyMessage message;
+        while ((message = poll()) != null) {
+            consumer.accept(message);
+        }
+    }
+
+    private ProxyMessage remove() {
+        Entry entry = entries.removeFirst();
+        ids.remove(entry.message.getId());
+        bytes -= entry.size;
+        metrics.onReleased(entry.size);
+        notifyAll();
+        return entry.message;
+    }
+
+    private boolean awaitSpace(long size) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(blockTimeoutMs);
+        waiters++;
+        try {
+            while (bytes + size > maxBytes && !entries.isEmpty()) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0) {
+                    return false;
+                }
+                wait(remaining);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            waiters--;
+        }
+    }
+
+    private static long sizeOf(ProxyMessage message) {
+        try {
+            return ProxyMessageCodec.encode(message).length();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static class Entry {
+        private final ProxyMessage message;
+        private final long size;
+
+        private Entry(ProxyMessage message, long size) {
+            this.message = message;
+            this.size = size;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.devicehive.proxy.client;
+
+/*
+ * #%L
+ * DeviceHive Proxy WebSocket Kafka Implementation
+ * %%
+ * Copyright (C) 2016 - 2017 DataArt
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Responses proxy clients are waiting for, grouped by message type and action, together with the number
+ * of tracked messages that expired or were refused because too many responses were outstanding.
+ */
+@ManagedResource(description = "Responses proxy clients are waiting for")
+public class ProxyPendingMetrics {
+
+    private final Map<String, LongAdder> outstanding = new ConcurrentHashMap<>();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    void onTracked(String key) {
+        outstanding.computeIfAbsent(key, k -> new LongAdder()).increment();
+    }
+
+    void onCompleted(String key) {
+        LongAdder counter = outstanding.get(key);
+        if (counter != null) {
+            counter.decrement();
+        }
+    }
+
+    void onExpired(String key) {
+        onCompleted(key);
+        expired.increment();
+    }
+
+    void onRejected() {
+        rejected.increment();
+    }
+
+    /**
+     * @return outstanding responses keyed by {@code type/action} of the sent message
+     */
+    @ManagedAttribute
+    public Map<String, Long> getOutstanding() {
+        Map<String, Long> result = new TreeMap<>();
+        outstanding.forEach((key, counter) -> result.put(key, counter.sum()));
+        return result;
+    }
+
+    @ManagedAttribute
+    public long getOutstandingCount() {
+        return outstanding.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    @ManagedAttribute
+    public long getExpiredCount() {
+        return expired.sum();
+    }
+
+    @ManagedAttribute
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+}
@@ -0,0 +1,116 @@
+package com.devicehive.proxy.client;
+
+/*
+ * #%L
+ * DeviceHive Proxy WebSocket Kafka Implementation
+ * %%
+ * Copyright (C) 2016 - 2017 DataArt
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reconnects of proxy clients and the messages they buffered while disconnected.
+ */
+@ManagedResource(description = "Proxy client reconnects and buffered messages")
+public class ProxyReconnectMetrics {
+
+    private final LongAdder reconnects = new LongAdder();
+    private final LongAdder failedAttempts = new LongAdder();
+    private final AtomicLong lastReconnectTimeNs = new AtomicLong();
+    private final AtomicLong maxReconnectTimeNs = new AtomicLong();
+    private final LongAdder bufferedMessages = new LongAdder();
+    private final LongAdder bufferedBytes = new LongAdder();
+    private final LongAdder droppedMessages = new LongAdder();
+    private final LongAdder rejectedMessages = new LongAdder();
+
+    void onReconnected(long downtimeNs) {
+        reconnects.increment();
+        lastReconnectTimeNs.set(downtimeNs);
+        maxReconnectTimeNs.accumulateAndGet(downtimeNs, Math::max);
+    }
+
+    void onAttemptFailed() {
+        failedAttempts.increment();
+    }
+
+    void onBuffered(long bytes) {
+        bufferedMessages.increment();
+        bufferedBytes.add(bytes);
+    }
+
+    void onReleased(long bytes) {
+        bufferedMessages.decrement();
+        bufferedBytes.add(-bytes);
+    }
+
+    void onDropped() {
+        droppedMessages.increment();
+    }
+
+    void onRejected() {
+        rejectedMessages.increment();
+    }
+
+    @ManagedAttribute
+    public long getReconnectCount() {
+        return reconnects.sum();
+    }
+
+    @ManagedAttribute
+    public long getFailedAttemptCount() {
+        return failedAttempts.sum();
+    }
+
+    @ManagedAttribute
+    public double getLastReconnectTimeMs() {
+        return toMillis(lastReconnectTimeNs.get());
+    }
+
+    @ManagedAttribute
+    public double getMaxReconnectTimeMs() {
+        return toMillis(maxReconnectTimeNs.get());
+    }
+
+    @ManagedAttribute
+    public long getBufferedMessageCount() {
+        return bufferedMessages.sum();
+    }
+
+    @ManagedAttribute
+    public long getBufferedBytes() {
+        return bufferedBytes.sum();
+    }
+
+    @ManagedAttribute
+    public long getDroppedMessageCount() {
+        return droppedMessages.sum();
+    }
+
+    @ManagedAttribute
+    public long getRejectedMessageCount() {
+        return rejectedMessages.sum();
+    }
+
+    private static double toMillis(long nanos) {
+        return (double) nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
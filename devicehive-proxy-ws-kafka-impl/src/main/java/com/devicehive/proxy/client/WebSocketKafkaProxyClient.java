@@ -24,7 +24,10 @@ import com.devicehive.exceptions.HiveException;
 import com.devicehive.proxy.api.NotificationHandler;
 import com.devicehive.proxy.api.ProxyClient;
 import com.devicehive.proxy.api.ProxyMessage;
+import com.devicehive.proxy.api.ProxyMessageBuilder;
 import com.devicehive.proxy.api.payload.MessagePayload;
+import com.devicehive.proxy.api.payload.SubscribePayload;
+import com.devicehive.proxy.api.payload.TopicsPayload;
 import com.devicehive.proxy.config.WebSocketKafkaProxyConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,10 +35,18 @@ import org.slf4j.LoggerFactory;
 import javax.websocket.*;
 import java.io.IOException;
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
 
 @ClientEndpoint(
         decoders = GsonProxyMessageDecoder.class,
@@ -45,10 +56,25 @@ public class WebSocketKafkaProxyClient extends ProxyClient {
 
     private static final Logger logger = LoggerFactory.getLogger(WebSocketKafkaProxyClient.class);
 
+    private static final long EXPIRY_PERIOD_MS = 1000;
+    private static final ScheduledExecutorService expiryExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "proxy-response-expiry");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     private WebSocketKafkaProxyConfig webSocketKafkaProxyConfig;
-    private Map<String, CompletableFuture<ProxyMessage>> futureMap;
+    private Map<String, PendingResponse> futureMap;
     private Map<String, Boolean> ackReceived;
-    private Session session;
+    private volatile Session session;
+    private ProxyMessageBatcher batcher;
+    private ScheduledFuture<?> expiryTask;
+    private ProxyOutboundBuffer outbound;
+    private ScheduledExecutorService reconnectExecutor;
+    private final List<ProxyMessage> subscriptions = new CopyOnWriteArrayList<>();
+    private volatile boolean online;
+    private volatile boolean closed;
+    private long disconnectedAt;
 
     public WebSocketKafkaProxyClient(NotificationHandler notificationHandler) {
         super(notificationHandler);
@@ -61,8 +87,21 @@ public class WebSocketKafkaProxyClient extends ProxyClient {
             if (webSocketKafkaProxyConfig.getAckEnable()) {
                 this.ackReceived = new ConcurrentHashMap<>();
             }
-            WebSocketContainer container = ContainerProvider.getWebSocketContainer();
-            this.session = container.connectToServer(this, new URI("ws://" + webSocketKafkaProxyConfig.getProxyConnect()));
+            this.outbound = new ProxyOutboundBuffer(webSocketKafkaProxyConfig.getBufferMaxBytes(),
+                    webSocketKafkaProxyConfig.getBufferOverflowPolicy(), webSocketKafkaProxyConfig.getResponseTimeoutMs(),
+                    webSocketKafkaProxyConfig.getReconnectMetrics(), this::dropped);
+            this.batcher = new ProxyMessageBatcher(() -> session, webSocketKafkaProxyConfig.getBatchMaxSize(),
+                    webSocketKafkaProxyConfig.getBatchWindowMs(), webSocketKafkaProxyConfig.getBatchMetrics(), this::requeue);
+            // one thread per client: a long replay must not hold back the reconnects of other clients
+            this.reconnectExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "proxy-reconnect");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.expiryTask = expiryExecutor.scheduleWithFixedDelay(this::expirePending,
+                    EXPIRY_PERIOD_MS, EXPIRY_PERIOD_MS, TimeUnit.MILLISECONDS);
+            connect();
+            this.online = true;
         } catch (Exception e) {
             logger.error("Error during establishing connection: ", e);
             throw new RuntimeException(e);
@@ -71,23 +110,254 @@ public class WebSocketKafkaProxyClient extends ProxyClient {
 
     @Override
     public void shutdown() {
+        closed = true;
+        online = false;
+        if (expiryTask != null) {
+            expiryTask.cancel(false);
+        }
+        if (reconnectExecutor != null) {
+            reconnectExecutor.shutdownNow();
+        }
+        if (batcher != null) {
+            batcher.shutdown();
+        }
         try {
-            session.close();
+            Session current = session;
+            if (current != null) {
+                current.close();
+            }
         } catch (IOException e) {
             logger.error("Error during closing connection: ", e);
         }
+        if (outbound != null) {
+            outbound.clear(message -> fail(message.getId(), "Proxy client was shut down before message " + message.getId() + " was sent"));
+        }
     }
 
     @Override
     public CompletableFuture<ProxyMessage> push(ProxyMessage message) {
-        this.session.getAsyncRemote().sendObject(message);
-
         CompletableFuture<ProxyMessage> future = new CompletableFuture<>();
-        futureMap.put(message.getId(), future);
-        logger.debug("Message {} was sent", message);
+        if (futureMap.size() >= webSocketKafkaProxyConfig.getMaxPendingResponses()) {
+            webSocketKafkaProxyConfig.getPendingMetrics().onRejected();
+            future.completeExceptionally(new HiveException("Too many messages are waiting for a proxy response"));
+            return future;
+        }
+        String key = message.getType() + "/" + message.getAction();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(webSocketKafkaProxyConfig.getResponseTimeoutMs());
+        futureMap.put(message.getId(), new PendingResponse(future, key, deadline));
+        webSocketKafkaProxyConfig.getPendingMetrics().onTracked(key);
+        rememberSubscription(message);
+        if (!send(message)) {
+            fail(message.getId(), "Proxy connection is down and the outbound buffer is full");
+        }
         return future;
     }
 
+    @Override
+    public void pushNoReply(ProxyMessage message) {
+        rememberSubscription(message);
+        if (!send(message)) {
+            throw new HiveException("Proxy connection is down and the outbound buffer is full");
+        }
+    }
+
+    /**
+     * Writes the message to the session, or buffers it while the session is being restored
+     *
+     * @return false if the message was refused by the outbound buffer
+     */
+    private boolean send(ProxyMessage message) {
+        if (!online) {
+            synchronized (outbound) {
+                if (!online) {
+                    if (closed) {
+                        return false;
+                    }
+                    return outbound.offer(message);
+                }
+            }
+        }
+        write(message);
+        return true;
+    }
+
+    private void write(ProxyMessage message) {
+        batcher.add(message);
+        logger.debug("Message {} was sent", message);
+    }
+
+    private void requeue(List<ProxyMessage> messages) {
+        messages.forEach(message -> {
+            boolean buffered;
+            synchronized (outbound) {
+                // buffer only if the session is gone, the buffer is drained once it is restored
+                Session current = session;
+                buffered = !closed && (!online || current == null || !current.isOpen()) && outbound.offer(message);
+            }
+            if (!buffered) {
+                dropped(message);
+            }
+        });
+    }
+
+    private void dropped(ProxyMessage message) {
+        logger.warn("Proxy message {} was dropped from the outbound buffer", message.getId());
+        fail(message.getId(), "Proxy message " + message.getId() + " was dropped from the outbound buffer");
+    }
+
+    /**
+     * Keeps the subscriptions to restore after reconnect. Unsubscribe without topics drops every subscription of the
+     * connection, otherwise only the listed topics are removed.
+     */
+    private void rememberSubscription(ProxyMessage message) {
+        if (!"topic".equals(message.getType())) {
+            return;
+        }
+        if ("subscribe".equals(message.getAction())) {
+            subscriptions.add(message);
+        } else if ("unsubscribe".equals(message.getAction())) {
+            List<String> removed = topicsOf(message);
+            synchronized (subscriptions) {
+                if (removed == null) {
+                    subscriptions.clear();
+                    return;
+                }
+                for (ProxyMessage subscription : subscriptions) {
+                    SubscribePayload payload = (SubscribePayload) subscription.getPayload();
+                    if (payload == null || payload.getTopics() == null) {
+                        continue;
+                    }
+                    List<String> remaining = new ArrayList<>(payload.getTopics());
+                    if (remaining.removeAll(removed)) {
+                        subscriptions.remove(subscription);
+                        if (!remaining.isEmpty()) {
+                            subscriptions.add(ProxyMessageBuilder.subscribe(
+                                    new SubscribePayload(remaining, payload.getSubscriptionGroup())));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static List<String> topicsOf(ProxyMessage message) {
+        if (message.getPayload() instanceof TopicsPayload) {
+            return ((TopicsPayload) message.getPayload()).getTopics();
+        }
+        if (message.getPayload() instanceof SubscribePayload) {
+            return ((SubscribePayload) message.getPayload()).getTopics();
+        }
+        return null;
+    }
+
+    private void connect() throws Exception {
+        WebSocketContainer container = ContainerProvider.getWebSocketContainer();
+        this.session = container.connectToServer(this, new URI("ws://" + webSocketKafkaProxyConfig.getProxyConnect()));
+    }
+
+    private void scheduleReconnect(int attempt) {
+        long delay = Math.min(webSocketKafkaProxyConfig.getReconnectMaxDelayMs(),
+                webSocketKafkaProxyConfig.getReconnectInitialDelayMs() << Math.min(attempt, 20));
+        // equal jitter keeps clients of a restarted proxy from reconnecting in lockstep
+        delay = delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+        reconnectExecutor.schedule(() -> reconnect(attempt), delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void reconnect(int attempt) {
+        if (closed) {
+            return;
+        }
+        try {
+            connect();
+        } catch (Exception e) {
+            logger.warn("Proxy reconnect attempt {} failed: {}", attempt + 1, e.getMessage());
+            webSocketKafkaProxyConfig.getReconnectMetrics().onAttemptFailed();
+            scheduleReconnect(attempt + 1);
+            return;
+        }
+        final Session drained = session;
+        subscriptions.stream()
+                .filter(message -> !outbound.contains(message.getId()))
+                .forEach(this::write);
+        while (!online) {
+            if (closed || drained == null || drained != session || !drained.isOpen()) {
+                // the restored session was lost again, its close schedules the next attempt which resumes the replay
+                logger.warn("Proxy connection was lost while replaying buffered messages");
+                return;
+            }
+            ProxyMessage message;
+            synchronized (outbound) {
+                message = outbound.poll();
+                if (message == null && outbound.isDrained()) {
+                    online = true;
+                }
+            }
+            if (message != null) {
+                write(message);
+            } else if (!online) {
+                Thread.yield();
+            }
+        }
+        webSocketKafkaProxyConfig.getReconnectMetrics().onReconnected(System.nanoTime() - disconnectedAt);
+        logger.info("Proxy connection restored after {} attempt(s)", attempt + 1);
+    }
+
+    private void fail(String id, String reason) {
+        PendingResponse pending = untrack(id);
+        if (pending != null) {
+            webSocketKafkaProxyConfig.getPendingMetrics().onCompleted(pending.key);
+            pending.future.completeExceptionally(new HiveException(reason));
+        }
+    }
+
+    private PendingResponse untrack(String id) {
+        PendingResponse pending = futureMap.remove(id);
+        if (ackReceived != null) {
+            ackReceived.remove(id);
+        }
+        return pending;
+    }
+
+    private void expirePending() {
+        long now = System.nanoTime();
+        futureMap.forEach((id, pending) -> {
+            if (now - pending.deadline >= 0 && futureMap.remove(id, pending)) {
+                if (ackReceived != null) {
+                    ackReceived.remove(id);
+                }
+                webSocketKafkaProxyConfig.getPendingMetrics().onExpired(pending.key);
+                pending.future.completeExceptionally(
+                        new TimeoutException("No proxy response received for message " + id + " (" + pending.key + ")"));
+            }
+        });
+    }
+
+    public boolean isConnected() {
+        Session current = session;
+        return online && current != null && current.isOpen();
+    }
+
+    /**
+     * @return number of sent messages still waiting for a response
+     */
+    public int getPendingCount() {
+        return futureMap == null ? 0 : futureMap.size();
+    }
+
+    /**
+     * @return number of messages not written to the session yet plus messages still waiting for a response
+     */
+    public int getLoad() {
+        int load = getPendingCount();
+        if (batcher != null) {
+            load += batcher.getQueuedCount();
+        }
+        if (outbound != null) {
+            load += outbound.size();
+        }
+        return load;
+    }
+
     @OnOpen
     public void onOpen(Session session) {
         this.session = session;
@@ -96,11 +366,21 @@ public class WebSocketKafkaProxyClient extends ProxyClient {
 
     @OnClose
     public void onClose(Session userSession, CloseReason reason) {
-        logger.info("WebSocket session {} closed, close code {}", session.getId(), reason.getCloseCode());
-        this.session = null;
-        futureMap.clear();
-        if (webSocketKafkaProxyConfig.getAckEnable()) {
-            ackReceived.clear();
+        logger.info("WebSocket session {} closed, close code {}", userSession.getId(), reason.getCloseCode());
+        if (session != userSession) {
+            return;
+        }
+        synchronized (outbound) {
+            online = false;
+            this.session = null;
+        }
+        // buffered messages are replayed after reconnect, sent ones can't be answered on a new session
+        futureMap.keySet().stream()
+                .filter(id -> !outbound.contains(id))
+                .forEach(id -> fail(id, "Proxy connection closed before response to message " + id));
+        if (!closed) {
+            disconnectedAt = System.nanoTime();
+            scheduleReconnect(0);
         }
     }
 
@@ -116,8 +396,8 @@ public class WebSocketKafkaProxyClient extends ProxyClient {
 
             String id = message.getId();
             if (id != null) {
-                CompletableFuture<ProxyMessage> future = futureMap.get(id);
-                if (future != null) {
+                PendingResponse pending = futureMap.get(id);
+                if (pending != null) {
                     if (webSocketKafkaProxyConfig.getAckEnable() && "ack".equals(message.getType())) {
                         if (message.getStatus() != 0) {
                             throw new HiveException("Acknowledgement failed for request id " + id);
@@ -128,10 +408,9 @@ public class WebSocketKafkaProxyClient extends ProxyClient {
                         if (webSocketKafkaProxyConfig.getAckEnable() && !ackReceived.getOrDefault(id, false)) {
                             throw new HiveException("No acknowledgement received for request id " + id);
                         }
-                        future.complete(message);
-                        futureMap.remove(id);
-                        if (webSocketKafkaProxyConfig.getAckEnable()) {
-                            ackReceived.remove(id);
+                        if (untrack(id) != null) {
+                            webSocketKafkaProxyConfig.getPendingMetrics().onCompleted(pending.key);
+                            pending.future.complete(message);
                         }
                     }
                 }
@@ -139,7 +418,11 @@ public class WebSocketKafkaProxyClient extends ProxyClient {
 
             if ("notif".equals(message.getType()) && message.getAction() == null) {
                 MessagePayload payload = (MessagePayload) message.getPayload();
-                notificationHandler.handle(payload.getMessage(), this);
+                if (payload.getBody() != null) {
+                    notificationHandler.handle(payload.getBody(), this);
+                } else {
+                    notificationHandler.handle(payload.getMessage(), this);
+                }
             }
             logger.debug("Message {} was received", message);
         });
@@ -148,4 +431,16 @@ public class WebSocketKafkaProxyClient extends ProxyClient {
     public void setWebSocketKafkaProxyConfig(WebSocketKafkaProxyConfig webSocketKafkaProxyConfig) {
         this.webSocketKafkaProxyConfig = webSocketKafkaProxyConfig;
     }
+
+    private static class PendingResponse {
+        private final CompletableFuture<ProxyMessage> future;
+        private final String key;
+        private final long deadline;
+
+        private PendingResponse(CompletableFuture<ProxyMessage> future, String key, long deadline) {
+            this.future = future;
+            this.key = key;
+            this.deadline = deadline;
+        }
+    }
 }
@@ -31,6 +31,7 @@ import com.devicehive.proxy.api.ProxyClient;
 import com.devicehive.proxy.api.ProxyMessageBuilder;
 import com.devicehive.proxy.api.payload.SubscribePayload;
 import com.devicehive.proxy.api.payload.TopicsPayload;
+import com.devicehive.proxy.client.ProxyConnectionPool;
 import com.devicehive.proxy.client.WebSocketKafkaProxyClient;
 import com.devicehive.proxy.eventbus.DistributedFilterRegistry;
 import com.devicehive.shim.api.server.MessageDispatcher;
@@ -57,10 +58,11 @@ public class BackendProxyClientConfig {
     private WebSocketKafkaProxyConfig proxyConfig;
 
     @Bean
-    public WorkerPool<ServerEvent> workerPool(Gson gson, WebSocketKafkaProxyConfig proxyConfig, HandlersMapper requestHandlersMapper) {
+    public WorkerPool<ServerEvent> workerPool(Gson gson, WebSocketKafkaProxyConfig proxyConfig, HandlersMapper requestHandlersMapper,
+                                              ProxyConnectionPool connectionPool) {
         final ProxyServerEventHandler[] workHandlers = new ProxyServerEventHandler[proxyConfig.getWorkerThreads()];
         IntStream.range(0, proxyConfig.getWorkerThreads()).forEach(
-                nbr -> workHandlers[nbr] = new ProxyServerEventHandler(gson, proxyConfig, requestHandlersMapper)
+                nbr -> workHandlers[nbr] = new ProxyServerEventHandler(gson, connectionPool, requestHandlersMapper, proxyConfig)
         );
         final RingBuffer<ServerEvent> ringBuffer = RingBuffer.createMultiProducer(ServerEvent::new, proxyConfig.getBufferSize(), getWaitStrategy());
         final SequenceBarrier barrier = ringBuffer.newBarrier();
@@ -87,8 +89,8 @@ public class BackendProxyClientConfig {
     }
 
     @Bean
-    public MessageDispatcher messageDispatcher(Gson gson, WebSocketKafkaProxyConfig proxyConfig) {
-        return new ProxyMessageDispatcher(gson, proxyConfig);
+    public MessageDispatcher messageDispatcher(Gson gson, ProxyConnectionPool connectionPool) {
+        return new ProxyMessageDispatcher(gson, connectionPool, proxyConfig);
     }
 
     @Bean
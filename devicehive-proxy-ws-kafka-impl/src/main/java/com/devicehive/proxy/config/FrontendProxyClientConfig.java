@@ -24,6 +24,7 @@ import com.devicehive.api.RequestResponseMatcher;
 import com.devicehive.proxy.FrontendProxyClient;
 import com.devicehive.proxy.ProxyResponseHandler;
 import com.devicehive.proxy.api.NotificationHandler;
+import com.devicehive.proxy.client.ProxyConnectionPool;
 import com.devicehive.proxy.client.WebSocketKafkaProxyClient;
 import com.devicehive.proxy.config.WebSocketKafkaProxyConfig;
 import com.devicehive.shim.api.client.RpcClient;
@@ -45,6 +46,10 @@ import java.util.UUID;
 
 import static com.devicehive.configuration.Constants.REQUEST_TOPIC;
 
+/**
+ * RPC client over the WebSocket Kafka proxy. All requests go to {@code request_topic}; the control and data
+ * priority lanes ({@code rpc.priority-lanes.enabled}) exist only on the Kafka RPC transport.
+ */
 @Configuration
 @Profile({"ws-kafka-proxy-frontend"})
 @ComponentScan({"com.devicehive.proxy.config", "com.devicehive.proxy.client"})
@@ -85,10 +90,12 @@ public class FrontendProxyClientConfig {
     }
 
     @Bean
-    public RpcClient rpcClient(NotificationHandler notificationHandler, WebSocketKafkaProxyConfig proxyConfig, RequestResponseMatcher requestResponseMatcher, Gson gson) {
+    public RpcClient rpcClient(NotificationHandler notificationHandler, WebSocketKafkaProxyConfig proxyConfig, RequestResponseMatcher requestResponseMatcher,
+                               ProxyConnectionPool connectionPool, Gson gson) {
         WebSocketKafkaProxyClient proxyClient = new WebSocketKafkaProxyClient(notificationHandler);
         proxyClient.setWebSocketKafkaProxyConfig(proxyConfig);
-        RpcClient client = new FrontendProxyClient(REQUEST_TOPIC, RESPONSE_TOPIC, proxyClient, requestResponseMatcher, gson);
+        FrontendProxyClient client = new FrontendProxyClient(REQUEST_TOPIC, RESPONSE_TOPIC, proxyClient, connectionPool, requestResponseMatcher, gson);
+        client.setRawJsonPayload(proxyConfig.getRawJsonPayload());
         client.start();
         return client;
     }
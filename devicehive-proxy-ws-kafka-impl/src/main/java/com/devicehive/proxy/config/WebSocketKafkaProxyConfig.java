@@ -20,7 +20,14 @@ package com.devicehive.proxy.config;
  * #L%
  */
 
+import com.devicehive.proxy.client.BufferOverflowPolicy;
+import com.devicehive.proxy.client.ProxyBatchMetrics;
+import com.devicehive.proxy.client.ProxyConnectionPool;
+import com.devicehive.proxy.client.ProxyPendingMetrics;
+import com.devicehive.proxy.client.ProxyReconnectMetrics;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.PropertySource;
 
@@ -46,6 +53,91 @@ public class WebSocketKafkaProxyConfig {
     @Value("${proxy.ack.enable:false}")
     private boolean ackEnable;
 
+    /**
+     * Time outbound messages may wait to be coalesced into one frame, 0 writes every message as its own frame
+     * on the sending thread
+     */
+    @Value("${proxy.batch.window-ms:0}")
+    private long batchWindowMs;
+
+    @Value("${proxy.batch.max-size:100}")
+    private int batchMaxSize;
+
+    @Value("${proxy.connection.pool-size:2}")
+    private int connectionPoolSize;
+
+    /**
+     * Time a sent message waits for its response before the response future fails
+     */
+    @Value("${proxy.response.timeout-ms:30000}")
+    private long responseTimeoutMs;
+
+    @Value("${proxy.response.max-pending:100000}")
+    private int maxPendingResponses;
+
+    /**
+     * Maximum number of list items per response for requests which accept multiple replies, 0 disables chunking
+     */
+    @Value("${proxy.response.chunk-size:500}")
+    private int responseChunkSize;
+
+    /**
+     * Embed RPC requests and responses into proxy frames as JSON values rather than escaped strings;
+     * requires a proxy that passes JSON message values through to the broker
+     */
+    @Value("${proxy.payload.raw-json:false}")
+    private boolean rawJsonPayload;
+
+    @Value("${proxy.reconnect.initial-delay-ms:500}")
+    private long reconnectInitialDelayMs;
+
+    @Value("${proxy.reconnect.max-delay-ms:30000}")
+    private long reconnectMaxDelayMs;
+
+    /**
+     * Encoded size of messages a disconnected client keeps to replay after reconnect
+     */
+    @Value("${proxy.buffer.max-bytes:8388608}")
+    private long bufferMaxBytes;
+
+    /**
+     * block, drop-oldest or fail-fast
+     */
+    @Value("${proxy.buffer.overflow-policy:block}")
+    private String bufferOverflowPolicy;
+
+    private final ProxyBatchMetrics batchMetrics = new ProxyBatchMetrics();
+
+    private final ProxyPendingMetrics pendingMetrics = new ProxyPendingMetrics();
+
+    private final ProxyReconnectMetrics reconnectMetrics = new ProxyReconnectMetrics();
+
+    @Bean
+    public ProxyBatchMetrics proxyBatchMetrics() {
+        return batchMetrics;
+    }
+
+    @Bean
+    public ProxyPendingMetrics proxyPendingMetrics() {
+        return pendingMetrics;
+    }
+
+    @Bean
+    public ProxyReconnectMetrics proxyReconnectMetrics() {
+        return reconnectMetrics;
+    }
+
+    /**
+     * Connections shared by proxy publishers; opened on first use
+     */
+    @Lazy
+    @Bean(destroyMethod = "shutdown")
+    public ProxyConnectionPool proxyConnectionPool() {
+        ProxyConnectionPool pool = new ProxyConnectionPool(this);
+        pool.start();
+        return pool;
+    }
+
     public String getProxyConnect() {
         return proxyConnect;
     }
@@ -69,4 +161,60 @@ public class WebSocketKafkaProxyConfig {
     public boolean getAckEnable() {
         return ackEnable;
     }
+
+    public long getBatchWindowMs() {
+        return batchWindowMs;
+    }
+
+    public int getBatchMaxSize() {
+        return batchMaxSize;
+    }
+
+    public int getConnectionPoolSize() {
+        return connectionPoolSize;
+    }
+
+    public ProxyBatchMetrics getBatchMetrics() {
+        return batchMetrics;
+    }
+
+    public long getResponseTimeoutMs() {
+        return responseTimeoutMs;
+    }
+
+    public int getMaxPendingResponses() {
+        return maxPendingResponses;
+    }
+
+    public int getResponseChunkSize() {
+        return responseChunkSize;
+    }
+
+    public boolean getRawJsonPayload() {
+        return rawJsonPayload;
+    }
+
+    public ProxyPendingMetrics getPendingMetrics() {
+        return pendingMetrics;
+    }
+
+    public long getReconnectInitialDelayMs() {
+        return reconnectInitialDelayMs;
+    }
+
+    public long getReconnectMaxDelayMs() {
+        return reconnectMaxDelayMs;
+    }
+
+    public long getBufferMaxBytes() {
+        return bufferMaxBytes;
+    }
+
+    public BufferOverflowPolicy getBufferOverflowPolicy() {
+        return BufferOverflowPolicy.fromName(bufferOverflowPolicy);
+    }
+
+    public ProxyReconnectMetrics getReconnectMetrics() {
+        return reconnectMetrics;
+    }
 }
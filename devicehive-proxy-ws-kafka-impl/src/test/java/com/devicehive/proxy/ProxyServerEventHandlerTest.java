@@ -0,0 +1,143 @@
+package com.devicehive.proxy;
+
+/*
+ * #%L
+ * DeviceHive Proxy WebSocket Kafka Implementation
+ * %%
+ * Copyright (C) 2016 - 2017 DataArt
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.devicehive.api.HandlersMapper;
+import com.devicehive.json.GsonFactory;
+import com.devicehive.model.DeviceNotification;
+import com.devicehive.model.ServerEvent;
+import com.devicehive.model.rpc.NotificationSearchRequest;
+import com.devicehive.model.rpc.NotificationSearchResponse;
+import com.devicehive.proxy.api.ProxyMessage;
+import com.devicehive.proxy.api.payload.NotificationCreatePayload;
+import com.devicehive.proxy.client.ProxyConnectionPool;
+import com.devicehive.proxy.config.WebSocketKafkaProxyConfig;
+import com.devicehive.shim.api.Action;
+import com.devicehive.shim.api.Request;
+import com.devicehive.shim.api.Response;
+import com.google.gson.Gson;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ProxyServerEventHandlerTest {
+    private static final String REPLY_TO = "response_topic";
+
+    private final Gson gson = GsonFactory.createGson();
+    private final ProxyConnectionPool connectionPool = mock(ProxyConnectionPool.class);
+    private final HandlersMapper handlersMapper = mock(HandlersMapper.class);
+    private final WebSocketKafkaProxyConfig proxyConfig = mock(WebSocketKafkaProxyConfig.class);
+
+    private ProxyServerEventHandler handler;
+
+    @Before
+    public void setUp() {
+        when(proxyConfig.getResponseChunkSize()).thenReturn(2);
+        when(handlersMapper.requestHandlerMap()).thenReturn(Collections.singletonMap(Action.NOTIFICATION_SEARCH_REQUEST,
+                request -> searchResponse(5)));
+        handler = new ProxyServerEventHandler(gson, connectionPool, handlersMapper, proxyConfig);
+    }
+
+    @Test
+    public void shouldSendMultiReplyResponseInOrderedChunks() throws Exception {
+        Request request = searchRequest(false);
+
+        handler.onEvent(event(request));
+
+        List<Response> responses = sentResponses();
+        assertEquals(3, responses.size());
+        assertEquals(Arrays.asList(0L, 1L), ids(responses.get(0)));
+        assertEquals(Arrays.asList(2L, 3L), ids(responses.get(1)));
+        assertEquals(Collections.singletonList(4L), ids(responses.get(2)));
+        assertEquals(Arrays.asList(false, false, true),
+                responses.stream().map(Response::isLast).collect(Collectors.toList()));
+        for (Response response : responses) {
+            assertEquals(request.getCorrelationId(), response.getCorrelationId());
+        }
+    }
+
+    @Test
+    public void shouldNotSplitSingleReplyResponse() throws Exception {
+        handler.onEvent(event(searchRequest(true)));
+
+        List<Response> responses = sentResponses();
+        assertEquals(1, responses.size());
+        assertEquals(5, ids(responses.get(0)).size());
+        assertTrue(responses.get(0).isLast());
+    }
+
+    private List<Response> sentResponses() {
+        ArgumentCaptor<ProxyMessage> messages = ArgumentCaptor.forClass(ProxyMessage.class);
+        verify(connectionPool, atLeastOnce()).pushNoReply(messages.capture());
+        return messages.getAllValues().stream()
+                .map(message -> (NotificationCreatePayload) message.getPayload())
+                .peek(payload -> assertEquals(REPLY_TO, payload.getTopic()))
+                .map(payload -> gson.fromJson(payload.getMessage(), Response.class))
+                .collect(Collectors.toList());
+    }
+
+    private static List<Long> ids(Response response) {
+        return response.getBody().cast(NotificationSearchResponse.class).getNotifications().stream()
+                .map(DeviceNotification::getId)
+                .collect(Collectors.toList());
+    }
+
+    private static Request searchRequest(boolean singleReply) {
+        Request request = Request.newBuilder()
+                .withBody(new NotificationSearchRequest())
+                .withSingleReply(singleReply)
+                .build();
+        request.setReplyTo(REPLY_TO);
+        return request;
+    }
+
+    private static Response searchResponse(int size) {
+        List<DeviceNotification> notifications = new ArrayList<>();
+        LongStream.range(0, size).forEach(id -> {
+            DeviceNotification notification = new DeviceNotification();
+            notification.setId(id);
+            notifications.add(notification);
+        });
+        return Response.newBuilder()
+                .withBody(new NotificationSearchResponse(notifications))
+                .buildSuccess();
+    }
+
+    private static ServerEvent event(Request request) {
+        ServerEvent event = new ServerEvent();
+        event.set(request);
+        return event;
+    }
+}
@@ -0,0 +1,125 @@
+package com.devicehive.proxy.client;
+
+
+/*
+ * #%L
+ * DeviceHive Proxy WebSocket Kafka Implementation
+ * %%
+ * Copyright (C) 2016 - 2017 DataArt
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.devicehive.exceptions.HiveException;
+import com.devicehive.proxy.api.ProxyMessage;
+import com.devicehive.proxy.api.ProxyMessageBuilder;
+import com.devicehive.proxy.config.WebSocketKafkaProxyConfig;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class ProxyConnectionPoolTest {
+
+    @Test
+    public void shouldSpreadFireAndForgetMessagesEvenly() throws Exception {
+        List<WebSocketKafkaProxyClient> connections = connections(true, true, true);
+        ProxyConnectionPool pool = startPool(connections);
+
+        for (int i = 0; i < 300; i++) {
+            pool.pushNoReply(ProxyMessageBuilder.health());
+        }
+
+        for (WebSocketKafkaProxyClient connection : connections) {
+            verify(connection, times(100)).pushNoReply(any(ProxyMessage.class));
+        }
+    }
+
+    @Test
+    public void shouldPreferLeastLoadedConnection() throws Exception {
+        List<WebSocketKafkaProxyClient> connections = connections(true, true, true);
+        when(connections.get(0).getLoad()).thenReturn(10);
+        when(connections.get(2).getLoad()).thenReturn(5);
+        ProxyConnectionPool pool = startPool(connections);
+
+        for (int i = 0; i < 10; i++) {
+            pool.pushNoReply(ProxyMessageBuilder.health());
+        }
+
+        verify(connections.get(0), never()).pushNoReply(any(ProxyMessage.class));
+        verify(connections.get(1), times(10)).pushNoReply(any(ProxyMessage.class));
+        verify(connections.get(2), never()).pushNoReply(any(ProxyMessage.class));
+    }
+
+    @Test
+    public void shouldSkipUnhealthyConnections() throws Exception {
+        List<WebSocketKafkaProxyClient> connections = connections(false, true, false);
+        ProxyConnectionPool pool = startPool(connections);
+
+        for (int i = 0; i < 10; i++) {
+            pool.pushNoReply(ProxyMessageBuilder.health());
+        }
+
+        verify(connections.get(1), times(10)).pushNoReply(any(ProxyMessage.class));
+        assertEquals(1, pool.getHealthyConnectionCount());
+    }
+
+    @Test
+    public void shouldBufferOnReconnectingConnectionWhenNoneIsHealthy() throws Exception {
+        List<WebSocketKafkaProxyClient> connections = connections(false, false);
+        when(connections.get(0).getLoad()).thenReturn(3);
+        ProxyConnectionPool pool = startPool(connections);
+
+        pool.pushNoReply(ProxyMessageBuilder.health());
+
+        verify(connections.get(1)).pushNoReply(any(ProxyMessage.class));
+    }
+
+    @Test(expected = HiveException.class)
+    public void shouldRejectWhenPoolIsShutDown() throws Exception {
+        ProxyConnectionPool pool = startPool(connections(true));
+        pool.shutdown();
+
+        pool.pushNoReply(ProxyMessageBuilder.health());
+    }
+
+    private static List<WebSocketKafkaProxyClient> connections(boolean... healthy) {
+        List<WebSocketKafkaProxyClient> connections = new ArrayList<>();
+        for (boolean connected : healthy) {
+            WebSocketKafkaProxyClient connection = mock(WebSocketKafkaProxyClient.class);
+            when(connection.isConnected()).thenReturn(connected);
+            connections.add(connection);
+        }
+        return connections;
+    }
+
+    private static ProxyConnectionPool startPool(List<WebSocketKafkaProxyClient> connections) {
+        WebSocketKafkaProxyConfig config = mock(WebSocketKafkaProxyConfig.class);
+        when(config.getConnectionPoolSize()).thenReturn(connections.size());
+        ProxyConnectionPool pool = new ProxyConnectionPool(config) {
+            private int created;
+
+            @Override
+            WebSocketKafkaProxyClient connect() {
+                return connections.get(created++);
+            }
+        };
+        pool.start();
+        return pool;
+    }
+}
@@ -0,0 +1,170 @@
+package com.devicehive.proxy.client;
+
+
+/*
+ * #%L
+ * DeviceHive Proxy WebSocket Kafka Implementation
+ * %%
+ * Copyright (C) 2016 - 2017 DataArt
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.devicehive.proxy.api.ProxyMessage;
+import com.devicehive.proxy.api.ProxyMessageBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import javax.websocket.RemoteEndpoint;
+import javax.websocket.Session;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class ProxyMessageBatcherTest {
+
+    private final Session session = mock(Session.class);
+    private final RemoteEndpoint.Basic remote = mock(RemoteEndpoint.Basic.class);
+    private final ProxyBatchMetrics metrics = new ProxyBatchMetrics();
+    private final List<ProxyMessage> undelivered = new CopyOnWriteArrayList<>();
+    private ProxyMessageBatcher batcher;
+
+    @Before
+    public void setUp() {
+        when(session.isOpen()).thenReturn(true);
+        when(session.getBasicRemote()).thenReturn(remote);
+    }
+
+    @After
+    public void tearDown() {
+        if (batcher != null) {
+            batcher.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldFlushAsSoonAsBatchIsFull() throws Exception {
+        batcher = new ProxyMessageBatcher(() -> session, 3, TimeUnit.MINUTES.toMillis(1), metrics, undelivered::addAll);
+
+        for (int i = 0; i < 3; i++) {
+            batcher.add(ProxyMessageBuilder.health());
+        }
+
+        verify(remote, timeout(1000)).sendText(anyString());
+        assertEquals(3, ProxyMessageCodec.decode(sentFrames().get(0)).size());
+        assertEquals(1, metrics.getFrameCount());
+        assertEquals(3, metrics.getMessageCount());
+    }
+
+    @Test
+    public void shouldFlushPartialBatchAfterWindow() throws Exception {
+        batcher = new ProxyMessageBatcher(() -> session, 100, 200, metrics, undelivered::addAll);
+
+        batcher.add(ProxyMessageBuilder.health());
+        batcher.add(ProxyMessageBuilder.list());
+
+        verify(remote, after(50).never()).sendText(anyString());
+        verify(remote, timeout(1000)).sendText(anyString());
+        assertEquals(2, ProxyMessageCodec.decode(sentFrames().get(0)).size());
+    }
+
+    @Test
+    public void shouldSendSingleMessageAsObject() throws Exception {
+        batcher = new ProxyMessageBatcher(() -> session, 100, 0, metrics, undelivered::addAll);
+
+        batcher.add(ProxyMessageBuilder.health());
+
+        verify(remote, timeout(1000)).sendText(anyString());
+        assertTrue(sentFrames().get(0).startsWith("{"));
+    }
+
+    @Test
+    public void shouldWriteOnCallerThreadWithoutWindow() throws Exception {
+        List<Thread> writers = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> writers.add(Thread.currentThread())).when(remote).sendText(anyString());
+        batcher = new ProxyMessageBatcher(() -> session, 100, 0, metrics, undelivered::addAll);
+
+        for (int i = 0; i < 3; i++) {
+            batcher.add(ProxyMessageBuilder.health());
+        }
+
+        // written before add() returns, one frame per message
+        verify(remote, times(3)).sendText(anyString());
+        for (Thread writer : writers) {
+            assertEquals(Thread.currentThread(), writer);
+        }
+        assertEquals(3, metrics.getFrameCount());
+        assertEquals(0, batcher.getQueuedCount());
+    }
+
+    @Test
+    public void shouldHandOverMessageWithoutWindowWhenSessionIsClosed() throws Exception {
+        when(session.isOpen()).thenReturn(false);
+        batcher = new ProxyMessageBatcher(() -> session, 100, 0, metrics, undelivered::addAll);
+
+        batcher.add(ProxyMessageBuilder.health());
+
+        assertEquals(1, undelivered.size());
+        assertEquals(1, metrics.getFailedFrameCount());
+        verify(remote, never()).sendText(anyString());
+    }
+
+    @Test
+    public void shouldCapFramesAtMaxBatchSize() throws Exception {
+        batcher = new ProxyMessageBatcher(() -> session, 3, 10, metrics, undelivered::addAll);
+
+        for (int i = 0; i < 10; i++) {
+            batcher.add(ProxyMessageBuilder.health());
+        }
+
+        long deadline = System.currentTimeMillis() + 1000;
+        while (metrics.getMessageCount() < 10 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(10, metrics.getMessageCount());
+        for (String frame : sentFrames()) {
+            assertTrue(ProxyMessageCodec.decode(frame).size() <= 3);
+        }
+    }
+
+    @Test
+    public void shouldHandOverMessagesWhenSessionIsClosed() throws Exception {
+        when(session.isOpen()).thenReturn(false);
+        batcher = new ProxyMessageBatcher(() -> session, 2, 10, metrics, undelivered::addAll);
+
+        batcher.add(ProxyMessageBuilder.health());
+        batcher.add(ProxyMessageBuilder.list());
+
+        long deadline = System.currentTimeMillis() + 1000;
+        while (undelivered.size() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, undelivered.size());
+        assertEquals(1, metrics.getFailedFrameCount());
+        verify(remote, never()).sendText(anyString());
+    }
+
+    private List<String> sentFrames() throws Exception {
+        ArgumentCaptor<String> frames = ArgumentCaptor.forClass(String.class);
+        verify(remote, atLeastOnce()).sendText(frames.capture());
+        return frames.getAllValues();
+    }
+}
@@ -0,0 +1,87 @@
+package com.devicehive.proxy.client;
+
+/*
+ * #%L
+ * DeviceHive Proxy WebSocket Kafka Implementation
+ * %%
+ * Copyright (C) 2016 - 2017 DataArt
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.devicehive.proxy.api.payload.MessagePayload;
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares the throughput of the streaming proxy codec with the tree based Gson binding it replaced.
+ * Runs only in the benchmark profile: mvn test -Pbenchmark.
+ */
+public class ProxyMessageCodecBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(ProxyMessageCodecBenchmark.class);
+
+    private static final String NOTIFICATION_FRAME = "[{\"id\":\"%d\",\"t\":\"notif\",\"s\":0,\"p\":{\"m\":" +
+            "\"{\\\"action\\\":\\\"notification/insert\\\",\\\"deviceId\\\":\\\"e50d6085-2aba-48e9-b1c3-73c673e414be\\\"," +
+            "\\\"parameters\\\":{\\\"value\\\":21.5}}\"}},{\"id\":\"%d\",\"t\":\"notif\",\"a\":\"create\",\"s\":0}]";
+
+    @Test
+    public void shouldCompareWithTreeBinding() throws Exception {
+        int frames = 200000;
+        List<String> input = new ArrayList<>(frames);
+        for (int i = 0; i < frames; i++) {
+            input.add(String.format(NOTIFICATION_FRAME, i, i));
+        }
+        Gson gson = new Gson();
+        JsonParser parser = new JsonParser();
+
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            int decoded = 0;
+            for (String frame : input) {
+                decoded += ProxyMessageCodec.decode(frame).size();
+            }
+            long streaming = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            int bound = 0;
+            for (String frame : input) {
+                for (JsonElement element : parser.parse(frame).getAsJsonArray()) {
+                    JsonObject object = element.getAsJsonObject();
+                    if (object.get("p") != null) {
+                        gson.fromJson(object.get("p"), MessagePayload.class);
+                    }
+                    bound++;
+                }
+            }
+            long tree = System.nanoTime() - start;
+
+            assertEquals(bound, decoded);
+            assertTrue(decoded > 0);
+            logger.info("Round {}: streaming {} frames/s, tree {} frames/s", round,
+                    frames * TimeUnit.SECONDS.toNanos(1) / streaming, frames * TimeUnit.SECONDS.toNanos(1) / tree);
+        }
+    }
+}
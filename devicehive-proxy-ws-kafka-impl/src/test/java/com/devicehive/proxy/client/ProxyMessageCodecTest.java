@@ -0,0 +1,98 @@
+package com.devicehive.proxy.client;
+
+/*
+ * #%L
+ * DeviceHive Proxy WebSocket Kafka Implementation
+ * %%
+ * Copyright (C) 2016 - 2017 DataArt
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.devicehive.proxy.api.ProxyMessage;
+import com.devicehive.proxy.api.payload.*;
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the streaming proxy codec against frames of the proxy protocol.
+ */
+public class ProxyMessageCodecTest {
+
+    @Test
+    public void shouldDecodePayloadByTypeAndAction() throws Exception {
+        List<ProxyMessage> messages = ProxyMessageCodec.decode("[" +
+                "{\"id\":\"1\",\"t\":\"topic\",\"a\":\"subscribe\",\"s\":0,\"p\":{\"t\":[\"request_topic\"],\"sg\":\"group\"}}," +
+                "{\"id\":\"2\",\"t\":\"health\",\"s\":0,\"p\":{\"prx\":\"Available\",\"mbfp\":12.5,\"comm\":\"Available\"}}," +
+                "{\"id\":\"3\",\"t\":\"notif\",\"a\":\"create\",\"s\":1,\"p\":{\"m\":\"No such topic\"}}]");
+
+        assertEquals(3, messages.size());
+        SubscribePayload subscribe = (SubscribePayload) messages.get(0).getPayload();
+        assertEquals(Arrays.asList("request_topic"), subscribe.getTopics());
+        assertEquals("group", subscribe.getSubscriptionGroup());
+        HealthPayload health = (HealthPayload) messages.get(1).getPayload();
+        assertEquals("Available", health.getProxyStatus());
+        assertEquals(12.5, health.getMessageBufferFillPercentage(), 0);
+        assertEquals("No such topic", ((MessagePayload) messages.get(2).getPayload()).getMessage());
+    }
+
+    @Test
+    public void shouldDecodePayloadPrecedingType() throws Exception {
+        List<ProxyMessage> messages = ProxyMessageCodec.decode("{\"p\":{\"t\":[\"a\",\"b\"]},\"s\":0,\"a\":\"create\",\"t\":\"topic\"}");
+
+        assertEquals(1, messages.size());
+        assertEquals(Arrays.asList("a", "b"), ((TopicsPayload) messages.get(0).getPayload()).getTopics());
+    }
+
+    @Test
+    public void shouldEncodeLikeGson() throws Exception {
+        ProxyMessage message = ProxyMessage.newBuilder()
+                .withType("notif")
+                .withAction("create")
+                .withPayload(new NotificationCreatePayload("request_topic", "{\"a\":\"b\"}", "key"))
+                .build();
+
+        JsonElement expected = new Gson().toJsonTree(message);
+        JsonElement actual = new JsonParser().parse(ProxyMessageCodec.encode(message));
+        assertEquals(expected, actual);
+        assertNull(((JsonObject) actual).get("s"));
+    }
+
+    @Test
+    public void shouldEmbedRawJsonMessage() throws Exception {
+        ProxyMessage message = ProxyMessage.newBuilder()
+                .withType("notif")
+                .withAction("create")
+                .withPayload(new NotificationCreatePayload("reply_topic", "{\"c\":\"1\",\"b\":{\"v\":2}}", "0", true))
+                .build();
+
+        JsonObject frame = new JsonParser().parse(ProxyMessageCodec.encode(message)).getAsJsonObject();
+        assertTrue(frame.getAsJsonObject("p").get("m").isJsonObject());
+
+        List<ProxyMessage> received = ProxyMessageCodec.decode("{\"t\":\"notif\",\"s\":0,\"p\":{\"m\":{\"c\":\"1\",\"b\":{\"v\":2}}}}");
+        MessagePayload payload = (MessagePayload) received.get(0).getPayload();
+        assertEquals("1", payload.getBody().getAsJsonObject().get("c").getAsString());
+        assertEquals(frame.getAsJsonObject("p").get("m"), new JsonParser().parse(payload.getMessage()));
+    }
+}
@@ -0,0 +1,118 @@
+package com.devicehive.proxy.client;
+
+/*
+ * #%L
+ * DeviceHive Proxy WebSocket Kafka Implementation
+ * %%
+ * Copyright (C) 2016 - 2017 DataArt
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.devicehive.proxy.api.NotificationHandler;
+import com.devicehive.proxy.api.ProxyMessageBuilder;
+import com.devicehive.proxy.api.payload.NotificationCreatePayload;
+import com.devicehive.proxy.api.payload.SubscribePayload;
+import com.devicehive.proxy.api.payload.TopicsPayload;
+import com.devicehive.proxy.config.WebSocketKafkaProxyConfig;
+import com.devicehive.test.rule.ProxyEmbeddedRule;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures notification throughput and publish-to-delivery latency of the proxy transport against the embedded
+ * proxy stand-in. Runs only with the benchmark profile.
+ */
+public class WebSocketKafkaProxyClientBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(WebSocketKafkaProxyClientBenchmark.class);
+
+    private static final String TOPIC = "proxy_client_benchmark";
+
+    @ClassRule
+    public static ProxyEmbeddedRule proxyRule = new ProxyEmbeddedRule(TOPIC);
+
+    private AnnotationConfigApplicationContext context;
+    private WebSocketKafkaProxyConfig proxyConfig;
+
+    @Before
+    public void setUp() {
+        context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test",
+                Collections.singletonMap("proxy.connect", proxyRule.getProxyConnect())));
+        context.register(WebSocketKafkaProxyConfig.class);
+        context.refresh();
+        proxyConfig = context.getBean(WebSocketKafkaProxyConfig.class);
+    }
+
+    @After
+    public void tearDown() {
+        context.close();
+    }
+
+    @Test
+    public void shouldMeasureNotificationThroughput() throws Exception {
+        int messages = 100000;
+        long[] latencies = new long[messages];
+        CountDownLatch latch = new CountDownLatch(messages);
+        WebSocketKafkaProxyClient subscriber = client((message, client) -> {
+            int index = messages - (int) latch.getCount();
+            if (index < messages) {
+                latencies[index] = System.nanoTime() - Long.parseLong(message);
+            }
+            latch.countDown();
+        });
+        ProxyConnectionPool publisher = context.getBean(ProxyConnectionPool.class);
+        try {
+            publisher.push(ProxyMessageBuilder.create(new TopicsPayload(Arrays.asList(TOPIC)))).get(5, TimeUnit.SECONDS);
+            subscriber.push(ProxyMessageBuilder.subscribe(new SubscribePayload(TOPIC))).get(5, TimeUnit.SECONDS);
+
+            long start = System.nanoTime();
+            for (int i = 0; i < messages; i++) {
+                publisher.pushNoReply(ProxyMessageBuilder.notification(
+                        new NotificationCreatePayload(TOPIC, Long.toString(System.nanoTime()))));
+            }
+            assertTrue(latch.await(2, TimeUnit.MINUTES));
+            long elapsed = System.nanoTime() - start;
+
+            Arrays.sort(latencies);
+            logger.info("Proxy transport: {} notifications/s, latency p50 {} ms, p99 {} ms, batches avg {} messages",
+                    messages * TimeUnit.SECONDS.toNanos(1) / elapsed,
+                    TimeUnit.NANOSECONDS.toMillis(latencies[messages / 2]),
+                    TimeUnit.NANOSECONDS.toMillis(latencies[messages * 99 / 100]),
+                    proxyConfig.getBatchMetrics().getAvgBatchSize());
+        } finally {
+            subscriber.shutdown();
+        }
+    }
+
+    private WebSocketKafkaProxyClient client(NotificationHandler handler) {
+        WebSocketKafkaProxyClient client = new WebSocketKafkaProxyClient(handler);
+        client.setWebSocketKafkaProxyConfig(proxyConfig);
+        client.start();
+        return client;
+    }
+}
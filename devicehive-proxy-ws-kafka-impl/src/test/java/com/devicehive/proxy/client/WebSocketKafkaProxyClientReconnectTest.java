@@ -0,0 +1,214 @@
+package com.devicehive.proxy.client;
+
+/*
+ * #%L
+ * DeviceHive Proxy WebSocket Kafka Implementation
+ * %%
+ * Copyright (C) 2016 - 2017 DataArt
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.devicehive.exceptions.HiveException;
+import com.devicehive.proxy.api.NotificationHandler;
+import com.devicehive.proxy.api.ProxyMessage;
+import com.devicehive.proxy.api.ProxyMessageBuilder;
+import com.devicehive.proxy.api.payload.NotificationCreatePayload;
+import com.devicehive.proxy.api.payload.SubscribePayload;
+import com.devicehive.proxy.api.payload.TopicsPayload;
+import com.devicehive.proxy.config.WebSocketKafkaProxyConfig;
+import com.devicehive.test.proxy.EmbeddedProxyServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Restarts the embedded proxy stand-in under a connected client to check buffering while the proxy is down,
+ * replay and subscription restore after reconnect, and the outbound buffer overflow policies.
+ */
+public class WebSocketKafkaProxyClientReconnectTest {
+
+    private static final String TOPIC = "proxy_reconnect_test";
+    private static final String OTHER_TOPIC = "proxy_reconnect_test_other";
+
+    private EmbeddedProxyServer server;
+    private AnnotationConfigApplicationContext context;
+    private final List<WebSocketKafkaProxyClient> clients = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        server = new EmbeddedProxyServer("localhost", 0);
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        clients.forEach(WebSocketKafkaProxyClient::shutdown);
+        if (context != null) {
+            context.close();
+        }
+        server.stop();
+    }
+
+    @Test
+    public void shouldReplayBufferedMessagesAfterReconnect() throws Exception {
+        WebSocketKafkaProxyClient client = client("block", 8388608, (message, c) -> {});
+
+        stopServer(client);
+        client.pushNoReply(ProxyMessageBuilder.create(new TopicsPayload(TOPIC)));
+        assertEquals(1, client.getLoad());
+
+        restartServer(client);
+        await(() -> server.getTopics().contains(TOPIC));
+        assertEquals(0, client.getLoad());
+    }
+
+    @Test
+    public void shouldRestoreSubscriptionsAfterReconnect() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        WebSocketKafkaProxyClient subscriber = client("block", 8388608, (message, c) -> latch.countDown());
+        subscriber.push(ProxyMessageBuilder.subscribe(new SubscribePayload(TOPIC))).get(5, TimeUnit.SECONDS);
+
+        stopServer(subscriber);
+        restartServer(subscriber);
+
+        WebSocketKafkaProxyClient publisher = client("block", 8388608, (message, c) -> {});
+        publisher.push(ProxyMessageBuilder.create(new TopicsPayload(TOPIC))).get(5, TimeUnit.SECONDS);
+        publisher.push(ProxyMessageBuilder.notification(new NotificationCreatePayload(TOPIC, "restored"))).get(5, TimeUnit.SECONDS);
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void shouldKeepOtherSubscriptionsAfterTopicUnsubscribe() throws Exception {
+        List<String> received = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(1);
+        WebSocketKafkaProxyClient subscriber = client("block", 8388608, (message, c) -> {
+            received.add(message);
+            latch.countDown();
+        });
+        subscriber.push(ProxyMessageBuilder.subscribe(new SubscribePayload(TOPIC))).get(5, TimeUnit.SECONDS);
+        subscriber.push(ProxyMessageBuilder.subscribe(new SubscribePayload(OTHER_TOPIC))).get(5, TimeUnit.SECONDS);
+        subscriber.push(ProxyMessageBuilder.unsubscribe(new TopicsPayload(TOPIC))).get(5, TimeUnit.SECONDS);
+
+        stopServer(subscriber);
+        restartServer(subscriber);
+
+        WebSocketKafkaProxyClient publisher = client("block", 8388608, (message, c) -> {});
+        publisher.push(ProxyMessageBuilder.create(new TopicsPayload(TOPIC))).get(5, TimeUnit.SECONDS);
+        publisher.push(ProxyMessageBuilder.create(new TopicsPayload(OTHER_TOPIC))).get(5, TimeUnit.SECONDS);
+        publisher.push(ProxyMessageBuilder.notification(new NotificationCreatePayload(TOPIC, "dropped"))).get(5, TimeUnit.SECONDS);
+        publisher.push(ProxyMessageBuilder.notification(new NotificationCreatePayload(OTHER_TOPIC, "kept"))).get(5, TimeUnit.SECONDS);
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(1, received.size());
+        assertEquals("kept", received.get(0));
+    }
+
+    @Test
+    public void shouldRejectWhenBufferIsFullWithFailFastPolicy() throws Exception {
+        WebSocketKafkaProxyClient client = client("fail-fast", 1, (message, c) -> {});
+
+        stopServer(client);
+        // the first message is buffered even if it exceeds the limit on its own
+        client.pushNoReply(ProxyMessageBuilder.create(new TopicsPayload(TOPIC)));
+        try {
+            client.pushNoReply(ProxyMessageBuilder.create(new TopicsPayload(OTHER_TOPIC)));
+            fail("Expected the full outbound buffer to reject the message");
+        } catch (HiveException e) {
+            assertEquals(1, client.getLoad());
+        }
+    }
+
+    @Test
+    public void shouldFailOldestMessageWithDropOldestPolicy() throws Exception {
+        WebSocketKafkaProxyClient client = client("drop-oldest", 1, (message, c) -> {});
+
+        stopServer(client);
+        CompletableFuture<ProxyMessage> oldest = client.push(ProxyMessageBuilder.create(new TopicsPayload(TOPIC)));
+        CompletableFuture<ProxyMessage> newest = client.push(ProxyMessageBuilder.create(new TopicsPayload(OTHER_TOPIC)));
+
+        try {
+            oldest.get(5, TimeUnit.SECONDS);
+            fail("Expected the oldest buffered message to be dropped");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof HiveException);
+        }
+        assertFalse(newest.isDone());
+
+        restartServer(client);
+        newest.get(5, TimeUnit.SECONDS);
+        assertTrue(server.getTopics().contains(OTHER_TOPIC));
+        assertFalse(server.getTopics().contains(TOPIC));
+    }
+
+    private WebSocketKafkaProxyClient client(String overflowPolicy, long maxBytes, NotificationHandler handler) {
+        if (context == null) {
+            Map<String, Object> properties = new HashMap<>();
+            properties.put("proxy.connect", server.getConnect());
+            properties.put("proxy.reconnect.initial-delay-ms", "50");
+            properties.put("proxy.reconnect.max-delay-ms", "200");
+            properties.put("proxy.buffer.overflow-policy", overflowPolicy);
+            properties.put("proxy.buffer.max-bytes", Long.toString(maxBytes));
+            context = new AnnotationConfigApplicationContext();
+            context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test", properties));
+            context.register(WebSocketKafkaProxyConfig.class);
+            context.refresh();
+        }
+        WebSocketKafkaProxyClient client = new WebSocketKafkaProxyClient(handler);
+        client.setWebSocketKafkaProxyConfig(context.getBean(WebSocketKafkaProxyConfig.class));
+        client.start();
+        clients.add(client);
+        return client;
+    }
+
+    private void stopServer(WebSocketKafkaProxyClient client) throws InterruptedException {
+        server.stop();
+        await(() -> !client.isConnected());
+    }
+
+    private void restartServer(WebSocketKafkaProxyClient client) throws InterruptedException {
+        server = new EmbeddedProxyServer("localhost", server.getPort());
+        server.start();
+        await(client::isConnected);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() - deadline > 0) {
+                fail("Condition was not met in 10 seconds");
+            }
+            Thread.sleep(20);
+        }
+    }
+}
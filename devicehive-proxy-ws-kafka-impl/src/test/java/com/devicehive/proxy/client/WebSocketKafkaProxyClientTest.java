@@ -0,0 +1,97 @@
+package com.devicehive.proxy.client;
+
+/*
+ * #%L
+ * DeviceHive Proxy WebSocket Kafka Implementation
+ * %%
+ * Copyright (C) 2016 - 2017 DataArt
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.devicehive.proxy.api.NotificationHandler;
+import com.devicehive.proxy.api.ProxyMessageBuilder;
+import com.devicehive.proxy.api.payload.NotificationCreatePayload;
+import com.devicehive.proxy.api.payload.SubscribePayload;
+import com.devicehive.proxy.config.WebSocketKafkaProxyConfig;
+import com.devicehive.test.rule.ProxyEmbeddedRule;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs proxy clients against the embedded proxy stand-in.
+ */
+public class WebSocketKafkaProxyClientTest {
+    private static final String TOPIC = "proxy_client_test";
+
+    @ClassRule
+    public static ProxyEmbeddedRule proxyRule = new ProxyEmbeddedRule(TOPIC);
+
+    private AnnotationConfigApplicationContext context;
+    private WebSocketKafkaProxyConfig proxyConfig;
+
+    @Before
+    public void setUp() {
+        context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test",
+                Collections.singletonMap("proxy.connect", proxyRule.getProxyConnect())));
+        context.register(WebSocketKafkaProxyConfig.class);
+        context.refresh();
+        proxyConfig = context.getBean(WebSocketKafkaProxyConfig.class);
+    }
+
+    @After
+    public void tearDown() {
+        context.close();
+    }
+
+    @Test
+    public void shouldDeliverPublishedNotification() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        String[] received = new String[1];
+        WebSocketKafkaProxyClient subscriber = client((message, client) -> {
+            received[0] = message;
+            latch.countDown();
+        });
+        WebSocketKafkaProxyClient publisher = client((message, client) -> {});
+        try {
+            subscriber.push(ProxyMessageBuilder.subscribe(new SubscribePayload(TOPIC))).get(5, TimeUnit.SECONDS);
+            publisher.push(ProxyMessageBuilder.notification(new NotificationCreatePayload(TOPIC, "hello"))).get(5, TimeUnit.SECONDS);
+
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            assertEquals("hello", received[0]);
+        } finally {
+            subscriber.shutdown();
+            publisher.shutdown();
+        }
+    }
+
+    private WebSocketKafkaProxyClient client(NotificationHandler handler) {
+        WebSocketKafkaProxyClient client = new WebSocketKafkaProxyClient(handler);
+        client.setWebSocketKafkaProxyConfig(proxyConfig);
+        client.start();
+        return client;
+    }
+}
@@ -25,8 +25,11 @@ import com.devicehive.model.Configuration;
 import com.devicehive.vo.ConfigurationVO;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
+import static java.util.stream.Collectors.toList;
+
 @Repository
 public class ConfigurationDaoRdbmsImpl extends RdbmsGenericDao implements ConfigurationDao {
 
@@ -38,6 +41,17 @@ public class ConfigurationDaoRdbmsImpl extends RdbmsGenericDao implements Config
                 .stream().findFirst());
     }
 
+    @Override
+    public List<ConfigurationVO> findByNamePrefix(String prefix) {
+        return createNamedQuery(Configuration.class, "Configuration.getByNamePrefix", Optional.empty())
+                .setParameter("name", prefix + "%")
+                .getResultList()
+                .stream()
+                .filter(configuration -> configuration.getName().startsWith(prefix))
+                .map(Configuration::convert)
+                .collect(toList());
+    }
+
     @Override
     public int delete(String name) {
         return createNamedQuery("Configuration.delete", Optional.empty())
@@ -44,6 +44,7 @@ import static com.devicehive.model.Configuration.Queries.Values;
 @NamedQueries({
                   @NamedQuery(name = Names.GET_ALL, query = Values.GET_ALL),
                   @NamedQuery(name = Names.GET_BY_NAME, query = Values.GET_BY_NAME),
+                  @NamedQuery(name = Names.GET_BY_NAME_PREFIX, query = Values.GET_BY_NAME_PREFIX),
                   @NamedQuery(name = Names.DELETE, query = Values.DELETE)
               })
 @Cacheable
@@ -147,6 +148,7 @@ public class Configuration implements HiveEntity {
 
             String GET_ALL = "Configuration.getAll";
             String GET_BY_NAME = "Configuration.getByName";
+            String GET_BY_NAME_PREFIX = "Configuration.getByNamePrefix";
             String DELETE = "Configuration.delete";
         }
 
@@ -155,6 +157,7 @@ public class Configuration implements HiveEntity {
             String GET_ALL = "select c from Configuration c";
             String DELETE = "delete from Configuration c where c.name = :name";
             String GET_BY_NAME = "select c from Configuration c where c.name = :name";
+            String GET_BY_NAME_PREFIX = "select c from Configuration c where c.name like :name";
         }
 
         public interface Parameters {
@@ -77,5 +77,9 @@ public enum Action {
     DEVICE_DELETE_REQUEST,
     DEVICE_DELETE_RESPONSE,
 
-    COUNT_RESPONSE
+    COUNT_RESPONSE,
+
+    // appended to keep the ordinals of existing actions, which identify message bodies on the wire
+    NOTIFICATION_BATCH_INSERT_REQUEST,
+    NOTIFICATION_BATCH_INSERT_RESPONSE
 }
@@ -0,0 +1,35 @@
+package com.devicehive.shim.api;
+
+/*
+ * #%L
+ * DeviceHive Common Module
+ * %%
+ * Copyright (C) 2016 DataArt
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * Response body holding a list of items which may be sent as several responses,
+ * every one carrying a slice of the list. The last slice is marked with {@link Response#isLast()}.
+ * Chunking bounds the size of a single RPC message; the frontend still assembles all chunks before it
+ * answers the REST or WebSocket client, so only bodies requested through
+ * {@link com.devicehive.shim.api.client.RpcClient#callStream} implement it.
+ */
+public interface ChunkableBody {
+
+    int size();
+
+    Body slice(int fromIndex, int toIndex);
+}
@@ -48,12 +48,17 @@ public class Request {
     @SerializedName("t")
     private int type;
 
+    @SerializedName("nr")
+    private boolean noReply;
+
     private Request(Body body,
                     boolean singleReplyExpected,
+                    boolean noReply,
                     String correlationId,
                     String partitionKey) {
         this.body = body;
         this.singleReplyExpected = singleReplyExpected;
+        this.noReply = noReply;
         this.correlationId = correlationId;
         this.partitionKey = partitionKey;
         this.type = clientRequest.ordinal();
@@ -79,6 +84,13 @@ public class Request {
         return singleReplyExpected;
     }
 
+    /**
+     * @return true if the sender does not wait for a response and the server should not produce one
+     */
+    public boolean isNoReply() {
+        return noReply;
+    }
+
     public String getPartitionKey() {
         return partitionKey;
     }
@@ -114,6 +126,7 @@ public class Request {
         sb.append(", body=").append(body);
         sb.append(", correlationId='").append(correlationId).append('\'');
         sb.append(", singleReplyExpected=").append(singleReplyExpected);
+        sb.append(", noReply=").append(noReply);
         sb.append(", partitionKey=").append(partitionKey);
         sb.append(", replyTo='").append(replyTo).append('\'');
         sb.append('}');
@@ -128,6 +141,7 @@ public class Request {
         private T body;
         private String correlationId = UUID.randomUUID().toString();
         private boolean singleReply = true;
+        private boolean noReply;
         private String partitionKey;
 
         public Builder<T> withBody(T body) {
@@ -140,6 +154,11 @@ public class Request {
             return this;
         }
 
+        public Builder<T> withNoReply(boolean noReply) {
+            this.noReply = noReply;
+            return this;
+        }
+
         public Builder<T> withPartitionKey(String key) {
             this.partitionKey = key;
             return this;
@@ -147,7 +166,7 @@ public class Request {
 
         public Request build() {
             return new Request(
-                    body, singleReply,
+                    body, singleReply, noReply,
                     correlationId,
                     StringUtils.isBlank(partitionKey) // partitionKey is optional, set value to correlationId if it's blank
                             ? correlationId
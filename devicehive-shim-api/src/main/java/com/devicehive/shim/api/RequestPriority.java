@@ -0,0 +1,52 @@
+package com.devicehive.shim.api;
+
+/*
+ * #%L
+ * DeviceHive Common Module
+ * %%
+ * Copyright (C) 2016 DataArt
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Priority class of a request. High-volume device traffic is {@link #DATA}, everything else
+ * (subscriptions, lookups, lists and counts) is {@link #CONTROL} and may be served on a separate lane
+ * so that an ingest burst does not delay it. Only the Kafka RPC transport serves separate lanes.
+ */
+public enum RequestPriority {
+    CONTROL,
+    DATA;
+
+    private static final Set<Action> DATA_ACTIONS = EnumSet.of(
+            Action.NOTIFICATION_INSERT_REQUEST,
+            Action.NOTIFICATION_BATCH_INSERT_REQUEST,
+            Action.COMMAND_INSERT_REQUEST,
+            Action.COMMAND_UPDATE_REQUEST,
+            Action.COMMANDS_UPDATE_REQUEST,
+            Action.NOTIFICATION_SEARCH_REQUEST,
+            Action.COMMAND_SEARCH_REQUEST
+    );
+
+    public static RequestPriority of(Action action) {
+        return DATA_ACTIONS.contains(action) ? DATA : CONTROL;
+    }
+
+    public static RequestPriority of(Request request) {
+        return request.getBody() == null ? CONTROL : of(request.getBody().getAction());
+    }
+}
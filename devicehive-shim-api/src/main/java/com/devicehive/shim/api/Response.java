@@ -23,6 +23,7 @@ package com.devicehive.shim.api;
 import com.google.gson.annotations.SerializedName;
 
 import java.util.Objects;
+import java.util.function.Supplier;
 
 @SuppressWarnings("unused")
 public class Response {
@@ -42,6 +43,12 @@ public class Response {
     @SerializedName("fld")
     private boolean failed;
 
+    /**
+     * Deferred body decoder, set when only the envelope was read from the wire.
+     * Invoked at most once, on the first {@link #getBody()} call.
+     */
+    private transient volatile Supplier<? extends Body> bodySupplier;
+
     private Response(Body body, String correlationId, boolean last, int errorCode, boolean failed) {
         this.body = body;
         this.correlationId = correlationId;
@@ -51,6 +58,14 @@ public class Response {
     }
 
     public Body getBody() {
+        if (bodySupplier != null) {
+            synchronized (this) {
+                if (bodySupplier != null) {
+                    body = bodySupplier.get();
+                    bodySupplier = null;
+                }
+            }
+        }
         return body;
     }
 
@@ -82,19 +97,19 @@ public class Response {
         return last == response.last &&
                 errorCode == response.errorCode &&
                 failed == response.failed &&
-                Objects.equals(body, response.body) &&
+                Objects.equals(getBody(), response.getBody()) &&
                 Objects.equals(correlationId, response.correlationId);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(body, correlationId, last, errorCode, failed);
+        return Objects.hash(getBody(), correlationId, last, errorCode, failed);
     }
 
     @Override
     public String toString() {
         final StringBuilder sb = new StringBuilder("Response{");
-        sb.append(", body=").append(body);
+        sb.append(", body=").append(getBody());
         sb.append(", correlationId='").append(correlationId).append('\'');
         sb.append(", last=").append(last);
         sb.append(", errorCode=").append(errorCode);
@@ -109,6 +124,7 @@ public class Response {
 
     public static class Builder<T extends Body> {
         private T body;
+        private Supplier<? extends Body> bodySupplier;
         private boolean last = true;
         private String correlationId;
 
@@ -117,6 +133,15 @@ public class Response {
             return this;
         }
 
+        /**
+         * Sets a decoder that materializes the body lazily on the first {@link Response#getBody()} call.
+         * Allows transports to read only the response envelope when the response is received.
+         */
+        public Builder<T> withBodySupplier(Supplier<? extends Body> bodySupplier) {
+            this.bodySupplier = bodySupplier;
+            return this;
+        }
+
         public Builder<T> withCorrelationId(String correlationId) {
             this.correlationId = correlationId;
             return this;
@@ -128,11 +153,15 @@ public class Response {
         }
 
         public Response buildFailed(int errorCode) {
-            return new Response(body, correlationId, last, errorCode, true);
+            Response response = new Response(body, correlationId, last, errorCode, true);
+            response.bodySupplier = bodySupplier;
+            return response;
         }
 
         public Response buildSuccess() {
-            return new Response(body, correlationId, last, 0, false);
+            Response response = new Response(body, correlationId, last, 0, false);
+            response.bodySupplier = bodySupplier;
+            return response;
         }
 
     }
@@ -0,0 +1,52 @@
+package com.devicehive.shim.api;
+
+/*
+ * #%L
+ * DeviceHive Common Module
+ * %%
+ * Copyright (C) 2016 DataArt
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.function.Consumer;
+
+/**
+ * Splits responses with a {@link ChunkableBody} into bounded chunks for requests which accept
+ * multiple replies (see {@link Request#isSingleReplyExpected()}).
+ */
+public final class ResponseChunks {
+
+    private ResponseChunks() {
+    }
+
+    public static void split(Request request, Response response, int chunkSize, Consumer<Response> sink) {
+        final Body body = response.getBody();
+        if (chunkSize <= 0 || request.isSingleReplyExpected() || response.isFailed()
+                || !(body instanceof ChunkableBody) || ((ChunkableBody) body).size() <= chunkSize) {
+            sink.accept(response);
+            return;
+        }
+        final ChunkableBody items = (ChunkableBody) body;
+        final int size = items.size();
+        for (int from = 0; from < size; from += chunkSize) {
+            final int to = Math.min(from + chunkSize, size);
+            sink.accept(Response.newBuilder()
+                    .withBody(items.slice(from, to))
+                    .withCorrelationId(response.getCorrelationId())
+                    .withLast(to == size && response.isLast())
+                    .buildSuccess());
+        }
+    }
+}
@@ -29,6 +29,14 @@ public interface RpcClient {
 
     void call(Request request, Consumer<Response> callback);
 
+    /**
+     * Same as {@link #call(Request, Consumer)}, but the callback receives every chunk of a multi-reply response
+     * in the order they were sent, up to and including the one marked {@link Response#isLast()}.
+     */
+    default void callStream(Request request, Consumer<Response> callback) {
+        call(request, callback);
+    }
+
     void push(Request request);
 
     default void start() { }
@@ -61,6 +61,9 @@ public class KafkaRpcConfig {
     @Value("${fetch.min.bytes:1}")
     private int fetchMinBytes;
 
+    @Value("${rpc.server.request-consumer.max-poll-records:500}")
+    private int requestConsumerMaxPollRecords;
+
     @Value("${acks:1}")
     private String acks;
 
@@ -85,6 +88,9 @@ public class KafkaRpcConfig {
     @Value("${buffer.memory:33554432}")
     private String bufferMemory;
 
+    @Value("${compression.type:none}")
+    private String compressionType;
+
     public Properties producerProps() {
         Properties props = new Properties();
         props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
@@ -93,12 +99,23 @@ public class KafkaRpcConfig {
         props.put(ProducerConfig.MAX_BLOCK_MS_CONFIG, maxBlockTimeMs);
         props.put(ProducerConfig.BUFFER_MEMORY_CONFIG, bufferMemory);
         props.put(ProducerConfig.ACKS_CONFIG, acks);
+        props.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compressionType);
         return props;
     }
 
+    /**
+     * Producer properties with the settings of the named {@link ProducerProfile} applied, base properties if the name is blank.
+     */
+    public Properties producerProps(String profile) {
+        Properties props = producerProps();
+        ProducerProfile producerProfile = ProducerProfile.fromName(profile);
+        return producerProfile != null ? producerProfile.apply(props) : props;
+    }
+
     private Properties commonConsumerProps() {
         Properties props = new Properties();
         props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, enableAutoCommit);
         props.put(ConsumerConfig.AUTO_COMMIT_INTERVAL_MS_CONFIG, autoCommitIntervalMs);
         props.put(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, fetchMaxWaitMs);
         props.put(ConsumerConfig.FETCH_MIN_BYTES_CONFIG, fetchMinBytes);
@@ -114,6 +131,18 @@ public class KafkaRpcConfig {
     public Properties serverConsumerProps() {
         Properties props = commonConsumerProps();
         props.put(ConsumerConfig.GROUP_ID_CONFIG,  requestConsumerGroup);
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, requestConsumerMaxPollRecords);
+        return props;
+    }
+
+    /**
+     * Server consumer properties for the control lane. The lane uses its own consumer group, so it is assigned
+     * every partition of the control topic and its rebalances do not interrupt the data lane.
+     */
+    public Properties controlServerConsumerProps() {
+        Properties props = serverConsumerProps();
+        props.put(ConsumerConfig.GROUP_ID_CONFIG, requestConsumerGroup + "-control");
         return props;
     }
     
@@ -0,0 +1,84 @@
+package com.devicehive.shim.config;
+
+/*
+ * #%L
+ * DeviceHive Shim Kafka Implementation
+ * %%
+ * Copyright (C) 2016 - 2017 DataArt
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+
+import java.util.Properties;
+
+/**
+ * Named sets of producer settings applied on top of the base producer properties of {@link KafkaRpcConfig}.
+ */
+public enum ProducerProfile {
+
+    /**
+     * Sends every record immediately, no compression.
+     */
+    LATENCY("0", 16384, "1", "none"),
+
+    /**
+     * Waits a little to fill larger batches and compresses them, which suits compressible JSON payloads.
+     */
+    THROUGHPUT("20", 262144, "1", "lz4"),
+
+    /**
+     * Waits for all in-sync replicas and retries without reordering records.
+     */
+    DURABLE("5", 65536, "all", "lz4") {
+        @Override
+        public Properties apply(Properties props) {
+            super.apply(props);
+            props.put(ProducerConfig.RETRIES_CONFIG, Integer.MAX_VALUE);
+            props.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, 1);
+            return props;
+        }
+    };
+
+    private final String lingerMs;
+    private final int batchSize;
+    private final String acks;
+    private final String compressionType;
+
+    ProducerProfile(String lingerMs, int batchSize, String acks, String compressionType) {
+        this.lingerMs = lingerMs;
+        this.batchSize = batchSize;
+        this.acks = acks;
+        this.compressionType = compressionType;
+    }
+
+    public Properties apply(Properties props) {
+        props.put(ProducerConfig.LINGER_MS_CONFIG, lingerMs);
+        props.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSize);
+        props.put(ProducerConfig.ACKS_CONFIG, acks);
+        props.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compressionType);
+        return props;
+    }
+
+    /**
+     * @param name profile name, case insensitive; blank means no profile
+     */
+    public static ProducerProfile fromName(String name) {
+        if (name == null || name.trim().isEmpty()) {
+            return null;
+        }
+        return valueOf(name.trim().toUpperCase());
+    }
+}
@@ -43,6 +43,7 @@ import java.net.InetAddress;
 import java.net.NetworkInterface;
 import java.net.SocketException;
 import java.net.UnknownHostException;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.Optional;
 import java.util.Properties;
@@ -50,6 +51,7 @@ import java.util.UUID;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
+import static com.devicehive.configuration.Constants.CONTROL_REQUEST_TOPIC;
 import static com.devicehive.configuration.Constants.REQUEST_TOPIC;
 
 
@@ -85,8 +87,11 @@ public class KafkaRpcClientConfig {
             RESPONSE_TOPIC = responseTopicPrefix + UUID.randomUUID().toString();
         }
 
-        kafkaTopicService.createTopic(REQUEST_TOPIC);
-        kafkaTopicService.createTopic(RESPONSE_TOPIC);
+        if (priorityLanes) {
+            kafkaTopicService.createTopics(Arrays.asList(REQUEST_TOPIC, CONTROL_REQUEST_TOPIC, RESPONSE_TOPIC));
+        } else {
+            kafkaTopicService.createTopics(Arrays.asList(REQUEST_TOPIC, RESPONSE_TOPIC));
+        }
     }
 
     @Autowired
@@ -101,6 +106,12 @@ public class KafkaRpcClientConfig {
     @Value("${rpc.client.response-consumer.threads:3}")
     private int responseConsumerThreads;
 
+    @Value("${rpc.client.producer.profile:}")
+    private String producerProfile;
+
+    @Value("${rpc.priority-lanes.enabled:false}")
+    private boolean priorityLanes;
+
     @Bean
     public RequestResponseMatcher requestResponseMatcher() {
         return new RequestResponseMatcher();
@@ -108,7 +119,7 @@ public class KafkaRpcClientConfig {
 
     @Bean
     public Producer<String, Request> kafkaRequestProducer(Gson gson) {
-        return new KafkaProducer<>(kafkaRpcConfig.producerProps(), new StringSerializer(), new RequestSerializer(gson));
+        return new KafkaProducer<>(kafkaRpcConfig.producerProps(producerProfile), new StringSerializer(), new RequestSerializer(gson));
     }
 
     @Profile("!test")
@@ -116,6 +127,9 @@ public class KafkaRpcClientConfig {
     public RpcClient rpcClient(Producer<String, Request> requestProducer, RequestResponseMatcher responseMatcher,
                                ServerResponseListener responseListener) {
         KafkaRpcClient client = new KafkaRpcClient(REQUEST_TOPIC, RESPONSE_TOPIC, requestProducer, responseMatcher, responseListener);
+        if (priorityLanes) {
+            client.setControlRequestTopic(CONTROL_REQUEST_TOPIC);
+        }
         client.start();
         return client;
     }
@@ -130,6 +144,9 @@ public class KafkaRpcClientConfig {
     public RpcClient testRpcClient(Producer<String, Request> requestProducer, RequestResponseMatcher responseMatcher,
                                ServerResponseListener responseListener) {
         KafkaRpcClient client = new KafkaRpcClient(REQUEST_TOPIC, RESPONSE_TOPIC, requestProducer, responseMatcher, responseListener);
+        if (priorityLanes) {
+            client.setControlRequestTopic(CONTROL_REQUEST_TOPIC);
+        }
         client.start();
         return client;
     }
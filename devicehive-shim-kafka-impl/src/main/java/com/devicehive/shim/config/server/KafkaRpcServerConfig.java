@@ -21,24 +21,33 @@ package com.devicehive.shim.config.server;
  */
 
 import com.devicehive.model.eventbus.FilterRegistry;
+import com.devicehive.shim.api.RequestPriority;
 import com.devicehive.shim.api.Response;
 import com.devicehive.shim.api.server.RequestHandler;
 import com.devicehive.shim.api.server.RpcServer;
 import com.devicehive.shim.kafka.serializer.RequestSerializer;
 import com.devicehive.shim.kafka.serializer.ResponseSerializer;
 import com.devicehive.shim.kafka.server.KafkaRpcServer;
+import com.devicehive.shim.kafka.server.PartitionLaneEventHandler;
 import com.devicehive.shim.config.KafkaRpcConfig;
 import com.devicehive.shim.kafka.server.RequestConsumer;
+import com.devicehive.shim.kafka.server.PriorityRpcServer;
+import com.devicehive.shim.kafka.server.RequestConsumerMetrics;
+import com.devicehive.shim.kafka.server.RequestLatencyMetrics;
 import com.devicehive.model.ServerEvent;
+import com.devicehive.model.WaitStrategies;
 import com.devicehive.shim.kafka.server.ServerEventHandler;
 import com.devicehive.shim.kafka.topic.KafkaTopicService;
 import com.google.gson.Gson;
 import com.lmax.disruptor.*;
+import com.lmax.disruptor.dsl.Disruptor;
+import com.lmax.disruptor.dsl.ProducerType;
 import org.apache.kafka.clients.producer.KafkaProducer;
 import org.apache.kafka.clients.producer.Producer;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
@@ -46,8 +55,11 @@ import org.springframework.context.annotation.*;
 import org.springframework.core.env.Environment;
 
 import javax.annotation.PostConstruct;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
 import java.util.stream.IntStream;
 
+import static com.devicehive.configuration.Constants.CONTROL_REQUEST_TOPIC;
 import static com.devicehive.configuration.Constants.REQUEST_TOPIC;
 
 @Configuration
@@ -72,28 +84,73 @@ public class KafkaRpcServerConfig {
     @Value("${rpc.server.worker.threads:1}")
     private int workerThreads;
 
+    /**
+     * Request execution mode: "pool" - shared worker pool, "lanes" - sequential lanes selected by partition key
+     */
+    @Value("${rpc.server.worker.mode:pool}")
+    private String workerMode;
+
+    @Value("${rpc.server.worker.lanes:3}")
+    private int laneCount;
+
+    /**
+     * Serve control-plane requests (see {@link RequestPriority}) from a separate topic, consumer and worker pool
+     */
+    @Value("${rpc.priority-lanes.enabled:false}")
+    private boolean priorityLanes;
+
+    @Value("${rpc.server.control.request-consumer.threads:1}")
+    private int controlConsumerThreads;
+
+    @Value("${rpc.server.control.worker.threads:1}")
+    private int controlWorkerThreads;
+
+    @Value("${rpc.server.producer.profile:}")
+    private String producerProfile;
+
+    @Value("${rpc.server.response.chunk-size:500}")
+    private int responseChunkSize;
+
     @Value("${lmax.buffer-size:1024}")
     private int bufferSize;
 
+    @Value("${rpc.server.request-consumer.high-watermark:0.8}")
+    private double highWatermark;
+
+    @Value("${rpc.server.request-consumer.low-watermark:0.5}")
+    private double lowWatermark;
+
     @Value("${lmax.wait.strategy:blocking}")
     private String waitStrategy;
 
     @PostConstruct
     private void initializeTopics() {
-        kafkaTopicService.createTopic(REQUEST_TOPIC);
+        if (priorityLanes) {
+            kafkaTopicService.createTopics(Arrays.asList(REQUEST_TOPIC, CONTROL_REQUEST_TOPIC));
+        } else {
+            kafkaTopicService.createTopic(REQUEST_TOPIC);
+        }
     }
 
     @Bean(name = "server-producer")
     public Producer<String, Response> kafkaResponseProducer(Gson gson) {
-        return new KafkaProducer<>(kafkaRpcConfig.producerProps(), new StringSerializer(), new ResponseSerializer(gson));
+        return new KafkaProducer<>(kafkaRpcConfig.producerProps(producerProfile), new StringSerializer(), new ResponseSerializer(gson));
     }
 
+    @Lazy
     @Bean
     public WorkerPool<ServerEvent> workerPool(@Qualifier("request-dispatcher") RequestHandler requestHandler,
-                                              @Qualifier("server-producer") Producer<String, Response> responseProducer) {
+                                              @Qualifier("server-producer") Producer<String, Response> responseProducer,
+                                              @Qualifier("requestLatencyMetrics") RequestLatencyMetrics latencyMetrics) {
+        return createWorkerPool(workerThreads, requestHandler, responseProducer, latencyMetrics);
+    }
+
+    private WorkerPool<ServerEvent> createWorkerPool(int workerThreads, RequestHandler requestHandler,
+                                                     Producer<String, Response> responseProducer,
+                                                     RequestLatencyMetrics latencyMetrics) {
         final ServerEventHandler[] workHandlers = new ServerEventHandler[workerThreads];
         IntStream.range(0, workerThreads).forEach(
-                nbr -> workHandlers[nbr] = new ServerEventHandler(requestHandler, responseProducer)
+                nbr -> workHandlers[nbr] = serverEventHandler(requestHandler, responseProducer, latencyMetrics)
         );
         final RingBuffer<ServerEvent> ringBuffer = RingBuffer.createMultiProducer(ServerEvent::new, bufferSize, getWaitStrategy());
         final SequenceBarrier barrier = ringBuffer.newBarrier();
@@ -102,28 +159,30 @@ public class KafkaRpcServerConfig {
         return workerPool;
     }
 
+    private Disruptor<ServerEvent> partitionLanes(RequestHandler requestHandler, Producer<String, Response> responseProducer,
+                                                  RequestLatencyMetrics latencyMetrics) {
+        final PartitionLaneEventHandler[] laneHandlers = new PartitionLaneEventHandler[laneCount];
+        IntStream.range(0, laneCount).forEach(
+                lane -> laneHandlers[lane] = new PartitionLaneEventHandler(
+                        serverEventHandler(requestHandler, responseProducer, latencyMetrics), lane, laneCount)
+        );
+        final Disruptor<ServerEvent> disruptor = new Disruptor<>(ServerEvent::new, bufferSize, Executors.defaultThreadFactory(),
+                ProducerType.MULTI, getWaitStrategy());
+        disruptor.setDefaultExceptionHandler(new FatalExceptionHandler());
+        disruptor.handleEventsWith(laneHandlers);
+        return disruptor;
+    }
+
+    private ServerEventHandler serverEventHandler(RequestHandler requestHandler, Producer<String, Response> responseProducer,
+                                                  RequestLatencyMetrics latencyMetrics) {
+        ServerEventHandler handler = new ServerEventHandler(requestHandler, responseProducer, latencyMetrics);
+        handler.setResponseChunkSize(responseChunkSize);
+        return handler;
+    }
+
     private WaitStrategy getWaitStrategy() {
         logger.info("RPC server wait strategy: {}", waitStrategy);
-        WaitStrategy strategy;
-
-        switch (waitStrategy) {
-            case "blocking":
-                strategy = new BlockingWaitStrategy();
-                break;
-            case "sleeping":
-                strategy = new SleepingWaitStrategy();
-                break;
-            case "yielding":
-                strategy = new YieldingWaitStrategy();
-                break;
-            case "busyspin":
-                strategy = new BusySpinWaitStrategy();
-                break;
-            default:
-                strategy = new BlockingWaitStrategy();
-                break;
-        }
-        return strategy;
+        return WaitStrategies.of(waitStrategy);
     }
 
     @Bean
@@ -133,13 +192,60 @@ public class KafkaRpcServerConfig {
     }
 
     @Bean
-    public RequestConsumer requestConsumer(Gson gson) {
-        return new RequestConsumer(REQUEST_TOPIC, kafkaRpcConfig.serverConsumerProps(), consumerThreads, new RequestSerializer(gson));
+    public RequestConsumerMetrics requestConsumerMetrics() {
+        return new RequestConsumerMetrics();
+    }
+
+    @Bean
+    public RequestConsumerMetrics controlRequestConsumerMetrics() {
+        return new RequestConsumerMetrics();
+    }
+
+    @Bean
+    public RequestLatencyMetrics requestLatencyMetrics() {
+        return new RequestLatencyMetrics("data");
     }
 
     @Bean
-    public RpcServer rpcServer(WorkerPool<ServerEvent> workerPool, RequestConsumer requestConsumer, ServerEventHandler eventHandler) {
-        RpcServer server = new KafkaRpcServer(workerPool, requestConsumer, eventHandler, workerThreads);
+    public RequestLatencyMetrics controlRequestLatencyMetrics() {
+        return new RequestLatencyMetrics("control");
+    }
+
+    @Bean
+    public RequestConsumer requestConsumer(Gson gson,
+                                           @Qualifier("requestConsumerMetrics") RequestConsumerMetrics requestConsumerMetrics) {
+        RequestConsumer requestConsumer = new RequestConsumer(REQUEST_TOPIC, kafkaRpcConfig.serverConsumerProps(),
+                consumerThreads, new RequestSerializer(gson), requestConsumerMetrics);
+        requestConsumer.setWatermarks(highWatermark, lowWatermark);
+        return requestConsumer;
+    }
+
+    @Bean
+    public RpcServer rpcServer(ObjectProvider<WorkerPool<ServerEvent>> workerPool, RequestConsumer requestConsumer,
+                               ServerEventHandler eventHandler, Gson gson,
+                               @Qualifier("request-dispatcher") RequestHandler requestHandler,
+                               @Qualifier("server-producer") Producer<String, Response> responseProducer,
+                               @Qualifier("requestLatencyMetrics") RequestLatencyMetrics latencyMetrics,
+                               @Qualifier("controlRequestLatencyMetrics") RequestLatencyMetrics controlLatencyMetrics,
+                               @Qualifier("controlRequestConsumerMetrics") RequestConsumerMetrics controlConsumerMetrics) {
+        RpcServer server;
+        if ("lanes".equals(workerMode)) {
+            logger.info("RPC server processes requests on {} partition key lanes", laneCount);
+            server = new KafkaRpcServer(partitionLanes(requestHandler, responseProducer, latencyMetrics), requestConsumer, eventHandler);
+        } else {
+            server = new KafkaRpcServer(workerPool.getObject(), requestConsumer, eventHandler, workerThreads);
+        }
+        if (priorityLanes) {
+            logger.info("RPC server serves control requests on {} with {} worker thread(s)", CONTROL_REQUEST_TOPIC,
+                    controlWorkerThreads);
+            RequestConsumer controlConsumer = new RequestConsumer(CONTROL_REQUEST_TOPIC, kafkaRpcConfig.controlServerConsumerProps(),
+                    controlConsumerThreads, new RequestSerializer(gson), controlConsumerMetrics);
+            controlConsumer.setWatermarks(highWatermark, lowWatermark);
+            RpcServer controlServer = new KafkaRpcServer(
+                    createWorkerPool(controlWorkerThreads, requestHandler, responseProducer, controlLatencyMetrics),
+                    controlConsumer, eventHandler, controlWorkerThreads);
+            server = new PriorityRpcServer(controlServer, server);
+        }
         server.start();
         return server;
     }
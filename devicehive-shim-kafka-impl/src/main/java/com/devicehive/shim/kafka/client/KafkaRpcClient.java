@@ -22,6 +22,7 @@ package com.devicehive.shim.kafka.client;
 
 import com.devicehive.api.RequestResponseMatcher;
 import com.devicehive.shim.api.Request;
+import com.devicehive.shim.api.RequestPriority;
 import com.devicehive.shim.api.RequestType;
 import com.devicehive.shim.api.Response;
 import com.devicehive.shim.api.client.RpcClient;
@@ -40,6 +41,7 @@ public class KafkaRpcClient implements RpcClient {
     private static final Logger logger = LoggerFactory.getLogger(KafkaRpcClient.class);
 
     private String requestTopic;
+    private String controlRequestTopic;
     private String replyToTopic;
     private Producer<String, Request> requestProducer;
     private RequestResponseMatcher requestResponseMatcher;
@@ -54,6 +56,13 @@ public class KafkaRpcClient implements RpcClient {
         this.responseListener = responseListener;
     }
 
+    /**
+     * Routes {@link RequestPriority#CONTROL} requests to a dedicated topic, so they are not queued behind data traffic.
+     */
+    public void setControlRequestTopic(String controlRequestTopic) {
+        this.controlRequestTopic = controlRequestTopic;
+    }
+
     @Override
     public void start() {
         responseListener.startWorkers();
@@ -68,6 +77,14 @@ public class KafkaRpcClient implements RpcClient {
         push(request);
     }
 
+    @Override
+    public void callStream(Request request, Consumer<Response> callback) {
+        requestResponseMatcher.addStreamCallback(request.getCorrelationId(), callback);
+        logger.debug("Stream callback added for request: {}, correlationId: {}", request.getBody(), request.getCorrelationId());
+
+        push(request);
+    }
+
     @Override
     public void push(Request request) {
         if (request.getBody() == null) {
@@ -75,7 +92,7 @@ public class KafkaRpcClient implements RpcClient {
         }
 
         request.setReplyTo(replyToTopic);
-        requestProducer.send(new ProducerRecord<>(requestTopic, request.getPartitionKey(), request),
+        requestProducer.send(new ProducerRecord<>(topicOf(request), request.getPartitionKey(), request),
                 (recordMetadata, e) -> {
                     if (e != null) {
                         logger.error("Send request failed", e);
@@ -86,6 +103,13 @@ public class KafkaRpcClient implements RpcClient {
                 });
     }
 
+    private String topicOf(Request request) {
+        if (controlRequestTopic != null && RequestPriority.of(request) == RequestPriority.CONTROL) {
+            return controlRequestTopic;
+        }
+        return requestTopic;
+    }
+
     @Override
     public void shutdown() {
         requestProducer.close();
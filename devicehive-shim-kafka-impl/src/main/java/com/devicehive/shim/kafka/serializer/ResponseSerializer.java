@@ -20,15 +20,20 @@ package com.devicehive.shim.kafka.serializer;
  * #L%
  */
 
+import com.devicehive.shim.api.Body;
 import com.devicehive.shim.api.Response;
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import org.apache.kafka.common.serialization.Deserializer;
 import org.apache.kafka.common.serialization.Serializer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.UnsupportedEncodingException;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
 
 public class ResponseSerializer implements Serializer<Response>, Deserializer<Response> {
@@ -43,14 +48,55 @@ public class ResponseSerializer implements Serializer<Response>, Deserializer<Re
     @Override
     public void configure(Map<String, ?> map, boolean b) { }
 
+    /**
+     * Reads only the response envelope (correlation id, last and error flags) on the consumer thread.
+     * The polymorphic body is decoded lazily on the first {@link Response#getBody()} call, so responses
+     * without a registered callback are never fully parsed.
+     */
     @Override
     public Response deserialize(String s, byte[] bytes) {
-        try {
-            return gson.fromJson(new String(bytes, "UTF-8"), Response.class);
-        } catch (UnsupportedEncodingException e) {
-            logger.error("Request deserialization failed");
-            throw new RuntimeException(e);
+        final String json = new String(bytes, StandardCharsets.UTF_8);
+        String correlationId = null;
+        boolean last = false;
+        boolean failed = false;
+        int errorCode = 0;
+
+        try (JsonReader reader = new JsonReader(new StringReader(json))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                final String name = reader.nextName();
+                if (reader.peek() == JsonToken.NULL) {
+                    reader.nextNull();
+                    continue;
+                }
+                switch (name) {
+                    case "cId":
+                        correlationId = reader.nextString();
+                        break;
+                    case "l":
+                        last = reader.nextBoolean();
+                        break;
+                    case "err":
+                        errorCode = reader.nextInt();
+                        break;
+                    case "fld":
+                        failed = reader.nextBoolean();
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            logger.error("Response deserialization failed", e);
+            throw new JsonParseException(e);
         }
+
+        Response.Builder<Body> builder = Response.<Body>newBuilder()
+                .withCorrelationId(correlationId)
+                .withLast(last)
+                .withBodySupplier(() -> gson.fromJson(json, Response.class).getBody());
+        return failed ? builder.buildFailed(errorCode) : builder.buildSuccess();
     }
 
     @Override
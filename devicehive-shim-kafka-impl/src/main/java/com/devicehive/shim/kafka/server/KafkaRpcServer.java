@@ -25,6 +25,7 @@ import com.devicehive.shim.api.server.MessageDispatcher;
 import com.devicehive.shim.api.server.RpcServer;
 import com.lmax.disruptor.RingBuffer;
 import com.lmax.disruptor.WorkerPool;
+import com.lmax.disruptor.dsl.Disruptor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -35,6 +36,7 @@ public class KafkaRpcServer implements RpcServer {
     private static final Logger logger = LoggerFactory.getLogger(KafkaRpcServer.class);
 
     private WorkerPool<ServerEvent> workerPool;
+    private Disruptor<ServerEvent> laneDisruptor;
     private RequestConsumer requestConsumer;
     private ServerEventHandler eventHandler;
     private int workerThreads;
@@ -47,18 +49,38 @@ public class KafkaRpcServer implements RpcServer {
         this.workerThreads = workerThreads;
     }
 
+    /**
+     * Creates server which processes requests on partition-key lanes (see {@link PartitionLaneEventHandler})
+     * instead of a shared worker pool.
+     */
+    public KafkaRpcServer(Disruptor<ServerEvent> laneDisruptor, RequestConsumer requestConsumer, ServerEventHandler eventHandler) {
+        this.laneDisruptor = laneDisruptor;
+        this.requestConsumer = requestConsumer;
+        this.eventHandler = eventHandler;
+    }
+
     @Override
     public void start() {
-        final ExecutorService execService = Executors.newFixedThreadPool(workerThreads);
-        RingBuffer<ServerEvent> ringBuffer = workerPool.start(execService);
-        logger.info("LMAX Disruptor started. Buffer size: {}", ringBuffer.getBufferSize());
+        RingBuffer<ServerEvent> ringBuffer;
+        if (laneDisruptor != null) {
+            ringBuffer = laneDisruptor.start();
+            logger.info("LMAX Disruptor started in partition lanes mode. Buffer size: {}", ringBuffer.getBufferSize());
+        } else {
+            final ExecutorService execService = Executors.newFixedThreadPool(workerThreads);
+            ringBuffer = workerPool.start(execService);
+            logger.info("LMAX Disruptor started. Buffer size: {}", ringBuffer.getBufferSize());
+        }
         requestConsumer.startConsumers(ringBuffer);
     }
 
     @Override
     public void shutdown() {
         requestConsumer.shutdownConsumers();
-        workerPool.drainAndHalt();
+        if (laneDisruptor != null) {
+            laneDisruptor.shutdown();
+        } else {
+            workerPool.drainAndHalt();
+        }
     }
 
     @Override
@@ -0,0 +1,61 @@
+package com.devicehive.shim.kafka.server;
+
+/*
+ * #%L
+ * DeviceHive Shim Kafka Implementation
+ * %%
+ * Copyright (C) 2016 DataArt
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import com.devicehive.model.ServerEvent;
+import com.devicehive.shim.api.Request;
+import com.google.common.hash.Hashing;
+import com.lmax.disruptor.EventHandler;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Sequential lane of the partition-key execution mode. Every lane sees each event of the ring buffer but handles
+ * only requests whose {@link Request#getPartitionKey()} hashes onto it, so requests with the same key are processed
+ * in order by a single thread without any locking.
+ */
+public class PartitionLaneEventHandler implements EventHandler<ServerEvent> {
+
+    private final ServerEventHandler delegate;
+    private final int lane;
+    private final int laneCount;
+
+    public PartitionLaneEventHandler(ServerEventHandler delegate, int lane, int laneCount) {
+        this.delegate = delegate;
+        this.lane = lane;
+        this.laneCount = laneCount;
+    }
+
+    @Override
+    public void onEvent(ServerEvent event, long sequence, boolean endOfBatch) throws Exception {
+        if (laneOf(event.get().getPartitionKey(), laneCount) == lane) {
+            delegate.onEvent(event);
+        }
+    }
+
+    static int laneOf(String partitionKey, int laneCount) {
+        if (partitionKey == null) {
+            return 0;
+        }
+        return Hashing.consistentHash(Hashing.murmur3_32().hashString(partitionKey, StandardCharsets.UTF_8), laneCount);
+    }
+}
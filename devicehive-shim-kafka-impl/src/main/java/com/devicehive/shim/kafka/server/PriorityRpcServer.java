@@ -0,0 +1,57 @@
+package com.devicehive.shim.kafka.server;
+
+/*
+ * #%L
+ * DeviceHive Shim Kafka Implementation
+ * %%
+ * Copyright (C) 2016 DataArt
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.devicehive.shim.api.RequestPriority;
+import com.devicehive.shim.api.server.MessageDispatcher;
+import com.devicehive.shim.api.server.RpcServer;
+
+/**
+ * Serves {@link RequestPriority#CONTROL} and {@link RequestPriority#DATA} requests from separate topics, each with
+ * its own consumer, ring buffer and worker pool. The share of threads given to each lane is its scheduling weight.
+ */
+public class PriorityRpcServer implements RpcServer {
+
+    private final RpcServer controlServer;
+    private final RpcServer dataServer;
+
+    public PriorityRpcServer(RpcServer controlServer, RpcServer dataServer) {
+        this.controlServer = controlServer;
+        this.dataServer = dataServer;
+    }
+
+    @Override
+    public void start() {
+        controlServer.start();
+        dataServer.start();
+    }
+
+    @Override
+    public void shutdown() {
+        dataServer.shutdown();
+        controlServer.shutdown();
+    }
+
+    @Override
+    public MessageDispatcher getDispatcher() {
+        return dataServer.getDispatcher();
+    }
+}
@@ -20,12 +20,18 @@ package com.devicehive.shim.kafka.server;
  * #L%
  */
 
+
 import com.devicehive.model.ServerEvent;
 import com.devicehive.shim.api.Request;
+import com.lmax.disruptor.InsufficientCapacityException;
 import com.lmax.disruptor.RingBuffer;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
-import org.apache.kafka.clients.consumer.internals.NoOpConsumerRebalanceListener;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
 import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.errors.WakeupException;
 import org.apache.kafka.common.serialization.Deserializer;
@@ -42,30 +48,62 @@ import java.util.concurrent.TimeUnit;
 public class RequestConsumer {
     private static final Logger logger = LoggerFactory.getLogger(RequestConsumer.class);
 
+    private static final long POLL_TIMEOUT_MS = 100;
+    private static final long COMMIT_FLUSH_TIMEOUT_MS = 3000;
+    private static final double DEFAULT_HIGH_WATERMARK = 0.8;
+    private static final double DEFAULT_LOW_WATERMARK = 0.5;
+
     private String topic;
     private Properties consumerProps;
     private int consumerThreads;
     private Deserializer<Request> deserializer;
+    private RequestConsumerMetrics metrics;
+    private double highWatermark = DEFAULT_HIGH_WATERMARK;
+    private double lowWatermark = DEFAULT_LOW_WATERMARK;
 
     private ExecutorService consumerExecutor;
     private List<RequestConsumerWorker> workers;
 
     public RequestConsumer(String topic, Properties consumerProps, int consumerThreads, Deserializer<Request> deserializer) {
+        this(topic, consumerProps, consumerThreads, deserializer, new RequestConsumerMetrics());
+    }
+
+    public RequestConsumer(String topic, Properties consumerProps, int consumerThreads, Deserializer<Request> deserializer,
+                           RequestConsumerMetrics metrics) {
         this.topic = topic;
-        this.consumerProps = consumerProps;
+        this.consumerProps = new Properties();
+        this.consumerProps.putAll(consumerProps);
+        // offsets are committed by workers once the published batch has been handled
+        this.consumerProps.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
         this.consumerThreads = consumerThreads;
         this.deserializer = deserializer;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Sets ring buffer occupancy thresholds for consumer flow control. Assigned partitions are paused once the
+     * buffer fill ratio reaches {@code highWatermark} and resumed when it drops to {@code lowWatermark}.
+     */
+    public void setWatermarks(double highWatermark, double lowWatermark) {
+        if (lowWatermark < 0 || highWatermark > 1 || lowWatermark > highWatermark) {
+            throw new IllegalArgumentException("Watermarks must satisfy 0 <= low <= high <= 1, got low = "
+                    + lowWatermark + ", high = " + highWatermark);
+        }
+        this.highWatermark = highWatermark;
+        this.lowWatermark = lowWatermark;
     }
 
     public void startConsumers(RingBuffer<ServerEvent> ringBuffer) {
         assert ringBuffer != null;
 
+        metrics.bindRingBuffer(ringBuffer);
         workers = new ArrayList<>(consumerThreads);
         consumerExecutor = Executors.newFixedThreadPool(consumerThreads);
         CountDownLatch latch = new CountDownLatch(consumerThreads);
         for (int i = 0; i < consumerThreads; i++) {
             KafkaConsumer<String, Request> consumer = new KafkaConsumer<>(consumerProps, new StringDeserializer(), deserializer);
-            RequestConsumerWorker worker = new RequestConsumerWorker(this.topic, consumer, ringBuffer, latch);
+            RequestConsumerWorker worker = new RequestConsumerWorker(this.topic, consumer, ringBuffer, latch, metrics,
+                    highWatermark, lowWatermark);
             consumerExecutor.submit(worker);
             workers.add(worker);
         }
@@ -85,51 +123,259 @@ public class RequestConsumer {
         } catch (InterruptedException e) {
             logger.error("Error while waiting for server consumers to subscribe", e);
         }
+        logger.info("RpcServer request consumers stopped: {}", metrics);
+    }
+
+    public RequestConsumerMetrics getMetrics() {
+        return metrics;
     }
 
+    /**
+     * Polls request records and hands every poll batch off to the ring buffer as one contiguous sequence range.
+     * Offsets of a batch are committed only after all ring buffer consumers have moved past its last sequence,
+     * which gives at-least-once delivery: a crash can only cause redelivery of unhandled requests.
+     * <p>
+     * The worker never blocks on a full ring buffer: space is claimed with {@link RingBuffer#tryNext(int)}, which
+     * stays non-blocking when several workers share one multi-producer ring. When occupancy crosses the high
+     * watermark, or a polled batch can not be claimed, assigned partitions are paused and polling continues
+     * (keeping group membership alive) until occupancy falls to the low watermark.
+     */
     public static class RequestConsumerWorker implements Runnable {
 
         private String topic;
-        private KafkaConsumer<String, Request> consumer;
+        private Consumer<String, Request> consumer;
         private RingBuffer<ServerEvent> ringBuffer;
         private CountDownLatch latch;
+        private RequestConsumerMetrics metrics;
+        private double highWatermark;
+        private double lowWatermark;
 
-        RequestConsumerWorker(String topic, KafkaConsumer<String, Request> consumer,
-                              RingBuffer<ServerEvent> ringBuffer, CountDownLatch latch) {
+        private final Deque<PendingCommit> pendingCommits = new ArrayDeque<>();
+        private final Deque<HeldBatch> heldBatches = new ArrayDeque<>();
+        private long pausedSince = -1;
+
+        RequestConsumerWorker(String topic, Consumer<String, Request> consumer,
+                              RingBuffer<ServerEvent> ringBuffer, CountDownLatch latch, RequestConsumerMetrics metrics,
+                              double highWatermark, double lowWatermark) {
             this.topic = topic;
             this.consumer = consumer;
             this.ringBuffer = ringBuffer;
             this.latch = latch;
+            this.metrics = metrics;
+            this.highWatermark = highWatermark;
+            this.lowWatermark = lowWatermark;
         }
 
         @Override
         public void run() {
             try {
-                consumer.subscribe(Collections.singleton(topic), new NoOpConsumerRebalanceListener() {
+                consumer.subscribe(Collections.singleton(topic), new ConsumerRebalanceListener() {
+                    @Override
+                    public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+                        metrics.onRebalance();
+                        // held records are fetched again from the committed offsets after the rebalance
+                        heldBatches.clear();
+                        // the next owner starts from the committed offsets, so flush everything handled so far
+                        flushPendingCommits();
+                    }
+
                     @Override
                     public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+                        if (isPaused()) {
+                            resume();
+                        }
                         latch.countDown();
                     }
                 });
 
                 while (!Thread.currentThread().isInterrupted()) {
-                    ConsumerRecords<String, Request> records = consumer.poll(Long.MAX_VALUE);
-                    records.forEach(record -> {
-                        logger.trace("Topic {}, partition {}, offset {}", record.topic(), record.partition(), record.offset());
-                        ringBuffer.publishEvent((serverEvent, sequence, response) -> serverEvent.set(response), record.value());
-                    });
+                    pollOnce();
                 }
             } catch (WakeupException e) {
                 logger.warn("Request Consumer thread is shutting down");
             } catch (Exception e) {
                 logger.error("Unexpected exception in server response consumer", e);
             } finally {
-                consumer.close();
+                close();
             }
         }
 
+        void pollOnce() {
+            commitHandledBatches();
+            publishHeldBatches();
+            applyFlowControl();
+
+            ConsumerRecords<String, Request> records = consumer.poll(POLL_TIMEOUT_MS);
+            if (!records.isEmpty()) {
+                HeldBatch batch = new HeldBatch(records);
+                if (!heldBatches.isEmpty() || !tryPublish(batch)) {
+                    heldBatches.addLast(batch);
+                    pause();
+                }
+            }
+        }
+
+        void close() {
+            try {
+                flushPendingCommits();
+            } catch (Exception e) {
+                logger.warn("Unable to commit handled offsets on shutdown", e);
+            }
+            if (isPaused()) {
+                // keeps the paused consumers gauge accurate once this worker is gone
+                metrics.onResume(System.currentTimeMillis() - pausedSince);
+                pausedSince = -1;
+            }
+            consumer.close();
+        }
+
+        private void publishHeldBatches() {
+            while (!heldBatches.isEmpty() && tryPublish(heldBatches.peekFirst())) {
+                heldBatches.pollFirst();
+            }
+        }
+
+        private void applyFlowControl() {
+            final double fillRatio = RequestConsumerMetrics.fillRatio(ringBuffer);
+            if (!isPaused() && fillRatio >= highWatermark) {
+                pause();
+            } else if (isPaused() && heldBatches.isEmpty() && fillRatio <= lowWatermark) {
+                resume();
+            }
+        }
+
+        private boolean isPaused() {
+            return pausedSince >= 0;
+        }
+
+        private void pause() {
+            if (!isPaused()) {
+                Set<TopicPartition> assignment = consumer.assignment();
+                consumer.pause(assignment);
+                pausedSince = System.currentTimeMillis();
+                metrics.onPause();
+                logger.debug("Request consumption paused for {}, ring buffer fill ratio {}",
+                        assignment, RequestConsumerMetrics.fillRatio(ringBuffer));
+            }
+        }
+
+        private void resume() {
+            Set<TopicPartition> assignment = consumer.assignment();
+            consumer.resume(assignment);
+            metrics.onResume(System.currentTimeMillis() - pausedSince);
+            pausedSince = -1;
+            logger.debug("Request consumption resumed for {}", assignment);
+        }
+
+        /**
+         * Publishes as much of the batch as the ring buffer can take without blocking. A single claim can not exceed
+         * the ring size, so larger polls are split into several ranges and may complete over several calls.
+         *
+         * @return true once every record of the batch is published
+         */
+        private boolean tryPublish(HeldBatch batch) {
+            while (batch.remaining > 0) {
+                final int size = Math.min(batch.remaining, ringBuffer.getBufferSize());
+                final long hi;
+                try {
+                    hi = ringBuffer.tryNext(size);
+                } catch (InsufficientCapacityException e) {
+                    return false;
+                }
+                final long lo = hi - (size - 1);
+                try {
+                    for (long sequence = lo; sequence <= hi; sequence++) {
+                        ConsumerRecord<String, Request> record = batch.iterator.next();
+                        logger.trace("Topic {}, partition {}, offset {}", record.topic(), record.partition(), record.offset());
+                        ringBuffer.get(sequence).set(record.value());
+                    }
+                } finally {
+                    ringBuffer.publish(lo, hi);
+                }
+                batch.remaining -= size;
+                batch.lastSequence = hi;
+            }
+            metrics.onBatch(batch.records.count());
+
+            Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+            for (TopicPartition partition : batch.records.partitions()) {
+                List<ConsumerRecord<String, Request>> partitionRecords = batch.records.records(partition);
+                long lastOffset = partitionRecords.get(partitionRecords.size() - 1).offset();
+                offsets.put(partition, new OffsetAndMetadata(lastOffset + 1));
+            }
+            pendingCommits.addLast(new PendingCommit(batch.lastSequence, offsets));
+            return true;
+        }
+
+        private void commitHandledBatches() {
+            Map<TopicPartition, OffsetAndMetadata> offsets = collectHandledOffsets();
+            if (!offsets.isEmpty()) {
+                consumer.commitAsync(offsets, (committed, e) -> {
+                    if (e != null) {
+                        logger.warn("Commit of request offsets {} failed", committed, e);
+                    }
+                    metrics.onCommit(e == null);
+                });
+            }
+        }
+
+        private void flushPendingCommits() {
+            final long deadline = System.currentTimeMillis() + COMMIT_FLUSH_TIMEOUT_MS;
+            while (!pendingCommits.isEmpty()
+                    && pendingCommits.peekLast().sequence > ringBuffer.getMinimumGatingSequence()
+                    && System.currentTimeMillis() < deadline) {
+                try {
+                    TimeUnit.MILLISECONDS.sleep(10);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            Map<TopicPartition, OffsetAndMetadata> offsets = collectHandledOffsets();
+            if (!pendingCommits.isEmpty()) {
+                logger.warn("{} request batches were not handled in time, they will be redelivered", pendingCommits.size());
+                pendingCommits.clear();
+            }
+            if (!offsets.isEmpty()) {
+                consumer.commitSync(offsets);
+                metrics.onCommit(true);
+            }
+        }
+
+        private Map<TopicPartition, OffsetAndMetadata> collectHandledOffsets() {
+            final long handled = ringBuffer.getMinimumGatingSequence();
+            Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+            while (!pendingCommits.isEmpty() && pendingCommits.peekFirst().sequence <= handled) {
+                offsets.putAll(pendingCommits.pollFirst().offsets);
+            }
+            return offsets;
+        }
+
         public void shutdown() {
             consumer.wakeup();
         }
+
+        private static class HeldBatch {
+            private final ConsumerRecords<String, Request> records;
+            private final Iterator<ConsumerRecord<String, Request>> iterator;
+            private int remaining;
+            private long lastSequence = -1;
+
+            private HeldBatch(ConsumerRecords<String, Request> records) {
+                this.records = records;
+                this.iterator = records.iterator();
+                this.remaining = records.count();
+            }
+        }
+
+        private static class PendingCommit {
+            private final long sequence;
+            private final Map<TopicPartition, OffsetAndMetadata> offsets;
+
+            private PendingCommit(long sequence, Map<TopicPartition, OffsetAndMetadata> offsets) {
+                this.sequence = sequence;
+                this.offsets = offsets;
+            }
+        }
     }
 }
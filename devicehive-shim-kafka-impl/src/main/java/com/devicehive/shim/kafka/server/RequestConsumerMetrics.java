@@ -0,0 +1,182 @@
+package com.devicehive.shim.kafka.server;
+
+/*
+ * #%L
+ * DeviceHive Shim Kafka Implementation
+ * %%
+ * Copyright (C) 2016 DataArt
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import com.lmax.disruptor.RingBuffer;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters describing how requests are handed off from the Kafka poll loop into the ring buffer,
+ * including ring buffer occupancy and consumer flow control state.
+ */
+@ManagedResource(description = "Kafka request consumer and ring buffer hand-off")
+public class RequestConsumerMetrics {
+
+    private volatile RingBuffer<?> ringBuffer;
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder records = new LongAdder();
+    private final AtomicLong lastBatchSize = new AtomicLong();
+    private final AtomicLong maxBatchSize = new AtomicLong();
+    private final LongAdder commits = new LongAdder();
+    private final LongAdder failedCommits = new LongAdder();
+    private final LongAdder pauses = new LongAdder();
+    private final LongAdder pausedTimeMs = new LongAdder();
+    private final AtomicInteger pausedConsumers = new AtomicInteger();
+    private final LongAdder rebalances = new LongAdder();
+
+    static double fillRatio(RingBuffer<?> ringBuffer) {
+        return 1 - (double) ringBuffer.remainingCapacity() / ringBuffer.getBufferSize();
+    }
+
+    void bindRingBuffer(RingBuffer<?> ringBuffer) {
+        this.ringBuffer = ringBuffer;
+    }
+
+    void onBatch(int size) {
+        batches.increment();
+        records.add(size);
+        lastBatchSize.set(size);
+        maxBatchSize.accumulateAndGet(size, Math::max);
+    }
+
+    void onCommit(boolean success) {
+        if (success) {
+            commits.increment();
+        } else {
+            failedCommits.increment();
+        }
+    }
+
+    void onPause() {
+        pauses.increment();
+        pausedConsumers.incrementAndGet();
+    }
+
+    void onResume(long pausedMs) {
+        pausedTimeMs.add(pausedMs);
+        pausedConsumers.decrementAndGet();
+    }
+
+    void onRebalance() {
+        rebalances.increment();
+    }
+
+    @ManagedAttribute
+    public long getBatchCount() {
+        return batches.sum();
+    }
+
+    @ManagedAttribute
+    public long getRecordCount() {
+        return records.sum();
+    }
+
+    @ManagedAttribute
+    public long getLastBatchSize() {
+        return lastBatchSize.get();
+    }
+
+    @ManagedAttribute
+    public long getMaxBatchSize() {
+        return maxBatchSize.get();
+    }
+
+    @ManagedAttribute
+    public double getAverageBatchSize() {
+        long count = batches.sum();
+        return count == 0 ? 0 : (double) records.sum() / count;
+    }
+
+    @ManagedAttribute
+    public long getCommitCount() {
+        return commits.sum();
+    }
+
+    @ManagedAttribute
+    public long getFailedCommitCount() {
+        return failedCommits.sum();
+    }
+
+    @ManagedAttribute
+    public long getPauseCount() {
+        return pauses.sum();
+    }
+
+    /**
+     * Total time request consumers spent with paused partitions, not including pauses that are still in progress.
+     */
+    @ManagedAttribute
+    public long getPausedTimeMs() {
+        return pausedTimeMs.sum();
+    }
+
+    @ManagedAttribute
+    public int getPausedConsumers() {
+        return pausedConsumers.get();
+    }
+
+    @ManagedAttribute
+    public long getRebalanceCount() {
+        return rebalances.sum();
+    }
+
+    /**
+     * Ring buffer fill percentage, the equivalent of {@code HealthPayload.messageBufferFillPercentage}
+     * reported by the ws-kafka proxy.
+     */
+    @ManagedAttribute
+    public double getMessageBufferFillPercentage() {
+        RingBuffer<?> buffer = ringBuffer;
+        return buffer == null ? 0 : fillRatio(buffer) * 100;
+    }
+
+    /**
+     * Ring buffer status, the equivalent of {@code HealthPayload.messageBufferStatus} reported by the ws-kafka proxy:
+     * {@code "paused"} while request consumption is throttled, {@code "available"} otherwise.
+     */
+    @ManagedAttribute
+    public String getMessageBufferStatus() {
+        return getPausedConsumers() > 0 ? "paused" : "available";
+    }
+
+    @Override
+    public String toString() {
+        return "RequestConsumerMetrics{" +
+                "batches=" + getBatchCount() +
+                ", records=" + getRecordCount() +
+                ", averageBatchSize=" + getAverageBatchSize() +
+                ", maxBatchSize=" + getMaxBatchSize() +
+                ", commits=" + getCommitCount() +
+                ", failedCommits=" + getFailedCommitCount() +
+                ", messageBufferFillPercentage=" + getMessageBufferFillPercentage() +
+                ", pauses=" + getPauseCount() +
+                ", pausedTimeMs=" + getPausedTimeMs() +
+                ", rebalances=" + getRebalanceCount() +
+                '}';
+    }
+}
@@ -0,0 +1,96 @@
+package com.devicehive.shim.kafka.server;
+
+/*
+ * #%L
+ * DeviceHive Shim Kafka Implementation
+ * %%
+ * Copyright (C) 2016 DataArt
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Time requests of one server lane spend waiting in the ring buffer and being handled.
+ */
+@ManagedResource(description = "Queue and handling time of requests per server lane")
+public class RequestLatencyMetrics {
+
+    private final String lane;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder queueTimeNs = new LongAdder();
+    private final AtomicLong maxQueueTimeNs = new AtomicLong();
+    private final LongAdder handleTimeNs = new LongAdder();
+    private final AtomicLong maxHandleTimeNs = new AtomicLong();
+
+    public RequestLatencyMetrics(String lane) {
+        this.lane = lane;
+    }
+
+    void onHandled(long publishedAt, long startedAt, long finishedAt) {
+        final long queued = startedAt - publishedAt;
+        final long handled = finishedAt - startedAt;
+        requests.increment();
+        queueTimeNs.add(queued);
+        maxQueueTimeNs.accumulateAndGet(queued, Math::max);
+        handleTimeNs.add(handled);
+        maxHandleTimeNs.accumulateAndGet(handled, Math::max);
+    }
+
+    @ManagedAttribute
+    public String getLane() {
+        return lane;
+    }
+
+    @ManagedAttribute
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    @ManagedAttribute
+    public double getAvgQueueTimeMs() {
+        return average(queueTimeNs);
+    }
+
+    @ManagedAttribute
+    public double getMaxQueueTimeMs() {
+        return toMillis(maxQueueTimeNs.get());
+    }
+
+    @ManagedAttribute
+    public double getAvgHandleTimeMs() {
+        return average(handleTimeNs);
+    }
+
+    @ManagedAttribute
+    public double getMaxHandleTimeMs() {
+        return toMillis(maxHandleTimeNs.get());
+    }
+
+    private double average(LongAdder totalNs) {
+        final long count = requests.sum();
+        return count == 0 ? 0 : toMillis(totalNs.sum()) / count;
+    }
+
+    private static double toMillis(long nanos) {
+        return (double) nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
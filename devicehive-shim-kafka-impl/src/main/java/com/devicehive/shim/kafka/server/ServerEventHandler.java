@@ -23,6 +23,7 @@ package com.devicehive.shim.kafka.server;
 import com.devicehive.model.ServerEvent;
 import com.devicehive.shim.api.Request;
 import com.devicehive.shim.api.Response;
+import com.devicehive.shim.api.ResponseChunks;
 import com.devicehive.shim.api.server.MessageDispatcher;
 import com.devicehive.shim.api.server.RequestHandler;
 import com.lmax.disruptor.WorkHandler;
@@ -38,14 +39,42 @@ public class ServerEventHandler implements MessageDispatcher, WorkHandler<Server
 
     private RequestHandler requestHandler;
     private Producer<String, Response> responseProducer;
+    private RequestLatencyMetrics latencyMetrics;
+    private int responseChunkSize;
 
     public ServerEventHandler(RequestHandler requestHandler, Producer<String, Response> responseProducer) {
         this.requestHandler = requestHandler;
         this.responseProducer = responseProducer;
     }
 
+    public ServerEventHandler(RequestHandler requestHandler, Producer<String, Response> responseProducer,
+                              RequestLatencyMetrics latencyMetrics) {
+        this(requestHandler, responseProducer);
+        this.latencyMetrics = latencyMetrics;
+    }
+
+    /**
+     * Sets the maximum number of items per response for requests which accept multiple replies, 0 disables chunking.
+     */
+    public void setResponseChunkSize(int responseChunkSize) {
+        this.responseChunkSize = responseChunkSize;
+    }
+
     @Override
     public void onEvent(ServerEvent event) throws Exception {
+        if (latencyMetrics == null) {
+            handle(event);
+            return;
+        }
+        final long startedAt = System.nanoTime();
+        try {
+            handle(event);
+        } finally {
+            latencyMetrics.onHandled(event.getPublishedAt(), startedAt, System.nanoTime());
+        }
+    }
+
+    private void handle(ServerEvent event) {
         final Request request = event.get();
         final String replyTo = request.getReplyTo();
 
@@ -67,9 +96,12 @@ public class ServerEventHandler implements MessageDispatcher, WorkHandler<Server
                         .buildFailed(404);
         }
 
+        if (request.isNoReply()) {
+            return;
+        }
         // set correlationId explicitly to prevent missing it in request
         response.setCorrelationId(request.getCorrelationId());
-        send(replyTo, response);
+        ResponseChunks.split(request, response, responseChunkSize, chunk -> send(replyTo, chunk));
     }
 
     private Response handleClientRequest(Request request) {
@@ -82,7 +114,7 @@ public class ServerEventHandler implements MessageDispatcher, WorkHandler<Server
                     request.getBody().getAction().name(), requestHandler.getClass().getCanonicalName(), e);
 
             response = Response.newBuilder()
-                    .withLast(request.isSingleReplyExpected())
+                    .withLast(true)
                     .buildFailed(500);
         }
         return response;
@@ -20,41 +20,178 @@ package com.devicehive.shim.kafka.topic;
  * #L%
  */
 
+
 import com.devicehive.shim.config.KafkaRpcConfig;
 import kafka.admin.AdminUtils;
 import kafka.admin.RackAwareMode;
-import kafka.utils.ZKStringSerializer$;
 import kafka.utils.ZkUtils;
-import org.I0Itec.zkclient.ZkClient;
-import org.I0Itec.zkclient.ZkConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
+import scala.collection.JavaConversions;
 
-import java.util.Properties;
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.*;
 
+/**
+ * Creates Kafka topics over a single long-lived ZooKeeper connection. Topics already known to exist are
+ * answered from a local cache; concurrent creation requests are queued and handled by one admin thread
+ * in a single pass, so callers racing on startup or plugin registration share the round trips.
+ * A pass reads the topic list once and creates only the missing topics; ZooKeeper has no batch create,
+ * so each missing topic still costs its own write.
+ */
 @Component
 @Profile("!ws-kafka-proxy")
 public class KafkaRpcTopicService implements KafkaTopicService {
+    private static final Logger logger = LoggerFactory.getLogger(KafkaRpcTopicService.class);
+
+    private final Set<String> knownTopics = ConcurrentHashMap.newKeySet();
+    private final Map<String, CompletableFuture<Void>> pendingTopics = new ConcurrentHashMap<>();
+    private final BlockingQueue<String> creationQueue = new LinkedBlockingQueue<>();
+    private final ExecutorService adminExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "kafka-topic-admin");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     @Autowired
     private KafkaRpcConfig kafkaRpcConfig;
 
+    @Value("${rpc.topic.create.timeout-ms:60000}")
+    private long createTimeoutMs = 60000;
+
+    private ZkUtils zkUtils;
+
+    @Override
     public void createTopic(String topic) {
-        ZkClient zkClient = new ZkClient(
-                kafkaRpcConfig.getZookeeperConnect(),
-                kafkaRpcConfig.getSessionTimeout(),
-                kafkaRpcConfig.getConnectionTimeout(),
-                ZKStringSerializer$.MODULE$);
+        createTopics(Collections.singleton(topic));
+    }
+
+    @Override
+    public void createTopics(Collection<String> topics) {
+        List<CompletableFuture<Void>> futures = new ArrayList<>(topics.size());
+        Map<String, CompletableFuture<Void>> queued = new HashMap<>();
+        for (String topic : topics) {
+            if (knownTopics.contains(topic)) {
+                continue;
+            }
+            // the future is visible before the topic is queued, so the admin thread always finds it
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            CompletableFuture<Void> pending = pendingTopics.putIfAbsent(topic, future);
+            if (pending == null) {
+                creationQueue.add(topic);
+                queued.put(topic, future);
+                pending = future;
+            }
+            futures.add(pending);
+        }
+        if (futures.isEmpty()) {
+            return;
+        }
+        try {
+            adminExecutor.execute(this::processQueue);
+        } catch (RejectedExecutionException e) {
+            queued.forEach((topic, future) -> {
+                pendingTopics.remove(topic, future);
+                future.completeExceptionally(new CancellationException("Topic service is shut down"));
+            });
+        }
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[futures.size()]))
+                    .get(createTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Topics " + topics + " were not created in " + createTimeoutMs + " ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while creating topics " + topics);
+        }
+    }
+
+    private void processQueue() {
+        List<String> batch = new ArrayList<>();
+        creationQueue.drainTo(batch);
+        if (batch.isEmpty()) {
+            return;
+        }
+        logger.debug("Creating {} topic(s): {}", batch.size(), batch);
+        Set<String> existing;
+        try {
+            existing = existingTopics();
+            knownTopics.addAll(existing);
+        } catch (RuntimeException e) {
+            logger.warn("Unable to list topics", e);
+            existing = Collections.emptySet();
+        }
+        for (String topic : batch) {
+            CompletableFuture<Void> future = pendingTopics.get(topic);
+            if (future == null) {
+                // already failed by a caller whose pass was rejected on shutdown
+                continue;
+            }
+            RuntimeException failure = null;
+            try {
+                if (!existing.contains(topic)) {
+                    ensureTopic(topic);
+                }
+                knownTopics.add(topic);
+            } catch (RuntimeException e) {
+                logger.error("Unable to create topic {}", topic, e);
+                failure = e;
+            }
+            // removed before completion, so a retry after a failure queues the topic again
+            pendingTopics.remove(topic, future);
+            if (failure == null) {
+                future.complete(null);
+            } else {
+                future.completeExceptionally(failure);
+            }
+        }
+    }
+
+    private void ensureTopic(String topic) {
         try {
-            ZkUtils zkUtils = new ZkUtils(zkClient, new ZkConnection(kafkaRpcConfig.getZookeeperConnect()), false);
-            Properties topicConfig = kafkaRpcConfig.topicProps();
-            if (!AdminUtils.topicExists(zkUtils, topic)) {
-                AdminUtils.createTopic(zkUtils, topic, kafkaRpcConfig.getNumPartitions(), 
-                        kafkaRpcConfig.getReplicationFactor(), topicConfig, RackAwareMode.Enforced$.MODULE$);
+            createZkTopic(topic);
+        } catch (RuntimeException e) {
+            // another node may have created it in the meantime
+            if (!topicExists(topic)) {
+                throw e;
             }
-        } finally {
-            zkClient.close();
+        }
+    }
+
+    Set<String> existingTopics() {
+        return new HashSet<>(JavaConversions.seqAsJavaList(getZkUtils().getAllTopics()));
+    }
+
+    boolean topicExists(String topic) {
+        return AdminUtils.topicExists(getZkUtils(), topic);
+    }
+
+    void createZkTopic(String topic) {
+        AdminUtils.createTopic(getZkUtils(), topic, kafkaRpcConfig.getNumPartitions(),
+                kafkaRpcConfig.getReplicationFactor(), kafkaRpcConfig.topicProps(), RackAwareMode.Enforced$.MODULE$);
+    }
+
+    private ZkUtils getZkUtils() {
+        if (zkUtils == null) {
+            zkUtils = ZkUtils.apply(kafkaRpcConfig.getZookeeperConnect(),
+                    kafkaRpcConfig.getSessionTimeout(), kafkaRpcConfig.getConnectionTimeout(), false);
+        }
+        return zkUtils;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        adminExecutor.shutdownNow();
+        pendingTopics.values().forEach(f -> f.completeExceptionally(new CancellationException("Topic service is shutting down")));
+        if (zkUtils != null) {
+            zkUtils.close();
         }
     }
 }
@@ -20,6 +20,12 @@ package com.devicehive.shim.kafka.topic;
  * #L%
  */
 
+import java.util.Collection;
+
 public interface KafkaTopicService {
     void createTopic(String topic);
+
+    default void createTopics(Collection<String> topics) {
+        topics.forEach(this::createTopic);
+    }
 }
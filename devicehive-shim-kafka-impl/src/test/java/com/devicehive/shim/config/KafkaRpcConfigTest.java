@@ -0,0 +1,48 @@
+package com.devicehive.shim.config;
+
+
+/*
+ * #%L
+ * DeviceHive Shim Kafka Implementation
+ * %%
+ * Copyright (C) 2016 DataArt
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class KafkaRpcConfigTest {
+
+    @Test
+    public void shouldConsumeControlLaneInItsOwnGroup() throws Exception {
+        KafkaRpcConfig config = new KafkaRpcConfig();
+        ReflectionTestUtils.setField(config, "bootstrapServers", "127.0.0.1:9092");
+        ReflectionTestUtils.setField(config, "requestConsumerGroup", "request-consumer-group");
+
+        Properties data = config.serverConsumerProps();
+        Properties control = config.controlServerConsumerProps();
+
+        assertEquals("request-consumer-group", data.get(ConsumerConfig.GROUP_ID_CONFIG));
+        assertNotEquals(data.get(ConsumerConfig.GROUP_ID_CONFIG), control.get(ConsumerConfig.GROUP_ID_CONFIG));
+        assertEquals(false, control.get(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG));
+    }
+}
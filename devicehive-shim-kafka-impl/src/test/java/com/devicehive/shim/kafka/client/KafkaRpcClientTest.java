@@ -0,0 +1,112 @@
+package com.devicehive.shim.kafka.client;
+
+
+/*
+ * #%L
+ * DeviceHive Shim Kafka Implementation
+ * %%
+ * Copyright (C) 2016 DataArt
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.devicehive.api.RequestResponseMatcher;
+import com.devicehive.shim.api.Action;
+import com.devicehive.shim.api.Body;
+import com.devicehive.shim.api.Request;
+import com.devicehive.shim.api.RequestPriority;
+import com.devicehive.shim.kafka.serializer.RequestSerializer;
+import com.google.gson.Gson;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+
+public class KafkaRpcClientTest {
+    private static final String REQUEST_TOPIC = "request_topic";
+    private static final String CONTROL_REQUEST_TOPIC = "control_request_topic";
+
+    private static final Set<Action> DATA_ACTIONS = EnumSet.of(
+            Action.NOTIFICATION_INSERT_REQUEST,
+            Action.NOTIFICATION_BATCH_INSERT_REQUEST,
+            Action.COMMAND_INSERT_REQUEST,
+            Action.COMMAND_UPDATE_REQUEST,
+            Action.COMMANDS_UPDATE_REQUEST,
+            Action.NOTIFICATION_SEARCH_REQUEST,
+            Action.COMMAND_SEARCH_REQUEST);
+
+    private MockProducer<String, Request> producer;
+    private KafkaRpcClient client;
+
+    @Before
+    public void setUp() {
+        producer = new MockProducer<>(true, new StringSerializer(), new RequestSerializer(new Gson()));
+        client = new KafkaRpcClient(REQUEST_TOPIC, "response_topic", producer, new RequestResponseMatcher(), null);
+    }
+
+    @Test
+    public void shouldClassifyDeviceTrafficAsData() throws Exception {
+        for (Action action : DATA_ACTIONS) {
+            assertEquals(action.name(), RequestPriority.DATA, RequestPriority.of(action));
+        }
+    }
+
+    @Test
+    public void shouldClassifyEverythingElseAsControl() throws Exception {
+        for (Action action : EnumSet.complementOf(EnumSet.copyOf(DATA_ACTIONS))) {
+            assertEquals(action.name(), RequestPriority.CONTROL, RequestPriority.of(action));
+        }
+        assertEquals(RequestPriority.CONTROL, RequestPriority.of(Request.newBuilder().build()));
+    }
+
+    @Test
+    public void shouldRouteControlRequestsToControlTopic() throws Exception {
+        client.setControlRequestTopic(CONTROL_REQUEST_TOPIC);
+
+        client.push(request(Action.NOTIFICATION_INSERT_REQUEST));
+        client.push(request(Action.NOTIFICATION_SUBSCRIBE_REQUEST));
+        client.push(request(Action.NOTIFICATION_BATCH_INSERT_REQUEST));
+        client.push(request(Action.LIST_DEVICE_REQUEST));
+
+        assertEquals(Arrays.asList(REQUEST_TOPIC, CONTROL_REQUEST_TOPIC, REQUEST_TOPIC, CONTROL_REQUEST_TOPIC), sentTopics());
+    }
+
+    @Test
+    public void shouldRouteEverythingToRequestTopicWithoutLanes() throws Exception {
+        client.push(request(Action.NOTIFICATION_INSERT_REQUEST));
+        client.push(request(Action.NOTIFICATION_SUBSCRIBE_REQUEST));
+
+        assertEquals(Arrays.asList(REQUEST_TOPIC, REQUEST_TOPIC), sentTopics());
+    }
+
+    private List<String> sentTopics() {
+        return producer.history().stream().map(ProducerRecord::topic).collect(Collectors.toList());
+    }
+
+    private static Request request(Action action) {
+        return Request.newBuilder()
+                .withBody(new Body(action) {})
+                .withPartitionKey("device")
+                .build();
+    }
+}
@@ -0,0 +1,90 @@
+package com.devicehive.shim.kafka.serializer;
+
+/*
+ * #%L
+ * DeviceHive Shim Kafka Implementation
+ * %%
+ * Copyright (C) 2016 DataArt
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.devicehive.json.adapters.RuntimeTypeAdapterFactory;
+import com.devicehive.shim.api.Body;
+import com.devicehive.shim.api.Response;
+import com.devicehive.shim.kafka.fixture.TestRequestBody;
+import com.devicehive.shim.kafka.fixture.TestResponseBody;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class ResponseSerializerTest {
+
+    private final Gson gson = new GsonBuilder()
+            .registerTypeAdapterFactory(RuntimeTypeAdapterFactory.of(Body.class, "a")
+                    .registerSubtype(TestResponseBody.class, 0)
+                    .registerSubtype(TestRequestBody.class, 1))
+            .create();
+
+    private final ResponseSerializer serializer = new ResponseSerializer(gson);
+
+    @Test
+    public void shouldRoundTripEnvelopeAndBody() {
+        Response response = Response.newBuilder()
+                .withBody(new TestResponseBody("payload"))
+                .withCorrelationId("c1")
+                .withLast(false)
+                .buildFailed(404);
+
+        Response decoded = serializer.deserialize("topic", serializer.serialize("topic", response));
+
+        assertEquals("c1", decoded.getCorrelationId());
+        assertFalse(decoded.isLast());
+        assertTrue(decoded.isFailed());
+        assertEquals(404, decoded.getErrorCode());
+        assertEquals("payload", ((TestResponseBody) decoded.getBody()).getResponseBody());
+    }
+
+    @Test
+    public void shouldDecodeBodyOnlyOnDemand() {
+        byte[] bytes = "{\"b\":{\"a\":99},\"cId\":\"c2\",\"l\":true,\"err\":0,\"fld\":false}"
+                .getBytes(StandardCharsets.UTF_8);
+
+        // unknown body type is not touched while reading the envelope
+        Response decoded = serializer.deserialize("topic", bytes);
+        assertEquals("c2", decoded.getCorrelationId());
+        assertTrue(decoded.isLast());
+
+        try {
+            decoded.getBody();
+            fail("Body should be decoded on first access");
+        } catch (JsonParseException expected) {
+        }
+    }
+
+    @Test
+    public void shouldSkipNullFieldsInEnvelope() {
+        byte[] bytes = "{\"b\":null,\"cId\":null,\"l\":true}".getBytes(StandardCharsets.UTF_8);
+
+        Response decoded = serializer.deserialize("topic", bytes);
+
+        assertNull(decoded.getCorrelationId());
+        assertNull(decoded.getBody());
+    }
+}
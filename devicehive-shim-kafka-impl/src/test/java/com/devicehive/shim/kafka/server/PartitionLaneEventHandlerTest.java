@@ -0,0 +1,79 @@
+package com.devicehive.shim.kafka.server;
+
+/*
+ * #%L
+ * DeviceHive Shim Kafka Implementation
+ * %%
+ * Copyright (C) 2016 DataArt
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.devicehive.model.ServerEvent;
+import com.devicehive.shim.api.Request;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.*;
+
+public class PartitionLaneEventHandlerTest {
+
+    private static final int LANES = 3;
+
+    @Test
+    public void shouldMapSameKeyToSameLane() {
+        for (int i = 0; i < 100; i++) {
+            String key = "device-" + i;
+            int lane = PartitionLaneEventHandler.laneOf(key, LANES);
+            assertTrue(lane >= 0 && lane < LANES);
+            assertEquals(lane, PartitionLaneEventHandler.laneOf(key, LANES));
+        }
+    }
+
+    @Test
+    public void shouldMapNullKeyToFirstLane() {
+        assertEquals(0, PartitionLaneEventHandler.laneOf(null, LANES));
+    }
+
+    @Test
+    public void shouldSpreadKeysOverAllLanes() {
+        Set<Integer> lanes = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            lanes.add(PartitionLaneEventHandler.laneOf("device-" + i, LANES));
+        }
+        assertEquals(LANES, lanes.size());
+    }
+
+    @Test
+    public void shouldHandleEventOnExactlyOneLane() throws Exception {
+        ServerEventHandler delegate = mock(ServerEventHandler.class);
+        PartitionLaneEventHandler[] handlers = new PartitionLaneEventHandler[LANES];
+        for (int lane = 0; lane < LANES; lane++) {
+            handlers[lane] = new PartitionLaneEventHandler(delegate, lane, LANES);
+        }
+
+        for (String key : new String[]{"device-1", "device-2", null}) {
+            ServerEvent event = new ServerEvent();
+            event.set(Request.newBuilder().withPartitionKey(key).build());
+            for (PartitionLaneEventHandler handler : handlers) {
+                handler.onEvent(event, 0, true);
+            }
+            verify(delegate, times(1)).onEvent(event);
+        }
+    }
+}
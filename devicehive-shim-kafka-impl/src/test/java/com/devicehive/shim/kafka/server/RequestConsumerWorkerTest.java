@@ -0,0 +1,165 @@
+package com.devicehive.shim.kafka.server;
+
+/*
+ * #%L
+ * DeviceHive Shim Kafka Implementation
+ * %%
+ * Copyright (C) 2016 DataArt
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.devicehive.model.ServerEvent;
+import com.devicehive.shim.api.Request;
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.Sequence;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RequestConsumerWorkerTest {
+
+    private static final String TOPIC = "request_topic";
+
+    private final TopicPartition partition = new TopicPartition(TOPIC, 0);
+    private final MockConsumer<String, Request> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+    private final RingBuffer<ServerEvent> ringBuffer = RingBuffer.createMultiProducer(ServerEvent::new, 4);
+    private final Sequence handled = new Sequence(-1);
+    private final RequestConsumerMetrics metrics = new RequestConsumerMetrics();
+
+    private RequestConsumer.RequestConsumerWorker worker;
+    private long nextOffset;
+
+    @Before
+    public void setUp() {
+        ringBuffer.addGatingSequences(handled);
+        metrics.bindRingBuffer(ringBuffer);
+        consumer.assign(Collections.singleton(partition));
+        consumer.updateBeginningOffsets(Collections.singletonMap(partition, 0L));
+        worker = new RequestConsumer.RequestConsumerWorker(TOPIC, consumer, ringBuffer, new CountDownLatch(1), metrics,
+                0.8, 0.5);
+    }
+
+    @Test(timeout = 10000)
+    public void shouldPublishPollBatchAsOneRange() {
+        addRecords(3);
+        worker.pollOnce();
+
+        assertEquals(2, ringBuffer.getCursor());
+        assertEquals(1, metrics.getBatchCount());
+        assertEquals(3, metrics.getLastBatchSize());
+        for (long sequence = 0; sequence <= 2; sequence++) {
+            assertEquals("key-" + sequence, ringBuffer.get(sequence).get().getPartitionKey());
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void shouldCommitOffsetsOnlyAfterBatchIsHandled() {
+        addRecords(3);
+        worker.pollOnce();
+        worker.pollOnce();
+        assertEquals(0, metrics.getCommitCount());
+
+        handled.set(2);
+        worker.pollOnce();
+
+        assertEquals(1, metrics.getCommitCount());
+        assertEquals(3, consumer.committed(partition).offset());
+    }
+
+    @Test(timeout = 10000)
+    public void shouldCommitHandledOffsetsOnClose() {
+        addRecords(2);
+        worker.pollOnce();
+        handled.set(1);
+
+        worker.close();
+
+        // the consumer is closed at this point, only the commit itself can be observed
+        assertEquals(1, metrics.getCommitCount());
+    }
+
+    @Test(timeout = 10000)
+    public void shouldPauseInsteadOfBlockingWhenBatchDoesNotFit() {
+        addRecords(3);
+        worker.pollOnce();
+        addRecords(3);
+        worker.pollOnce();
+
+        assertEquals(2, ringBuffer.getCursor());
+        assertEquals(Collections.singleton(partition), consumer.paused());
+        assertEquals(1, metrics.getPausedConsumers());
+
+        handled.set(2);
+        worker.pollOnce();
+        assertEquals(5, ringBuffer.getCursor());
+        // held batch is published, but occupancy is still above the low watermark
+        assertEquals(Collections.singleton(partition), consumer.paused());
+
+        handled.set(5);
+        worker.pollOnce();
+        assertTrue(consumer.paused().isEmpty());
+        assertEquals(0, metrics.getPausedConsumers());
+        assertEquals(1, metrics.getPauseCount());
+    }
+
+    @Test(timeout = 10000)
+    public void shouldPublishBatchLargerThanRingInRanges() {
+        addRecords(6);
+        worker.pollOnce();
+        assertEquals(3, ringBuffer.getCursor());
+        assertEquals(1, metrics.getPausedConsumers());
+
+        handled.set(3);
+        worker.pollOnce();
+        assertEquals(5, ringBuffer.getCursor());
+        assertEquals(0, metrics.getCommitCount());
+
+        handled.set(5);
+        worker.pollOnce();
+        assertEquals(1, metrics.getCommitCount());
+        assertEquals(6, consumer.committed(partition).offset());
+    }
+
+    @Test(timeout = 10000)
+    public void shouldResetPausedGaugeOnClose() {
+        addRecords(4);
+        worker.pollOnce();
+        worker.pollOnce();
+        assertEquals(1, metrics.getPausedConsumers());
+
+        handled.set(3);
+        worker.close();
+
+        assertEquals(0, metrics.getPausedConsumers());
+        assertEquals("available", metrics.getMessageBufferStatus());
+    }
+
+    private void addRecords(int count) {
+        for (int i = 0; i < count; i++) {
+            long offset = nextOffset++;
+            Request request = Request.newBuilder().withPartitionKey("key-" + offset).build();
+            consumer.addRecord(new ConsumerRecord<>(TOPIC, 0, offset, "key-" + offset, request));
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.devicehive.shim.kafka.server;
+
+
+/*
+ * #%L
+ * DeviceHive Shim Kafka Implementation
+ * %%
+ * Copyright (C) 2016 DataArt
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jmx.export.annotation.AnnotationMBeanExporter;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Exports the request metrics beans the same way Spring Boot JMX auto-configuration does and reads them back.
+ */
+public class RequestMetricsExportTest {
+
+    private static final String DOMAIN = RequestConsumerMetrics.class.getPackage().getName();
+
+    private AnnotationConfigApplicationContext context;
+    private MBeanServer mbeanServer;
+
+    @Before
+    public void setUp() {
+        context = new AnnotationConfigApplicationContext(MetricsConfig.class);
+        mbeanServer = context.getBean(MBeanServer.class);
+    }
+
+    @After
+    public void tearDown() {
+        context.close();
+        MBeanServerFactory.releaseMBeanServer(mbeanServer);
+    }
+
+    @Test
+    public void shouldExportConsumerMetrics() throws Exception {
+        context.getBean("requestConsumerMetrics", RequestConsumerMetrics.class).onBatch(3);
+        context.getBean("requestConsumerMetrics", RequestConsumerMetrics.class).onRebalance();
+
+        ObjectName name = new ObjectName(DOMAIN + ":type=RequestConsumerMetrics,name=requestConsumerMetrics");
+        assertEquals(1L, mbeanServer.getAttribute(name, "BatchCount"));
+        assertEquals(3L, mbeanServer.getAttribute(name, "RecordCount"));
+        assertEquals(1L, mbeanServer.getAttribute(name, "RebalanceCount"));
+        assertEquals("available", mbeanServer.getAttribute(name, "MessageBufferStatus"));
+    }
+
+    @Test
+    public void shouldExportLatencyMetricsOfEachLane() throws Exception {
+        Set<Object> lanes = new HashSet<>();
+        for (ObjectName name : mbeanServer.queryNames(new ObjectName(DOMAIN + ":type=RequestLatencyMetrics,*"), null)) {
+            lanes.add(mbeanServer.getAttribute(name, "Lane"));
+        }
+        assertEquals(new HashSet<>(Arrays.asList("data", "control")), lanes);
+    }
+
+    @Configuration
+    static class MetricsConfig {
+
+        @Bean
+        public MBeanServer mbeanServer() {
+            return MBeanServerFactory.newMBeanServer();
+        }
+
+        @Bean
+        public AnnotationMBeanExporter mbeanExporter(MBeanServer mbeanServer) {
+            AnnotationMBeanExporter exporter = new AnnotationMBeanExporter();
+            exporter.setServer(mbeanServer);
+            return exporter;
+        }
+
+        @Bean
+        public RequestConsumerMetrics requestConsumerMetrics() {
+            return new RequestConsumerMetrics();
+        }
+
+        @Bean
+        public RequestLatencyMetrics requestLatencyMetrics() {
+            return new RequestLatencyMetrics("data");
+        }
+
+        @Bean
+        public RequestLatencyMetrics controlRequestLatencyMetrics() {
+            return new RequestLatencyMetrics("control");
+        }
+    }
+}
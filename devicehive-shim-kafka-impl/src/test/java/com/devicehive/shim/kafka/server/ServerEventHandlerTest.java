@@ -0,0 +1,161 @@
+package com.devicehive.shim.kafka.server;
+
+
+/*
+ * #%L
+ * DeviceHive Shim Kafka Implementation
+ * %%
+ * Copyright (C) 2016 DataArt
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.devicehive.model.DeviceNotification;
+import com.devicehive.model.ServerEvent;
+import com.devicehive.model.rpc.NotificationSearchRequest;
+import com.devicehive.model.rpc.NotificationSearchResponse;
+import com.devicehive.shim.api.Request;
+import com.devicehive.shim.api.Response;
+import com.devicehive.shim.kafka.serializer.ResponseSerializer;
+import com.google.gson.Gson;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ServerEventHandlerTest {
+    private static final String REPLY_TO = "response_topic";
+
+    private MockProducer<String, Response> producer;
+
+    @Before
+    public void setUp() {
+        producer = new MockProducer<>(true, new StringSerializer(), new ResponseSerializer(new Gson()));
+    }
+
+    @Test
+    public void shouldSendMultiReplyResponseInOrderedChunks() throws Exception {
+        ServerEventHandler handler = new ServerEventHandler(request -> searchResponse(5), producer);
+        handler.setResponseChunkSize(2);
+        Request request = searchRequest(false);
+
+        handler.onEvent(event(request));
+
+        List<Response> responses = sentResponses();
+        assertEquals(3, responses.size());
+        assertEquals(Arrays.asList(0L, 1L), ids(responses.get(0)));
+        assertEquals(Arrays.asList(2L, 3L), ids(responses.get(1)));
+        assertEquals(Arrays.asList(4L), ids(responses.get(2)));
+        assertEquals(Arrays.asList(false, false, true),
+                responses.stream().map(Response::isLast).collect(Collectors.toList()));
+        for (Response response : responses) {
+            assertEquals(request.getCorrelationId(), response.getCorrelationId());
+        }
+        for (ProducerRecord<String, Response> record : producer.history()) {
+            assertEquals(REPLY_TO, record.topic());
+        }
+    }
+
+    @Test
+    public void shouldNotSplitSingleReplyResponse() throws Exception {
+        ServerEventHandler handler = new ServerEventHandler(request -> searchResponse(5), producer);
+        handler.setResponseChunkSize(2);
+
+        handler.onEvent(event(searchRequest(true)));
+
+        List<Response> responses = sentResponses();
+        assertEquals(1, responses.size());
+        assertEquals(5, ids(responses.get(0)).size());
+        assertTrue(responses.get(0).isLast());
+    }
+
+    @Test
+    public void shouldMarkFailureAsLastResponse() throws Exception {
+        ServerEventHandler handler = new ServerEventHandler(request -> {
+            throw new IllegalStateException("search failed");
+        }, producer);
+        handler.setResponseChunkSize(2);
+        Request request = searchRequest(false);
+
+        handler.onEvent(event(request));
+
+        List<Response> responses = sentResponses();
+        assertEquals(1, responses.size());
+        assertTrue(responses.get(0).isFailed());
+        assertTrue(responses.get(0).isLast());
+        assertEquals(500, responses.get(0).getErrorCode());
+        assertEquals(request.getCorrelationId(), responses.get(0).getCorrelationId());
+    }
+
+    @Test
+    public void shouldSkipReplyForNoReplyRequest() throws Exception {
+        ServerEventHandler handler = new ServerEventHandler(request -> searchResponse(1), producer);
+        Request request = Request.newBuilder()
+                .withBody(new NotificationSearchRequest())
+                .withNoReply(true)
+                .build();
+        request.setReplyTo(REPLY_TO);
+
+        handler.onEvent(event(request));
+
+        assertTrue(producer.history().isEmpty());
+    }
+
+    private List<Response> sentResponses() {
+        return producer.history().stream().map(ProducerRecord::value).collect(Collectors.toList());
+    }
+
+    private static List<Long> ids(Response response) {
+        return ((NotificationSearchResponse) response.getBody()).getNotifications().stream()
+                .map(DeviceNotification::getId)
+                .collect(Collectors.toList());
+    }
+
+    private static Request searchRequest(boolean singleReply) {
+        Request request = Request.newBuilder()
+                .withBody(new NotificationSearchRequest())
+                .withSingleReply(singleReply)
+                .build();
+        request.setReplyTo(REPLY_TO);
+        return request;
+    }
+
+    private static Response searchResponse(int size) {
+        List<DeviceNotification> notifications = new ArrayList<>();
+        LongStream.range(0, size).forEach(id -> {
+            DeviceNotification notification = new DeviceNotification();
+            notification.setId(id);
+            notifications.add(notification);
+        });
+        return Response.newBuilder()
+                .withBody(new NotificationSearchResponse(notifications))
+                .buildSuccess();
+    }
+
+    private static ServerEvent event(Request request) {
+        ServerEvent event = new ServerEvent();
+        event.set(request);
+        return event;
+    }
+}
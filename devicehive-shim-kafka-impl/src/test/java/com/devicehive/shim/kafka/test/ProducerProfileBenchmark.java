@@ -0,0 +1,105 @@
+package com.devicehive.shim.kafka.test;
+
+/*
+ * #%L
+ * DeviceHive Shim Kafka Implementation
+ * %%
+ * Copyright (C) 2016 DataArt
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.devicehive.shim.config.ProducerProfile;
+import com.devicehive.test.rule.KafkaEmbeddedRule;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares {@link ProducerProfile}s on an embedded broker: records per second and end-to-end latency
+ * of notification-like JSON payloads. Runs only in the benchmark profile: mvn test -Pbenchmark.
+ */
+public class ProducerProfileBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(ProducerProfileBenchmark.class);
+
+    private static final int RECORDS = 20000;
+    private static final String PAYLOAD = "{\"id\":%d,\"notification\":\"temperature\",\"deviceId\":\"e50d6085-2aba-48e9-b1c3-73c673e414be\"," +
+            "\"networkId\":1,\"timestamp\":\"2017-10-19T12:00:00.000\",\"parameters\":{\"value\":21.5,\"unit\":\"celsius\"}}";
+
+    @ClassRule
+    public static KafkaEmbeddedRule kafkaRule = new KafkaEmbeddedRule(true, 1,
+            Arrays.stream(ProducerProfile.values()).map(ProducerProfileBenchmark::topic).toArray(String[]::new));
+
+    @Test
+    public void shouldCompareProducerProfiles() throws Exception {
+        for (ProducerProfile profile : ProducerProfile.values()) {
+            run(profile);
+        }
+    }
+
+    private void run(ProducerProfile profile) throws Exception {
+        Properties consumerProps = kafkaRule.getConsumerProperties();
+        consumerProps.put(ConsumerConfig.GROUP_ID_CONFIG, "benchmark-" + profile.name());
+        consumerProps.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        long[] latencies = new long[RECORDS];
+        int received = 0;
+
+        try (KafkaConsumer<String, String> consumer = new KafkaConsumer<>(consumerProps, new StringDeserializer(), new StringDeserializer());
+             KafkaProducer<String, String> producer = new KafkaProducer<>(profile.apply(kafkaRule.getProducerProperties()),
+                     new StringSerializer(), new StringSerializer())) {
+            consumer.subscribe(Collections.singletonList(topic(profile)));
+            consumer.poll(0);
+
+            long start = System.nanoTime();
+            for (int i = 0; i < RECORDS; i++) {
+                producer.send(new ProducerRecord<>(topic(profile), Long.toString(System.nanoTime()), String.format(PAYLOAD, i)));
+            }
+            producer.flush();
+
+            long deadline = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(1);
+            while (received < RECORDS && System.currentTimeMillis() < deadline) {
+                for (ConsumerRecord<String, String> record : consumer.poll(100)) {
+                    latencies[received++] = System.nanoTime() - Long.parseLong(record.key());
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+
+            assertEquals(RECORDS, received);
+            Arrays.sort(latencies);
+            logger.info("Profile {}: {} records/s, latency p50 {} ms, p99 {} ms", profile,
+                    RECORDS * TimeUnit.SECONDS.toNanos(1) / elapsed,
+                    TimeUnit.NANOSECONDS.toMillis(latencies[RECORDS / 2]),
+                    TimeUnit.NANOSECONDS.toMillis(latencies[RECORDS * 99 / 100]));
+        }
+    }
+
+    private static String topic(ProducerProfile profile) {
+        return "benchmark_" + profile.name().toLowerCase();
+    }
+}
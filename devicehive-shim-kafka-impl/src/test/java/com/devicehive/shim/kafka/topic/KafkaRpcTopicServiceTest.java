@@ -0,0 +1,180 @@
+package com.devicehive.shim.kafka.topic;
+
+
+/*
+ * #%L
+ * DeviceHive Shim Kafka Implementation
+ * %%
+ * Copyright (C) 2016 DataArt
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class KafkaRpcTopicServiceTest {
+
+    private final RecordingTopicService topicService = new RecordingTopicService();
+
+    @After
+    public void tearDown() {
+        topicService.shutdown();
+    }
+
+    @Test
+    public void shouldListTopicsOnceAndCreateOnlyMissingOnes() throws Exception {
+        topicService.existing.add("existing");
+
+        topicService.createTopics(Arrays.asList("existing", "first", "second"));
+
+        assertEquals(1, topicService.listCalls.get());
+        assertEquals(Arrays.asList("first", "second"), topicService.created);
+    }
+
+    @Test
+    public void shouldAnswerKnownTopicsFromCache() throws Exception {
+        topicService.existing.add("existing");
+
+        topicService.createTopic("created");
+        topicService.createTopic("created");
+        topicService.createTopic("existing");
+
+        assertEquals(1, topicService.listCalls.get());
+        assertEquals(Collections.singletonList("created"), topicService.created);
+    }
+
+    @Test
+    public void shouldTreatTopicCreatedConcurrentlyAsCreated() throws Exception {
+        topicService.createdElsewhere.add("raced");
+
+        topicService.createTopic("raced");
+        topicService.createTopic("raced");
+
+        assertEquals(1, topicService.listCalls.get());
+    }
+
+    @Test
+    public void shouldNotCacheFailedTopics() throws Exception {
+        topicService.failing.add("broken");
+
+        try {
+            topicService.createTopic("broken");
+            fail("Topic creation should have failed");
+        } catch (IllegalStateException e) {
+            assertEquals("broken", e.getMessage());
+        }
+
+        topicService.failing.clear();
+        topicService.createTopic("broken");
+
+        assertEquals(2, topicService.listCalls.get());
+        assertEquals(Collections.singletonList("broken"), topicService.created);
+    }
+
+    @Test
+    public void shouldCompleteRacingCallsForOverlappingTopics() throws Exception {
+        topicService.delayMs = 1;
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> calls = new ArrayList<>();
+            for (int caller = 0; caller < 8; caller++) {
+                int offset = caller;
+                calls.add(callers.submit(() -> {
+                    start.await();
+                    for (int round = 0; round < 50; round++) {
+                        // neighbouring callers share two of their three topics
+                        topicService.createTopics(Arrays.asList("topic-" + round + "-" + offset,
+                                "topic-" + round + "-" + (offset + 1) % 8, "topic-" + round + "-" + (offset + 2) % 8));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> call : calls) {
+                call.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+
+        assertEquals(8 * 50, topicService.created.size());
+        assertEquals(8 * 50, new HashSet<>(topicService.created).size());
+    }
+
+    @Test(expected = CancellationException.class)
+    public void shouldFailCreationAfterShutdown() throws Exception {
+        topicService.shutdown();
+
+        topicService.createTopic("late");
+    }
+
+    private static class RecordingTopicService extends KafkaRpcTopicService {
+        private final Set<String> existing = Collections.synchronizedSet(new HashSet<>());
+        private final Set<String> createdElsewhere = Collections.synchronizedSet(new HashSet<>());
+        private final Set<String> failing = Collections.synchronizedSet(new HashSet<>());
+        private final List<String> created = Collections.synchronizedList(new ArrayList<>());
+        private final AtomicInteger listCalls = new AtomicInteger();
+        private volatile long delayMs;
+
+        @Override
+        Set<String> existingTopics() {
+            listCalls.incrementAndGet();
+            return new HashSet<>(existing);
+        }
+
+        @Override
+        boolean topicExists(String topic) {
+            return existing.contains(topic);
+        }
+
+        @Override
+        void createZkTopic(String topic) {
+            if (createdElsewhere.contains(topic)) {
+                existing.add(topic);
+                throw new IllegalStateException("Topic " + topic + " already exists");
+            }
+            if (failing.contains(topic)) {
+                throw new IllegalStateException(topic);
+            }
+            if (delayMs > 0) {
+                try {
+                    Thread.sleep(delayMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            existing.add(topic);
+            created.add(topic);
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package com.devicehive.test.proxy;
+
+/*
+ * #%L
+ * DeviceHive Test Utils
+ * %%
+ * Copyright (C) 2016 DataArt
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import io.undertow.Handlers;
+import io.undertow.Undertow;
+import io.undertow.websockets.core.AbstractReceiveListener;
+import io.undertow.websockets.core.BufferedTextMessage;
+import io.undertow.websockets.core.WebSocketChannel;
+import io.undertow.websockets.core.WebSockets;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process stand-in for the ws-kafka proxy. It speaks the proxy protocol (topic create/list/subscribe/unsubscribe,
+ * notification create and health) over a local WebSocket and keeps topics in memory. A notification goes to every
+ * plain subscriber of its topic and to one member of each subscription group, round robin. Nothing is persisted
+ * and partitions are ignored.
+ */
+public class EmbeddedProxyServer {
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddedProxyServer.class);
+
+    private static final JsonParser parser = new JsonParser();
+
+    private final String host;
+    private final int requestedPort;
+    private final Set<String> topics = ConcurrentHashMap.newKeySet();
+    private final Map<String, Map<String, Group>> subscriptions = new ConcurrentHashMap<>();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+
+    private Undertow server;
+    private int port;
+
+    /**
+     * @param port port to listen on, 0 picks a free one
+     */
+    public EmbeddedProxyServer(String host, int port) {
+        this.host = host;
+        this.requestedPort = port;
+    }
+
+    public EmbeddedProxyServer() {
+        this("localhost", 0);
+    }
+
+    public void start() {
+        server = Undertow.builder()
+                .addHttpListener(requestedPort, host)
+                .setHandler(Handlers.websocket((exchange, channel) -> {
+                    channel.getReceiveSetter().set(new AbstractReceiveListener() {
+                        @Override
+                        protected void onFullTextMessage(WebSocketChannel channel, BufferedTextMessage message) {
+                            onFrame(channel, message.getData());
+                        }
+                    });
+                    channel.addCloseTask(this::unsubscribe);
+                    channel.resumeReceives();
+                }))
+                .build();
+        server.start();
+        port = ((InetSocketAddress) server.getListenerInfo().get(0).getAddress()).getPort();
+        logger.info("Embedded proxy listening on {}", getConnect());
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop();
+            server = null;
+        }
+        subscriptions.clear();
+        topics.clear();
+    }
+
+    /**
+     * @return address in the form expected by the {@code proxy.connect} property
+     */
+    public String getConnect() {
+        return host + ":" + port;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public Set<String> getTopics() {
+        return topics;
+    }
+
+    public long getReceivedCount() {
+        return received.sum();
+    }
+
+    public long getDeliveredCount() {
+        return delivered.sum();
+    }
+
+    private void onFrame(WebSocketChannel channel, String frame) {
+        JsonElement parsed = parser.parse(frame);
+        if (parsed.isJsonArray()) {
+            parsed.getAsJsonArray().forEach(element -> onMessage(channel, element.getAsJsonObject()));
+        } else {
+            onMessage(channel, parsed.getAsJsonObject());
+        }
+    }
+
+    private void onMessage(WebSocketChannel channel, JsonObject message) {
+        received.increment();
+        String type = string(message, "t");
+        String action = string(message, "a");
+        JsonObject payload = message.has("p") && message.get("p").isJsonObject() ? message.getAsJsonObject("p") : new JsonObject();
+        try {
+            switch (action != null ? type + "/" + action : String.valueOf(type)) {
+                case "topic/create":
+                    strings(payload.get("t")).forEach(topics::add);
+                    reply(channel, message, topicsPayload(strings(payload.get("t"))));
+                    break;
+                case "topic/list":
+                    reply(channel, message, topicsPayload(topics));
+                    break;
+                case "topic/subscribe":
+                    List<String> subscribed = strings(payload.get("t"));
+                    String group = string(payload, "sg");
+                    subscribed.forEach(topic -> subscribe(topic, group, channel));
+                    reply(channel, message, topicsPayload(subscribed));
+                    break;
+                case "topic/unsubscribe":
+                    List<String> unsubscribed = strings(payload.get("t"));
+                    if (unsubscribed.isEmpty()) {
+                        unsubscribe(channel);
+                    } else {
+                        unsubscribed.forEach(topic -> unsubscribe(topic, channel));
+                    }
+                    reply(channel, message, null);
+                    break;
+                case "notif/create":
+                    publish(string(payload, "t"), payload.get("m"));
+                    reply(channel, message, null);
+                    break;
+                case "health":
+                    JsonObject health = new JsonObject();
+                    health.addProperty("prx", "Available");
+                    health.addProperty("mb", "Available");
+                    health.addProperty("mbfp", 0);
+                    health.addProperty("comm", "Available");
+                    reply(channel, message, health);
+                    break;
+                default:
+                    fail(channel, message, "Unsupported message type " + type + "/" + action);
+            }
+        } catch (RuntimeException e) {
+            fail(channel, message, e.getMessage());
+        }
+    }
+
+    private void subscribe(String topic, String group, WebSocketChannel channel) {
+        String key = group != null ? group : "channel-" + System.identityHashCode(channel);
+        subscriptions.computeIfAbsent(topic, t -> new ConcurrentHashMap<>())
+                .computeIfAbsent(key, k -> new Group())
+                .members.addIfAbsent(channel);
+    }
+
+    private void unsubscribe(WebSocketChannel channel) {
+        subscriptions.values().forEach(groups -> groups.values().forEach(group -> group.members.remove(channel)));
+    }
+
+    private void unsubscribe(String topic, WebSocketChannel channel) {
+        subscriptions.getOrDefault(topic, new ConcurrentHashMap<>()).values()
+                .forEach(group -> group.members.remove(channel));
+    }
+
+    private void publish(String topic, JsonElement body) {
+        if (topic == null || !topics.contains(topic)) {
+            throw new IllegalArgumentException("Topic " + topic + " does not exist");
+        }
+        JsonObject notification = new JsonObject();
+        notification.addProperty("t", "notif");
+        notification.addProperty("s", 0);
+        JsonObject payload = new JsonObject();
+        payload.add("m", body);
+        notification.add("p", payload);
+        String frame = notification.toString();
+
+        subscriptions.getOrDefault(topic, new ConcurrentHashMap<>()).values().forEach(group -> {
+            WebSocketChannel member = group.next();
+            if (member != null) {
+                send(member, frame);
+                delivered.increment();
+            }
+        });
+    }
+
+    private void reply(WebSocketChannel channel, JsonObject request, JsonObject payload) {
+        JsonObject response = header(request, 0);
+        if (payload != null) {
+            response.add("p", payload);
+        }
+        send(channel, response.toString());
+    }
+
+    private void fail(WebSocketChannel channel, JsonObject request, String reason) {
+        JsonObject response = header(request, 1);
+        JsonObject payload = new JsonObject();
+        payload.addProperty("m", reason);
+        response.add("p", payload);
+        send(channel, response.toString());
+    }
+
+    private static JsonObject header(JsonObject request, int status) {
+        JsonObject response = new JsonObject();
+        if (request.has("id")) {
+            response.add("id", request.get("id"));
+        }
+        response.add("t", request.get("t"));
+        if (request.has("a")) {
+            response.add("a", request.get("a"));
+        }
+        response.addProperty("s", status);
+        return response;
+    }
+
+    private static JsonObject topicsPayload(Iterable<String> names) {
+        JsonArray array = new JsonArray();
+        names.forEach(array::add);
+        JsonObject payload = new JsonObject();
+        payload.add("t", array);
+        return payload;
+    }
+
+    private static void send(WebSocketChannel channel, String frame) {
+        if (channel.isOpen()) {
+            WebSockets.sendText(frame, channel, null);
+        }
+    }
+
+    private static String string(JsonObject object, String name) {
+        JsonElement element = object.get(name);
+        return element == null || element.isJsonNull() ? null : element.getAsString();
+    }
+
+    private static List<String> strings(JsonElement element) {
+        List<String> values = new ArrayList<>();
+        if (element != null && element.isJsonArray()) {
+            element.getAsJsonArray().forEach(value -> values.add(value.getAsString()));
+        } else if (element != null && !element.isJsonNull()) {
+            values.add(element.getAsString());
+        }
+        return values;
+    }
+
+    private static class Group {
+        private final CopyOnWriteArrayList<WebSocketChannel> members = new CopyOnWriteArrayList<>();
+        private final AtomicInteger cursor = new AtomicInteger();
+
+        private WebSocketChannel next() {
+            Object[] current = members.toArray();
+            if (current.length == 0) {
+                return null;
+            }
+            return (WebSocketChannel) current[Math.floorMod(cursor.getAndIncrement(), current.length)];
+        }
+    }
+}
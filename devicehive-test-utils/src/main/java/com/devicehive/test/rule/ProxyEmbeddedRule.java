@@ -0,0 +1,60 @@
+package com.devicehive.test.rule;
+
+/*
+ * #%L
+ * DeviceHive Test Utils
+ * %%
+ * Copyright (C) 2016 DataArt
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.devicehive.test.proxy.EmbeddedProxyServer;
+import org.junit.rules.ExternalResource;
+
+/**
+ * Runs an {@link EmbeddedProxyServer} on a free local port for the duration of a test class or method.
+ */
+public class ProxyEmbeddedRule extends ExternalResource {
+
+    private final String[] topics;
+
+    private EmbeddedProxyServer server;
+
+    public ProxyEmbeddedRule(String... topics) {
+        this.topics = topics;
+    }
+
+    @Override
+    protected void before() throws Throwable {
+        server = new EmbeddedProxyServer();
+        server.start();
+        for (String topic : topics) {
+            server.getTopics().add(topic);
+        }
+    }
+
+    @Override
+    protected void after() {
+        server.stop();
+    }
+
+    public String getProxyConnect() {
+        return server.getConnect();
+    }
+
+    public EmbeddedProxyServer getServer() {
+        return server;
+    }
+}